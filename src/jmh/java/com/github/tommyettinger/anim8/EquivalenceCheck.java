@@ -0,0 +1,197 @@
+package com.github.tommyettinger.anim8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+/**
+ * Checks that the faster code in anim8 produces the same results as simpler code that does the same job, using random
+ * inputs from a fixed seed. This is in the same package as {@link LZWEncoder} and {@link ParallelDeflater} so it can
+ * use their package-private parts. It is run by "gradle jmhCheck", which "gradle check" depends on, and throws an
+ * IllegalStateException describing the first difference it finds.
+ * <ul>
+ *     <li>{@link LZWEncoder} must write the same LZW codes as {@link LegacyLZWEncoder}, at every color depth from 1 to
+ *     8. The legacy encoder splits its output into 254-byte sub-blocks instead of 255-byte ones, so the sub-blocks are
+ *     joined back together before comparing.</li>
+ *     <li>{@link ParallelDeflater#combineAdler(int, int, int)} must give the same checksum as one {@link Adler32} over
+ *     a whole buffer, for the checksums of any split of that buffer into pieces.</li>
+ *     <li>{@link PaletteReducer#updatePaletteMapping(int, double, PaletteReducer.PaletteDistance)} and
+ *     {@link PaletteReducer#fillPaletteMapping(byte[], int[], int, double, PaletteReducer.PaletteDistance)} must pick
+ *     the same palette index for every RGB555 cell as checking every palette color in order, for a series of palettes
+ *     that share some of their colors with the palette before, as when analyzing one frame after another.</li>
+ * </ul>
+ */
+public final class EquivalenceCheck {
+    private EquivalenceCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final Random random = new Random(0x1234567890ABCDEFL);
+        checkLZW(random);
+        checkAdler(random);
+        checkPaletteMapping(new PaletteReducer(), random);
+        checkPaletteMapping(new FastPalette(), random);
+        checkPaletteMapping(new QualityPalette(), random);
+    }
+
+    private static void fail(String message) {
+        throw new IllegalStateException(message);
+    }
+
+    /**
+     * Gets the LZW minimum code size and the compressed data from a GIF image's data, without the sub-block lengths
+     * and the block terminator.
+     */
+    private static byte[] joinSubBlocks(byte[] encoded) {
+        ByteArrayOutputStream joined = new ByteArrayOutputStream(encoded.length);
+        joined.write(encoded[0]);
+        int i = 1;
+        while (encoded[i] != 0) {
+            final int length = encoded[i] & 255;
+            joined.write(encoded, i + 1, length);
+            i += length + 1;
+        }
+        if (i != encoded.length - 1)
+            fail("LZW data continues after the block terminator");
+        return joined.toByteArray();
+    }
+
+    private static void checkLZW(Random random) throws IOException {
+        final LZWEncoder encoder = new LZWEncoder();
+        final LegacyLZWEncoder legacy = new LegacyLZWEncoder();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16), legacyOut = new ByteArrayOutputStream(1 << 16);
+        int images = 0;
+        for (int depth = 1; depth <= 8; depth++) {
+            final int colors = 1 << depth;
+            for (int trial = 0; trial < 24; trial++) {
+                final int width = trial == 0 ? 1 : 1 + random.nextInt(320), height = trial == 0 ? 1 : 1 + random.nextInt(240);
+                final byte[] pixels = new byte[width * height];
+                // noise fills the code table quickly, runs make long strings, and a mix of both is in between
+                final int run = 1 + random.nextInt(40);
+                for (int i = 0; i < pixels.length; i++) {
+                    switch (trial % 3) {
+                        case 0:
+                            pixels[i] = (byte) random.nextInt(colors);
+                            break;
+                        case 1:
+                            pixels[i] = (byte) (i / run % colors);
+                            break;
+                        default:
+                            pixels[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt(colors) : (i % width) / run % colors);
+                            break;
+                    }
+                }
+                out.reset();
+                legacyOut.reset();
+                encoder.encode(out, width, height, pixels, depth);
+                legacy.encode(legacyOut, width, height, pixels, depth);
+                if (!Arrays.equals(joinSubBlocks(out.toByteArray()), joinSubBlocks(legacyOut.toByteArray())))
+                    fail("LZWEncoder and LegacyLZWEncoder differ on a " + width + "x" + height + " image at depth " + depth);
+                images++;
+            }
+        }
+        System.out.println("LZWEncoder matches LegacyLZWEncoder on " + images + " images.");
+    }
+
+    private static void checkAdler(Random random) {
+        final Adler32 whole = new Adler32(), part = new Adler32();
+        for (int trial = 0; trial < 200; trial++) {
+            // some buffers are longer than the Adler-32 modulus, 65521, and some pieces are empty
+            final byte[] data = new byte[random.nextInt(trial < 100 ? 4000 : 300000)];
+            if (trial % 4 == 0)
+                Arrays.fill(data, (byte) -1);
+            else
+                random.nextBytes(data);
+            whole.reset();
+            whole.update(data, 0, data.length);
+            final int pieces = 1 + random.nextInt(12);
+            final int[] splits = new int[pieces + 1];
+            for (int i = 1; i < pieces; i++) {
+                splits[i] = random.nextInt(data.length + 1);
+            }
+            splits[pieces] = data.length;
+            Arrays.sort(splits);
+            int adler = 1;
+            for (int i = 0; i < pieces; i++) {
+                part.reset();
+                part.update(data, splits[i], splits[i + 1] - splits[i]);
+                adler = ParallelDeflater.combineAdler(adler, (int) part.getValue(), splits[i + 1] - splits[i]);
+            }
+            if (adler != (int) whole.getValue())
+                fail("combineAdler() differs from Adler32 on " + data.length + " bytes split into " + pieces + " pieces");
+        }
+        System.out.println("ParallelDeflater.combineAdler() matches Adler32 on 200 split buffers.");
+    }
+
+    /**
+     * Finds the first palette index from 1 to count (exclusive) with the smallest difference to the given color, the
+     * same way {@link PaletteReducer#fillPaletteMapping(byte[], int[], int, double, PaletteReducer.PaletteDistance)}
+     * does when it can't use a {@link PaletteReducer.PaletteTree}.
+     */
+    private static int closest(PaletteReducer.PaletteDistance difference, int count, int r, int g, int b) {
+        double best = Double.MAX_VALUE;
+        int index = 0;
+        for (int i = 1; i < count; i++) {
+            final double d = difference.difference(i, r, g, b);
+            if (d < best) {
+                best = d;
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private static void checkPaletteMapping(PaletteReducer reducer, Random random) {
+        final String name = reducer.getClass().getSimpleName();
+        final int[] colors = new int[256];
+        final boolean[] given = new boolean[0x8000];
+        final byte[] filled = new byte[0x8000];
+        for (int i = 1; i < 256; i++) {
+            colors[i] = random.nextInt() | 0xFF;
+        }
+        for (int step = 0; step < 8; step++) {
+            // keep most colors from the last step, in a new order, and replace the rest
+            for (int i = 255; i > 1; i--) {
+                final int j = 1 + random.nextInt(i), t = colors[i];
+                colors[i] = colors[j];
+                colors[j] = t;
+            }
+            for (int i = 1, n = random.nextInt(64); i <= n; i++) {
+                colors[1 + random.nextInt(255)] = random.nextInt() | 0xFF;
+            }
+            final int count = step == 0 ? 256 : 2 + random.nextInt(255);
+            // analyzing a new image with the hue-wise analyzer can't reuse the last mapping
+            final PaletteReducer.PaletteDistance difference = step % 4 == 3 ? reducer.hueWiseDistance : reducer.analyzingDistance;
+
+            // like the analyze methods, give each palette color its own cell before filling the rest
+            Arrays.fill(reducer.paletteArray, 0);
+            Arrays.fill(reducer.paletteMapping, (byte) 0);
+            Arrays.fill(given, false);
+            System.arraycopy(colors, 1, reducer.paletteArray, 1, count - 1);
+            for (int i = 1; i < count; i++) {
+                final int color = colors[i], cell = (color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F);
+                reducer.paletteMapping[cell] = (byte) i;
+                given[cell] = true;
+            }
+            reducer.colorCount = count;
+            System.arraycopy(reducer.paletteMapping, 0, filled, 0, 0x8000);
+            reducer.updatePaletteMapping(count, Double.MAX_VALUE, difference);
+            reducer.fillPaletteMapping(filled, reducer.paletteArray, count, Double.MAX_VALUE, difference);
+
+            for (int c = 0; c < 0x8000; c++) {
+                if (given[c]) continue;
+                final int r = c >>> 10, g = c >>> 5 & 31, b = c & 31;
+                final int expected = closest(difference, count, r << 3 | r >>> 2, g << 3 | g >>> 2, b << 3 | b >>> 2);
+                if ((reducer.paletteMapping[c] & 255) != expected)
+                    fail(name + ".updatePaletteMapping() chose index " + (reducer.paletteMapping[c] & 255) + " for RGB555 cell "
+                            + c + ", but " + expected + " is the closest, on step " + step);
+                if ((filled[c] & 255) != expected)
+                    fail(name + ".fillPaletteMapping() chose index " + (filled[c] & 255) + " for RGB555 cell "
+                            + c + ", but " + expected + " is the closest, on step " + step);
+            }
+        }
+        System.out.println(name + "'s palette mappings match a search of every color on 8 palettes.");
+    }
+}
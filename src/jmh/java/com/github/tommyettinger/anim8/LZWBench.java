@@ -0,0 +1,73 @@
+package com.github.tommyettinger.anim8;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.github.tommyettinger.bench.BenchImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times only the LZW compression step of writing a GIF frame. This is in the same package as {@link LZWEncoder} so it
+ * can use that class directly; the indexed pixels are made once, by reducing an image with the given dither.
+ * {@link #encodeLegacy()} times the hash-based encoder that LZWEncoder replaced, for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LZWBench {
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"NONE", "PATTERN", "WREN"})
+    public Dithered.DitherAlgorithm ditherAlgorithm;
+
+    private byte[] indexedPixels;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1 << 20);
+    private final LZWEncoder encoder = new LZWEncoder();
+    private final LegacyLZWEncoder legacyEncoder = new LegacyLZWEncoder();
+
+    @Setup
+    public void setup() {
+        Pixmap image = BenchImages.load(size);
+        PaletteReducer palette = new PaletteReducer(image);
+        palette.reduce(image, ditherAlgorithm);
+        indexedPixels = new byte[size * size];
+        final byte[] mapping = palette.paletteMapping;
+        for (int y = 0, i = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int color = image.getPixel(x, y);
+                indexedPixels[i++] = (color & 0x80) == 0 ? 0 : mapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)];
+            }
+        }
+        image.dispose();
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        output.reset();
+        encoder.encode(output, size, size, indexedPixels, 8);
+        return output.size();
+    }
+
+    @Benchmark
+    public int encodeLegacy() throws IOException {
+        output.reset();
+        legacyEncoder.encode(output, size, size, indexedPixels, 8);
+        return output.size();
+    }
+}
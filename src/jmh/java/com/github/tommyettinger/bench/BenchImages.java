@@ -0,0 +1,73 @@
+package com.github.tommyettinger.bench;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.github.tommyettinger.anim8.FastPalette;
+import com.github.tommyettinger.anim8.PaletteReducer;
+import com.github.tommyettinger.anim8.QualityPalette;
+
+/**
+ * Shared setup for the JMH benchmarks. This only loads the native code Pixmap needs and the headless Files
+ * implementation, so it doesn't need an OpenGL context, a window, or a GPU.
+ */
+public final class BenchImages {
+    private BenchImages() {
+    }
+
+    static {
+        GdxNativesLoader.load();
+        if (Gdx.files == null)
+            Gdx.files = new HeadlessFiles();
+    }
+
+    /**
+     * Makes sure libGDX's natives and {@link Gdx#files} are ready; this is called automatically by the other methods.
+     */
+    public static void init() {
+    }
+
+    /**
+     * Loads Mona_Lisa.jpg from the classpath and scales it to a new square RGBA8888 Pixmap.
+     * @param size the width and height of the Pixmap to create
+     * @return a new Pixmap that should be disposed when the benchmark is done with it
+     */
+    public static Pixmap load(int size) {
+        return load("Mona_Lisa.jpg", size);
+    }
+
+    /**
+     * Loads the given image from the classpath and scales it to a new square RGBA8888 Pixmap.
+     * @param name the classpath location of an image file, such as {@code "Mona_Lisa.jpg"}
+     * @param size the width and height of the Pixmap to create
+     * @return a new Pixmap that should be disposed when the benchmark is done with it
+     */
+    public static Pixmap load(String name, int size) {
+        Pixmap source = new Pixmap(Gdx.files.classpath(name));
+        Pixmap scaled = new Pixmap(size, size, Pixmap.Format.RGBA8888);
+        scaled.setFilter(Pixmap.Filter.BiLinear);
+        scaled.drawPixmap(source, 0, 0, source.getWidth(), source.getHeight(), 0, 0, size, size);
+        source.dispose();
+        return scaled;
+    }
+
+    /**
+     * Creates an empty palette of the given type, without analyzing anything.
+     * @param type one of "PaletteReducer", "FastPalette", or "QualityPalette"
+     * @return a new PaletteReducer, FastPalette, or QualityPalette
+     */
+    public static PaletteReducer palette(String type) {
+        init();
+        switch (type) {
+            case "FastPalette":
+                return new FastPalette();
+            case "QualityPalette":
+                return new QualityPalette();
+            case "PaletteReducer":
+                return new PaletteReducer();
+            default:
+                throw new IllegalArgumentException("Unknown palette type: " + type);
+        }
+    }
+}
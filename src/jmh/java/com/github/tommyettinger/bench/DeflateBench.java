@@ -0,0 +1,103 @@
+package com.github.tommyettinger.bench;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Array;
+import com.github.tommyettinger.anim8.AnimatedPNG;
+import com.github.tommyettinger.anim8.Dithered;
+import com.github.tommyettinger.anim8.FastPNG;
+import com.github.tommyettinger.anim8.PNG8;
+import com.github.tommyettinger.anim8.PaletteReducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the PNG writers, which spend most of their time in DEFLATE. {@link #png8()} uses an exact palette and no
+ * dither, so it mostly measures looking up palette indices and compressing them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeflateBench {
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"2", "6"})
+    public int compression;
+
+    private Pixmap image;
+    private Array<Pixmap> frames;
+    private FastPNG png;
+    private AnimatedPNG apng;
+    private PNG8 png8;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setup() {
+        image = BenchImages.load(size);
+        // each frame differs by a pixel, so AnimatedPNG can't merge them into one longer frame
+        frames = new Array<>(4);
+        for (int i = 0; i < 4; i++) {
+            Pixmap frame = new Pixmap(size, size, Pixmap.Format.RGBA8888);
+            frame.setBlending(Pixmap.Blending.None);
+            frame.drawPixmap(image, 0, 0);
+            frame.drawPixel(i, 0, ~image.getPixel(i, 0) | 0xFF);
+            frames.add(frame);
+        }
+        png = new FastPNG();
+        png.setCompression(compression);
+        apng = new AnimatedPNG();
+        apng.setCompression(compression);
+        png8 = new PNG8();
+        png8.setCompression(compression);
+        png8.setPalette(new PaletteReducer(image));
+        png8.setDitherAlgorithm(Dithered.DitherAlgorithm.NONE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        png.dispose();
+        apng.dispose();
+        png8.dispose();
+        image.dispose();
+        for (Pixmap frame : frames) {
+            frame.dispose();
+        }
+    }
+
+    @Benchmark
+    public int fastPNG() {
+        output.reset();
+        png.write(output, image);
+        return output.size();
+    }
+
+    @Benchmark
+    public int animatedPNG() {
+        output.reset();
+        apng.write(output, frames, 30);
+        return output.size();
+    }
+
+    @Benchmark
+    public int png8() {
+        output.reset();
+        png8.write(output, image, false, false);
+        return output.size();
+    }
+}
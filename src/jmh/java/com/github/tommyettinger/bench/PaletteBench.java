@@ -0,0 +1,93 @@
+package com.github.tommyettinger.bench;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.github.tommyettinger.anim8.PaletteReducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building a palette, either by analyzing an image with each of the analyze methods, or by calling
+ * {@link PaletteReducer#exact(int[])} with a known 256-color palette. Each call gets a new, empty palette object, so
+ * the analyze methods can't reuse the palette mapping from the call before; this measures the full cost of building a
+ * palette, not the incremental update a palette can do when it analyzes one frame after another.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaletteBench {
+    @Param({"PaletteReducer", "FastPalette", "QualityPalette"})
+    public String paletteType;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    private PaletteReducer palette;
+    private Pixmap image;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        image = BenchImages.load(size);
+    }
+
+    @Setup(Level.Invocation)
+    public void newPalette() {
+        palette = BenchImages.palette(paletteType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        image.dispose();
+    }
+
+    @Benchmark
+    public PaletteReducer analyze() {
+        palette.analyze(image);
+        return palette;
+    }
+
+    @Benchmark
+    public PaletteReducer analyzeFast() {
+        palette.analyzeFast(image, 150, 256);
+        return palette;
+    }
+
+    @Benchmark
+    public PaletteReducer analyzeHueWise() {
+        palette.analyzeHueWise(image, 150, 256);
+        return palette;
+    }
+
+    @Benchmark
+    public PaletteReducer analyzeMC() {
+        palette.analyzeMC(image, 256);
+        return palette;
+    }
+
+    @Benchmark
+    public PaletteReducer analyzeReductive() {
+        palette.analyzeReductive(image);
+        return palette;
+    }
+
+    @Benchmark
+    public PaletteReducer exact() {
+        palette.exact(PaletteReducer.AURORA);
+        return palette;
+    }
+}
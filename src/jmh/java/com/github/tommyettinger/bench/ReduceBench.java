@@ -0,0 +1,72 @@
+package com.github.tommyettinger.bench;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.github.tommyettinger.anim8.Dithered;
+import com.github.tommyettinger.anim8.PaletteReducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times {@link PaletteReducer#reduce(Pixmap, Dithered.DitherAlgorithm)} for every dither algorithm, with each type
+ * of palette. The palette is analyzed from the image once per trial, and each call reduces a fresh copy of the image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReduceBench {
+    /**
+     * With no values given, JMH runs every constant in the enum.
+     */
+    @Param
+    public Dithered.DitherAlgorithm ditherAlgorithm;
+
+    @Param({"PaletteReducer", "FastPalette", "QualityPalette"})
+    public String paletteType;
+
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    private PaletteReducer palette;
+    private Pixmap image, work;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        palette = BenchImages.palette(paletteType);
+        image = BenchImages.load(size);
+        palette.analyze(image);
+        work = new Pixmap(size, size, Pixmap.Format.RGBA8888);
+        work.setBlending(Pixmap.Blending.None);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyImage() {
+        work.drawPixmap(image, 0, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        image.dispose();
+        work.dispose();
+    }
+
+    @Benchmark
+    public Pixmap reduce() {
+        return palette.reduce(work, ditherAlgorithm);
+    }
+}
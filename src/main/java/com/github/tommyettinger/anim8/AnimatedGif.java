@@ -22,10 +22,13 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.StreamUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
@@ -123,9 +126,7 @@ public class AnimatedGif implements AnimationWriter, Dithered {
         }
         if(!start(output)) return;
         setFrameRate(fps);
-        for (int i = 0; i < frames.size; i++) {
-            addFrame(frames.get(i));
-        }
+        addFrames(frames);
         finish();
         if(clearPalette)
             palette = null;
@@ -153,6 +154,8 @@ public class AnimatedGif implements AnimationWriter, Dithered {
 
     protected OutputStream out;
 
+    private BlockOutputStream blockOutput; // buffers out, so the stream given to start() gets large writes
+
     protected Pixmap image; // current frame
 
     protected byte[] indexedPixels; // converted frame indexed to palette
@@ -177,6 +180,52 @@ public class AnimatedGif implements AnimationWriter, Dithered {
 
     protected boolean clearPalette;
 
+    protected Parallelism parallelism = Parallelism.SERIAL;
+
+    protected AnimatedGif[] frameWorkers; // used by addFrames() when frames are encoded in parallel
+
+    protected final float[] tempThresholdMatrix = new float[64]; // not shared, so frames can be encoded in parallel
+
+    protected boolean deltaFrames = false; // only write the changed part of each frame
+
+    protected float lossy = 0f; // max Oklab distance between a pixel's color and the color LZW can write instead
+
+    protected int frameRun = 1; // how many identical frames the current frame stands for, multiplying its delay
+
+    protected IntArray frameRuns; // lengths of runs of identical frames, found by addFrames()
+
+    protected final Array<Pixmap> uniqueFrames = new Array<>(); // the first frame of each run, used by addFrames()
+
+    protected int frameLeft, frameTop, frameWidth, frameHeight; // part of the image actually written for this frame
+
+    protected boolean keepFrame = false; // if true, the next frame is drawn over this one (disposal method 1)
+
+    protected int[] canvas; // RGB888 colors shown after the last frame, used by deltaFrames
+
+    protected boolean canvasKnown = false; // false if canvas can't be used as the base for the next frame
+
+    protected boolean clearCanvas = false; // if true, a frame that clears the whole canvas is written before this one
+
+    protected boolean transparentSeen = false; // once a frame has transparent pixels, deltaFrames stops being used
+
+    protected final byte[] globalColorTab = new byte[256 * 3]; // the global color table, as written
+
+    protected int globalPalSize; // global color table size (bits-1)
+
+    protected final int[] canvasColors = new int[256]; // RGB colors of the current frame's palette, used by deltaFrames
+
+    protected Pixmap resized; // reused to hold frames that aren't the same size as the GIF
+
+    protected int frameAlign = Align.topLeft; // where frames that aren't the same size as the GIF are placed
+
+    protected int frameFill = 0; // RGBA8888 color around frames smaller than the GIF
+
+    private final LZWEncoder encoder = new LZWEncoder(); // reused for every frame
+
+    private byte[] clearingPixels = new byte[0]; // always all 0, the transparent index, for writeClearingFrame()
+
+    protected boolean localColorTable; // true if the current frame needs its own color table
+
     /**
      * If true (the default) and {@link #palette} is null, this uses a lower-quality but much-faster algorithm to
      * analyze the color palette in each frame; if false and palette is null, then this uses the normal algorithm for
@@ -339,21 +388,14 @@ public class AnimatedGif implements AnimationWriter, Dithered {
             getImagePixels(); // convert to correct format if necessary
             // build color table & map pixels
             analyzePixels();
-            if (firstFrame) {
-                writeLSD(); // logical screen descriptor
-                writePalette(); // global color table
-                if (repeat >= 0) {
-                    // use NS app extension to indicate reps
-                    writeNetscapeExt();
-                }
-            }
-            writeGraphicCtrlExt(); // write graphic control extension
-            writeImageDesc(); // image descriptor
-            if (!firstFrame) {
-                writePalette(); // local color table
+            if (deltaFrames) {
+                findChanges(this);
             }
+            fitColorTable();
+            writeFrameHeader();
             writePixels(); // encode and write pixel data
             firstFrame = false;
+            drainFrame();
         } catch (IOException e) {
             ok = false;
         }
@@ -361,6 +403,432 @@ public class AnimatedGif implements AnimationWriter, Dithered {
         return ok;
     }
 
+    /**
+     * Writes everything for the current frame that comes before its pixel data: the logical screen descriptor, global
+     * color table, and looping extension if this is the first frame, then the graphic control extension, image
+     * descriptor, and (after the first frame) local color table.
+     */
+    protected void writeFrameHeader() throws IOException {
+        if (firstFrame) {
+            if (!clearPalette) {
+                // the palette won't change, so make the global color table hold all of it for later frames to use
+                palSize = Math.max(palSize, 31 - Integer.numberOfLeadingZeros(Math.max(palette.colorCount - 1, 1)));
+            }
+            writeLSD(); // logical screen descriptor
+            writePalette(); // global color table
+            globalPalSize = palSize;
+            System.arraycopy(colorTab, 0, globalColorTab, 0, Math.min(3 << palSize + 1, colorTab.length));
+            if (repeat >= 0) {
+                // use NS app extension to indicate reps
+                writeNetscapeExt();
+            }
+        }
+        if (clearCanvas) {
+            writeClearingFrame();
+        }
+        localColorTable = !firstFrame && !matchesGlobalColorTab();
+        writeGraphicCtrlExt(); // write graphic control extension
+        writeImageDesc(); // image descriptor
+        if (localColorTable) {
+            writePalette(); // local color table
+        }
+    }
+
+    /**
+     * Checks whether every color the current frame can use is the same as in the global color table, so the frame
+     * can use that table instead of writing its own.
+     * @return true if the global color table has all the colors this frame needs, at the same indices
+     */
+    protected boolean matchesGlobalColorTab() {
+        if (palSize > globalPalSize) return false;
+        for (int i = 0, n = Math.min(3 << palSize + 1, colorTab.length); i < n; i++) {
+            if (colorTab[i] != globalColorTab[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds every Pixmap in {@code frames} as a frame, in order, as if by {@link #addFrame(Pixmap)}. If
+     * {@link #getParallelism()} can use more than one thread and there is more than one frame, several frames are
+     * analyzed, dithered, and compressed at the same time by separate workers (see {@link #newFrameWorker()}), each
+     * with its own {@link PaletteReducer#copy() copy} of the palette, and the compressed frames are then written in
+     * order. The output is the same either way. If the palette is a subclass of PaletteReducer whose copy() doesn't
+     * return that same subclass (such as an anonymous subclass), the copies could dither differently, so frames are
+     * encoded one at a time instead.
+     * <br>
+     * When several frames in a row have exactly the same pixels, only the first of them is written, and it is shown
+     * for as long as all of them would have been.
+     *
+     * @param frames an Array of Pixmap frames that should all be the same size, to be written in order
+     * @return true if every frame was written successfully
+     */
+    public boolean addFrames(Array<Pixmap> frames) {
+        if (!started) return false;
+        // the delay is stored in hundredths of a second, in 16 bits
+        final IntArray runs = frameRuns = DuplicateFrames.findRuns(frames, Math.max(1, 655350 / Math.max(delay, 1)), frameRuns);
+        if (runs.size < frames.size) {
+            uniqueFrames.clear();
+            for (int i = 0, r = 0; r < runs.size; i += runs.get(r++)) {
+                uniqueFrames.add(frames.get(i));
+            }
+            frames = uniqueFrames;
+        }
+        try {
+            return addUniqueFrames(frames, runs);
+        } finally {
+            frameRun = 1;
+            uniqueFrames.clear();
+        }
+    }
+
+    /**
+     * Does the work of {@link #addFrames(Array)} once identical frames have been merged.
+     * @param frames frames that are different from the frames next to them
+     * @param runs how many frames each item in {@code frames} stands for
+     * @return true if every frame was written successfully
+     */
+    private boolean addUniqueFrames(final Array<Pixmap> frames, final IntArray runs) {
+        final PaletteReducer copy = parallelism.threads() <= 1 || frames.size <= 1 ? null : palette.copy();
+        // the workers dither with copies of the palette, which must be the same kind of PaletteReducer to match
+        if (copy == null || copy.getClass() != palette.getClass()) {
+            boolean ok = true;
+            for (int i = 0; i < frames.size; i++) {
+                frameRun = runs.get(i);
+                ok &= addFrame(frames.get(i));
+            }
+            return ok;
+        }
+        if (!sizeSet) {
+            // use first frame's size
+            setSize(frames.first().getWidth(), frames.first().getHeight());
+        }
+        final int batch = Math.min(frames.size, parallelism.threads() * 2);
+        if (frameWorkers == null || frameWorkers.length < batch)
+            frameWorkers = new AnimatedGif[batch];
+        for (int i = 0; i < batch; i++) {
+            AnimatedGif worker = frameWorkers[i];
+            if (worker == null)
+                worker = frameWorkers[i] = newFrameWorker();
+            worker.palette = i == 0 ? copy : palette.copy();
+            worker.ditherAlgorithm = ditherAlgorithm;
+            worker.ditherStrength = ditherStrength;
+            worker.flipY = flipY;
+            worker.fastAnalysis = fastAnalysis;
+            worker.lossy = lossy;
+            worker.frameAlign = frameAlign;
+            worker.frameFill = frameFill;
+            worker.clearPalette = clearPalette;
+            worker.setSize(width, height);
+            if (worker.out == null)
+                worker.out = new ByteArrayOutputStream(width * height >>> 1);
+        }
+        final int firstSeq = seq;
+        try {
+            for (int start = 0; start < frames.size; start += batch) {
+                final int begin = start, count = Math.min(batch, frames.size - start);
+                if (deltaFrames) {
+                    // each frame's changes depend on the frame before it, so only that part is done in order
+                    parallelism.run(count, new Parallelism.Task() {
+                        @Override
+                        public void run(int i) {
+                            frameWorkers[i].analyzeFrame(frames.get(begin + i), firstSeq + begin + i + 1);
+                        }
+                    });
+                    for (int i = 0; i < count; i++) {
+                        findChanges(frameWorkers[i]);
+                    }
+                    parallelism.run(count, new Parallelism.Task() {
+                        @Override
+                        public void run(int i) {
+                            frameWorkers[i].compressFrame();
+                        }
+                    });
+                } else {
+                    parallelism.run(count, new Parallelism.Task() {
+                        @Override
+                        public void run(int i) {
+                            frameWorkers[i].encodeFrame(frames.get(begin + i), firstSeq + begin + i + 1);
+                        }
+                    });
+                }
+                for (int i = 0; i < count; i++) {
+                    final AnimatedGif worker = frameWorkers[i];
+                    ++seq;
+                    image = frames.get(begin + i);
+                    if (colorTab == null)
+                        colorTab = new byte[256 * 3];
+                    System.arraycopy(worker.colorTab, 0, colorTab, 0, colorTab.length);
+                    colorDepth = worker.colorDepth;
+                    palSize = worker.palSize;
+                    frameLeft = worker.frameLeft;
+                    frameTop = worker.frameTop;
+                    frameWidth = worker.frameWidth;
+                    frameHeight = worker.frameHeight;
+                    keepFrame = worker.keepFrame;
+                    clearCanvas = worker.clearCanvas;
+                    if (worker.transIndex != -1 || deltaFrames)
+                        transIndex = worker.transIndex;
+                    frameRun = runs.get(begin + i);
+                    writeFrameHeader();
+                    ((ByteArrayOutputStream) worker.out).writeTo(out);
+                    firstFrame = false;
+                    drainFrame();
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            for (int i = 0; i < batch; i++) {
+                frameWorkers[i].palette = null;
+                frameWorkers[i].image = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Used by a frame worker in {@link #addFrames(Array)} to analyze, dither, and compress one frame into its own
+     * {@link #out}, which is a ByteArrayOutputStream.
+     *
+     * @param im the frame to encode
+     * @param frameSeq the value {@link #seq} would have for this frame if frames were added one at a time
+     */
+    protected void encodeFrame(Pixmap im, int frameSeq) {
+        analyzeFrame(im, frameSeq);
+        compressFrame();
+    }
+
+    /**
+     * The first part of {@link #encodeFrame(Pixmap, int)}, which analyzes and dithers one frame but doesn't compress
+     * it yet. This is used on its own when {@link #isDeltaFrames()} is true, so the changes in each frame can be found
+     * in order before any frames are compressed.
+     *
+     * @param im the frame to encode
+     * @param frameSeq the value {@link #seq} would have for this frame if frames were added one at a time
+     */
+    protected void analyzeFrame(Pixmap im, int frameSeq) {
+        seq = frameSeq;
+        image = im;
+        transIndex = -1;
+        ((ByteArrayOutputStream) out).reset();
+        getImagePixels();
+        analyzePixels();
+    }
+
+    /**
+     * The second part of {@link #encodeFrame(Pixmap, int)}, which LZW-compresses a frame that has already been
+     * analyzed by {@link #analyzeFrame(Pixmap, int)}.
+     */
+    protected void compressFrame() {
+        fitColorTable();
+        try {
+            writePixels();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sets {@link #colorDepth} and {@link #palSize} so the color table for this frame is the smallest power of two
+     * that still has every index used by {@link #indexedPixels} (only counting the {@link #frameWidth} by
+     * {@link #frameHeight} pixels that are written) and {@link #transIndex}. This also makes LZW compression start
+     * with the smallest code size it can, which helps most with palettes that have few colors.
+     */
+    protected void fitColorTable() {
+        int bits = Math.max(transIndex, 1);
+        for (int i = 0, n = frameWidth * frameHeight; i < n; i++) {
+            bits |= indexedPixels[i] & 255;
+        }
+        // the highest index used has the same highest bit as all indices combined
+        colorDepth = 32 - Integer.numberOfLeadingZeros(bits);
+        palSize = colorDepth - 1;
+    }
+
+    /**
+     * Gets whether this writes only the part of each frame that changed since the previous frame; see
+     * {@link #setDeltaFrames(boolean)}.
+     * @return true if only changed parts of frames are written
+     */
+    public boolean isDeltaFrames() {
+        return deltaFrames;
+    }
+
+    /**
+     * If true, each frame after the first is compared with the frame before it, and only the smallest rectangle that
+     * contains every changed pixel is written. Pixels in that rectangle that didn't change are written with a
+     * transparent index, so they show the previous frame (which is kept, using disposal method 1). This can make
+     * animations that are mostly still, such as recordings of a UI, several times smaller, and faster to write.
+     * <br>
+     * Frames are compared using their colors after dithering, so dithers that change a lot from frame to frame, such
+     * as {@link DitherAlgorithm#CHAOTIC_NOISE}, benefit less than ordered dithers like {@link DitherAlgorithm#LOAF}.
+     * This is meant for opaque animations; once a frame has any transparent pixels, that frame and all later ones
+     * are written whole, as they would be if this was false. While this is true, {@link #setDispose(int)} is
+     * ignored. The default is false.
+     * @param deltaFrames true if this should write only the changed parts of frames
+     */
+    public void setDeltaFrames(boolean deltaFrames) {
+        this.deltaFrames = deltaFrames;
+    }
+
+    /**
+     * Gets how far (in Oklab) a pixel's color can be from the color it is written as; see {@link #setLossy(float)}.
+     * @return the largest Oklab distance allowed for lossy compression, or 0 if compression is lossless
+     */
+    public float getLossy() {
+        return lossy;
+    }
+
+    /**
+     * If greater than 0, the LZW compression of each frame is allowed to write a pixel as a different palette color,
+     * if that color is no further than {@code lossy} from the pixel's color in the Oklab color space, and if that lets
+     * it write more pixels with one code. This works like gifsicle's {@code --lossy} option. Palettes analyzed by
+     * PaletteReducer rarely have two colors closer than about 0.03, so smaller values may not change anything. Around
+     * 0.04, files are often a third smaller and the change is hard to notice; around 0.06, files can be half the
+     * size, but streaks may show in gradients.
+     * The transparent color is never used in place of another color, or replaced by one.
+     * The default is 0, which keeps compression lossless.
+     * @param lossy the largest Oklab distance allowed between a pixel's color and the color it is written as; 0 or
+     *              less makes compression lossless
+     */
+    public void setLossy(float lossy) {
+        this.lossy = Math.max(lossy, 0f);
+    }
+
+    /**
+     * Used when {@link #isDeltaFrames()} is true, after {@code frame} has been analyzed (where {@code frame} is either
+     * this object or one of its frame workers). This compares the frame's colors with {@link #canvas}, then changes
+     * the frame's indexed pixels so that only the rectangle containing changes is stored (at the start of
+     * {@link #indexedPixels}, row by row), with unchanged pixels in that rectangle set to the frame's transparent
+     * index. This updates the canvas to match the frame as it will be shown.
+     *
+     * @param frame this AnimatedGif or one of its frame workers, which must have already analyzed its frame
+     */
+    protected void findChanges(AnimatedGif frame) {
+        final int w = width, h = height, n = w * h;
+        final byte[] pixels = frame.indexedPixels;
+        final byte[] tab = frame.colorTab;
+        final boolean hasTransparent = frame.palette.paletteArray[0] == 0;
+        frame.clearCanvas = false;
+        frame.keepFrame = false;
+        frame.transIndex = hasTransparent ? 0 : -1;
+        if (transparentSeen) return;
+        if (hasTransparent) {
+            for (int i = 0; i < n; i++) {
+                if (pixels[i] == 0) {
+                    // a transparent pixel can't replace an opaque one in a kept frame, so from now on, frames are
+                    // written whole and cleared afterwards; if a kept frame is showing, it needs to be cleared first
+                    frame.clearCanvas = canvasKnown;
+                    canvasKnown = false;
+                    transparentSeen = true;
+                    return;
+                }
+            }
+        }
+        final int[] rgb = canvasColors;
+        for (int i = 0, bi = 0; i < 256; i++, bi += 3) {
+            rgb[i] = (tab[bi] & 255) << 16 | (tab[bi + 1] & 255) << 8 | (tab[bi + 2] & 255);
+        }
+        frame.keepFrame = true;
+        if (canvas == null || canvas.length < n)
+            canvas = new int[n];
+        final int[] canvas = this.canvas;
+        if (!canvasKnown) {
+            for (int i = 0; i < n; i++) {
+                canvas[i] = rgb[pixels[i] & 255];
+            }
+            canvasKnown = true;
+            return;
+        }
+        int left = w, right = -1, top = h, bottom = -1;
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0; x < w; x++, i++) {
+                if (canvas[i] != rgb[pixels[i] & 255]) {
+                    if (x < left) left = x;
+                    if (x > right) right = x;
+                    if (y < top) top = y;
+                    bottom = y;
+                }
+            }
+        }
+        if (right < 0) {
+            // nothing changed, but a GIF frame still needs at least one pixel, so write one transparent pixel
+            frame.frameLeft = frame.frameTop = 0;
+            frame.frameWidth = frame.frameHeight = 1;
+            frame.transIndex = 0;
+            pixels[0] = 0;
+            return;
+        }
+        // find an index that isn't used by any changed pixel, so it can be used to mark unchanged pixels
+        final boolean[] used = frame.usedEntry;
+        Arrays.fill(used, false);
+        for (int y = top; y <= bottom; y++) {
+            for (int x = left, i = y * w + left; x <= right; x++, i++) {
+                final int p = pixels[i] & 255;
+                if (canvas[i] != rgb[p])
+                    used[p] = true;
+            }
+        }
+        int trans = -1;
+        for (int i = 0; i < 256; i++) {
+            if (!used[i]) {
+                trans = i;
+                break;
+            }
+        }
+        // pack the changed rectangle at the start of pixels; this never overwrites a pixel before it is read
+        for (int y = top, o = 0; y <= bottom; y++) {
+            for (int x = left, i = y * w + left; x <= right; x++, i++) {
+                final int p = pixels[i] & 255;
+                if (canvas[i] == rgb[p]) {
+                    pixels[o++] = (byte) (trans == -1 ? p : trans);
+                } else {
+                    canvas[i] = rgb[p];
+                    pixels[o++] = (byte) p;
+                }
+            }
+        }
+        frame.transIndex = trans;
+        frame.frameLeft = left;
+        frame.frameTop = top;
+        frame.frameWidth = right - left + 1;
+        frame.frameHeight = bottom - top + 1;
+    }
+
+    /**
+     * Creates one of the AnimatedGif objects that {@link #addFrames(Array)} uses to encode frames on other threads.
+     * Only the settings that affect how a frame is analyzed and dithered are copied to it. If a subclass changes how
+     * frames are analyzed, it should override this to return an instance of that subclass.
+     *
+     * @return a new AnimatedGif that will be used only to encode frames
+     */
+    protected AnimatedGif newFrameWorker() {
+        return new AnimatedGif();
+    }
+
+    /**
+     * Gets the {@link Parallelism} this uses to encode several frames at once in {@link #addFrames(Array)}.
+     * @return the Parallelism this uses; never null
+     */
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the {@link Parallelism} this uses to encode several frames at once in {@link #addFrames(Array)}, which is
+     * also used by {@link #write(OutputStream, Array, int)}. Each frame is analyzed (if the palette is null), dithered,
+     * and LZW-compressed by a worker with its own copy of the palette, then the frames are written in order, so the
+     * GIF is exactly the same as it would be using one thread. This uses more memory, since a few frames are held in
+     * compressed form at once. The default is {@link Parallelism#SERIAL}, which encodes one frame at a time. A palette
+     * that is a subclass of PaletteReducer is only copied for the workers if it overrides {@link PaletteReducer#copy()}
+     * to return its own class; if it doesn't, frames are still encoded one at a time.
+     * <br>
+     * On desktop and Android, {@code new ForkJoinParallelism()} uses every core in the common ForkJoinPool.
+     * @param parallelism a Parallelism such as a {@link ForkJoinParallelism}; if null, this uses {@link Parallelism#SERIAL}
+     */
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism == null ? Parallelism.SERIAL : parallelism;
+    }
+
     /**
      * Flushes any pending data and closes output file. If writing to an
      * OutputStream, the stream is not closed.
@@ -382,13 +850,27 @@ public class AnimatedGif implements AnimationWriter, Dithered {
 
         // reset for subsequent use
         transIndex = -1;
+        if (blockOutput != null)
+            blockOutput.setTarget(null);
         out = null;
         image = null;
-        indexedPixels = null;
-        colorTab = null;
+        if (resized != null) {
+            resized.dispose();
+            resized = null;
+        }
+        if (frameWorkers != null) {
+            for (AnimatedGif worker : frameWorkers) {
+                if (worker != null && worker.resized != null) {
+                    worker.resized.dispose();
+                    worker.resized = null;
+                }
+            }
+        }
         closeStream = false;
         sizeSet = false;
         firstFrame = true;
+        canvasKnown = false;
+        transparentSeen = false;
         seq = 0;
 
         return ok;
@@ -437,7 +919,13 @@ public class AnimatedGif implements AnimationWriter, Dithered {
 
     /**
      * Initiates GIF file creation on the given stream. The stream is not closed
-     * automatically.
+     * automatically. Output is buffered, and is written to the stream in large
+     * blocks, once per frame, so the stream doesn't need to be buffered itself.
+     * The stream is flushed after each frame, so a GIF can be sent over a network
+     * while it is being encoded, and no more than one frame (or one batch of
+     * frames, when {@link #addFrames(Array)} runs in parallel) is held in memory.
+     * To write to a {@link java.nio.channels.WritableByteChannel}, such as a socket,
+     * wrap it in a {@link ChannelOutputStream} (not available on GWT).
      *
      * @param os OutputStream on which GIF images are written.
      * @return false if initial write failed.
@@ -447,7 +935,9 @@ public class AnimatedGif implements AnimationWriter, Dithered {
             return false;
         boolean ok = true;
         closeStream = false;
-        out = os;
+        if (blockOutput == null)
+            blockOutput = new BlockOutputStream(1 << 16);
+        out = blockOutput.setTarget(os);
         try {
             writeString("GIF89a"); // header
         } catch (IOException e) {
@@ -457,1656 +947,138 @@ public class AnimatedGif implements AnimationWriter, Dithered {
         return started = ok;
     }
 
-    protected void analyzeNone()
-    {
-        final int nPix = indexedPixels.length;
+    /**
+     * The GIF version of Gourd dither, which uses the same threshold for all three channels where
+     * {@link PaletteReducer#reduceGourd(Pixmap)} uses a different one for each; it is kept so GIF output doesn't change.
+     */
+    protected void analyzeGourd() {
+        final int nPix = width * height;
+        if (indexedPixels == null || indexedPixels.length < nPix)
+            indexedPixels = new byte[nPix];
+        final int[] pixels = palette.readPixels(image, flipY);
         int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
         final int[] paletteArray = palette.paletteArray;
         final byte[] paletteMapping = palette.paletteMapping;
         boolean hasTransparent = paletteArray[0] == 0;
 
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
+        final float strength = (float)(ditherStrength * 0.7 * Math.pow(palette.populationBias, -5.50));
+        for (int i = 0; i < 64; i++) {
+            tempThresholdMatrix[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
+        }
+        for (int oy = 0, i = 0; oy < height && i < nPix; oy++) {
+            for (int x = 0; x < width & i < nPix; x++) {
+                color = pixels[i];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
                     indexedPixels[i++] = 0;
                 else {
-                    usedEntry[(indexedPixels[i] = paletteMapping[
-                            (color >>> 17 & 0x7C00)
-                                    | (color >>> 14 & 0x3E0)
-                                    | ((color >>> 11 & 0x1F))]) & 255] = true;
-                    i++;
+                    float adj = tempThresholdMatrix[(x & 7) | (oy & 7) << 3];
+                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
+                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
+                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
+                    int rgb555 = ((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3));
+                    indexedPixels[i++] = paletteMapping[rgb555];
                 }
             }
         }
     }
 
-    protected void analyzePattern() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
+    /**
+     * The GIF version of Woven dither, which offsets the noise for its blue channel differently from
+     * {@link PaletteReducer#reduceWoven(Pixmap)}; it is kept so GIF output doesn't change.
+     */
+    protected void analyzeWoven() {
+        final int nPix = width * height;
+        if (indexedPixels == null || indexedPixels.length < nPix)
+            indexedPixels = new byte[nPix];
+        final int[] pixels = palette.readPixels(image, flipY);
+        int color, used;
         final int[] paletteArray = palette.paletteArray;
         final byte[] paletteMapping = palette.paletteMapping;
         boolean hasTransparent = paletteArray[0] == 0;
 
-        int cr, cg, cb, usedIndex;
-        final float errorMul = ditherStrength * 0.5f / palette.populationBias;
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    int er = 0, eg = 0, eb = 0;
-                    cr = (color >>> 24);
-                    cg = (color >>> 16 & 0xFF);
-                    cb = (color >>> 8 & 0xFF);
-                    for (int c = 0; c < 16; c++) {
-                        int rr = Math.min(Math.max((int) (cr + er * errorMul), 0), 255);
-                        int gg = Math.min(Math.max((int) (cg + eg * errorMul), 0), 255);
-                        int bb = Math.min(Math.max((int) (cb + eb * errorMul), 0), 255);
-                        usedIndex = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))] & 0xFF;
-                        palette.candidates[c | 16] = shrink(used = paletteArray[palette.candidates[c] = usedIndex]);
-                        er += cr - (used >>> 24);
-                        eg += cg - (used >>> 16 & 0xFF);
-                        eb += cb - (used >>> 8 & 0xFF);
-                    }
-                    PaletteReducer.sort16(palette.candidates);
-                    usedEntry[(indexedPixels[i] = (byte) palette.candidates[
-                            PaletteReducer.thresholdMatrix16[((px & 3) | (y & 3) << 2)]]
-                    ) & 255] = true;
-                    i++;
+        final int w = width;
+        float rdiff, gdiff, bdiff;
+        float er, eg, eb;
+        byte paletteIndex;
+        final float populationBias = palette.populationBias;
+        final float w1 = (float) (10f * Math.sqrt(ditherStrength) / (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
+                strength = 100f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
+                limit = 5f + 250f / (float)Math.sqrt(palette.colorCount+1.5f);
 
-                }
-            }
+        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
+        if (palette.curErrorRedFloats == null) {
+            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
+            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
+            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
+            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
+            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
+            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
+        } else {
+            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
+            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
+            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
+            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
+            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
+            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
+            Arrays.fill(nextErrorRed, (byte) 0);
+            Arrays.fill(nextErrorGreen, (byte) 0);
+            Arrays.fill(nextErrorBlue, (byte) 0);
         }
-    }
-
-    protected void analyzeChaotic() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
 
-        double adj, strength = ditherStrength * palette.populationBias * 1.5;
-        long s = 0xC13FA9A902A6328FL * seq;
         for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
+            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
+            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
+            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
+
+            Arrays.fill(nextErrorRed, (byte) 0);
+            Arrays.fill(nextErrorGreen, (byte) 0);
+            Arrays.fill(nextErrorBlue, (byte) 0);
+
+            int ny = y + 1;
+            for (int px = 0; px < width && i < nPix; px++) {
+                color = pixels[i];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
                     indexedPixels[i++] = 0;
                 else {
-                    int rr = ((color >>> 24)       );
-                    int gg = ((color >>> 16) & 0xFF);
-                    int bb = ((color >>> 8)  & 0xFF);
-                    used = paletteArray[paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF];
-                    adj = ((PaletteReducer.TRI_BLUE_NOISE[(px & 63) | (y & 63) << 6] + 0.5f) * 0.007843138f);
-                    adj *= adj * adj;
-                    // Complicated... This starts with a checkerboard of -0.5 and 0.5, times a tiny fraction.
-                    // The next 3 lines generate 3 low-quality-random numbers based on s, which should be
-                    //   different as long as the colors encountered so far were different. The numbers can
-                    //   each be positive or negative, and are reduced to a manageable size, summed, and
-                    //   multiplied by the earlier tiny fraction. Summing 3 random values gives us a curved
-                    //   distribution, centered on about 0.0 and weighted so most results are close to 0.
-                    //   Two of the random numbers use an XLCG, and the last uses an LCG.
-                    adj += ((px + y & 1) - 0.5f) * 0x1.8p-49 * strength *
-                            (((s ^ 0x9E3779B97F4A7C15L) * 0xC6BC279692B5CC83L >> 15) +
-                                    ((~s ^ 0xDB4F0B9175AE2165L) * 0xD1B54A32D192ED03L >> 15) +
-                                    ((s = (s ^ rr + gg + bb) * 0xD1342543DE82EF95L + 0x91E10DA5C79E7B1DL) >> 15));
-                    rr = Math.min(Math.max((int) (rr + (adj * ((rr - (used >>> 24))))), 0), 0xFF);
-                    gg = Math.min(Math.max((int) (gg + (adj * ((gg - (used >>> 16 & 0xFF))))), 0), 0xFF);
-                    bb = Math.min(Math.max((int) (bb + (adj * ((bb - (used >>> 8 & 0xFF))))), 0), 0xFF);
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-    protected void analyzeGradient() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float populationBias = palette.populationBias;
-        final float strength = 0.9f * (float) Math.tanh(0.16f * ditherStrength * Math.pow(populationBias, -7.00));
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + ((142 * (px + 0x5F) + 79 * (y - 0x96) & 255) - 127.5f) * strength)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((142 * (px + 0xFA) + 79 * (y - 0xA3) & 255) - 127.5f) * strength)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((142 * (px + 0xA5) + 79 * (y - 0xC9) & 255) - 127.5f) * strength)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-    protected void analyzeAdditive() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float populationBias = palette.populationBias;
-        final float s = 0.08f * ditherStrength / (float) Math.pow(populationBias, 8f),
-                strength = s / (0.35f + s);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + ((119 * px + 180 * y + 54 & 255) - 127.5f) * strength)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((119 * px + 180 * y + 81 & 255) - 127.5f) * strength)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((119 * px + 180 * y      & 255) - 127.5f) * strength)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-    protected void analyzeRoberts() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float populationBias = palette.populationBias;
-        final float str = Math.min(48 * ditherStrength / (populationBias * populationBias * populationBias * populationBias), 127);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    // We get a sub-random value from 0-1 using the R2 sequence.
-                    // Offsetting this value by different values and feeding into triangleWave()
-                    // gives 3 different values for r, g, and b, without much bias toward high or low values.
-                    // There is correlation between r, g, and b in certain patterns.
-                    final float theta = ((px * 0xC13FA9A9 + y * 0x91E10DA5 >>> 9) * 0x1p-23f);
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.209f) * str)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.518f) * str)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-    protected void analyzeLoaf() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float strength = Math.min(Math.max(2.5f + 5f * ditherStrength - 5.5f * palette.populationBias, 0f), 7.9f);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, flipped + flipDir * y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    int adj = (int)((((px + y & 1) << 5) - 16) * strength); // either + 16 * strength or - 16 * strength
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + adj, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + adj, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + adj, 0), 1023)] & 255;
-                    int rgb555 = ((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3));
-                    usedEntry[(indexedPixels[i] = paletteMapping[rgb555]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeGourd() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float strength = (float)(ditherStrength * 0.7 * Math.pow(palette.populationBias, -5.50));
-        for (int i = 0; i < 64; i++) {
-            PaletteReducer.tempThresholdMatrix[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
-        }
-        for (int oy = 0, i = 0; oy < height && i < nPix; oy++) {
-            int y = flipped + flipDir * oy;
-            for (int x = 0; x < width & i < nPix; x++) {
-                color = image.getPixel(x, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float adj = PaletteReducer.tempThresholdMatrix[(x & 7) | (oy & 7) << 3];
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-                    int rgb555 = ((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3));
-                    usedEntry[(indexedPixels[i] = paletteMapping[rgb555]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeDiffusion() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        byte paletteIndex;
-        float w1 = ditherStrength * 32 / palette.populationBias, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
-
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    rdiff = Math.min(Math.max(0x1p-8f * ((color>>>24)-    (used>>>24))    , -1), 1);
-                    gdiff = Math.min(Math.max(0x1p-8f * ((color>>>16&255)-(used>>>16&255)), -1), 1);
-                    bdiff = Math.min(Math.max(0x1p-8f * ((color>>>8&255)- (used>>>8&255)) , -1), 1);
-                    // this alternate code used a sigmoid function to smoothly limit error.
-//                    rdiff = (0x1.8p-8f * ((color>>>24)-    (used>>>24))    );
-//                    gdiff = (0x1.8p-8f * ((color>>>16&255)-(used>>>16&255)));
-//                    bdiff = (0x1.8p-8f * ((color>>>8&255)- (used>>>8&255)) );
-//                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-//                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-//                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeBlue() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float strength = 0.21875f * ditherStrength / (palette.populationBias * palette.populationBias);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            int ny = flipped + flipDir * y;
-            for (int x = 0; x < width & i < nPix; x++) {
-                color = image.getPixel(x, ny);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float adj = Math.min(Math.max(((TRI_BLUE_NOISE  [(x & 63) | (ny & 63) << 6] + ((x + ny & 1) << 8) - 127.5f) * strength), -100.5f), 101.5f);
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeBlunt() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float populationBias = palette.populationBias;
-        final float strength = Math.min(Math.max(0.35f * ditherStrength / (populationBias * populationBias * populationBias), -0.6f), 0.6f);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            int ny = flipped + flipDir * y;
-            for (int x = 0; x < width & i < nPix; x++) {
-                color = image.getPixel(x, ny);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float adj = (x+y<<7&128)-63.5f;
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + (TRI_BLUE_NOISE  [(x + 62 & 63) << 6 | (y + 66  & 63)] + adj) * strength)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + (TRI_BLUE_NOISE_B[(x + 31 & 63) << 6 | (y + 113 & 63)] + adj) * strength)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + (TRI_BLUE_NOISE_C[(x + 71 & 63) << 6 | (y + 41  & 63)] + adj) * strength)] & 255;
-
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeBanter() {
-        final int nPix = indexedPixels.length;
-        int color;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float strength = Math.min(Math.max(0.17f * ditherStrength * (float) Math.pow(palette.populationBias, -10f), -0.95f), 0.95f);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            int ny = flipped + flipDir * y;
-            for (int x = 0; x < width & i < nPix; x++) {
-                color = image.getPixel(x, ny);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float adj = TRI_BAYER_MATRIX_128[(x & TBM_MASK) << TBM_BITS | (y & TBM_MASK)] * strength;
-                    int rr = fromLinearLUT[(int) (toLinearLUT[(color >>> 24)] + adj)] & 255;
-                    int gg = fromLinearLUT[(int) (toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                    int bb = fromLinearLUT[(int) (toLinearLUT[(color >>> 8) & 0xFF] + adj)] & 255;
-
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeScatter() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb;
-        byte paletteIndex;
-        final float w1 = Math.min(ditherStrength * 5.5f / (palette.populationBias * palette.populationBias), 16f),
-                w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float tbn = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS[(px & 63) | ((y << 6) & 0xFC0)];
-                    er = curErrorRed[px] * tbn;
-                    eg = curErrorGreen[px] * tbn;
-                    eb = curErrorBlue[px] * tbn;
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    rdiff = (0x2.1p-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x2.1p-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x2.1p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff /= (0.125f + Math.abs(rdiff));
-                    gdiff /= (0.125f + Math.abs(gdiff));
-                    bdiff /= (0.125f + Math.abs(bdiff));
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeWoven() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb;
-        byte paletteIndex;
-        final float populationBias = palette.populationBias;
-        final float w1 = (float) (10f * Math.sqrt(ditherStrength) / (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                strength = 100f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
-                limit = 5f + 250f / (float)Math.sqrt(palette.colorCount+1.5f);
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-            for (int px = 0; px < width && i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
-                    eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
-                    eb = Math.min(Math.max(((((px+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
-
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeDodgy() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb;
-        byte paletteIndex;
-        float populationBias = palette.populationBias;
-        final float w1 = 8f * ditherStrength,
-                w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                strength = 0.35f * ditherStrength / (populationBias * populationBias * populationBias),
-                limit = 90f;
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-            for (int px = 0; px < width && i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    er = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorRed[px]);
-                    eg = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorGreen[px]);
-                    eb = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorBlue[px]);
-
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-
-                    rdiff = (0x5p-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x5p-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x5p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff /= (0.5f + Math.abs(rdiff));
-                    gdiff /= (0.5f + Math.abs(gdiff));
-                    bdiff /= (0.5f + Math.abs(bdiff));
-
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeNeue() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb, adj;
-        byte paletteIndex;
-        final float populationBias = palette.populationBias;
-        final float w1 = ditherStrength * 8f, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                strength = (70f * ditherStrength / (populationBias * populationBias * populationBias)),
-                limit = Math.min(127, (float) Math.pow(80, 1.635 - populationBias));
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-            for (int px = 0; px < width && i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    adj = ((PaletteReducer.TRI_BLUE_NOISE[(px & 63) | (py & 63) << 6] + 0.5f) * 0.005f); // plus or minus 255/400
-                    adj = Math.min(Math.max(adj * strength, -limit), limit);
-                    er = adj + (curErrorRed[px]);
-                    eg = adj + (curErrorGreen[px]);
-                    eb = adj + (curErrorBlue[px]);
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    rdiff = (0x2.Ep-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x2.Ep-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x2.Ep-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeWrenOriginal() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb;
-        byte paletteIndex;
-        final float populationBias = palette.populationBias;
-        final float w1 = (float) (32.0 * ditherStrength * (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                strength = 0.2f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
-                limit = 5f + 125f / (float)Math.sqrt(palette.colorCount+1.5),
-                dmul = 0x1p-8f;
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-            for (int px = 0; px < width && i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+1) * 0xC13FA9A902A6328FL + (y +1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorRed[px]), -limit), limit);
-                    eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+3) * 0xC13FA9A902A6328FL + (y -1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorGreen[px]), -limit), limit);
-                    eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+2) * 0xC13FA9A902A6328FL + (y -4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorBlue[px]), -limit), limit);
-
-                    int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
-                    int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
-                    int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    rdiff = (dmul * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (dmul * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (dmul * ((color>>>8&255)- (used>>>8&255)) );
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeWren() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb;
-        byte paletteIndex;
-        final float populationBias = palette.populationBias;
-        float partialDitherStrength = (0.5f * ditherStrength / (populationBias * populationBias)),
-                strength = (80f * ditherStrength / (populationBias * populationBias)),
-                blueStrength = (0.3f * ditherStrength / (populationBias * populationBias)),
-                limit = 5f + 200f / (float)Math.sqrt(palette.colorCount+1.5f),
-                r1, g1, b1, r2, g2, b2, r4, g4, b4;
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int by = 0, i = 0; by < height && i < nPix; by++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            int y = flipped + flipDir * by;
-            for (int x = 0; x < width && i < nPix; x++) {
-                color = image.getPixel(x, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(x & 63) | (y & 63) << 6] + 0.5f) * blueStrength + ((((x+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorRed[x]);
-                    eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * blueStrength + ((((x+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorGreen[x]);
-                    eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * blueStrength + ((((x+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorBlue[x]);
-
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    rdiff = ((color>>>24)-    (used>>>24))     * partialDitherStrength;
-                    gdiff = ((color>>>16&255)-(used>>>16&255)) * partialDitherStrength;
-                    bdiff = ((color>>>8&255)- (used>>>8&255))  * partialDitherStrength;
-
-                    r1 = rdiff * 16f / (float)Math.sqrt(2048f + rdiff * rdiff);
-                    g1 = gdiff * 16f / (float)Math.sqrt(2048f + gdiff * gdiff);
-                    b1 = bdiff * 16f / (float)Math.sqrt(2048f + bdiff * bdiff);
-                    r2 = r1 + r1;
-                    g2 = g1 + g1;
-                    b2 = b1 + b1;
-                    r4 = r2 + r2;
-                    g4 = g2 + g2;
-                    b4 = b2 + b2;
-                    if(x < w - 1)
-                    {
-                        curErrorRed[x+1]   += r4;
-                        curErrorGreen[x+1] += g4;
-                        curErrorBlue[x+1]  += b4;
-                        if(x < w - 2)
-                        {
-
-                            curErrorRed[x+2]   += r2;
-                            curErrorGreen[x+2] += g2;
-                            curErrorBlue[x+2]  += b2;
-                        }
-                    }
-                    if(by+1 < height)
-                    {
-                        if(x > 0)
-                        {
-                            nextErrorRed[x-1]   += r2;
-                            nextErrorGreen[x-1] += g2;
-                            nextErrorBlue[x-1]  += b2;
-                            if(x > 1)
-                            {
-                                nextErrorRed[x-2]   += r1;
-                                nextErrorGreen[x-2] += g1;
-                                nextErrorBlue[x-2]  += b1;
-                            }
-                        }
-                        nextErrorRed[x]   += r4;
-                        nextErrorGreen[x] += g4;
-                        nextErrorBlue[x]  += b4;
-                        if(x < w - 1)
-                        {
-                            nextErrorRed[x+1]   += r2;
-                            nextErrorGreen[x+1] += g2;
-                            nextErrorBlue[x+1]  += b2;
-                            if(x < w - 2)
-                            {
-
-                                nextErrorRed[x+2]   += r1;
-                                nextErrorGreen[x+2] += g1;
-                                nextErrorBlue[x+2]  += b1;
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeOverboard() {
-        final int nPix = indexedPixels.length;
-        int flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        final float populationBias = palette.populationBias;
-        final float strength = ditherStrength * 1.5f * (populationBias * populationBias),
-                noiseStrength = 4f / (populationBias * populationBias),
-                limit = 110f;
-
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-        }
-
-        for (int by = 0, y = flipped, i = 0; by < height && i < nPix; by++, y += flipDir) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, (byte) 0);
-            Arrays.fill(nextErrorGreen, (byte) 0);
-            Arrays.fill(nextErrorBlue, (byte) 0);
-
-            for (int x = 0; x < width && i < nPix; x++) {
-                int color = image.getPixel(x, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float er = 0f, eg = 0f, eb = 0f;
-                    switch ((x << 1 & 2) | (y & 1)){
-                        case 0:
-                            er += ((x ^ y) % 9 - 4);
-                            er += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eg += (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                            eg += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eb += (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                            eb += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                            break;
-                        case 1:
-                            er += (PaletteReducer.TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                            er += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eg += (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                            eg += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                            eb += ((x ^ y) % 11 - 5);
-                            eb += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                            break;
-                        case 2:
-                            er += (PaletteReducer.TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                            er += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                            eg += ((x ^ y) % 11 - 5);
-                            eg += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                            eb += ((x ^ y) % 9 - 4);
-                            eb += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            break;
-                        default: // case 3:
-                            er += ((x ^ y) % 11 - 5);
-                            er += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                            eg += ((x ^ y) % 9 - 4);
-                            eg += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eb += (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                            eb += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            break;
-                    }
-                    er = er * noiseStrength + curErrorRed[x];
-                    eg = eg * noiseStrength + curErrorGreen[x];
-                    eb = eb * noiseStrength + curErrorBlue[x];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + Math.min(Math.max(er, -limit), limit), 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + Math.min(Math.max(eg, -limit), limit), 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + Math.min(Math.max(eb, -limit), limit), 0), 1023)] & 255;
-                    byte paletteIndex;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    int used = paletteArray[paletteIndex & 0xFF];
-                    float rdiff = ((color >>> 24) - (used >>> 24)) * strength;
-                    float gdiff = ((color >>> 16 & 255) - (used >>> 16 & 255)) * strength;
-                    float bdiff = ((color >>> 8 & 255) - (used >>> 8 & 255)) * strength;
-                    float r1 = rdiff * 16f / (45f + Math.abs(rdiff));
-                    float g1 = gdiff * 16f / (45f + Math.abs(gdiff));
-                    float b1 = bdiff * 16f / (45f + Math.abs(bdiff));
-                    float r2 = r1 + r1;
-                    float g2 = g1 + g1;
-                    float b2 = b1 + b1;
-                    float r4 = r2 + r2;
-                    float g4 = g2 + g2;
-                    float b4 = b2 + b2;
-                    if(x < w - 1)
-                    {
-                        curErrorRed[x+1]   += r4;
-                        curErrorGreen[x+1] += g4;
-                        curErrorBlue[x+1]  += b4;
-                        if(x < w - 2)
-                        {
-
-                            curErrorRed[x+2]   += r2;
-                            curErrorGreen[x+2] += g2;
-                            curErrorBlue[x+2]  += b2;
-                        }
-                    }
-                    if(by+1 < height)
-                    {
-                        if(x > 0)
-                        {
-                            nextErrorRed[x-1]   += r2;
-                            nextErrorGreen[x-1] += g2;
-                            nextErrorBlue[x-1]  += b2;
-                            if(x > 1)
-                            {
-                                nextErrorRed[x-2]   += r1;
-                                nextErrorGreen[x-2] += g1;
-                                nextErrorBlue[x-2]  += b1;
-                            }
-                        }
-                        nextErrorRed[x]   += r4;
-                        nextErrorGreen[x] += g4;
-                        nextErrorBlue[x]  += b4;
-                        if(x < w - 1)
-                        {
-                            nextErrorRed[x+1]   += r2;
-                            nextErrorGreen[x+1] += g2;
-                            nextErrorBlue[x+1]  += b2;
-                            if(x < w - 2)
-                            {
-
-                                nextErrorRed[x+2]   += r1;
-                                nextErrorGreen[x+2] += g1;
-                                nextErrorBlue[x+2]  += b1;
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeBurkes() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final int w = width;
-        byte paletteIndex;
-        float r4, r2, r1, g4, g2, g1, b4, b2, b1;
-        final float populationBias = palette.populationBias;
-        final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
-                strength = s * 0.58f / (0.3f + s);
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float er = curErrorRed[px];
-                    float eg = curErrorGreen[px];
-                    float eb = curErrorBlue[px];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    int rdiff = (color >>> 24) - (used >>> 24);
-                    int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                    int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                    r1 = rdiff * strength;
-                    g1 = gdiff * strength;
-                    b1 = bdiff * strength;
-                    r2 = r1 + r1;
-                    g2 = g1 + g1;
-                    b2 = b1 + b1;
-                    r4 = r2 + r2;
-                    g4 = g2 + g2;
-                    b4 = b2 + b2;
-                    if(px < w - 1)
-                    {
-                        curErrorRed[px+1]   += r4;
-                        curErrorGreen[px+1] += g4;
-                        curErrorBlue[px+1]  += b4;
-                        if(px < w - 2)
-                        {
-                            curErrorRed[px+2]   += r2;
-                            curErrorGreen[px+2] += g2;
-                            curErrorBlue[px+2]  += b2;
-                        }
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += r2;
-                            nextErrorGreen[px-1] += g2;
-                            nextErrorBlue[px-1]  += b2;
-                            if(px > 1)
-                            {
-                                nextErrorRed[px-2]   += r1;
-                                nextErrorGreen[px-2] += g1;
-                                nextErrorBlue[px-2]  += b1;
-                            }
-                        }
-                        nextErrorRed[px]   += r4;
-                        nextErrorGreen[px] += g4;
-                        nextErrorBlue[px]  += b4;
-                        if(px < w - 1)
-                        {
-                            nextErrorRed[px+1]   += r2;
-                            nextErrorGreen[px+1] += g2;
-                            nextErrorBlue[px+1]  += b2;
-                            if(px < w - 2)
-                            {
-                                nextErrorRed[px+2]   += r1;
-                                nextErrorGreen[px+2] += g1;
-                                nextErrorBlue[px+2]  += b1;
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeOceanic() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-        final float[] noise = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
-
-        final int w = width;
-        byte paletteIndex;
-        float r4, r2, r1, g4, g2, g1, b4, b2, b1;
-        final float populationBias = palette.populationBias;
-        final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
-                strength = s * 0.58f / (0.3f + s);
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float er = curErrorRed[px];
-                    float eg = curErrorGreen[px];
-                    float eb = curErrorBlue[px];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    int rdiff = (color >>> 24) - (used >>> 24);
-                    int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                    int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                    r1 = rdiff * strength;
-                    g1 = gdiff * strength;
-                    b1 = bdiff * strength;
-                    r2 = r1 + r1;
-                    g2 = g1 + g1;
-                    b2 = b1 + b1;
-                    r4 = r2 + r2;
-                    g4 = g2 + g2;
-                    b4 = b2 + b2;
-                    float modifier;
-                    if(px < w - 1)
-                    {
-                        modifier = noise[(px + 1 & 63) | ((py << 6) & 0xFC0)];
-                        curErrorRed[px+1]   += r4 * modifier;
-                        curErrorGreen[px+1] += g4 * modifier;
-                        curErrorBlue[px+1]  += b4 * modifier;
-                        if(px < w - 2)
-                        {
-                            modifier = noise[(px + 2 & 63) | ((py << 6) & 0xFC0)];
-                            curErrorRed[px+2]   += r2 * modifier;
-                            curErrorGreen[px+2] += g2 * modifier;
-                            curErrorBlue[px+2]  += b2 * modifier;
-                        }
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            modifier = noise[(px - 1 & 63) | ((ny << 6) & 0xFC0)];
-                            nextErrorRed[px-1]   += r2 * modifier;
-                            nextErrorGreen[px-1] += g2 * modifier;
-                            nextErrorBlue[px-1]  += b2 * modifier;
-                            if(px > 1)
-                            {
-                                modifier = noise[(px - 2 & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px-2]   += r1 * modifier;
-                                nextErrorGreen[px-2] += g1 * modifier;
-                                nextErrorBlue[px-2]  += b1 * modifier;
-                            }
-                        }
-                        modifier = noise[(px & 63) | ((ny << 6) & 0xFC0)];
-                        nextErrorRed[px]   += r4 * modifier;
-                        nextErrorGreen[px] += g4 * modifier;
-                        nextErrorBlue[px]  += b4 * modifier;
-                        if(px < w - 1)
-                        {
-                            modifier = noise[(px + 1 & 63) | ((ny << 6) & 0xFC0)];
-                            nextErrorRed[px+1]   += r2 * modifier;
-                            nextErrorGreen[px+1] += g2 * modifier;
-                            nextErrorBlue[px+1]  += b2 * modifier;
-                            if(px < w - 2)
-                            {
-                                modifier = noise[(px + 2 & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px+2]   += r1 * modifier;
-                                nextErrorGreen[px+2] += g1 * modifier;
-                                nextErrorBlue[px+2]  += b1 * modifier;
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-
-    protected void analyzeSeaside() {
-        final int nPix = indexedPixels.length;
-        int color, used, flipped = flipY ? height - 1 : 0, flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-        final float[] noiseA = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
-        final float[] noiseB = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS_B;
-        final float[] noiseC = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS_C;
-
-        final int w = width;
-        byte paletteIndex;
-        final float populationBias = palette.populationBias;
-        final float s = 0.15f * populationBias * ditherStrength,
-                strength = s * 0.6f / (0.35f + s);
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (palette.curErrorRedFloats == null) {
-            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-        }
-
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-
-            int py = flipped + flipDir * y,
-                    ny = y + 1;
-
-            for (int px = 0; px < width & i < nPix; px++) {
-                color = image.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    float er = curErrorRed[px];
-                    float eg = curErrorGreen[px];
-                    float eb = curErrorBlue[px];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))]) & 255] = true;
-                    used = paletteArray[paletteIndex & 0xFF];
-                    int rdiff = (color >>> 24) - (used >>> 24);
-                    int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                    int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                    int modifier = ((px & 63) | (py << 6 & 0xFC0));
-                    final float r1 = rdiff * strength * noiseA[modifier];
-                    final float g1 = gdiff * strength * noiseB[modifier];
-                    final float b1 = bdiff * strength * noiseC[modifier];
-                    final float r2 = r1 + r1;
-                    final float g2 = g1 + g1;
-                    final float b2 = b1 + b1;
-                    final float r4 = r2 + r2;
-                    final float g4 = g2 + g2;
-                    final float b4 = b2 + b2;
-
-                    if(px < w - 1)
-                    {
-                        modifier = ((px + 1 & 63) | (py << 6 & 0xFC0));
-                        curErrorRed[px+1]   += r4 * noiseA[modifier];
-                        curErrorGreen[px+1] += g4 * noiseB[modifier];
-                        curErrorBlue[px+1]  += b4 * noiseC[modifier];
-                        if(px < w - 2)
-                        {
-                            modifier = ((px + 2 & 63) | ((py << 6) & 0xFC0));
-                            curErrorRed[px+2]   += r2 * noiseA[modifier];
-                            curErrorGreen[px+2] += g2 * noiseB[modifier];
-                            curErrorBlue[px+2]  += b2 * noiseC[modifier];
-                        }
-                    }
-                    if(ny < height)
-                    {
-                        if(px > 0)
-                        {
-                            modifier = (px - 1 & 63) | ((ny << 6) & 0xFC0);
-                            nextErrorRed[px-1]   += r2 * noiseA[modifier];
-                            nextErrorGreen[px-1] += g2 * noiseB[modifier];
-                            nextErrorBlue[px-1]  += b2 * noiseC[modifier];
-                            if(px > 1)
-                            {
-                                modifier = (px - 2 & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px-2]   += r1 * noiseA[modifier];
-                                nextErrorGreen[px-2] += g1 * noiseB[modifier];
-                                nextErrorBlue[px-2]  += b1 * noiseC[modifier];
-                            }
-                        }
-                        modifier = (px & 63) | ((ny << 6) & 0xFC0);
-                        nextErrorRed[px]   += r4 * noiseA[modifier];
-                        nextErrorGreen[px] += g4 * noiseB[modifier];
-                        nextErrorBlue[px]  += b4 * noiseC[modifier];
-                        if(px < w - 1)
-                        {
-                            modifier = (px + 1 & 63) | ((ny << 6) & 0xFC0);
-                            nextErrorRed[px+1]   += r2 * noiseA[modifier];
-                            nextErrorGreen[px+1] += g2 * noiseB[modifier];
-                            nextErrorBlue[px+1]  += b2 * noiseC[modifier];
-                            if(px < w - 2)
-                            {
-                                modifier = (px + 2 & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px+2]   += r1 * noiseA[modifier];
-                                nextErrorGreen[px+2] += g1 * noiseB[modifier];
-                                nextErrorBlue[px+2]  += b1 * noiseC[modifier];
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-        }
-    }
-    protected void analyzeMarten() {
-        final int nPix = indexedPixels.length;
-        int flipped = flipY ? height - 1 : 0;
-        int flipDir = flipY ? -1 : 1;
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        boolean hasTransparent = paletteArray[0] == 0;
-
-        final float populationBias = palette.populationBias;
-        final float str = Math.min(1100f * (ditherStrength / (float) Math.sqrt(palette.colorCount) * (1f / (populationBias * populationBias * populationBias) - 0.7f)), 127f);
-        for (int y = 0, i = 0; y < height && i < nPix; y++) {
-            for (int px = 0; px < width & i < nPix; px++) {
-                int color = image.getPixel(px, flipped + flipDir * y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    indexedPixels[i++] = 0;
-                else {
-                    // We get a sub-random value from 0-1 using interleaved gradient noise.
-                    // Offsetting this value by different values and feeding into triangleWave()
-                    // gives 3 different values for r, g, and b, without much bias toward high or low values.
-                    // There is correlation between r, g, and b in certain patterns.
-                    final float theta = ((px * 142 + y * 79 & 255) * 0x1p-8f);
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.382f) * str)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.618f) * str)] & 255;
-                    usedEntry[(indexedPixels[i] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))]) & 255] = true;
+                    er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
+                    eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
+                    eb = Math.min(Math.max(((((px+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
+
+                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                    indexedPixels[i] = paletteIndex =
+                            paletteMapping[((rr << 7) & 0x7C00)
+                                    | ((gg << 2) & 0x3E0)
+                                    | ((bb >>> 3))];
+                    used = paletteArray[paletteIndex & 0xFF];
+                    rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
+                    gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
+                    bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
+                    if(px < w - 1)
+                    {
+                        curErrorRed[px+1]   += rdiff * w7;
+                        curErrorGreen[px+1] += gdiff * w7;
+                        curErrorBlue[px+1]  += bdiff * w7;
+                    }
+                    if(ny < height)
+                    {
+                        if(px > 0)
+                        {
+                            nextErrorRed[px-1]   += rdiff * w3;
+                            nextErrorGreen[px-1] += gdiff * w3;
+                            nextErrorBlue[px-1]  += bdiff * w3;
+                        }
+                        if(px < w - 1)
+                        {
+                            nextErrorRed[px+1]   += rdiff * w1;
+                            nextErrorGreen[px+1] += gdiff * w1;
+                            nextErrorBlue[px+1]  += bdiff * w1;
+                        }
+                        nextErrorRed[px]   += rdiff * w5;
+                        nextErrorGreen[px] += gdiff * w5;
+                        nextErrorBlue[px]  += bdiff * w5;
+                    }
                     i++;
                 }
             }
@@ -2117,8 +1089,6 @@ public class AnimatedGif implements AnimationWriter, Dithered {
      * Analyzes image colors and creates color map.
      */
     protected void analyzePixels() {
-        int nPix = width * height;
-        indexedPixels = new byte[nPix];
         palette.setDitherStrength(ditherStrength);
         if(seq > 1 && clearPalette)
         {
@@ -2129,87 +1099,37 @@ public class AnimatedGif implements AnimationWriter, Dithered {
         }
         final int[] paletteArray = palette.paletteArray;
 
-        colorTab = new byte[256 * 3]; // create reduced palette
+        if (colorTab == null)
+            colorTab = new byte[256 * 3]; // create reduced palette
         for (int i = 0, bi = 0; i < 256; i++) {
             int pa = paletteArray[i];
             colorTab[bi++] = (byte) (pa >>> 24);
             colorTab[bi++] = (byte) (pa >>> 16);
             colorTab[bi++] = (byte) (pa >>> 8);
-            usedEntry[i] = false;
         }
         // map image pixels to new palette
         boolean hasTransparent = paletteArray[0] == 0;
         switch (ditherAlgorithm) {
-            case NONE:
-                analyzeNone();
-                break;
-            case PATTERN:
-                analyzePattern();
-                break;
-            case CHAOTIC_NOISE:
-                analyzeChaotic();
-                break;
-            case GRADIENT_NOISE:
-                analyzeGradient();
-                break;
-            case ADDITIVE:
-                analyzeAdditive();
-                break;
-            case ROBERTS:
-                analyzeRoberts();
-                break;
-            case LOAF:
-                analyzeLoaf();
-                break;
-            case DIFFUSION:
-                analyzeDiffusion();
-                break;
-            case BLUE_NOISE:
-                analyzeBlue();
-                break;
-            case BLUNT:
-                analyzeBlunt();
-                break;
-            case BANTER:
-                analyzeBanter();
-                break;
-            case SCATTER:
-                analyzeScatter();
-                break;
             case WOVEN:
                 analyzeWoven();
                 break;
-            case DODGY:
-                analyzeDodgy();
-                break;
-            case NEUE:
-                analyzeNeue();
-                break;
-            case OVERBOARD:
-                analyzeOverboard();
-                break;
-            case BURKES:
-                analyzeBurkes();
-                break;
-            case OCEANIC:
-                analyzeOceanic();
-                break;
-            case SEASIDE:
-                analyzeSeaside();
-                break;
             case GOURD:
                 analyzeGourd();
                 break;
-            case MARTEN:
-                analyzeMarten();
-                break;
-            case WREN:
             default:
-                analyzeWren();
+                // BLUNT and BANTER have always taken their noise from the output row in GIFs, the rest from the image row
+                indexedPixels = palette.reduceToIndices(image, ditherAlgorithm, indexedPixels, flipY,
+                        ditherAlgorithm != DitherAlgorithm.BLUNT && ditherAlgorithm != DitherAlgorithm.BANTER, seq);
                 break;
         }
         colorDepth = 8;
         palSize = 7;
+        frameLeft = 0;
+        frameTop = 0;
+        frameWidth = width;
+        frameHeight = height;
+        keepFrame = false;
+        clearCanvas = false;
         // get the closest match to transparent color if specified
         if (hasTransparent) {
             transIndex = 0;
@@ -2217,19 +1137,82 @@ public class AnimatedGif implements AnimationWriter, Dithered {
     }
 
     /**
-     * Extracts image pixels into byte array "pixels"
+     * If the current image isn't the same size as the GIF, copies it into {@link #resized} (which is only created
+     * again when the GIF size changes) and uses that as the image instead. The image is placed according to
+     * {@link #getFrameAlign()}, cropping it if it is larger than the GIF, and any area it doesn't cover is filled with
+     * {@link #getFrameFill()}.
      */
     protected void getImagePixels() {
         int w = image.getWidth();
         int h = image.getHeight();
         if ((w != width) || (h != height)) {
-            // create new image with right size/format
-            Pixmap temp = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-            temp.drawPixmap(image, 0, 0);
-            image = temp;
+            boolean blank = false;
+            if (resized == null || resized.getWidth() != width || resized.getHeight() != height) {
+                if (resized != null)
+                    resized.dispose();
+                resized = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+                blank = true;
+            }
+            if (!blank || frameFill != 0) {
+                resized.setBlending(Pixmap.Blending.None);
+                resized.setColor(frameFill);
+                resized.fill();
+                resized.setBlending(Pixmap.Blending.SourceOver);
+            }
+            int dx = Align.isLeft(frameAlign) ? 0 : Align.isRight(frameAlign) ? width - w : (width - w) / 2;
+            int dy = Align.isTop(frameAlign) ? 0 : Align.isBottom(frameAlign) ? height - h : (height - h) / 2;
+            resized.drawPixmap(image, dx, dy);
+            image = resized;
         }
     }
 
+    /**
+     * Gets where frames that aren't the same size as the GIF are placed; see {@link #setFrameAlign(int)}.
+     * @return a constant from {@link Align}
+     */
+    public int getFrameAlign() {
+        return frameAlign;
+    }
+
+    /**
+     * Sets where frames that aren't the same size as the GIF are placed, using a constant from {@link Align}, such as
+     * {@link Align#center} or {@link Align#bottomRight}. A frame that is larger than the GIF is cropped, keeping the
+     * part at this alignment, and a frame that is smaller is surrounded by {@link #getFrameFill()}. This uses the
+     * orientation of the frame Pixmaps, so {@link Align#top} is the top of the Pixmap, whether or not
+     * {@link #isFlipY()} is true. The default is {@link Align#topLeft}.
+     * @param frameAlign a constant from {@link Align}, or a combination of them with bitwise OR
+     */
+    public void setFrameAlign(int frameAlign) {
+        this.frameAlign = frameAlign;
+    }
+
+    /**
+     * Gets the color used around frames that are smaller than the GIF; see {@link #setFrameFill(int)}.
+     * @return an RGBA8888 color
+     */
+    public int getFrameFill() {
+        return frameFill;
+    }
+
+    /**
+     * Sets the color used around frames that are smaller than the GIF, and behind any translucent parts of those
+     * frames. The default is 0, which is fully transparent; this needs the palette to have transparency to be shown
+     * as transparent.
+     * @param frameFill an RGBA8888 color
+     */
+    public void setFrameFill(int frameFill) {
+        this.frameFill = frameFill;
+    }
+
+    /**
+     * Passes everything buffered for the frame just added on to the stream given to {@link #start(OutputStream)}, and
+     * flushes that stream, so each frame is sent on as soon as it is done.
+     */
+    private void drainFrame() throws IOException {
+        if (out == blockOutput)
+            blockOutput.flush();
+    }
+
     /**
      * Writes Graphic Control Extension
      */
@@ -2248,6 +1231,9 @@ public class AnimatedGif implements AnimationWriter, Dithered {
         if (dispose >= 0) {
             disp = dispose & 7; // user override
         }
+        if (deltaFrames) {
+            disp = keepFrame ? 1 : 2; // the next frame may be drawn over this one
+        }
         disp <<= 2;
 
         // packed fields
@@ -2256,23 +1242,47 @@ public class AnimatedGif implements AnimationWriter, Dithered {
                 0 | // 7 user input - 0 = none
                 transp); // 8 transparency flag
 
-        writeShort(Math.round(delay/10f)); // delay x 1/100 sec
+        writeShort(Math.round(delay * frameRun / 10f)); // delay x 1/100 sec
         out.write(transIndex); // transparent color index
         out.write(0); // block terminator
     }
 
     /**
-     * Writes Image Descriptor
+     * Writes a frame with no delay that covers the whole image with transparent pixels and is then cleared, which
+     * removes anything kept from earlier frames. This is only needed by {@link #setDeltaFrames(boolean) deltaFrames}
+     * when transparent pixels first appear after frames that were kept.
      */
-    protected void writeImageDesc() throws IOException {
+    protected void writeClearingFrame() throws IOException {
+        out.write(0x21); // extension introducer
+        out.write(0xf9); // GCE label
+        out.write(4); // data block size
+        out.write(2 << 2 | 1); // restore to background, transparency flag
+        writeShort(0); // no delay
+        out.write(0); // transparent color index
+        out.write(0); // block terminator
         out.write(0x2c); // image separator
-        writeShort(x); // image position x,y = 0,0
+        writeShort(x);
         writeShort(y);
-        writeShort(width); // image size
+        writeShort(width);
         writeShort(height);
+        out.write(0); // no LCT, so the GCT is used
+        if (clearingPixels.length < width * height)
+            clearingPixels = new byte[width * height];
+        encoder.encode(out, width, height, clearingPixels, 2);
+    }
+
+    /**
+     * Writes Image Descriptor
+     */
+    protected void writeImageDesc() throws IOException {
+        out.write(0x2c); // image separator
+        writeShort(x + frameLeft); // image position x,y = 0,0
+        writeShort(y + frameTop);
+        writeShort(frameWidth); // image size
+        writeShort(frameHeight);
         // packed fields
-        if (firstFrame) {
-            // no LCT - GCT is used for first (or only) frame
+        if (!localColorTable) {
+            // no LCT - GCT is used for first (or only) frame, or for any frame with the same colors
             out.write(0);
         } else {
             // specify normal LCT
@@ -2319,8 +1329,9 @@ public class AnimatedGif implements AnimationWriter, Dithered {
      * Writes color table
      */
     protected void writePalette() throws IOException {
-        out.write(colorTab, 0, colorTab.length);
-        int n = (3 * 256) - colorTab.length;
+        int size = 3 << palSize + 1;
+        out.write(colorTab, 0, Math.min(size, colorTab.length));
+        int n = size - colorTab.length;
         for (int i = 0; i < n; i++) {
             out.write(0);
         }
@@ -2330,8 +1341,12 @@ public class AnimatedGif implements AnimationWriter, Dithered {
      * Encodes and writes pixel data
      */
     protected void writePixels() throws IOException {
-        LZWEncoder encoder = new LZWEncoder(width, height, indexedPixels, colorDepth);
-        encoder.encode(out);
+        if (lossy > 0f) {
+            encoder.setNearColors(colorTab, 1 << colorDepth, transIndex, lossy);
+            encoder.encode(out, frameWidth, frameHeight, indexedPixels, colorDepth, true);
+        } else {
+            encoder.encode(out, frameWidth, frameHeight, indexedPixels, colorDepth);
+        }
     }
 
     /**
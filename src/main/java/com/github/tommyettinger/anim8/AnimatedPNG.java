@@ -24,8 +24,11 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ByteArray;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.StreamUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -40,6 +43,10 @@ import java.util.zip.DeflaterOutputStream;
  * animated mode of {@link PNG8}, which have comparable APIs. An instance can be 
  * reused to encode multiple animated PNGs with minimal allocation.
  * <br>
+ * If the frames aren't all available at once, such as when recording a long clip,
+ * {@link #begin(FileHandle, int, int, int)}, {@link #addFrame(Pixmap)}, and {@link #end()}
+ * write each frame as soon as it is given, so earlier frames can be disposed.
+ * <br>
  * The animated PNG (often called APNG) files this produces default to using a high
  * compression level, but this is somewhat slow. You can use {@link #setCompression(int)}
  * to set compression to 2, which results in about 10-15% larger files that take about
@@ -85,14 +92,27 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
     private static final byte COMPRESSION_DEFLATE = 0;
     private static final byte FILTER_NONE = 0;
     private static final byte INTERLACE_NONE = 0;
-//    private static final byte FILTER_SUB = 1;
-//    private static final byte FILTER_PAETH = 4;
 
     private final ChunkBuffer buffer;
+    private final ImageDataOutputStream imageData = new ImageDataOutputStream();
     private final Deflater deflater;
+    private final DeflaterOutputStream deflaterOutput;
     private ByteArray curLineBytes;
+    private final RowFilter rowFilter = new RowFilter(4);
+    private PNGFilter filter = PNGFilter.NONE;
+    private final ParallelDeflater parallelDeflater = new ParallelDeflater();
+    private Parallelism parallelism = Parallelism.SERIAL;
+    private boolean deltaFrames = false;
+    private FrameDelta frameDelta;
+    private byte[] frameBytes;
     private boolean flipY = true;
 
+    private DataOutputStream animationOutput;
+    private FileHandle animationFile;
+    private int animationWidth, animationHeight, animationFps, animationSeq, animationFrames, animationFrameCount;
+    private int acTLPosition;
+    private boolean animationDelta;
+
     /**
      * Creates an AnimatedPNG writer with an initial buffer size of 16384. The buffer can resize later if needed.
      */
@@ -109,6 +129,7 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
     public AnimatedPNG (int initialBufferSize) {
         buffer = new ChunkBuffer(initialBufferSize);
         deflater = new Deflater();
+        deflaterOutput = new DeflaterOutputStream(imageData, deflater);
     }
 
     /**
@@ -124,6 +145,73 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
      */
     public void setCompression(int level) {
         deflater.setLevel(level);
+        parallelDeflater.setLevel(level);
+    }
+
+    /**
+     * Gets the {@link PNGFilter} used on each row of pixels; see {@link #setFilter(PNGFilter)}.
+     * @return the PNGFilter this uses
+     */
+    public PNGFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the {@link PNGFilter} used on each row of pixels before compression. {@link PNGFilter#NONE} is fastest,
+     * and is usually smallest for pixel art, sprites, and other images with large areas of the same color.
+     * {@link PNGFilter#ADAPTIVE} picks a filter for each row, which makes photographs and other smoothly-shaded
+     * images roughly a third smaller, but can make pixel art nearly twice as large. The default is
+     * {@link PNGFilter#NONE}.
+     * @param filter a non-null PNGFilter
+     */
+    public void setFilter(PNGFilter filter) {
+        if (filter != null)
+            this.filter = filter;
+    }
+
+    /**
+     * Gets the {@link Parallelism} this uses to compress large frames on more than one thread at once.
+     * @return the Parallelism this uses; never null
+     */
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the {@link Parallelism} this uses to compress large frames on more than one thread at once. If it has more
+     * than one thread, each frame that has at least 256 KiB of pixel data is split into blocks of rows, and the blocks
+     * are filtered and compressed at the same time, each using the end of the block before it as a dictionary. This
+     * makes files that are usually less than 1% larger, and uses more memory, since every filtered row of a frame is
+     * held at once. The default is {@link Parallelism#SERIAL}, which compresses on the calling thread only.
+     * <br>
+     * On desktop and Android, {@code new ForkJoinParallelism()} uses every core in the common ForkJoinPool.
+     * @param parallelism a Parallelism such as a {@link ForkJoinParallelism}; if null, this uses {@link Parallelism#SERIAL}
+     */
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism == null ? Parallelism.SERIAL : parallelism;
+    }
+
+    /**
+     * Gets whether this writes only the part of each frame that changed since the previous frame; see
+     * {@link #setDeltaFrames(boolean)}.
+     * @return true if only changed parts of frames are written
+     */
+    public boolean isDeltaFrames() {
+        return deltaFrames;
+    }
+
+    /**
+     * If true, each frame after the first is compared with the frame before it, and only the smallest rectangle that
+     * contains every changed pixel is written, with an fcTL chunk giving its size and position. If every changed pixel
+     * is fully opaque, the rectangle is also compressed with every unchanged pixel made transparent, and drawn over the
+     * previous frame instead of replacing it, if that is smaller. The previous frame is always kept, so the animation
+     * looks exactly the same either way. This can make animations that are mostly still, such as recordings of a UI,
+     * several times smaller, and faster to write. This takes effect when an animation is started, and holds two
+     * frames' worth of pixels in memory while writing. The default is false.
+     * @param deltaFrames true if this should write only the changed parts of frames
+     */
+    public void setDeltaFrames(boolean deltaFrames) {
+        this.deltaFrames = deltaFrames;
     }
 
     /**
@@ -162,21 +250,83 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
 
     /**
      * Writes animated PNG data consisting of the given {@code frames} to the given {@code output} stream without
-     * closing the stream, at {@code fps} frames per second.
+     * closing the stream, at {@code fps} frames per second. When several frames in a row have exactly the same pixels,
+     * only the first of them is written, and it is shown for as long as all of them would have been.
      * @param output the stream to write to; the stream will not be closed
      * @param frames an Array of Pixmap frames to write in order to the animated PNG
      * @param fps how many frames per second the animated PNG should display
      */
-    @SuppressWarnings("RedundantCast")
     @Override
     public void write(OutputStream output, Array<Pixmap> frames, int fps) {
         Pixmap pixmap = frames.first();
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
+        // delay_num is stored in 16 bits
+        IntArray runs = DuplicateFrames.findRuns(frames, 0xFFFF, null);
+        if (!begin(output, pixmap.getWidth(), pixmap.getHeight(), fps, runs.size)) return;
+        for (int i = 0, r = 0; r < runs.size; i += runs.get(r++)) {
+            if (!addFrame(frames.get(i), runs.get(r))) return;
+        }
+        end();
+    }
+
+    /**
+     * Starts writing an animated PNG to the given {@code file}, one frame at a time. Frames are given to
+     * {@link #addFrame(Pixmap)} as they become available, so they don't all need to be held in memory at once, and
+     * the animation is completed by {@link #end()}. Because the PNG format needs the number of frames near the start
+     * of the file, this writes a placeholder count there and changes it to the real count when {@link #end()} is
+     * called. Any existing file with this name will be overwritten.
+     * @param file the file location to write to; must be a writable file on the local filesystem
+     * @param width the width of every frame, in pixels
+     * @param height the height of every frame, in pixels
+     * @param fps how many frames per second the animated PNG should display
+     * @return true if the file could be started; false if an error occurred
+     */
+    public boolean begin(FileHandle file, int width, int height, int fps) {
+        final OutputStream output;
         try {
-            dataOutput.write(SIGNATURE);
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
+            output = file.write(false, 8192);
+        } catch (GdxRuntimeException e) { // classpath and internal files can't be written
+            Gdx.app.error("anim8", e.getMessage());
+            return false;
+        }
+        if (begin(output, width, height, fps, 0)) {
+            animationFile = file;
+            return true;
+        }
+        StreamUtils.closeQuietly(output);
+        return false;
+    }
+
+    /**
+     * Starts writing an animated PNG to the given {@code output} stream, one frame at a time. Frames are given to
+     * {@link #addFrame(Pixmap)} as they become available, so they don't all need to be held in memory at once, and
+     * the animation is completed by {@link #end()}, which does not close the stream. Because a stream can't go back
+     * to change what it already wrote, the number of frames has to be known here, and exactly that many frames
+     * should be added; use {@link #begin(FileHandle, int, int, int)} if the count isn't known ahead of time.
+     * @param output the stream to write to; the stream will not be closed
+     * @param width the width of every frame, in pixels
+     * @param height the height of every frame, in pixels
+     * @param fps how many frames per second the animated PNG should display
+     * @param frameCount how many frames will be added before {@link #end()} is called
+     * @return true if the animation could be started; false if an error occurred
+     */
+    public boolean begin(OutputStream output, int width, int height, int fps, int frameCount) {
+        closeAnimation();
+        if (output == null) return false;
+        animationOutput = new DataOutputStream(output);
+        animationWidth = width;
+        animationHeight = height;
+        animationFps = fps;
+        animationFrameCount = frameCount;
+        animationFrames = 0;
+        animationSeq = 0;
+        animationDelta = deltaFrames;
+        if (animationDelta) {
+            if (frameDelta == null)
+                frameDelta = new FrameDelta(4, deflater);
+            frameDelta.begin(width, height);
+        }
+        try {
+            animationOutput.write(SIGNATURE);
 
             buffer.writeInt(IHDR);
             buffer.writeInt(width);
@@ -186,40 +336,53 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
             buffer.writeByte(COMPRESSION_DEFLATE);
             buffer.writeByte(FILTER_NONE);
             buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
+            buffer.endChunk(animationOutput);
 
+            acTLPosition = animationOutput.size();
             buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
+            buffer.writeInt(frameCount);
             buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            int lineLen = width * 4;
-            byte[] curLine;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
+            buffer.endChunk(animationOutput);
+        } catch (IOException e) {
+            Gdx.app.error("anim8", e.getMessage());
+            closeAnimation();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes one frame of an animated PNG started with {@code begin()}. Only the area from 0,0 to the width and
+     * height given to {@code begin()} is written; the Pixmap can be disposed or changed as soon as this returns.
+     * @param pixmap the next frame of the animation
+     * @return true if the frame was written; false if no animation has been started or an error occurred
+     */
+    public boolean addFrame(Pixmap pixmap) {
+        return addFrame(pixmap, 1);
+    }
+
+    /**
+     * Writes one frame that is shown for as long as {@code run} frames would be.
+     * @param pixmap the next frame of the animation
+     * @param run how many frames this one stands for, from 1 to 65535
+     * @return true if the frame was written; false if no animation has been started or an error occurred
+     */
+    @SuppressWarnings("RedundantCast")
+    private boolean addFrame(Pixmap pixmap, int run) {
+        if (pixmap == null || animationOutput == null) return false;
+        if (animationDelta) return addDeltaFrame(pixmap, run);
+        final int width = animationWidth;
+        final int height = animationHeight;
+        try {
+            writeFrameControl(0, 0, width, height, run, 0);
+            if (ParallelDeflater.blockCount(parallelism, width, height) > 1) {
+                parallelDeflater.write(imageData, pixmap, width, height, flipY, filter, parallelism);
+            } else {
                 deflater.reset();
+                rowFilter.reset();
 
+                int lineLen = width * 4;
+                byte[] curLine;
                 if (curLineBytes == null) {
                     curLine = (curLineBytes = new ByteArray(lineLen)).items;
                 } else {
@@ -235,63 +398,156 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
                         curLine[x++] = (byte) ((pixel >>> 8) & 0xff);
                         curLine[x++] = (byte) (pixel & 0xff);
                     }
-// //PAETH
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//                    lineOut[1] = (byte) (curLine[1] - prevLine[1]);
-//                    lineOut[2] = (byte) (curLine[2] - prevLine[2]);
-//                    lineOut[3] = (byte) (curLine[3] - prevLine[3]);
-//
-//                    for (int x = 4; x < lineLen; x++) {
-//                        int a = curLine[x - 4] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 4] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc) //
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(PAETH);
-//                    deflaterOutput.write(lineOut, 0, lineLen);
-// //NONE
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, lineLen);
-// //SUB
-//                    lineOut[0] = curLine[0];
-//                    lineOut[1] = curLine[1];
-//                    lineOut[2] = curLine[2];
-//                    lineOut[3] = curLine[3];
-//
-//                    for (int x = 4; x < lineLen; x++) {
-//                        lineOut[x] = (byte) (curLine[x] - curLine[x - 4]);
-//                    }
-//                    deflaterOutput.write(FILTER_SUB);
-//                    deflaterOutput.write(lineOut, 0, lineLen);
-// // End of filtering code
-//
-// // used by Paeth filtering
-//                    byte[] temp = curLine;
-//                    curLine = prevLine;
-//                    prevLine = temp;
+                    rowFilter.write(deflaterOutput, curLine, lineLen, filter);
                 }
                 deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
             }
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
+            animationSeq = imageData.end();
+        } catch (IOException e) {
+            Gdx.app.error("anim8", e.getMessage());
+            closeAnimation();
+            return false;
+        }
+        animationFrames++;
+        return true;
+    }
+
+    /**
+     * Writes the fcTL chunk for the next frame, then starts its IDAT or fdAT chunks in {@link #imageData}, so the
+     * compressed pixels can be written there; {@code animationSeq = imageData.end()} finishes them.
+     * @param blend 0 for APNG_BLEND_OP_SOURCE, or 1 for APNG_BLEND_OP_OVER
+     */
+    private void writeFrameControl(int x, int y, int width, int height, int run, int blend) throws IOException {
+        buffer.writeInt(fcTL);
+        buffer.writeInt(animationSeq++);
+        buffer.writeInt(width);
+        buffer.writeInt(height);
+        buffer.writeInt(x);
+        buffer.writeInt(y);
+        buffer.writeShort(run);
+        buffer.writeShort(animationFps);
+        buffer.writeByte(0);
+        buffer.writeByte(blend);
+        buffer.endChunk(animationOutput);
+
+        imageData.begin(animationOutput, animationFrames == 0 ? IDAT : fdAT, animationSeq);
+    }
 
-            output.flush();
+    /**
+     * Used instead of {@link #addFrame(Pixmap, int)} when {@link #isDeltaFrames()} was true as the animation began.
+     * This writes only the rectangle that changed since the last frame, replacing what was there or drawn over it,
+     * whichever compresses smaller.
+     */
+    private boolean addDeltaFrame(Pixmap pixmap, int run) {
+        final int width = animationWidth;
+        final int height = animationHeight;
+        final FrameDelta delta = frameDelta;
+        try {
+            final int size = width * height * 4;
+            if (frameBytes == null || frameBytes.length < size)
+                frameBytes = new byte[size];
+            final byte[] frame = frameBytes;
+            for (int y = 0, i = 0; y < height; y++) {
+                int py = flipY ? (height - y - 1) : y;
+                for (int px = 0; px < width; px++) {
+                    int pixel = pixmap.getPixel(px, py);
+                    frame[i++] = (byte) ((pixel >>> 24) & 0xff);
+                    frame[i++] = (byte) ((pixel >>> 16) & 0xff);
+                    frame[i++] = (byte) ((pixel >>> 8) & 0xff);
+                    frame[i++] = (byte) (pixel & 0xff);
+                }
+            }
+            delta.findChanges(frame);
+            compressDelta(frame, false);
+            ByteArrayOutputStream chosen = delta.replaced;
+            int blend = 0;
+            if (delta.canBlend(frame)) {
+                compressDelta(frame, true);
+                if (delta.blended.size() < chosen.size()) {
+                    chosen = delta.blended;
+                    blend = 1;
+                }
+            }
+            writeFrameControl(delta.x, delta.y, delta.width, delta.height, run, blend);
+            chosen.writeTo(imageData);
+            animationSeq = imageData.end();
+            delta.finish(frame);
+        } catch (IOException e) {
+            Gdx.app.error("anim8", e.getMessage());
+            closeAnimation();
+            return false;
+        }
+        animationFrames++;
+        return true;
+    }
+
+    /**
+     * Compresses the rectangle {@link #frameDelta} found, using more than one thread if it is large enough.
+     */
+    private void compressDelta(final byte[] frame, final boolean blend) throws IOException {
+        final FrameDelta delta = frameDelta;
+        if (ParallelDeflater.blockCount(parallelism, delta.width, delta.height) > 1) {
+            final ByteArrayOutputStream into = blend ? delta.blended : delta.replaced;
+            into.reset();
+            parallelDeflater.write(into, delta.width, delta.height, filter, parallelism, new ParallelDeflater.Rows() {
+                @Override
+                public void read(int y, byte[] line) {
+                    delta.row(frame, y, blend, line);
+                }
+            });
+        } else {
+            delta.compress(frame, blend, rowFilter, filter);
+        }
+    }
+
+    /**
+     * Finishes an animated PNG started with {@code begin()}. If it was started with
+     * {@link #begin(FileHandle, int, int, int)}, this closes the file and then stores the number of frames that were
+     * actually added; otherwise, the stream is flushed but not closed.
+     * @return true if the animation was finished successfully; false if none was started, no frames were added, or an
+     * error occurred
+     */
+    public boolean end() {
+        if (animationOutput == null) return false;
+        if (animationFrames == 0) {
+            Gdx.app.error("anim8", "No frames were added, so the animation could not be finished.");
+            closeAnimation();
+            return false;
+        }
+        boolean ok = true;
+        try {
+            buffer.writeInt(IEND);
+            buffer.endChunk(animationOutput);
+            animationOutput.flush();
         } catch (IOException e) {
             Gdx.app.error("anim8", e.getMessage());
+            ok = false;
+        }
+        final FileHandle file = animationFile;
+        closeAnimation();
+        if (file != null) {
+            if (ok) {
+                try {
+                    ChunkBuffer.patchFrameCount(file, acTLPosition, animationFrames);
+                } catch (IOException e) {
+                    Gdx.app.error("anim8", e.getMessage());
+                    ok = false;
+                }
+            }
+        } else if (ok && animationFrames != animationFrameCount) {
+            Gdx.app.error("anim8", "Expected " + animationFrameCount + " frames, but " + animationFrames + " were added.");
+            ok = false;
         }
+        return ok;
+    }
+
+    /**
+     * Stops the current animation, if there is one, closing its stream if it was opened from a file.
+     */
+    private void closeAnimation() {
+        if (animationFile != null) StreamUtils.closeQuietly(animationOutput);
+        animationOutput = null;
+        animationFile = null;
     }
 
     /**
@@ -303,5 +559,6 @@ public class AnimatedPNG implements AnimationWriter, Disposable {
     @Override
     public void dispose() {
         deflater.end();
+        parallelDeflater.dispose();
     }
 }
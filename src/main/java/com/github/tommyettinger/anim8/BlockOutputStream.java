@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Collects bytes in a buffer and passes them on to another OutputStream in large blocks, so many small writes cost
+ * about the same no matter how the other stream is buffered (if at all). This is like
+ * {@link java.io.BufferedOutputStream}, except that it isn't synchronized, it can be pointed at a new stream without
+ * allocating, and it is available on GWT.
+ */
+class BlockOutputStream extends OutputStream {
+    private final byte[] buffer;
+    private int count;
+    private OutputStream target;
+
+    BlockOutputStream(int size) {
+        buffer = new byte[size];
+    }
+
+    /**
+     * Makes this write to {@code target} from now on, discarding anything buffered for the previous target.
+     * @param target the OutputStream to pass bytes on to; may be null to stop holding onto the previous one
+     * @return this, for chaining
+     */
+    BlockOutputStream setTarget(OutputStream target) {
+        this.target = target;
+        count = 0;
+        return this;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length)
+            drain();
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= buffer.length) {
+            // too big to be worth copying
+            drain();
+            target.write(b, off, len);
+            return;
+        }
+        if (len > buffer.length - count)
+            drain();
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes everything buffered so far to the target, without flushing the target.
+     * @throws IOException if the target throws one
+     */
+    void drain() throws IOException {
+        if (count > 0) {
+            target.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        target.close();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An OutputStream that writes to a {@link WritableByteChannel} through a direct ByteBuffer of fixed size, so it never
+ * holds more than that buffer's worth of data no matter how much is written. This is meant for streaming an animation
+ * to a socket, pipe, or HTTP response as it is encoded; for example, with an {@link AnimatedGif}, you can call
+ * {@code gif.start(new ChannelOutputStream(channel))} and then add frames. AnimatedGif flushes its output after each
+ * frame, and {@link #flush()} here writes everything buffered to the channel, so each frame reaches the channel as
+ * soon as it is done.
+ * <br>
+ * If the channel is blocking, a slow reader on the other end slows down encoding instead of letting data pile up in
+ * memory. If the channel is non-blocking, this yields the current thread until the channel accepts more data.
+ * <br>
+ * This is not available on GWT.
+ */
+public class ChannelOutputStream extends OutputStream {
+    protected final WritableByteChannel channel;
+    protected final ByteBuffer buffer;
+
+    /**
+     * Writes to the given channel with a 64 KiB buffer.
+     * @param channel a non-null, open WritableByteChannel
+     */
+    public ChannelOutputStream(WritableByteChannel channel) {
+        this(channel, 1 << 16);
+    }
+
+    /**
+     * Writes to the given channel with a buffer of the given size.
+     * @param channel a non-null, open WritableByteChannel
+     * @param bufferSize how many bytes can be held before they are written to the channel; at least 1
+     */
+    public ChannelOutputStream(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(1, bufferSize));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining())
+            drain();
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining())
+                drain();
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes everything in {@link #buffer} to the channel, waiting for the channel if it can't take it all at once.
+     * @throws IOException if the channel throws one
+     */
+    protected void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0)
+                Thread.yield();
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes everything buffered so far to the channel. Channels don't buffer data themselves, so this is all that
+     * is needed for the data to be sent.
+     * @throws IOException if the channel throws one
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes everything buffered so far to the channel, then closes the channel.
+     * @throws IOException if the channel throws one
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -18,9 +18,12 @@
 
 package com.github.tommyettinger.anim8;
 
+import com.badlogic.gdx.files.FileHandle;
+
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.zip.CRC32;
 import java.util.zip.CheckedOutputStream;
 
@@ -49,4 +52,34 @@ class ChunkBuffer extends DataOutputStream {
         buffer.reset();
         crc.reset();
     }
+
+    /**
+     * Changes the frame count in an acTL chunk that was already written to {@code file}, and updates that chunk's
+     * CRC to match. This is used when an animated PNG is written one frame at a time, since the count isn't known
+     * until the last frame has been written.
+     * @param file a file that already contains a complete acTL chunk at {@code position}
+     * @param position the offset in bytes from the start of the file to the length field of the acTL chunk
+     * @param frameCount the number of frames to store
+     * @throws IOException if the file can't be read or written
+     */
+    static void patchFrameCount(FileHandle file, long position, int frameCount) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file.file(), "rw");
+        try {
+            // chunk type, num_frames, and num_plays, which are all covered by the CRC
+            byte[] chunk = new byte[12];
+            raf.seek(position + 4);
+            raf.readFully(chunk);
+            chunk[4] = (byte) (frameCount >>> 24);
+            chunk[5] = (byte) (frameCount >>> 16);
+            chunk[6] = (byte) (frameCount >>> 8);
+            chunk[7] = (byte) frameCount;
+            CRC32 crc = new CRC32();
+            crc.update(chunk);
+            raf.seek(position + 4);
+            raf.write(chunk);
+            raf.writeInt((int) crc.getValue());
+        } finally {
+            raf.close();
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds runs of identical frames next to each other in an animation, so each run can be written once and shown for
+ * longer, instead of writing the same frame many times. This is used by {@link AnimatedGif}, {@link AnimatedPNG}, and
+ * {@link PNG8} when they are given an Array of frames.
+ */
+final class DuplicateFrames {
+    private DuplicateFrames() {
+    }
+
+    /**
+     * Checks whether two Pixmaps have the same size, format, and pixel data.
+     * @param a a Pixmap that will not be modified
+     * @param b a Pixmap that will not be modified
+     * @return true if a and b contain exactly the same pixels
+     */
+    static boolean samePixels(Pixmap a, Pixmap b) {
+        if (a == b) return true;
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight() || a.getFormat() != b.getFormat())
+            return false;
+        ByteBuffer pa = a.getPixels().duplicate(), pb = b.getPixels().duplicate();
+        pa.clear();
+        pb.clear();
+        return pa.equals(pb);
+    }
+
+    /**
+     * Splits {@code frames} into runs of identical frames, and stores how many frames are in each run, in order, in
+     * {@code runs}. The first frame of each run is the one that should be written. A run never has more than
+     * {@code maxRun} frames, so the longer delay for a run can't be too large for the file format to store.
+     * @param frames the frames of an animation, in order; will not be modified
+     * @param maxRun the most frames one run can have; at least 1
+     * @param runs an IntArray that will be cleared and then filled with the length of each run; may be null
+     * @return runs, or a new IntArray if runs was null, holding the length of each run
+     */
+    static IntArray findRuns(Array<Pixmap> frames, int maxRun, IntArray runs) {
+        if (runs == null)
+            runs = new IntArray(frames.size);
+        else
+            runs.clear();
+        for (int i = 0; i < frames.size; ) {
+            final Pixmap first = frames.get(i);
+            int run = 1;
+            while (run < maxRun && i + run < frames.size && samePixels(first, frames.get(i + run))) {
+                run++;
+            }
+            runs.add(run);
+            i += run;
+        }
+        return runs;
+    }
+}
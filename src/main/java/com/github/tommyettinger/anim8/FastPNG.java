@@ -50,9 +50,10 @@ import java.util.zip.DeflaterOutputStream;
  * <br>
  * This class is only really different from PixmapIO's version in how it uses a lower
  * compression level by default, and how it uses "NONE filtering" instead of
- * "PAETH filtering", which speeds up some PNG writing. These may result in worse
- * compression ratios, but you can optimize a PNG more thoroughly with a dedicated tool
- * than this library could easily.
+ * "PAETH filtering", which speeds up some PNG writing and suits pixel art. For photographs,
+ * {@link #setFilter(PNGFilter)} with {@link PNGFilter#ADAPTIVE} usually makes smaller files.
+ * A lower compression level may result in worse compression ratios, but you can optimize a
+ * PNG more thoroughly with a dedicated tool than this library could easily.
  * <br>
  * <pre>
  * Copyright (c) 2007 Matthias Mann - www.matthiasmann.de
@@ -92,8 +93,13 @@ public class FastPNG implements Disposable {
     private static final byte INTERLACE_NONE = 0;
 
     private final ChunkBuffer buffer;
+    private final ImageDataOutputStream imageData = new ImageDataOutputStream();
     private final Deflater deflater;
     private ByteArray curLineBytes;
+    private final RowFilter rowFilter = new RowFilter(4);
+    private PNGFilter filter = PNGFilter.NONE;
+    private final ParallelDeflater parallelDeflater = new ParallelDeflater();
+    private Parallelism parallelism = Parallelism.SERIAL;
     private boolean flipY = true;
 
     /**
@@ -112,6 +118,7 @@ public class FastPNG implements Disposable {
     public FastPNG(int initialBufferSize) {
         buffer = new ChunkBuffer(initialBufferSize);
         deflater = new Deflater(2);
+        parallelDeflater.setLevel(2);
     }
 
     /**
@@ -129,6 +136,50 @@ public class FastPNG implements Disposable {
      */
     public void setCompression(int level) {
         deflater.setLevel(level);
+        parallelDeflater.setLevel(level);
+    }
+
+    /**
+     * Gets the {@link PNGFilter} used on each row of pixels; see {@link #setFilter(PNGFilter)}.
+     * @return the PNGFilter this uses
+     */
+    public PNGFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the {@link PNGFilter} used on each row of pixels before compression. {@link PNGFilter#NONE} is fastest,
+     * and is usually smallest for pixel art, sprites, and other images with large areas of the same color.
+     * {@link PNGFilter#ADAPTIVE} picks a filter for each row, which makes photographs and other smoothly-shaded
+     * images roughly a third smaller, but can make pixel art nearly twice as large. The default is
+     * {@link PNGFilter#NONE}.
+     * @param filter a non-null PNGFilter
+     */
+    public void setFilter(PNGFilter filter) {
+        if (filter != null)
+            this.filter = filter;
+    }
+
+    /**
+     * Gets the {@link Parallelism} this uses to compress large images on more than one thread at once.
+     * @return the Parallelism this uses; never null
+     */
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the {@link Parallelism} this uses to compress large images on more than one thread at once. If it has more
+     * than one thread, each image that has at least 256 KiB of pixel data is split into blocks of rows, and the blocks
+     * are filtered and compressed at the same time, each using the end of the block before it as a dictionary. This
+     * makes files that are usually less than 1% larger, and uses more memory, since every filtered row of an image is
+     * held at once. The default is {@link Parallelism#SERIAL}, which compresses on the calling thread only.
+     * <br>
+     * On desktop and Android, {@code new ForkJoinParallelism()} uses every core in the common ForkJoinPool.
+     * @param parallelism a Parallelism such as a {@link ForkJoinParallelism}; if null, this uses {@link Parallelism#SERIAL}
+     */
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism == null ? Parallelism.SERIAL : parallelism;
     }
 
     /**
@@ -165,7 +216,7 @@ public class FastPNG implements Disposable {
      * @param pixmap the Pixmap to write
      */
     public void write(OutputStream output, Pixmap pixmap){
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(imageData, deflater);
         DataOutputStream dataOutput = new DataOutputStream(output);
         try {
             dataOutput.write(SIGNATURE);
@@ -180,35 +231,36 @@ public class FastPNG implements Disposable {
             buffer.writeByte(INTERLACE_NONE);
             buffer.endChunk(dataOutput);
 
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
+            imageData.begin(dataOutput, IDAT);
             final int width = pixmap.getWidth(), height = pixmap.getHeight();
-            int lineLen = width * 4;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(lineLen)).items;
+            if (ParallelDeflater.blockCount(parallelism, width, height) > 1) {
+                parallelDeflater.write(imageData, pixmap, width, height, flipY, filter, parallelism);
             } else {
-                curLine = curLineBytes.ensureCapacity(lineLen);
-            }
+                deflater.reset();
+                rowFilter.reset();
 
-            for (int y = 0; y < height; y++) {
-                int py = flipY ? (height - y - 1) : y;
-                for (int px = 0, x = 0; px < width; px++) {
-                    int pixel = pixmap.getPixel(px, py);
-                    curLine[x++] = (byte) ((pixel >>> 24) & 0xff);
-                    curLine[x++] = (byte) ((pixel >>> 16) & 0xff);
-                    curLine[x++] = (byte) ((pixel >>> 8) & 0xff);
-                    curLine[x++] = (byte) (pixel & 0xff);
+                int lineLen = width * 4;
+                byte[] curLine;
+                if (curLineBytes == null) {
+                    curLine = (curLineBytes = new ByteArray(lineLen)).items;
+                } else {
+                    curLine = curLineBytes.ensureCapacity(lineLen);
                 }
-// //NONE filtering
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, lineLen);
-// // End of filtering code
-//
+
+                for (int y = 0; y < height; y++) {
+                    int py = flipY ? (height - y - 1) : y;
+                    for (int px = 0, x = 0; px < width; px++) {
+                        int pixel = pixmap.getPixel(px, py);
+                        curLine[x++] = (byte) ((pixel >>> 24) & 0xff);
+                        curLine[x++] = (byte) ((pixel >>> 16) & 0xff);
+                        curLine[x++] = (byte) ((pixel >>> 8) & 0xff);
+                        curLine[x++] = (byte) (pixel & 0xff);
+                    }
+                    rowFilter.write(deflaterOutput, curLine, lineLen, filter);
+                }
+                deflaterOutput.finish();
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+            imageData.end();
 
             buffer.writeInt(IEND);
             buffer.endChunk(dataOutput);
@@ -228,5 +280,6 @@ public class FastPNG implements Disposable {
     @Override
     public void dispose() {
         deflater.end();
+        parallelDeflater.dispose();
     }
 }
@@ -144,4 +144,16 @@ public class FastPNG8 extends PNG8 {
         if(clearPalette) palette = null;
         ;
     }
+
+    /**
+     * Computes a {@link FastPalette} from the first frame of an animation started with {@code begin()}, when
+     * {@link #palette} is null as that frame is added.
+     *
+     * @param frame the first frame of the animation
+     * @return a new FastPalette fit to frame
+     */
+    @Override
+    protected PaletteReducer createPalette(Pixmap frame) {
+        return new FastPalette(frame);
+    }
 }
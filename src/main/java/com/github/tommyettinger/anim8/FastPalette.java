@@ -313,6 +313,39 @@ public class FastPalette extends PaletteReducer {
         return difference(r1, g1, b1, r2, g2, b2);
     }
 
+    /**
+     * Creates a new FastPalette with the same palette and settings as this one, using {@link #set(PaletteReducer)}.
+     *
+     * @return a new FastPalette with the same palette as this
+     */
+    @Override
+    public FastPalette copy() {
+        FastPalette next = new FastPalette();
+        next.set(this);
+        return next;
+    }
+
+    /**
+     * Finds where a color is in the space that the difference methods measure distance in, so that palette mappings
+     * can be built with a {@link PaletteTree}. FastPalette's difference methods use RGB, so this stores r, g, and b
+     * and returns 1.0. This returns 0.0 unless this object's class is exactly FastPalette, because a subclass could
+     * override any of the difference methods.
+     *
+     * @param r red, from 0 to 255
+     * @param g green, from 0 to 255
+     * @param b blue, from 0 to 255
+     * @param position a float array with length 3 or more; will be modified
+     * @return the scale to multiply a difference on one axis by, or 0.0 if the difference methods can't use positions
+     */
+    @Override
+    protected double colorPosition(int r, int g, int b, float[] position) {
+        if (getClass() != FastPalette.class) return 0.0;
+        position[0] = r;
+        position[1] = g;
+        position[2] = b;
+        return 1.0;
+    }
+
     public double difference(int color1, int color2) {
         if(((color1 ^ color2) & 0x80) == 0x80) return Double.MAX_VALUE;
         return difference(color1 >>> 24, color1 >>> 16 & 0xFF, color1 >>> 8 & 0xFF, color2 >>> 24, color2 >>> 16 & 0xFF, color2 >>> 8 & 0xFF);
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Parallelism} that runs work on an {@link Executor}, which is {@link ForkJoinPool#commonPool()} by default.
+ * The calling thread always takes part in the work, and pieces of work are claimed one at a time by whichever thread
+ * is free, so this can't deadlock even if the Executor is busy with other tasks, or if it is the same pool that the
+ * calling thread belongs to.
+ * <br>
+ * This is not available on GWT.
+ */
+public class ForkJoinParallelism implements Parallelism {
+    protected final Executor executor;
+    protected final int threads;
+
+    /**
+     * Uses {@link ForkJoinPool#commonPool()}, and as many threads as that pool's parallelism plus one (since the
+     * calling thread also does work).
+     */
+    public ForkJoinParallelism() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() + 1);
+    }
+
+    /**
+     * Uses the given ForkJoinPool, and as many threads as that pool's parallelism.
+     * @param pool a non-null ForkJoinPool
+     */
+    public ForkJoinParallelism(ForkJoinPool pool) {
+        this(pool, pool.getParallelism());
+    }
+
+    /**
+     * Uses the given Executor, which is expected to be able to run about {@code threads} tasks at once (counting the
+     * calling thread).
+     * @param executor a non-null Executor
+     * @param threads how many threads, including the calling one, should work at the same time; at least 1
+     */
+    public ForkJoinParallelism(Executor executor, int threads) {
+        this.executor = executor;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public void run(final int count, final Task task) {
+        if (count <= 0) return;
+        final int helpers = Math.min(count, threads) - 1;
+        if (helpers <= 0) {
+            for (int i = 0; i < count; i++) {
+                task.run(i);
+            }
+            return;
+        }
+        final AtomicInteger next = new AtomicInteger(), finished = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                for (int i; (i = next.getAndIncrement()) < count; ) {
+                    try {
+                        task.run(i);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        if (finished.incrementAndGet() == count) {
+                            synchronized (finished) {
+                                finished.notifyAll();
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(worker);
+        }
+        worker.run();
+        boolean interrupted = false;
+        synchronized (finished) {
+            while (finished.get() < count) {
+                try {
+                    finished.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        if (t != null) throw new RuntimeException(t);
+    }
+
+    @Override
+    public Progress progress(int count) {
+        final AtomicIntegerArray amounts = new AtomicIntegerArray(count);
+        return new Progress() {
+            @Override
+            public void set(int index, int amount) {
+                amounts.lazySet(index, amount);
+            }
+
+            @Override
+            public int await(int index, int amount) {
+                int current;
+                for (int spins = 0; (current = amounts.get(index)) < amount; spins++) {
+                    if (spins >= SPINS_BEFORE_YIELD)
+                        Thread.yield();
+                }
+                return current;
+            }
+        };
+    }
+
+    /**
+     * How many times {@link Progress#await(int, int)} checks again right away before it starts yielding its thread.
+     */
+    protected static final int SPINS_BEFORE_YIELD = 64;
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Finds the part of each frame of an animated PNG that changed since the frame before it, so only that rectangle needs
+ * to be written, and compresses that rectangle. Frames are given as arrays of unfiltered pixel bytes, row by row, with
+ * the same number of bytes for every pixel: 4 for RGBA, or 1 for palette indices. A pixel with every byte 0 is fully
+ * transparent, which is true of RGBA and of index 0 in a palette with a transparent color.
+ * <br>
+ * The rectangle can be written two ways. It can replace what was shown there (APNG_BLEND_OP_SOURCE), or it can be
+ * drawn over what was shown (APNG_BLEND_OP_OVER) with every pixel that didn't change made transparent, which usually
+ * compresses much better, but only works if every pixel that did change is fully opaque. Either way, the previous
+ * frame is kept (APNG_DISPOSE_OP_NONE), so after a frame is shown, the canvas always looks exactly like that frame.
+ * This is used by {@link AnimatedPNG} and {@link PNG8} when {@code setDeltaFrames(true)} has been called.
+ */
+final class FrameDelta {
+    private final int bytesPerPixel;
+    private final Deflater deflater;
+    private byte[] shown = new byte[0];
+    private byte[] line = new byte[0];
+    private int canvasWidth, canvasHeight;
+    private boolean first = true;
+
+    /**
+     * The rectangle that {@link #findChanges(byte[])} found, in pixels.
+     */
+    int x, y, width, height;
+
+    /**
+     * The compressed rectangle written by {@link #compress(byte[], boolean, RowFilter, PNGFilter)}, either replacing
+     * what was shown or blended over it.
+     */
+    final ByteArrayOutputStream replaced = new ByteArrayOutputStream(), blended = new ByteArrayOutputStream();
+    private final DeflaterOutputStream replacedOutput, blendedOutput;
+
+    /**
+     * @param bytesPerPixel 4 for RGBA, or 1 for palette indices
+     * @param deflater the Deflater to compress with; it is reset before each use, so it can be shared
+     */
+    FrameDelta(int bytesPerPixel, Deflater deflater) {
+        this.bytesPerPixel = bytesPerPixel;
+        this.deflater = deflater;
+        replacedOutput = new DeflaterOutputStream(replaced, deflater);
+        blendedOutput = new DeflaterOutputStream(blended, deflater);
+    }
+
+    /**
+     * Starts a new animation, so the next frame is treated as the first, and is written whole.
+     * @param canvasWidth the width of every frame, in pixels
+     * @param canvasHeight the height of every frame, in pixels
+     */
+    void begin(int canvasWidth, int canvasHeight) {
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+        final int size = canvasWidth * canvasHeight * bytesPerPixel;
+        if (shown.length < size)
+            shown = new byte[size];
+        first = true;
+    }
+
+    /**
+     * Sets {@link #x}, {@link #y}, {@link #width}, and {@link #height} to the smallest rectangle that contains every
+     * pixel of {@code frame} that differs from the frame shown before it. The first frame is always the whole canvas,
+     * as APNG requires. If nothing changed, this is a single pixel in the corner, since a frame can't be empty.
+     * @param frame the pixels of the next frame; will not be modified
+     */
+    void findChanges(byte[] frame) {
+        final int bpp = bytesPerPixel, rowBytes = canvasWidth * bpp;
+        if (first) {
+            x = y = 0;
+            width = canvasWidth;
+            height = canvasHeight;
+            return;
+        }
+        final byte[] shown = this.shown;
+        int minX = canvasWidth, maxX = -1, minY = -1, maxY = -1;
+        for (int row = 0, off = 0; row < canvasHeight; row++, off += rowBytes) {
+            int left = 0;
+            while (left < rowBytes && frame[off + left] == shown[off + left]) left++;
+            if (left == rowBytes) continue;
+            int right = rowBytes - 1;
+            while (frame[off + right] == shown[off + right]) right--;
+            minX = Math.min(minX, left / bpp);
+            maxX = Math.max(maxX, right / bpp);
+            if (minY < 0) minY = row;
+            maxY = row;
+        }
+        if (maxY < 0) {
+            x = y = 0;
+            width = height = 1;
+        } else {
+            x = minX;
+            y = minY;
+            width = maxX + 1 - minX;
+            height = maxY + 1 - minY;
+        }
+    }
+
+    /**
+     * Checks whether the rectangle found by {@link #findChanges(byte[])} can be blended over the previous frame with
+     * unchanged pixels made transparent. This is true only if this isn't the first frame, some pixels in the rectangle
+     * didn't change, and every pixel that did change is fully opaque.
+     * @param frame the pixels of the next frame; will not be modified
+     * @return true if the rectangle can be written as a blended frame
+     */
+    boolean canBlend(byte[] frame) {
+        if (first) return false;
+        final int bpp = bytesPerPixel, rowBytes = canvasWidth * bpp;
+        final byte[] shown = this.shown;
+        boolean unchanged = false;
+        for (int row = y, end = y + height; row < end; row++) {
+            for (int p = row * rowBytes + x * bpp, e = p + width * bpp; p < e; p += bpp) {
+                if (samePixel(frame, shown, p)) {
+                    unchanged = true;
+                } else if (bpp == 4 ? frame[p + 3] != -1 : frame[p] == 0) {
+                    return false;
+                }
+            }
+        }
+        return unchanged;
+    }
+
+    private boolean samePixel(byte[] frame, byte[] shown, int p) {
+        for (int i = p, e = p + bytesPerPixel; i < e; i++) {
+            if (frame[i] != shown[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies one row of the rectangle found by {@link #findChanges(byte[])} into {@code line}. If {@code blend} is
+     * true, pixels that didn't change are made transparent. This only reads this object's state, so several threads
+     * can call it at once.
+     * @param frame the pixels of the next frame; will not be modified
+     * @param row the row in the rectangle, where 0 is its top
+     * @param blend true if unchanged pixels should be transparent
+     * @param line will be filled with {@code width * bytesPerPixel} bytes
+     */
+    void row(byte[] frame, int row, boolean blend, byte[] line) {
+        final int bpp = bytesPerPixel, length = width * bpp;
+        final int start = ((y + row) * canvasWidth + x) * bpp;
+        System.arraycopy(frame, start, line, 0, length);
+        if (blend) {
+            for (int i = 0, p = start; i < length; i += bpp, p += bpp) {
+                if (samePixel(frame, shown, p)) {
+                    for (int b = 0; b < bpp; b++) {
+                        line[i + b] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Filters and compresses the rectangle found by {@link #findChanges(byte[])} into {@link #blended} if
+     * {@code blend} is true, or {@link #replaced} otherwise, as a complete zlib stream.
+     * @param frame the pixels of the next frame; will not be modified
+     * @param blend true if unchanged pixels should be transparent
+     * @param rowFilter filters each row; it is reset first
+     * @param filter which {@link PNGFilter} to use on each row
+     * @throws IOException should not happen, since this only writes to memory
+     */
+    void compress(byte[] frame, boolean blend, RowFilter rowFilter, PNGFilter filter) throws IOException {
+        final ByteArrayOutputStream into = blend ? blended : replaced;
+        final DeflaterOutputStream output = blend ? blendedOutput : replacedOutput;
+        final int length = width * bytesPerPixel;
+        if (line.length < length)
+            line = new byte[length];
+        into.reset();
+        deflater.reset();
+        rowFilter.reset();
+        for (int row = 0; row < height; row++) {
+            row(frame, row, blend, line);
+            rowFilter.write(output, line, length, filter);
+        }
+        output.finish();
+    }
+
+    /**
+     * Records that {@code frame} is now shown, so the next frame is compared with it.
+     * @param frame the pixels of the frame that was just written; will not be modified
+     */
+    void finish(byte[] frame) {
+        System.arraycopy(frame, 0, shown, 0, canvasWidth * canvasHeight * bytesPerPixel);
+        first = false;
+    }
+}
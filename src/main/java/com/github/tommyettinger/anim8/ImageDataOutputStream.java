@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Splits compressed image data into IDAT or fdAT chunks of a fixed size, and writes each one as soon as it is full.
+ * Unlike {@link ChunkBuffer}, which holds a whole chunk until it ends so it can write the chunk's length first, this
+ * only ever holds one fixed-size chunk, so writing a huge image doesn't need memory for all of its compressed data.
+ * PNG decoders treat consecutive IDAT chunks as one stream, and APNG decoders do the same for the fdAT chunks of one
+ * frame, as long as each fdAT chunk has the next sequence number.
+ */
+final class ImageDataOutputStream extends OutputStream {
+    private static final int fdAT = 0x66644154;
+
+    /**
+     * How many bytes of image data each chunk holds, except for the last chunk of an image, which may be smaller.
+     */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    // the chunk type, then the sequence number if this is an fdAT chunk, then the data
+    private final byte[] chunk;
+    private final int chunkSize;
+    private final CRC32 crc = new CRC32();
+    private DataOutputStream target;
+    // limit is where the current chunk is full: its header's size plus chunkSize
+    private int headerSize, limit, count, sequence;
+    private boolean written;
+
+    ImageDataOutputStream() {
+        this(CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize how many bytes of image data each chunk can hold
+     */
+    ImageDataOutputStream(int chunkSize) {
+        this.chunkSize = chunkSize;
+        chunk = new byte[chunkSize + 8];
+    }
+
+    /**
+     * Starts the image data of an image, or a frame of an animated PNG, writing chunks of the given type to
+     * {@code target}. Every byte written after this goes into those chunks, until {@link #end()} is called.
+     * @param target where the chunks are written
+     * @param type the chunk type, such as IDAT or fdAT, as a big-endian int
+     * @param sequence if type is fdAT, the sequence number of the first chunk; otherwise ignored
+     */
+    void begin(DataOutputStream target, int type, int sequence) {
+        this.target = target;
+        this.sequence = sequence;
+        chunk[0] = (byte) (type >>> 24);
+        chunk[1] = (byte) (type >>> 16);
+        chunk[2] = (byte) (type >>> 8);
+        chunk[3] = (byte) type;
+        headerSize = type == fdAT ? 8 : 4;
+        limit = headerSize + chunkSize;
+        count = headerSize;
+        written = false;
+    }
+
+    /**
+     * Starts the image data of an image, writing chunks of the given type (which should not be fdAT) to
+     * {@code target}. Every byte written after this goes into those chunks, until {@link #end()} is called.
+     * @param target where the chunks are written
+     * @param type the chunk type, usually IDAT, as a big-endian int
+     */
+    void begin(DataOutputStream target, int type) {
+        begin(target, type, 0);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == limit)
+            writeChunk();
+        chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == limit)
+                writeChunk();
+            final int n = Math.min(len, limit - count);
+            System.arraycopy(b, off, chunk, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        if (headerSize == 8) {
+            chunk[4] = (byte) (sequence >>> 24);
+            chunk[5] = (byte) (sequence >>> 16);
+            chunk[6] = (byte) (sequence >>> 8);
+            chunk[7] = (byte) sequence;
+            sequence++;
+        }
+        crc.reset();
+        crc.update(chunk, 0, count);
+        target.writeInt(count - 4);
+        target.write(chunk, 0, count);
+        target.writeInt((int) crc.getValue());
+        count = headerSize;
+        written = true;
+    }
+
+    /**
+     * Writes the last chunk of the current image data, which may be smaller than the rest. This always writes at least
+     * one chunk, even if no data was written.
+     * @return the sequence number that comes after the last fdAT chunk written, or the sequence number given to
+     * {@link #begin(DataOutputStream, int, int)} if the chunks were not fdAT
+     * @throws IOException if the target throws one
+     */
+    int end() throws IOException {
+        if (count > headerSize || !written)
+            writeChunk();
+        target = null;
+        return sequence;
+    }
+
+    /**
+     * Does nothing; the current chunk can't be written until it is full or {@link #end()} is called.
+     */
+    @Override
+    public void flush() {
+    }
+}
@@ -23,296 +23,252 @@ import java.io.OutputStream;
 
 /**
  * LZW encoding specific to the GIF format.
- * Adapted from Jef Poskanzer's Java port by way of J. M. G. Elliott.
+ * This makes the same codes as the encoder K Weiner adapted from Jef Poskanzer's Java port of 'compress' (by way of
+ * J. M. G. Elliott), but finds existing codes by looking them up directly in a table indexed by prefix code and pixel,
+ * instead of by hashing. Codes are packed into a 64-bit accumulator, and the packed bytes are split into sub-blocks
+ * and written many sub-blocks at a time.
  * <br>
- * Created by K Weiner in December 2000
- */	 
+ * One LZWEncoder can encode any number of images, one at a time, without allocating anything after its tables have
+ * grown to fit the largest color depth it has seen.
+ * <br>
+ * This can also encode lossily, like gifsicle's {@code --lossy} option. When the current string can't be extended with
+ * the next pixel, it can instead be extended with a pixel whose color is close to that pixel's color, if the string
+ * with that pixel already has a code. Call {@link #setNearColors(byte[], int, int, float)} with the frame's colors
+ * before calling {@link #encode(OutputStream, int, int, byte[], int, boolean)} with {@code lossy} set to true.
+ */
 class LZWEncoder {
 
-    private static final int EOF = -1;
-
-    private final int imgW;
-	private final int imgH;
-
-    private final byte[] pixArray;
-
-    private final int initCodeSize;
-
-    private int remaining;
-
-    private int curPixel;
-
-    // GIFCOMPR.C - GIF Image compression routines
-    //
-    // Lempel-Ziv compression based on 'compress'. GIF modifications by
-    // David Rowley (mgardi@watdcsu.waterloo.edu)
-
-    // General DEFINEs
-
     static final int BITS = 12;
 
-    static final int HSIZE = 5003; // 80% occupancy
-
-    // GIF Image compression - modified 'compress'
-    //
-    // Based on: compress.c - File compression ala IEEE Computer, June 1984.
-    //
-    // By Authors: Spencer W. Thomas (decvax!harpo!utah-cs!utah-gr!thomas)
-    // Jim McKie (decvax!mcvax!jim)
-    // Steve Davies (decvax!vax135!petsd!peora!srd)
-    // Ken Turkowski (decvax!decwrl!turtlevax!ken)
-    // James A. Woods (decvax!ihnp4!ames!jaw)
-    // Joe Orost (decvax!vax135!petsd!joe)
-
-    int n_bits; // number of bits/code
-
-    int maxbits = BITS; // user settable max # bits/code
-
-    int maxcode; // maximum code, given n_bits
-
-    int maxmaxcode = 1 << BITS; // should NEVER generate this code
-
-    int[] htab = new int[HSIZE];
-
-    int[] codetab = new int[HSIZE];
-
-    int hsize = HSIZE; // for dynamic table sizing
+    static final int MAX_CODES = 1 << BITS; // codes must be less than this
 
-    int free_ent = 0; // first unused entry
+    static final int SUB_BLOCK = 255; // the most data bytes a GIF sub-block can hold
 
-    // block compression parameters -- after all codes are used up,
-    // and compression rate changes, start over.
-    boolean clear_flg = false;
+    static final int BLOCKS_PER_WRITE = 32;
 
-    // Algorithm: use open addressing double hashing (no chaining) on the
-    // prefix code / next character combination. We do a variant of Knuth's
-    // algorithm D (vol. 3, sec. 6.4) along with G. Knott's relatively-prime
-    // secondary probe. Here, the modular division first probe is gives way
-    // to a faster exclusive-or manipulation. Also do block compression with
-    // an adaptive reset, whereby the code table is cleared when the compression
-    // ratio decreases, but after the table fills. The variable-length output
-    // codes are re-sized at this point, and a special CLEAR code is generated
-    // for the decompressor. Late addition: construct the table according to
-    // file size for noticeable speed improvement on small files. Please direct
-    // questions about this implementation to ames!jaw.
+    /**
+     * Maps a prefix code and a pixel, as {@code prefix << colorDepth | pixel}, to the code for that string, or 0 if
+     * there isn't one yet. Only entries listed in {@link #keys} are ever non-zero, so this can be cleared quickly.
+     */
+    private short[] table;
 
-    int g_init_bits;
+    /**
+     * For each code that has been added to {@link #table}, the index it was added at.
+     */
+    private final int[] keys = new int[MAX_CODES];
 
-    int ClearCode;
+    /**
+     * Packed bytes that haven't been written in sub-blocks yet.
+     */
+    private final byte[] packed = new byte[SUB_BLOCK * BLOCKS_PER_WRITE + 8];
 
-    int EOFCode;
+    /**
+     * Full sub-blocks, each with its length byte, ready to be written all at once.
+     */
+    private final byte[] blocks = new byte[(SUB_BLOCK + 1) * BLOCKS_PER_WRITE];
 
-    // output
-    //
-    // Output the given code.
-    // Inputs:
-    // code: A n_bits-bit integer. If == -1, then EOF. This assumes
-    // that n_bits =< wordsize - 1.
-    // Outputs:
-    // Outputs code to the file.
-    // Assumptions:
-    // Chars are 8 bits long.
-    // Algorithm:
-    // Maintain a BITS character long buffer (so that 8 codes will
-    // fit in it exactly). Use the VAX insv instruction to insert each
-    // code in turn. When the buffer fills up empty it and start over.
+    /**
+     * For each palette index, the other palette indices with colors close enough to be used in its place when
+     * encoding lossily, nearest first. The list for index {@code i} goes from {@code near[nearStart[i]]} (inclusive)
+     * to {@code near[nearStart[i + 1]]} (exclusive).
+     */
+    private byte[] near;
 
-    int cur_accum = 0;
+    private final int[] nearStart = new int[257];
 
-    int cur_bits = 0;
+    private float[] nearL, nearA, nearB, nearDistances;
 
-    int[] masks = {0x0000, 0x0001, 0x0003, 0x0007, 0x000F, 0x001F, 0x003F, 0x007F, 0x00FF, 0x01FF,
-            0x03FF, 0x07FF, 0x0FFF, 0x1FFF, 0x3FFF, 0x7FFF, 0xFFFF};
-
-    // Number of characters so far in this 'packet'
-    int a_count;
-
-    // Define the storage for the packet accumulator
-    byte[] accum = new byte[256];
-
-    // ----------------------------------------------------------------------------
-    LZWEncoder(int width, int height, byte[] pixels, int color_depth) {
-        imgW = width;
-        imgH = height;
-        pixArray = pixels;
-        initCodeSize = Math.max(2, color_depth);
-    }
-
-    // Add a character to the end of the current packet, and if it is 254
-    // characters, flush the packet to disk.
-    void char_out(byte c, OutputStream outs) throws IOException {
-        accum[a_count++] = c;
-        if (a_count >= 254)
-            flush_char(outs);
+    LZWEncoder() {
     }
 
-    // Clear out the hash table
-
-    // table clear for block compress
-    void cl_block(OutputStream outs) throws IOException {
-        cl_hash(hsize);
-        free_ent = ClearCode + 2;
-        clear_flg = true;
-
-        output(ClearCode, outs);
+    /**
+     * Finds which palette colors can be used in place of each other by a lossy
+     * {@link #encode(OutputStream, int, int, byte[], int, boolean)}, using the Oklab color space. This only needs to
+     * be called again when the colors or the distance change.
+     * @param colorTab the color table as it is written to the GIF, with 3 bytes (red, green, blue) per color
+     * @param colors how many colors at the start of colorTab can be used; should be the size of the written table
+     * @param transIndex the transparent index, which never replaces or is replaced by another index, or -1 for none
+     * @param maxDistance the greatest Euclidean distance in Oklab allowed between two colors that can replace each other
+     */
+    void setNearColors(byte[] colorTab, int colors, int transIndex, float maxDistance) {
+        colors = Math.min(Math.min(colors, colorTab.length / 3), 256);
+        if (near == null) {
+            near = new byte[256 * 256];
+            nearL = new float[256];
+            nearA = new float[256];
+            nearB = new float[256];
+            nearDistances = new float[256];
+        }
+        final float[] L = nearL, A = nearA, B = nearB, distances = nearDistances;
+        for (int i = 0, bi = 0; i < colors; i++, bi += 3) {
+            final int rgb555 = (colorTab[bi] & 0xF8) << 7 | (colorTab[bi + 1] & 0xF8) << 2 | (colorTab[bi + 2] & 0xF8) >>> 3;
+            L[i] = PaletteReducer.OKLAB[0][rgb555];
+            A[i] = PaletteReducer.OKLAB[1][rgb555];
+            B[i] = PaletteReducer.OKLAB[2][rgb555];
+        }
+        final float limit = maxDistance * maxDistance;
+        int n = 0;
+        for (int i = 0; i < colors; i++) {
+            final int start = nearStart[i] = n;
+            if (i == transIndex) continue;
+            for (int j = 0; j < colors; j++) {
+                if (j == i || j == transIndex) continue;
+                final float dL = L[i] - L[j], dA = A[i] - A[j], dB = B[i] - B[j];
+                final float d = dL * dL + dA * dA + dB * dB;
+                if (d > limit) continue;
+                // insertion sort, since only a few colors are usually close enough
+                int k = n++;
+                while (k > start && distances[k - 1 - start] > d) {
+                    distances[k - start] = distances[k - 1 - start];
+                    near[k] = near[k - 1];
+                    k--;
+                }
+                distances[k - start] = d;
+                near[k] = (byte) j;
+            }
+        }
+        for (int i = colors; i <= 256; i++) {
+            nearStart[i] = n;
+        }
     }
 
-    // reset code table
-    void cl_hash(int hsize) {
-        for (int i = 0; i < hsize; ++i)
-            htab[i] = -1;
+    /**
+     * Writes the LZW minimum code size, then all of {@code pixels} compressed into sub-blocks, then the block
+     * terminator, which is everything a GIF needs after an image descriptor (and its local color table, if any).
+     * Every pixel must be less than {@code 1 << Math.max(2, colorDepth)}.
+     * @param os where to write the compressed image
+     * @param width the width of the image, in pixels
+     * @param height the height of the image, in pixels
+     * @param pixels palette indices of the image, row by row; must have at least {@code width * height} items
+     * @param colorDepth how many bits are needed for the highest palette index
+     * @throws IOException if {@code os} throws one
+     */
+    void encode(OutputStream os, int width, int height, byte[] pixels, int colorDepth) throws IOException {
+        encode(os, width, height, pixels, colorDepth, false);
     }
 
-    void compress(int init_bits, OutputStream outs) throws IOException {
-        int fcode;
-        int i /* = 0 */;
-        int c;
-        int ent;
-        int disp;
-        int hsize_reg;
-        int hshift;
-
-        // Set up the globals: g_init_bits - initial number of bits
-        g_init_bits = init_bits;
-
-        // Set up the necessary values
-        clear_flg = false;
-        n_bits = g_init_bits;
-        maxcode = MAXCODE(n_bits);
-
-        ClearCode = 1 << (init_bits - 1);
-        EOFCode = ClearCode + 1;
-        free_ent = ClearCode + 2;
-
-        a_count = 0; // clear packet
-
-        ent = nextPixel();
-
-        hshift = 0;
-        for (fcode = hsize; fcode < 65536; fcode *= 2)
-            ++hshift;
-        hshift = 8 - hshift; // set hash code range bound
+    /**
+     * Like {@link #encode(OutputStream, int, int, byte[], int)}, but if {@code lossy} is true, a pixel can be
+     * encoded as any color that {@link #setNearColors(byte[], int, int, float)} found is close enough to it, when
+     * that makes the current string longer. This makes fewer codes, and so a smaller file, but the image is not
+     * exactly the same when decoded.
+     * @param os where to write the compressed image
+     * @param width the width of the image, in pixels
+     * @param height the height of the image, in pixels
+     * @param pixels palette indices of the image, row by row; must have at least {@code width * height} items
+     * @param colorDepth how many bits are needed for the highest palette index
+     * @param lossy if true, uses the near colors set by {@link #setNearColors(byte[], int, int, float)}
+     * @throws IOException if {@code os} throws one
+     */
+    void encode(OutputStream os, int width, int height, byte[] pixels, int colorDepth, boolean lossy) throws IOException {
+        final int initCodeSize = Math.max(2, colorDepth);
+        final int clearCode = 1 << initCodeSize, eofCode = clearCode + 1;
+        if (table == null || table.length < MAX_CODES << initCodeSize)
+            table = new short[MAX_CODES << initCodeSize];
+        final short[] table = this.table;
+        final int[] keys = this.keys;
+        final byte[] packed = this.packed;
+        final int flushAt = SUB_BLOCK * BLOCKS_PER_WRITE;
 
-        hsize_reg = hsize;
-        cl_hash(hsize_reg); // clear hash table
-
-        output(ClearCode, outs);
-
-        outer_loop:
-        while ((c = nextPixel()) != EOF) {
-            fcode = (c << maxbits) + ent;
-            i = (c << hshift) ^ ent; // xor hashing
+        os.write(initCodeSize); // write "initial code size" byte
 
-            if (htab[i] == fcode) {
-                ent = codetab[i];
+        int codeSize = initCodeSize + 1, maxCode = (1 << codeSize) - 1, nextCode = eofCode + 1;
+        long accum = clearCode;
+        int bits = codeSize, pos = 0;
+
+        final int n = width * height;
+        int ent = n == 0 ? 0 : pixels[0] & 255;
+        for (int i = 1; i < n; i++) {
+            final int key = ent << initCodeSize | (pixels[i] & 255);
+            int code = table[key];
+            if (code == 0 && lossy) {
+                final int row = ent << initCodeSize;
+                for (int j = nearStart[pixels[i] & 255], e = nearStart[(pixels[i] & 255) + 1]; j < e && code == 0; j++) {
+                    code = table[row | near[j] & 255];
+                }
+            }
+            if (code != 0) {
+                ent = code;
                 continue;
-            } else if (htab[i] >= 0) // non-empty slot
-            {
-                disp = hsize_reg - i; // secondary hash (after G. Knott)
-                if (i == 0)
-                    disp = 1;
-                do {
-                    if ((i -= disp) < 0)
-                        i += hsize_reg;
-
-                    if (htab[i] == fcode) {
-                        ent = codetab[i];
-                        continue outer_loop;
-                    }
-                } while (htab[i] >= 0);
             }
-            output(ent, outs);
-            ent = c;
-            if (free_ent < maxmaxcode) {
-                codetab[i] = free_ent++; // code -> hashtable
-                htab[i] = fcode;
-            } else
-                cl_block(outs);
+            accum |= (long) ent << bits;
+            bits += codeSize;
+            // as in 'compress', the code size grows after writing the code that used the last smaller code
+            if (nextCode > maxCode) {
+                ++codeSize;
+                maxCode = codeSize == BITS ? MAX_CODES : (1 << codeSize) - 1;
+            }
+            if (nextCode < MAX_CODES) {
+                table[key] = (short) nextCode;
+                keys[nextCode++] = key;
+            } else {
+                accum |= (long) clearCode << bits;
+                bits += codeSize;
+                for (int c = eofCode + 1; c < MAX_CODES; c++) {
+                    table[keys[c]] = 0;
+                }
+                nextCode = eofCode + 1;
+                codeSize = initCodeSize + 1;
+                maxCode = (1 << codeSize) - 1;
+            }
+            ent = pixels[i] & 255;
+            // at most two codes of 12 bits were just added, so 32 bits can always be moved out before overflow
+            if (bits >= 32) {
+                packed[pos] = (byte) accum;
+                packed[pos + 1] = (byte) (accum >>> 8);
+                packed[pos + 2] = (byte) (accum >>> 16);
+                packed[pos + 3] = (byte) (accum >>> 24);
+                pos += 4;
+                accum >>>= 32;
+                bits -= 32;
+                if (pos >= flushAt) {
+                    writeBlocks(os, BLOCKS_PER_WRITE);
+                    pos -= flushAt;
+                    System.arraycopy(packed, flushAt, packed, 0, pos);
+                }
+            }
         }
         // Put out the final code.
-        output(ent, outs);
-        output(EOFCode, outs);
-    }
-
-    // ----------------------------------------------------------------------------
-    void encode(OutputStream os) throws IOException {
-        os.write(initCodeSize); // write "initial code size" byte
-
-        remaining = imgW * imgH; // reset navigation variables
-        curPixel = 0;
-
-        compress(initCodeSize + 1, os); // compress and write the pixel data
+        if (n != 0) {
+            accum |= (long) ent << bits;
+            bits += codeSize;
+            if (nextCode > maxCode)
+                ++codeSize;
+        }
+        accum |= (long) eofCode << bits;
+        bits += codeSize;
+        while (bits > 0) {
+            packed[pos++] = (byte) accum;
+            accum >>>= 8;
+            bits -= 8;
+        }
+        int full = pos / SUB_BLOCK;
+        writeBlocks(os, full);
+        int last = pos - full * SUB_BLOCK;
+        if (last > 0) {
+            os.write(last);
+            os.write(packed, full * SUB_BLOCK, last);
+        }
 
         os.write(0); // write block terminator
-    }
 
-    // Flush the packet to disk, and reset the accumulator
-    void flush_char(OutputStream outs) throws IOException {
-        if (a_count > 0) {
-            outs.write(a_count);
-            outs.write(accum, 0, a_count);
-            a_count = 0;
+        for (int c = eofCode + 1; c < nextCode; c++) {
+            table[keys[c]] = 0;
         }
     }
 
-    final int MAXCODE(int n_bits) {
-        return (1 << n_bits) - 1;
-    }
-
-    // ----------------------------------------------------------------------------
-    // Return the next pixel from the image
-    // ----------------------------------------------------------------------------
-    private int nextPixel() {
-        if (remaining == 0)
-            return EOF;
-
-        --remaining;
-
-        byte pix = pixArray[curPixel++];
-
-        return pix & 0xff;
-    }
-
-    void output(int code, OutputStream outs) throws IOException {
-        cur_accum &= masks[cur_bits];
-
-        if (cur_bits > 0)
-            cur_accum |= (code << cur_bits);
-        else
-            cur_accum = code;
-
-        cur_bits += n_bits;
-
-        while (cur_bits >= 8) {
-            char_out((byte) (cur_accum & 0xff), outs);
-            cur_accum >>= 8;
-            cur_bits -= 8;
-        }
-
-        // If the next entry is going to be too big for the code size,
-        // then increase it, if possible.
-        if (free_ent > maxcode || clear_flg) {
-            if (clear_flg) {
-                maxcode = MAXCODE(n_bits = g_init_bits);
-                clear_flg = false;
-            } else {
-                ++n_bits;
-                if (n_bits == maxbits)
-                    maxcode = maxmaxcode;
-                else
-                    maxcode = MAXCODE(n_bits);
-            }
-        }
-
-        if (code == EOFCode) {
-            // At EOF, write the rest of the buffer.
-            while (cur_bits > 0) {
-                char_out((byte) (cur_accum & 0xff), outs);
-                cur_accum >>= 8;
-                cur_bits -= 8;
-            }
-
-            flush_char(outs);
+    /**
+     * Writes the first {@code count} sub-blocks' worth of {@link #packed}, each after its length byte.
+     */
+    private void writeBlocks(OutputStream os, int count) throws IOException {
+        final byte[] blocks = this.blocks;
+        int b = 0;
+        for (int i = 0, p = 0; i < count; i++, p += SUB_BLOCK) {
+            blocks[b++] = (byte) SUB_BLOCK;
+            System.arraycopy(packed, p, blocks, b, SUB_BLOCK);
+            b += SUB_BLOCK;
         }
+        if (b > 0)
+            os.write(blocks, 0, b);
     }
 }
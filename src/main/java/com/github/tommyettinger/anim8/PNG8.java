@@ -28,11 +28,14 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ByteArray;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.OrderedMap;
 import com.badlogic.gdx.utils.StreamUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
@@ -69,6 +72,9 @@ import static com.github.tommyettinger.anim8.PaletteReducer.*;
  * compression 2 is probably as low as you need to go; speed of writing the file is only negligibly different below 2,
  * but the file size is higher at 1 or especially 0.
  * <br>
+ * Only as many palette colors as the palette actually has are written. If that is 16 or fewer, each pixel takes 4, 2,
+ * or 1 bits instead of a full byte, which can make small-palette images (such as pixel art) much smaller.
+ * <br>
  * Note that for many cases where you write a non-animated PNG, you will want to use
  * {@link #writePrecisely(FileHandle, Pixmap, boolean)} instead of {@link #write(FileHandle, Pixmap, boolean, boolean)},
  * since writePrecisely will attempt to reproduce the exact colors if there are 256 colors or less in the Pixmap, and
@@ -110,15 +116,36 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
     private static final byte COMPRESSION_DEFLATE = 0;
     private static final byte INTERLACE_NONE = 0;
     private static final byte FILTER_NONE = 0;
-//    private static final byte FILTER_PAETH = 4;
 
     private final ChunkBuffer buffer;
+    private final ImageDataOutputStream imageData = new ImageDataOutputStream();
     private final Deflater deflater;
+    private final DeflaterOutputStream animationDeflater;
     private ByteArray curLineBytes;
+    private final RowFilter rowFilter = new RowFilter(1);
+    private PNGFilter filter = PNGFilter.NONE;
     private boolean flipY = true;
+    private boolean deltaFrames = false;
+    private FrameDelta frameDelta;
+    private byte[] frameIndices;
+    private final float[] tempThresholdMatrix = new float[64];
+    private Pixmap resized;
+
+    private DataOutputStream animationOutput;
+    private FileHandle animationFile;
+    private int animationWidth, animationHeight, animationFps, animationSeq, animationFrames, animationFrameCount, animationBitDepth;
+    private int acTLPosition;
+    private boolean animationTransparent;
+    private boolean animationDelta;
 
     public PaletteReducer palette;
 
+    /**
+     * True if {@link #palette} was computed from the first frame given to {@link #addFrame(Pixmap)}, and so should be
+     * set back to null when {@link #end()} is called.
+     */
+    private boolean clearPalette;
+
     protected DitherAlgorithm ditherAlgorithm = DitherAlgorithm.WREN;
 
     @Override
@@ -181,6 +208,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
     public PNG8(int initialBufferSize) {
         buffer = new ChunkBuffer(initialBufferSize);
         deflater = new Deflater();
+        animationDeflater = new DeflaterOutputStream(imageData, deflater);
     }
 
     /** If true, the resulting PNG is flipped vertically. Default is true. */
@@ -193,6 +221,52 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
         deflater.setLevel(level);
     }
 
+    /**
+     * Gets the {@link PNGFilter} used on each row of palette indices; see {@link #setFilter(PNGFilter)}.
+     * @return the PNGFilter this uses
+     */
+    public PNGFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the {@link PNGFilter} used on each row of palette indices before compression. Because nearby palette
+     * indices don't usually have similar colors, {@link PNGFilter#NONE} is usually smallest and is fastest, but
+     * {@link PNGFilter#ADAPTIVE} can help when the palette is sorted so similar colors have nearby indices, such as a
+     * grayscale ramp. The default is {@link PNGFilter#NONE}.
+     * @param filter a non-null PNGFilter
+     */
+    public void setFilter(PNGFilter filter) {
+        if (filter != null)
+            this.filter = filter;
+    }
+
+    /**
+     * Gets whether animations written by this store only the part of each frame that changed since the previous
+     * frame; see {@link #setDeltaFrames(boolean)}.
+     * @return true if only changed parts of frames are written
+     */
+    public boolean isDeltaFrames() {
+        return deltaFrames;
+    }
+
+    /**
+     * If true, each frame of an animation after the first is compared with the frame before it, after both have been
+     * dithered, and only the smallest rectangle that contains every changed pixel is written, with an fcTL chunk giving
+     * its size and position. If the palette has a transparent color and no pixel changed to it, the rectangle is also
+     * compressed with every unchanged pixel made transparent, and drawn over the previous frame instead of replacing
+     * it, if that is smaller. The previous frame is always kept, so the animation looks exactly the same either way.
+     * This can make animations that are mostly still, such as recordings of a UI, several times smaller, and faster
+     * to write. Dithers that change a lot from frame to frame, such as {@link DitherAlgorithm#CHAOTIC_NOISE}, benefit
+     * less than ordered dithers like {@link DitherAlgorithm#LOAF}. This only affects animations, takes effect when an
+     * animation is started, and holds two frames' worth of palette indices in memory while writing. The default is
+     * false.
+     * @param deltaFrames true if this should write only the changed parts of frames
+     */
+    public void setDeltaFrames(boolean deltaFrames) {
+        this.deltaFrames = deltaFrames;
+    }
+
     /**
      * Writes the given Pixmap to the requested FileHandle, computing an 8-bit palette from the most common colors in
      * pixmap. If there are 256 or less colors and none are transparent, this will use 256 colors in its palette exactly
@@ -581,7 +655,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
                 colorToIndex.put(paletteArray[i], i);
             }
         }
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(imageData, deflater);
         DataOutputStream dataOutput = new DataOutputStream(output);
         try {
             dataOutput.write(SIGNATURE);
@@ -589,7 +663,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
             buffer.writeInt(IHDR);
             buffer.writeInt(pixmap.getWidth());
             buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
+            buffer.writeByte(useBitDepth(paletteArray.length)); // 1, 2, 4, or 8 bits per palette index.
             buffer.writeByte(COLOR_INDEXED);
             buffer.writeByte(COMPRESSION_DEFLATE);
             buffer.writeByte(FILTER_NONE);
@@ -610,11 +684,11 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
                 buffer.write(0);
                 buffer.endChunk(dataOutput);
             }
-            buffer.writeInt(IDAT);
+            imageData.begin(dataOutput, IDAT);
             deflater.reset();
+            rowFilter.reset();
 
             int lineLen = pixmap.getWidth();
-//            byte[] lineOut, curLine, prevLine;
             byte[] curLine;
             if (curLineBytes == null) {
                 curLine = (curLineBytes = new ByteArray(lineLen)).items;
@@ -629,35 +703,10 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
                     curLine[px] = (byte) colorToIndex.get(color, 0);
                 }
 
-//                lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                //Paeth
-//                for (int x = 1; x < lineLen; x++) {
-//                    int a = curLine[x - 1] & 0xff;
-//                    int b = prevLine[x] & 0xff;
-//                    int c = prevLine[x - 1] & 0xff;
-//                    int p = a + b - c;
-//                    int pa = p - a;
-//                    if (pa < 0) pa = -pa;
-//                    int pb = p - b;
-//                    if (pb < 0) pb = -pb;
-//                    int pc = p - c;
-//                    if (pc < 0) pc = -pc;
-//                    if (pa <= pb && pa <= pc)
-//                        c = a;
-//                    else if (pb <= pc)
-//                        c = b;
-//                    lineOut[x] = (byte) (curLine[x] - c);
-//                }
-//
-//                deflaterOutput.write(FILTER_PAETH);
-//                deflaterOutput.write(lineOut, 0, lineLen);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, lineLen);
+                rowFilter.write(deflaterOutput, curLine, lineLen, filter);
             }
             deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+            imageData.end();
 
             buffer.writeInt(IEND);
             buffer.endChunk(dataOutput);
@@ -747,7 +796,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
                 colorToIndex.put(paletteArray[i], i);
             }
         }
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(imageData, deflater);
         DataOutputStream dataOutput = new DataOutputStream(output);
         try {
         dataOutput.write(SIGNATURE);
@@ -755,7 +804,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
         buffer.writeInt(IHDR);
         buffer.writeInt(width);
         buffer.writeInt(height);
-        buffer.writeByte(8); // 8 bits per component.
+        buffer.writeByte(useBitDepth(paletteArray.length)); // 1, 2, 4, or 8 bits per palette index.
         buffer.writeByte(COLOR_INDEXED);
         buffer.writeByte(COMPRESSION_DEFLATE);
         buffer.writeByte(FILTER_NONE);
@@ -776,10 +825,10 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
             buffer.write(0);
             buffer.endChunk(dataOutput);
         }
-        buffer.writeInt(IDAT);
+        imageData.begin(dataOutput, IDAT);
         deflater.reset();
+        rowFilter.reset();
 
-//        byte[] lineOut, curLine, prevLine;
         byte[] curLine;
         if (curLineBytes == null) {
             curLine = (curLineBytes = new ByteArray(width)).items;
@@ -794,35 +843,10 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
                 curLine[px - startX] = (byte) colorToIndex.get(color, 0);
             }
 
-//            lineOut[0] = (byte)(curLine[0] - prevLine[0]);
-//
-//            //Paeth
-//            for (int x = 1; x < lineLen; x++) {
-//                int a = curLine[x - 1] & 0xff;
-//                int b = prevLine[x] & 0xff;
-//                int c = prevLine[x - 1] & 0xff;
-//                int p = a + b - c;
-//                int pa = p - a;
-//                if (pa < 0) pa = -pa;
-//                int pb = p - b;
-//                if (pb < 0) pb = -pb;
-//                int pc = p - c;
-//                if (pc < 0) pc = -pc;
-//                if (pa <= pb && pa <= pc)
-//                    c = a;
-//                else if (pb <= pc)
-//                    c = b;
-//                lineOut[x] = (byte)(curLine[x] - c);
-//            }
-//
-//            deflaterOutput.write(FILTER_PAETH);
-//            deflaterOutput.write(lineOut, 0, lineLen);
-
-            deflaterOutput.write(FILTER_NONE);
-            deflaterOutput.write(curLine, 0, width);
+            rowFilter.write(deflaterOutput, curLine, width, filter);
         }
         deflaterOutput.finish();
-        buffer.endChunk(dataOutput);
+        imageData.end();
 
         buffer.writeInt(IEND);
         buffer.endChunk(dataOutput);
@@ -833,221 +857,119 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
         }
     }
     public void writeSolid (OutputStream output, Pixmap pixmap){
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
+        writeIndexed(output, pixmap, DitherAlgorithm.NONE, false);
+    }
 
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-        dataOutput.write(SIGNATURE);
+    public void writeGradientDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.GRADIENT_NOISE, false);
+    }
 
-        buffer.writeInt(IHDR);
-        buffer.writeInt(pixmap.getWidth());
-        buffer.writeInt(pixmap.getHeight());
-        buffer.writeByte(8); // 8 bits per component.
-        buffer.writeByte(COLOR_INDEXED);
-        buffer.writeByte(COMPRESSION_DEFLATE);
-        buffer.writeByte(FILTER_NONE);
-        buffer.writeByte(INTERLACE_NONE);
-        buffer.endChunk(dataOutput);
+    public void writeAdditiveDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.ADDITIVE, false);
+    }
 
-        buffer.writeInt(PLTE);
-        for (int i = 0; i < paletteArray.length; i++) {
-            int p = paletteArray[i];
-            buffer.write(p>>>24);
-            buffer.write(p>>>16);
-            buffer.write(p>>>8);
-        }
-        buffer.endChunk(dataOutput);
+    public void writeRobertsDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.ROBERTS, false);
+    }
 
-        boolean hasTransparent = false;
-        if(paletteArray[0] == 0) {
-            hasTransparent = true;
-            buffer.writeInt(TRNS);
-            buffer.write(0);
-            buffer.endChunk(dataOutput);
-        }
-        buffer.writeInt(IDAT);
-        deflater.reset();
+    public void writeLoafDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.LOAF, false);
+    }
 
-        int lineLen = pixmap.getWidth();
-//        byte[] lineOut, curLine, prevLine;
-        byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(lineLen)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(lineLen);
-        }
+    public void writeGourdDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.GOURD, false);
+    }
 
-            int color;
-        final int w = pixmap.getWidth(), h = pixmap.getHeight();
-        for (int y = 0; y < h; y++) {
-            int py = flipY ? (h - y - 1) : y;
-            for (int px = 0; px < w; px++) {
-                color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    curLine[px] = 0;
-                else {
-                    int rr = ((color >>> 24)       );
-                    int gg = ((color >>> 16) & 0xFF);
-                    int bb = ((color >>> 8)  & 0xFF);
-                    curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))];
-                }
-            }
+    public void writeBlueNoiseDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.BLUE_NOISE, false);
+    }
 
-//            lineOut[0] = (byte)(curLine[0] - prevLine[0]);
-//
-//            //Paeth
-//            for (int x = 1; x < lineLen; x++) {
-//                int a = curLine[x - 1] & 0xff;
-//                int b = prevLine[x] & 0xff;
-//                int c = prevLine[x - 1] & 0xff;
-//                int p = a + b - c;
-//                int pa = p - a;
-//                if (pa < 0) pa = -pa;
-//                int pb = p - b;
-//                if (pb < 0) pb = -pb;
-//                int pc = p - c;
-//                if (pc < 0) pc = -pc;
-//                if (pa <= pb && pa <= pc)
-//                    c = a;
-//                else if (pb <= pc)
-//                    c = b;
-//                lineOut[x] = (byte)(curLine[x] - c);
-//            }
-//
-//            deflaterOutput.write(FILTER_PAETH);
-//            deflaterOutput.write(lineOut, 0, lineLen);
-
-            deflaterOutput.write(FILTER_NONE);
-            deflaterOutput.write(curLine, 0, lineLen);
-        }
-        deflaterOutput.finish();
-        buffer.endChunk(dataOutput);
+    public void writeBluntDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.BLUNT, false);
+    }
 
-        buffer.writeInt(IEND);
-        buffer.endChunk(dataOutput);
+    public void writeBanterDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.BANTER, false);
+    }
 
-        output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
+    public void writeChaoticNoiseDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.CHAOTIC_NOISE, false);
     }
 
-    public void writeGradientDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
+    public void writeDiffusionDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.DIFFUSION, false);
+    }
 
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
+    public void writePatternDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.PATTERN, false);
+    }
 
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
+    public void writeScatterDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.SCATTER, false);
+    }
 
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
+    public void writeNeueDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.NEUE, false);
+    }
 
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
+    public void writeDodgyDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.DODGY, false);
+    }
 
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
+    public void writeWovenDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.WOVEN, false);
+    }
+
+    public void writeWrenOriginalDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.WREN, true);
+    }
 
-            int color;
-            final float populationBias = palette.populationBias;
-            final float strength = 0.9f * (float) Math.tanh(0.16f * ditherStrength * Math.pow(populationBias, -7.00));
+    public void writeWrenDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.WREN, false);
+    }
 
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        int rr = fromLinearLUT[Math.min(Math.max((int)(toLinearLUT[(color >>> 24)       ] + ((142 * (px + 0x5F) + 79 * (y - 0x96) & 255) - 127.5f) * strength), 0), 1023)] & 255;
-                        int gg = fromLinearLUT[Math.min(Math.max((int)(toLinearLUT[(color >>> 16) & 0xFF] + ((142 * (px + 0xFA) + 79 * (y - 0xA3) & 255) - 127.5f) * strength), 0), 1023)] & 255;
-                        int bb = fromLinearLUT[Math.min(Math.max((int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((142 * (px + 0xA5) + 79 * (y - 0xC9) & 255) - 127.5f) * strength), 0), 1023)] & 255;
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
+    public void writeOverboardDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.OVERBOARD, false);
+    }
 
-                    }
-                }
+    public void writeBurkesDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.BURKES, false);
+    }
 
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+    public void writeOceanicDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.OCEANIC, false);
+    }
 
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
+    public void writeSeasideDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.SEASIDE, false);
+    }
 
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
+    public void writeMartenDithered(OutputStream output, Pixmap pixmap) {
+        writeIndexed(output, pixmap, DitherAlgorithm.MARTEN, false);
     }
 
-    public void writeAdditiveDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+    /**
+     * Writes {@code pixmap} as a PNG-8 image with the colors in {@link #palette}, using
+     * {@link #reduceToIndices(Pixmap, DitherAlgorithm, boolean, int)} to dither it. Each of the methods that write one
+     * Pixmap with a particular dither calls this.
+     * @param output an OutputStream that will not be closed
+     * @param pixmap a Pixmap to write to the given output stream
+     * @param ditherAlgorithm the dither to use, unless wrenOriginal is true
+     * @param wrenOriginal if true, uses the dither from {@link PaletteReducer#reduceWrenOriginal(Pixmap)} instead
+     */
+    private void writeIndexed(OutputStream output, Pixmap pixmap, DitherAlgorithm ditherAlgorithm, boolean wrenOriginal) {
         final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
+        final byte[] indices;
+        if (ditherAlgorithm == DitherAlgorithm.OCEANIC && !wrenOriginal) {
+            // single images have always used a stronger Oceanic dither than animations
+            palette.setDitherStrength(ditherStrength);
+            reduceOceanic(palette.readPixels(pixmap, flipY), pixmap.getWidth(), pixmap.getHeight());
+            indices = frameIndices;
+        } else {
+            indices = reduceToIndices(pixmap, ditherAlgorithm, wrenOriginal, 1);
+        }
 
+        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(imageData, deflater);
         DataOutputStream dataOutput = new DataOutputStream(output);
         try {
             dataOutput.write(SIGNATURE);
@@ -1055,7 +977,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
             buffer.writeInt(IHDR);
             buffer.writeInt(pixmap.getWidth());
             buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
+            buffer.writeByte(useBitDepth(palette.colorCount)); // 1, 2, 4, or 8 bits per palette index.
             buffer.writeByte(COLOR_INDEXED);
             buffer.writeByte(COMPRESSION_DEFLATE);
             buffer.writeByte(FILTER_NONE);
@@ -1063,7 +985,7 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
             buffer.endChunk(dataOutput);
 
             buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
+            for (int i = 0; i < palette.colorCount; i++) {
                 int p = paletteArray[i];
                 buffer.write(p>>>24);
                 buffer.write(p>>>16);
@@ -1071,50 +993,18 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
             }
             buffer.endChunk(dataOutput);
 
-            boolean hasTransparent = false;
             if(paletteArray[0] == 0) {
-                hasTransparent = true;
                 buffer.writeInt(TRNS);
                 buffer.write(0);
                 buffer.endChunk(dataOutput);
             }
-            buffer.writeInt(IDAT);
+            imageData.begin(dataOutput, IDAT);
             deflater.reset();
+            rowFilter.reset();
 
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            int color;
-            final float populationBias = palette.populationBias;
-            final float s = 0.08f * ditherStrength / (float) Math.pow(populationBias, 8f),
-                    strength = s / (0.35f + s);
-
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + ((119 * px + 180 * y + 54 & 255) - 127.5f) * strength)] & 255;
-                        int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((119 * px + 180 * y + 81 & 255) - 127.5f) * strength)] & 255;
-                        int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((119 * px + 180 * y      & 255) - 127.5f) * strength)] & 255;
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-
-                    }
-                }
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
+            writeRows(deflaterOutput, indices, pixmap.getWidth(), pixmap.getHeight());
             deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+            imageData.end();
 
             buffer.writeInt(IEND);
             buffer.endChunk(dataOutput);
@@ -1125,6844 +1015,994 @@ public class PNG8 implements AnimationWriter, Dithered, Disposable {
         }
     }
 
-    public void writeRobertsDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
+    /**
+     * Dithers {@code pixmap} to the colors in {@link #palette} with
+     * {@link PaletteReducer#reduceToIndices(Pixmap, DitherAlgorithm, byte[], boolean, int)}, storing one palette index
+     * per pixel in {@link #frameIndices}, with the rows in the order they will be written. This also sets the
+     * palette's dither strength to {@link #getDitherStrength()}.
+     * @param pixmap a Pixmap that will not be modified
+     * @param ditherAlgorithm the dither to use, unless wrenOriginal is true
+     * @param wrenOriginal if true, uses the dither from {@link PaletteReducer#reduceWrenOriginal(Pixmap)} instead,
+     *                     which has no DitherAlgorithm
+     * @param frame seeds dithers that change between frames of an animation; 1 for a single image
+     * @return {@link #frameIndices}, after it has been filled
+     */
+    private byte[] reduceToIndices(Pixmap pixmap, DitherAlgorithm ditherAlgorithm, boolean wrenOriginal, int frame) {
+        palette.setDitherStrength(ditherStrength);
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        if (wrenOriginal) {
+            reduceWrenOriginal(palette.readPixels(pixmap, flipY), w, h);
+        } else if (ditherAlgorithm == DitherAlgorithm.WOVEN) {
+            reduceWoven(palette.readPixels(pixmap, flipY), w, h);
+        } else if (ditherAlgorithm == DitherAlgorithm.GOURD) {
+            reduceGourd(palette.readPixels(pixmap, flipY), w, h);
         } else {
-            curLine = curLineBytes.ensureCapacity(w);
+            // WREN has always taken its noise from the output row in PNG8 files, the rest from the image row
+            frameIndices = palette.reduceToIndices(pixmap, ditherAlgorithm, frameIndices, flipY,
+                    ditherAlgorithm != DitherAlgorithm.WREN, frame);
         }
+        return frameIndices;
+    }
 
-            int color;
-            final float populationBias = palette.populationBias;
-            final float str = Math.min(48 * ditherStrength / (populationBias * populationBias * populationBias * populationBias), 127);
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        // We get a sub-random value from 0-1 using the R2 sequence.
-                        // Offsetting this value by different values and feeding into triangleWave()
-                        // gives 3 different values for r, g, and b, without much bias toward high or low values.
-                        // There is correlation between r, g, and b in certain patterns.
-                        final float theta = ((px * 0xC13FA9A9 + y * 0x91E10DA5 >>> 9) * 0x1p-23f);
-                        int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
-                        int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.209f) * str)] & 255;
-                        int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.518f) * str)] & 255;
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
+    /**
+     * Makes sure {@link #frameIndices} can hold {@code size} palette indices, and returns it.
+     */
+    private byte[] ensureFrameIndices(int size) {
+        if (frameIndices == null || frameIndices.length < size)
+            frameIndices = new byte[size];
+        return frameIndices;
+    }
 
-                    }
+    /**
+     * The PNG8 version of Gourd dither, which uses the same threshold for all three channels where
+     * {@link PaletteReducer#reduceGourd(Pixmap)} uses a different one for each; it is kept so PNG8 output doesn't
+     * change. Fills {@link #frameIndices} from the RGBA8888 colors in {@code pixels}.
+     */
+    private void reduceGourd(int[] pixels, int w, int h) {
+        final byte[] indices = ensureFrameIndices(w * h);
+        final byte[] paletteMapping = palette.paletteMapping;
+        final boolean hasTransparent = palette.paletteArray[0] == 0;
+        int color;
+        final float strength = (float)(ditherStrength * 0.7 * Math.pow(palette.populationBias, -5.50));
+        for (int i = 0; i < 64; i++) {
+            tempThresholdMatrix[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
+        }
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int px = 0; px < w; px++, i++) {
+                color = pixels[i];
+                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                    indices[i] = 0;
+                else {
+                    float adj = tempThresholdMatrix[(px & 7) | (y & 7) << 3];
+                    int rr = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 24)       ] + adj)] & 255;
+                    int gg = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
+                    int bb = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
+                    indices[i] = paletteMapping[((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3))];
                 }
-
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
         }
     }
 
-    public void writeLoafDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+    /**
+     * The PNG8 version of Woven dither, which offsets the noise for its blue channel differently from
+     * {@link PaletteReducer#reduceWoven(Pixmap)}; it is kept so PNG8 output doesn't change. Fills
+     * {@link #frameIndices} from the RGBA8888 colors in {@code pixels}.
+     */
+    private void reduceWoven(int[] pixels, int w, int h) {
+        final byte[] indices = ensureFrameIndices(w * h);
         final int[] paletteArray = palette.paletteArray;
         final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            final float strength = Math.min(Math.max(2.5f + 5f * ditherStrength - 5.5f * palette.populationBias, 0f), 7.9f);
-
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    int color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        int adj = (int)((((px + y & 1) << 5) - 16) * strength); // either + 16 * strength or - 16 * strength
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + adj, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + adj, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + adj, 0), 1023)] & 255;
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3))];
+        final boolean hasTransparent = paletteArray[0] == 0;
+        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
+        if (palette.curErrorRedFloats == null) {
+            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
+            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
+            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
+            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
+            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
+            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
+        } else {
+            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
+            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
+            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
+            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
+            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
+            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
+            Arrays.fill(nextErrorRed, 0, w, 0);
+            Arrays.fill(nextErrorGreen, 0, w, 0);
+            Arrays.fill(nextErrorBlue, 0, w, 0);
+        }
+
+        int color, used;
+        float rdiff, gdiff, bdiff;
+        float er, eg, eb;
+        byte paletteIndex;
+        final float populationBias = palette.populationBias;
+        final float w1 = (float) (10f * Math.sqrt(ditherStrength) / (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
+                strength = 100f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
+                limit = 5f + 250f / (float)Math.sqrt(palette.colorCount+1.5f);
+
+        for (int y = 0, i = 0; y < h; y++) {
+            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
+            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
+            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
+
+            Arrays.fill(nextErrorRed, 0, w, 0);
+            Arrays.fill(nextErrorGreen, 0, w, 0);
+            Arrays.fill(nextErrorBlue, 0, w, 0);
+
+            final int ny = y + 1;
+            for (int px = 0; px < w; px++, i++) {
+                color = pixels[i];
+                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                    indices[i] = 0;
+                else {
+                    er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
+                    eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
+                    eb = Math.min(Math.max(((((px+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
+
+                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                    indices[i] = paletteIndex =
+                            paletteMapping[((rr << 7) & 0x7C00)
+                                    | ((gg << 2) & 0x3E0)
+                                    | ((bb >>> 3))];
+                    used = paletteArray[paletteIndex & 0xFF];
+                    rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
+                    gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
+                    bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
+                    if(px < w - 1)
+                    {
+                        curErrorRed[px+1]   += rdiff * w7;
+                        curErrorGreen[px+1] += gdiff * w7;
+                        curErrorBlue[px+1]  += bdiff * w7;
+                    }
+                    if(ny < h)
+                    {
+                        if(px > 0)
+                        {
+                            nextErrorRed[px-1]   += rdiff * w3;
+                            nextErrorGreen[px-1] += gdiff * w3;
+                            nextErrorBlue[px-1]  += bdiff * w3;
+                        }
+                        if(px < w - 1)
+                        {
+                            nextErrorRed[px+1]   += rdiff * w1;
+                            nextErrorGreen[px+1] += gdiff * w1;
+                            nextErrorBlue[px+1]  += bdiff * w1;
+                        }
+                        nextErrorRed[px]   += rdiff * w5;
+                        nextErrorGreen[px] += gdiff * w5;
+                        nextErrorBlue[px]  += bdiff * w5;
                     }
                 }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
         }
     }
 
-    public void writeGourdDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+    /**
+     * The PNG8 version of the original Wren dither, which adds twice as much hashed noise as
+     * {@link PaletteReducer#reduceWrenOriginal(Pixmap)}; it is kept so PNG8 output doesn't change. Fills
+     * {@link #frameIndices} from the RGBA8888 colors in {@code pixels}.
+     */
+    private void reduceWrenOriginal(int[] pixels, int w, int h) {
+        final byte[] indices = ensureFrameIndices(w * h);
         final int[] paletteArray = palette.paletteArray;
         final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            int color;
-            final float strength = (float)(ditherStrength * 0.7 * Math.pow(palette.populationBias, -5.50));
-            for (int i = 0; i < 64; i++) {
-                PaletteReducer.tempThresholdMatrix[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
-            }
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        float adj = PaletteReducer.tempThresholdMatrix[(px & 7) | (y & 7) << 3];
-                        int rr = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                        int gg = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                        int bb = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3))];
+        final boolean hasTransparent = paletteArray[0] == 0;
+        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
+        if (palette.curErrorRedFloats == null) {
+            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
+            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
+            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
+            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
+            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
+            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
+        } else {
+            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
+            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
+            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
+            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
+            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
+            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
+            Arrays.fill(nextErrorRed, 0, w, 0);
+            Arrays.fill(nextErrorGreen, 0, w, 0);
+            Arrays.fill(nextErrorBlue, 0, w, 0);
+        }
+
+        int color, used;
+        float rdiff, gdiff, bdiff;
+        float er, eg, eb;
+        byte paletteIndex;
+        final float populationBias = palette.populationBias;
+        final float w1 = (float) (32.0 * ditherStrength * (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
+                strength = (0.2f * ditherStrength / (populationBias * populationBias * populationBias * populationBias)),
+                limit = 5f + 125f / (float)Math.sqrt(palette.colorCount+1.5),
+                dmul = 0x1p-8f;
+
+        for (int y = 0, i = 0; y < h; y++) {
+            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
+            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
+            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
+
+            Arrays.fill(nextErrorRed, 0, w, 0);
+            Arrays.fill(nextErrorGreen, 0, w, 0);
+            Arrays.fill(nextErrorBlue, 0, w, 0);
+
+            final int ny = y + 1;
+            for (int px = 0; px < w; px++, i++) {
+                color = pixels[i];
+                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                    indices[i] = 0;
+                else {
+                    er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+1) * 0xC13FA9A902A6328FL + (y +1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorRed[px]), -limit), limit);
+                    eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+3) * 0xC13FA9A902A6328FL + (y -1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorGreen[px]), -limit), limit);
+                    eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+2) * 0xC13FA9A902A6328FL + (y -4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorBlue[px]), -limit), limit);
+
+                    int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
+                    int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
+                    int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
+                    indices[i] = paletteIndex =
+                            paletteMapping[((rr << 7) & 0x7C00)
+                                    | ((gg << 2) & 0x3E0)
+                                    | ((bb >>> 3))];
+                    used = paletteArray[paletteIndex & 0xFF];
+                    rdiff = (dmul * ((color>>>24)-    (used>>>24))    );
+                    gdiff = (dmul * ((color>>>16&255)-(used>>>16&255)));
+                    bdiff = (dmul * ((color>>>8&255)- (used>>>8&255)) );
+                    if(px < w - 1)
+                    {
+                        curErrorRed[px+1]   += rdiff * w7;
+                        curErrorGreen[px+1] += gdiff * w7;
+                        curErrorBlue[px+1]  += bdiff * w7;
+                    }
+                    if(ny < h)
+                    {
+                        if(px > 0)
+                        {
+                            nextErrorRed[px-1]   += rdiff * w3;
+                            nextErrorGreen[px-1] += gdiff * w3;
+                            nextErrorBlue[px-1]  += bdiff * w3;
+                        }
+                        if(px < w - 1)
+                        {
+                            nextErrorRed[px+1]   += rdiff * w1;
+                            nextErrorGreen[px+1] += gdiff * w1;
+                            nextErrorBlue[px+1]  += bdiff * w1;
+                        }
+                        nextErrorRed[px]   += rdiff * w5;
+                        nextErrorGreen[px] += gdiff * w5;
+                        nextErrorBlue[px]  += bdiff * w5;
                     }
                 }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
         }
     }
 
-    public void writeBlueNoiseDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
+    /**
+     * The version of Oceanic dither that PNG8 has always used for single images, which diffuses error more strongly
+     * than {@link PaletteReducer#reduceOceanic(Pixmap)}; it is kept so PNG8 output doesn't change. Fills
+     * {@link #frameIndices} from the RGBA8888 colors in {@code pixels}, which hold the image flipped if
+     * {@link #flipY} is true.
+     */
+    private void reduceOceanic(int[] pixels, int w, int h) {
+        final byte[] indices = ensureFrameIndices(w * h);
         final int[] paletteArray = palette.paletteArray;
         final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
+        final boolean hasTransparent = paletteArray[0] == 0;
+        final float[] noise = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
+        float r4, r2, r1, g4, g2, g1, b4, b2, b1;
+        final float populationBias = palette.populationBias;
+        final float s = 0.175f * ditherStrength / (populationBias * populationBias * populationBias),
+                strength = s * 0.59f / (0.4f + s);
+        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
+        if (palette.curErrorRedFloats == null) {
+            curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
+            nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
+            curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
+            nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
+            curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
+            nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
         } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            int color;
-            final float strength = 0.21875f * ditherStrength / (palette.populationBias * palette.populationBias);
-            for (int oy = 0; oy < h; oy++) {
-                int y = flipY ? (h - oy - 1) : oy;
-                for (int x = 0; x < w; x++) {
-                    color = pixmap.getPixel(x, y);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[x] = 0;
-                    else {
-                        float adj = Math.min(Math.max(((TRI_BLUE_NOISE  [(x & 63) | (y & 63) << 6] + ((x + y & 1) << 8) - 127.5f) * strength), -100.5f), 101.5f);
-                        int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                        int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                        int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-
-                        curLine[x] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
+            curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
+            nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
+            curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
+            nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
+            curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
+            nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
+            Arrays.fill(nextErrorRed, 0, w, 0);
+            Arrays.fill(nextErrorGreen, 0, w, 0);
+            Arrays.fill(nextErrorBlue, 0, w, 0);
+        }
+
+        int color, used;
+        byte paletteIndex;
+
+        for (int y = 0, i = 0; y < h; y++) {
+            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
+            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
+            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
+
+            Arrays.fill(nextErrorRed, 0, w, 0);
+            Arrays.fill(nextErrorGreen, 0, w, 0);
+            Arrays.fill(nextErrorBlue, 0, w, 0);
+
+            final int py = flipY ? (h - y - 1) : y,
+                    ny = y + 1;
+            for (int px = 0; px < w; px++, i++) {
+                color = pixels[i];
+                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                    indices[i] = 0;
+                else {
+                    float er = curErrorRed[px];
+                    float eg = curErrorGreen[px];
+                    float eb = curErrorBlue[px];
+                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                    indices[i] = paletteIndex =
+                            paletteMapping[((rr << 7) & 0x7C00)
+                                    | ((gg << 2) & 0x3E0)
+                                    | ((bb >>> 3))];
+                    used = paletteArray[paletteIndex & 0xFF];
+                    int rdiff = (color >>> 24) - (used >>> 24);
+                    int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
+                    int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
+                    r1 = rdiff * strength;
+                    g1 = gdiff * strength;
+                    b1 = bdiff * strength;
+                    r2 = r1 + r1;
+                    g2 = g1 + g1;
+                    b2 = b1 + b1;
+                    r4 = r2 + r2;
+                    g4 = g2 + g2;
+                    b4 = b2 + b2;
+                    float modifier;
+                    if(px < w - 1)
+                    {
+                        modifier = noise[(px + 1 & 63) | ((py << 6) & 0xFC0)];
+                        curErrorRed[px+1]   += r4 * modifier;
+                        curErrorGreen[px+1] += g4 * modifier;
+                        curErrorBlue[px+1]  += b4 * modifier;
+                        if(px < w - 2)
+                        {
+                            modifier = noise[(px + 2 & 63) | ((py << 6) & 0xFC0)];
+                            curErrorRed[px+2]   += r2 * modifier;
+                            curErrorGreen[px+2] += g2 * modifier;
+                            curErrorBlue[px+2]  += b2 * modifier;
+                        }
+                    }
+                    if(ny < h)
+                    {
+                        if(px > 0)
+                        {
+                            modifier = noise[(px - 1 & 63) | ((ny << 6) & 0xFC0)];
+                            nextErrorRed[px-1]   += r2 * modifier;
+                            nextErrorGreen[px-1] += g2 * modifier;
+                            nextErrorBlue[px-1]  += b2 * modifier;
+                            if(px > 1)
+                            {
+                                modifier = noise[(px - 2 & 63) | ((ny << 6) & 0xFC0)];
+                                nextErrorRed[px-2]   += r1 * modifier;
+                                nextErrorGreen[px-2] += g1 * modifier;
+                                nextErrorBlue[px-2]  += b1 * modifier;
+                            }
+                        }
+                        modifier = noise[(px & 63) | ((ny << 6) & 0xFC0)];
+                        nextErrorRed[px]   += r4 * modifier;
+                        nextErrorGreen[px] += g4 * modifier;
+                        nextErrorBlue[px]  += b4 * modifier;
+                        if(px < w - 1)
+                        {
+                            modifier = noise[(px + 1 & 63) | ((ny << 6) & 0xFC0)];
+                            nextErrorRed[px+1]   += r2 * modifier;
+                            nextErrorGreen[px+1] += g2 * modifier;
+                            nextErrorBlue[px+1]  += b2 * modifier;
+                            if(px < w - 2)
+                            {
+                                modifier = noise[(px + 2 & 63) | ((ny << 6) & 0xFC0)];
+                                nextErrorRed[px+2]   += r1 * modifier;
+                                nextErrorGreen[px+2] += g1 * modifier;
+                                nextErrorBlue[px+2]  += b1 * modifier;
+                            }
+                        }
                     }
                 }
-
-//                lineOut[0] = (byte)(curLine[0] - prevLine[0]);
-//
-//                //Paeth
-//                for (int x = 1; x < w; x++) {
-//                    int a = curLine[x - 1] & 0xff;
-//                    int b = prevLine[x] & 0xff;
-//                    int c = prevLine[x - 1] & 0xff;
-//                    int p = a + b - c;
-//                    int pa = p - a;
-//                    if (pa < 0) pa = -pa;
-//                    int pb = p - b;
-//                    if (pb < 0) pb = -pb;
-//                    int pc = p - c;
-//                    if (pc < 0) pc = -pc;
-//                    if (pa <= pb && pa <= pc)
-//                        c = a;
-//                    else if (pb <= pc)
-//                        c = b;
-//                    lineOut[x] = (byte)(curLine[x] - c);
-//                }
-//
-//                deflaterOutput.write(FILTER_PAETH);
-//                deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
         }
     }
 
-    public void writeBluntDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
+    /**
+     * Filters each row of {@code indices} with {@link #rowFilter} and writes it to {@code output}, in order from the top.
+     */
+    private void writeRows(OutputStream output, byte[] indices, int width, int height) throws IOException {
+        byte[] curLine;
+        if (curLineBytes == null) {
+            curLine = (curLineBytes = new ByteArray(width)).items;
         } else {
-            curLine = curLineBytes.ensureCapacity(w);
+            curLine = curLineBytes.ensureCapacity(width);
         }
-
-            int color;
-            final float populationBias = palette.populationBias;
-            final float strength = Math.min(Math.max(0.35f * ditherStrength / (populationBias * populationBias * populationBias), -0.6f), 0.6f);
-            for (int oy = 0; oy < h; oy++) {
-                int y = flipY ? (h - oy - 1) : oy;
-                for (int x = 0; x < w; x++) {
-                    color = pixmap.getPixel(x, y);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[x] = 0;
-                    else {
-                        float adj = (x+y<<7&128)-63.5f;
-                        int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + (TRI_BLUE_NOISE  [(x + 62 & 63) << 6 | (y + 66  & 63)] + adj) * strength)] & 255;
-                        int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + (TRI_BLUE_NOISE_B[(x + 31 & 63) << 6 | (y + 113 & 63)] + adj) * strength)] & 255;
-                        int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + (TRI_BLUE_NOISE_C[(x + 71 & 63) << 6 | (y + 41  & 63)] + adj) * strength)] & 255;
-
-                        curLine[x] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-                    }
-                }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(indices, y * width, curLine, 0, width);
+            rowFilter.write(output, curLine, width, filter);
         }
     }
 
-    public void writeBanterDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
+    /**
+     * Writes the given Pixmaps to the requested FileHandle at 30 frames per second.
+     * If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
+     * compute a palette from all the frames given. Otherwise, this uses the colors already in {@link #palette}.
+     * Uses {@link #getDitherAlgorithm()} to determine how to dither.
+     *
+     * @param file   a FileHandle that must be writable, and will have the given Pixmap written as a PNG-8 image
+     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
+     */
+    @Override
+    public void write(FileHandle file, Array<Pixmap> frames) {
+        write(file, frames, 30, true);
+    }
 
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
+    /**
+     * Writes the given Pixmaps to the requested FileHandle at the requested frames per second.
+     * If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
+     * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
+     * Uses {@link #getDitherAlgorithm()} to determine how to dither.
+     *
+     * @param file   a FileHandle that must be writable, and will have the given Pixmap written as a PNG-8 image
+     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
+     * @param fps    how many frames per second the animation should run at
+     */
+    @Override
+    public void write(FileHandle file, Array<Pixmap> frames, int fps) {
+        write(file, frames, fps, true);
+    }
 
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
+    /**
+     * Writes the Pixmaps to the stream without closing the stream, optionally computing an 8-bit palette from the given
+     * Pixmap. If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
+     * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
+     * Optionally dithers the result if {@code dither} is true, using the dither algorithm selected with
+     * {@link #setDitherAlgorithm(DitherAlgorithm)} (or {@link DitherAlgorithm#PATTERN} if not set).
+     *
+     * @param file   a FileHandle that must be writable, and will have the given Pixmap written as a PNG-8 image
+     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
+     * @param fps    how many frames per second the animation should run at
+     * @param dither true if this should use {@link #getDitherAlgorithm()} to dither; false to not dither
+     */
+    public void write(FileHandle file, Array<Pixmap> frames, int fps, boolean dither) {
+        OutputStream output = file.write(false);
+        try {
+            write(output, frames, fps, dither);
+        } finally {
+            StreamUtils.closeQuietly(output);
         }
+    }
 
-            int color;
-            float strength = Math.min(Math.max(0.17f * ditherStrength * (float) Math.pow(palette.populationBias, -10f), -0.95f), 0.95f);
-            for (int oy = 0; oy < h; oy++) {
-                int y = flipY ? (h - oy - 1) : oy;
-                for (int x = 0; x < w; x++) {
-                    color = pixmap.getPixel(x, y);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[x] = 0;
-                    else {
-                        float adj = TRI_BAYER_MATRIX_128[(x & TBM_MASK) << TBM_BITS | (y & TBM_MASK)] * strength;
-                        int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                        int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                        int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-
-                        curLine[x] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-                    }
-                }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+    /**
+     * Writes the Pixmaps to the stream without closing the stream, optionally computing an 8-bit palette from the given
+     * Pixmaps. If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
+     * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
+     * Optionally dithers the result if {@code dither} is true, using the dither algorithm selected with
+     * {@link #setDitherAlgorithm(DitherAlgorithm)} (or {@link DitherAlgorithm#PATTERN} if not set). This does not
+     * consider the ditherStrength set in the palette, if non-null, but does use the {@link #getDitherStrength()} here.
+     *
+     * @param output an OutputStream that will not be closed
+     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
+     * @param fps    how many frames per second the animation should run at
+     * @param dither true if this should use {@link #getDitherAlgorithm()} to dither; false to not dither
+     */
+    public void write(OutputStream output, Array<Pixmap> frames, int fps, boolean dither) {
+        boolean clearPalette;
+        if(clearPalette = (palette == null))
+            palette = new PaletteReducer(frames);
+        palette.setDitherStrength(ditherStrength);
+        if (dither)
+            write(output, frames, fps);
+        else
+            writeSolid(output, frames, fps);
+        if(clearPalette) palette = null;
+    }
 
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
+    public void writeSolid(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.NONE, false);
+    }
 
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
+    @Override
+    public void write(OutputStream output, Array<Pixmap> frames, int fps) {
+        if(ditherAlgorithm == null) {
+            writeSolid(output, frames, fps);
+            return;
+        }
+        switch (ditherAlgorithm){
+            case NONE:
+                writeSolid(output, frames, fps);
+                break;
+            case GRADIENT_NOISE:
+                writeGradientDithered(output, frames, fps);
+                break;
+            case ADDITIVE:
+                writeAdditiveDithered(output, frames, fps);
+                break;
+            case ROBERTS:
+                writeRobertsDithered(output, frames, fps);
+                break;
+            case PATTERN:
+                writePatternDithered(output, frames, fps);
+                break;
+            case CHAOTIC_NOISE:
+                writeChaoticNoiseDithered(output, frames, fps);
+                break;
+            case DIFFUSION:
+                writeDiffusionDithered(output, frames, fps);
+                break;
+            case SCATTER:
+                writeScatterDithered(output, frames, fps);
+                break;
+            case BLUE_NOISE:
+                writeBlueNoiseDithered(output, frames, fps);
+                break;
+            case BLUNT:
+                writeBluntDithered(output, frames, fps);
+                break;
+            case BANTER:
+                writeBanterDithered(output, frames, fps);
+                break;
+            case WOVEN:
+                writeWovenDithered(output, frames, fps);
+                break;
+            case DODGY:
+                writeDodgyDithered(output, frames, fps);
+                break;
+            case LOAF:
+                writeLoafDithered(output, frames, fps);
+                break;
+            case NEUE:
+                writeNeueDithered(output, frames, fps);
+                break;
+            case BURKES:
+                writeBurkesDithered(output, frames, fps);
+                break;
+            case OCEANIC:
+                writeOceanicDithered(output, frames, fps);
+                break;
+            case SEASIDE:
+                writeSeasideDithered(output, frames, fps);
+                break;
+            case GOURD:
+                writeGourdDithered(output, frames, fps);
+                break;
+            case OVERBOARD:
+                writeOverboardDithered(output, frames, fps);
+                break;
+            case MARTEN:
+                writeMartenDithered(output, frames, fps);
+                break;
+            case WREN:
+            default:
+                writeWrenDithered(output, frames, fps);
+                break;
         }
     }
 
-    public void writeChaoticNoiseDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
+    /**
+     * Starts writing an animated PNG-8 to the given {@code file}, one frame at a time. Frames are given to
+     * {@link #addFrame(Pixmap)} as they become available, so they don't all need to be held in memory at once, and
+     * the animation is completed by {@link #end()}. Because the PNG format needs the number of frames near the start
+     * of the file, this writes a placeholder count there and changes it to the real count when {@link #end()} is
+     * called. Any existing file with this name will be overwritten.
+     * <br>
+     * If {@link #palette} is null when the first frame is added, this computes a palette from only that first frame,
+     * and uses it for the rest of the animation. Otherwise, this uses the colors already in {@link #palette}.
+     *
+     * @param file   the file location to write to; must be a writable file on the local filesystem
+     * @param width  the width of every frame, in pixels
+     * @param height the height of every frame, in pixels
+     * @param fps    how many frames per second the animation should run at
+     * @return true if the file could be started; false if an error occurred
+     */
+    public boolean begin(FileHandle file, int width, int height, int fps) {
+        final OutputStream output;
         try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            int color, used;
-
-            byte paletteIndex;
-            double adj, strength = ditherStrength * palette.populationBias * 1.5;
-            long s = 0xC13FA9A902A6328FL;
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        int rr = ((color >>> 24)       );
-                        int gg = ((color >>> 16) & 0xFF);
-                        int bb = ((color >>> 8)  & 0xFF);
-                        paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        adj = ((PaletteReducer.TRI_BLUE_NOISE[(px & 63) | (y & 63) << 6] + 0.5f) * 0.007843138f);
-                        adj *= adj * adj;
-                        // Complicated... This starts with a checkerboard of -0.5 and 0.5, times a tiny fraction.
-                        // The next 3 lines generate 3 low-quality-random numbers based on s, which should be
-                        //   different as long as the colors encountered so far were different. The numbers can
-                        //   each be positive or negative, and are reduced to a manageable size, summed, and
-                        //   multiplied by the earlier tiny fraction. Summing 3 random values gives us a curved
-                        //   distribution, centered on about 0.0 and weighted so most results are close to 0.
-                        //   Two of the random numbers use an XLCG, and the last uses an LCG.
-                        adj += ((px + y & 1) - 0.5f) * 0x1.8p-49 * strength *
-                                (((s ^ 0x9E3779B97F4A7C15L) * 0xC6BC279692B5CC83L >> 15) +
-                                        ((~s ^ 0xDB4F0B9175AE2165L) * 0xD1B54A32D192ED03L >> 15) +
-                                        ((s = (s ^ rr + gg + bb) * 0xD1342543DE82EF95L + 0x91E10DA5C79E7B1DL) >> 15));
-                        rr = Math.min(Math.max((int) (rr + (adj * (rr - (used >>> 24       )))), 0), 0xFF);
-                        gg = Math.min(Math.max((int) (gg + (adj * (gg - (used >>> 16 & 0xFF)))), 0), 0xFF);
-                        bb = Math.min(Math.max((int) (bb + (adj * (bb - (used >>> 8  & 0xFF)))), 0), 0xFF);
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-                    }
-                }
-
-//                lineOut[0] = (byte)(curLine[0] - prevLine[0]);
-//
-//                //Paeth
-//                for (int x = 1; x < w; x++) {
-//                    int a = curLine[x - 1] & 0xff;
-//                    int b = prevLine[x] & 0xff;
-//                    int c = prevLine[x - 1] & 0xff;
-//                    int p = a + b - c;
-//                    int pa = p - a;
-//                    if (pa < 0) pa = -pa;
-//                    int pb = p - b;
-//                    if (pb < 0) pb = -pb;
-//                    int pc = p - c;
-//                    if (pc < 0) pc = -pc;
-//                    if (pa <= pb && pa <= pc)
-//                        c = a;
-//                    else if (pb <= pc)
-//                        c = b;
-//                    lineOut[x] = (byte)(curLine[x] - c);
-//                }
-//
-//                deflaterOutput.write(FILTER_PAETH);
-//                deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
+            output = file.write(false, 8192);
+        } catch (GdxRuntimeException e) { // classpath and internal files can't be written
             Gdx.app.error("anim8", e.getMessage());
+            return false;
+        }
+        if (begin(output, width, height, fps, 0)) {
+            animationFile = file;
+            return true;
         }
+        StreamUtils.closeQuietly(output);
+        return false;
     }
 
-    public void writeDiffusionDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            byte paletteIndex;
-            float w1 = ditherStrength * 32 / palette.populationBias, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        rdiff = Math.min(Math.max(0x1p-8f * ((color>>>24)-    (used>>>24))    , -1), 1);
-                        gdiff = Math.min(Math.max(0x1p-8f * ((color>>>16&255)-(used>>>16&255)), -1), 1);
-                        bdiff = Math.min(Math.max(0x1p-8f * ((color>>>8&255)- (used>>>8&255)) , -1), 1);
-                        // this alternate code used a sigmoid function to smoothly limit error.
-//                    rdiff = (0x1.8p-8f * ((color>>>24)-    (used>>>24))    );
-//                    gdiff = (0x1.8p-8f * ((color>>>16&255)-(used>>>16&255)));
-//                    bdiff = (0x1.8p-8f * ((color>>>8&255)- (used>>>8&255)) );
-//                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-//                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-//                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += rdiff * w7;
-                            curErrorGreen[px+1] += gdiff * w7;
-                            curErrorBlue[px+1]  += bdiff * w7;
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += rdiff * w3;
-                                nextErrorGreen[px-1] += gdiff * w3;
-                                nextErrorBlue[px-1]  += bdiff * w3;
-                            }
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += rdiff * w1;
-                                nextErrorGreen[px+1] += gdiff * w1;
-                                nextErrorBlue[px+1]  += bdiff * w1;
-                            }
-                            nextErrorRed[px]   += rdiff * w5;
-                            nextErrorGreen[px] += gdiff * w5;
-                            nextErrorBlue[px]  += bdiff * w5;
-                        }
-                    }
-                }
-//                lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                //Paeth
-//                for (int x = 1; x < w; x++) {
-//                    int a = curLine[x - 1] & 0xff;
-//                    int b = prevLine[x] & 0xff;
-//                    int c = prevLine[x - 1] & 0xff;
-//                    int p = a + b - c;
-//                    int pa = p - a;
-//                    if (pa < 0) pa = -pa;
-//                    int pb = p - b;
-//                    if (pb < 0) pb = -pb;
-//                    int pc = p - c;
-//                    if (pc < 0) pc = -pc;
-//                    if (pa <= pb && pa <= pc)
-//                        c = a;
-//                    else if (pb <= pc)
-//                        c = b;
-//                    lineOut[x] = (byte) (curLine[x] - c);
-//                }
-//
-//                deflaterOutput.write(FILTER_PAETH);
-//                deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writePatternDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-        dataOutput.write(SIGNATURE);
-
-        buffer.writeInt(IHDR);
-        buffer.writeInt(pixmap.getWidth());
-        buffer.writeInt(pixmap.getHeight());
-        buffer.writeByte(8); // 8 bits per component.
-        buffer.writeByte(COLOR_INDEXED);
-        buffer.writeByte(COMPRESSION_DEFLATE);
-        buffer.writeByte(FILTER_NONE);
-        buffer.writeByte(INTERLACE_NONE);
-        buffer.endChunk(dataOutput);
-
-        buffer.writeInt(PLTE);
-        for (int i = 0; i < paletteArray.length; i++) {
-            int p = paletteArray[i];
-            buffer.write(p>>>24);
-            buffer.write(p>>>16);
-            buffer.write(p>>>8);
-        }
-        buffer.endChunk(dataOutput);
-
-        boolean hasTransparent = false;
-        if(paletteArray[0] == 0) {
-            hasTransparent = true;
-            buffer.writeInt(TRNS);
-            buffer.write(0);
-            buffer.endChunk(dataOutput);
-        }
-        buffer.writeInt(IDAT);
-        deflater.reset();
-
-        final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//        byte[] lineOut, curLine, prevLine;
-        byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            int color, used;
-        int cr, cg, cb,  usedIndex;
-        final float errorMul = ditherStrength * 0.5f / palette.populationBias;
-        for (int y = 0; y < h; y++) {
-            int py = flipY ? (h - y - 1) : y;
-            for (int px = 0; px < w; px++) {
-                color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    curLine[px] = 0;
-                else {
-                    int er = 0, eg = 0, eb = 0;
-                    cr = (color >>> 24);
-                    cg = (color >>> 16 & 0xFF);
-                    cb = (color >>> 8 & 0xFF);
-                    for (int i = 0; i < 16; i++) {
-                        int rr = Math.min(Math.max((int) (cr + er * errorMul), 0), 255);
-                        int gg = Math.min(Math.max((int) (cg + eg * errorMul), 0), 255);
-                        int bb = Math.min(Math.max((int) (cb + eb * errorMul), 0), 255);
-                        usedIndex = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))] & 0xFF;
-                        palette.candidates[i | 16] = shrink(used = paletteArray[palette.candidates[i] = usedIndex]);
-                        er += cr - (used >>> 24);
-                        eg += cg - (used >>> 16 & 0xFF);
-                        eb += cb - (used >>> 8 & 0xFF);
-                    }
-                    PaletteReducer.sort16(palette.candidates);
-                    curLine[px] = (byte)palette.candidates[PaletteReducer.thresholdMatrix16[((px & 3) | (y & 3) << 2)]];
-                }
-            }
-
-//            lineOut[0] = (byte)(curLine[0] - prevLine[0]);
-//
-//            //Paeth
-//            for (int x = 1; x < w; x++) {
-//                int a = curLine[x - 1] & 0xff;
-//                int b = prevLine[x] & 0xff;
-//                int c = prevLine[x - 1] & 0xff;
-//                int p = a + b - c;
-//                int pa = p - a;
-//                if (pa < 0) pa = -pa;
-//                int pb = p - b;
-//                if (pb < 0) pb = -pb;
-//                int pc = p - c;
-//                if (pc < 0) pc = -pc;
-//                if (pa <= pb && pa <= pc)
-//                    c = a;
-//                else if (pb <= pc)
-//                    c = b;
-//                lineOut[x] = (byte)(curLine[x] - c);
-//            }
-//
-//            deflaterOutput.write(FILTER_PAETH);
-//            deflaterOutput.write(lineOut, 0, w);
-
-            deflaterOutput.write(FILTER_NONE);
-            deflaterOutput.write(curLine, 0, w);
-        }
-        deflaterOutput.finish();
-        buffer.endChunk(dataOutput);
-
-        buffer.writeInt(IEND);
-        buffer.endChunk(dataOutput);
-
-        output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeScatterDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float w1 = Math.min(ditherStrength * 5.5f / (palette.populationBias * palette.populationBias), 16f),
-                    w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        float tbn = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS[(px & 63) | ((y << 6) & 0xFC0)];
-                        er = curErrorRed[px] * tbn;
-                        eg = curErrorGreen[px] * tbn;
-                        eb = curErrorBlue[px] * tbn;
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        rdiff = (0x2.1p-8f * ((color>>>24)-    (used>>>24))    );
-                        gdiff = (0x2.1p-8f * ((color>>>16&255)-(used>>>16&255)));
-                        bdiff = (0x2.1p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                        rdiff /= (0.125f + Math.abs(rdiff));
-                        gdiff /= (0.125f + Math.abs(gdiff));
-                        bdiff /= (0.125f + Math.abs(bdiff));
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += rdiff * w7;
-                            curErrorGreen[px+1] += gdiff * w7;
-                            curErrorBlue[px+1]  += bdiff * w7;
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += rdiff * w3;
-                                nextErrorGreen[px-1] += gdiff * w3;
-                                nextErrorBlue[px-1]  += bdiff * w3;
-                            }
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += rdiff * w1;
-                                nextErrorGreen[px+1] += gdiff * w1;
-                                nextErrorBlue[px+1]  += bdiff * w1;
-                            }
-                            nextErrorRed[px]   += rdiff * w5;
-                            nextErrorGreen[px] += gdiff * w5;
-                            nextErrorBlue[px]  += bdiff * w5;
-                        }
-                    }
-                }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeNeueDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb, adj;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            final float w1 = ditherStrength * 8f, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = (70f * ditherStrength / (populationBias * populationBias * populationBias)),
-                    limit = Math.min(127, (float) Math.pow(80, 1.635 - populationBias));
-            byte[] curLine;
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        adj = ((PaletteReducer.TRI_BLUE_NOISE[(px & 63) | (py & 63) << 6] + 0.5f) * 0.005f); // plus or minus 255/400
-                        adj = Math.min(Math.max(adj * strength, -limit), limit);
-                        er = adj + (curErrorRed[px]);
-                        eg = adj + (curErrorGreen[px]);
-                        eb = adj + (curErrorBlue[px]);
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        rdiff = (0x2.Ep-8f * ((color>>>24)-    (used>>>24))    );
-                        gdiff = (0x2.Ep-8f * ((color>>>16&255)-(used>>>16&255)));
-                        bdiff = (0x2.Ep-8f * ((color>>>8&255)- (used>>>8&255)) );
-                        rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-                        gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-                        bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += rdiff * w7;
-                            curErrorGreen[px+1] += gdiff * w7;
-                            curErrorBlue[px+1]  += bdiff * w7;
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += rdiff * w3;
-                                nextErrorGreen[px-1] += gdiff * w3;
-                                nextErrorBlue[px-1]  += bdiff * w3;
-                            }
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += rdiff * w1;
-                                nextErrorGreen[px+1] += gdiff * w1;
-                                nextErrorBlue[px+1]  += bdiff * w1;
-                            }
-                            nextErrorRed[px]   += rdiff * w5;
-                            nextErrorGreen[px] += gdiff * w5;
-                            nextErrorBlue[px]  += bdiff * w5;
-                        }
-                    }
-                }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeDodgyDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            float populationBias = palette.populationBias;
-            final float w1 = 8f * ditherStrength,
-                    w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = 0.35f * ditherStrength / (populationBias * populationBias * populationBias),
-                    limit = 90f;
-            byte[] curLine;
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        er = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorRed[px]);
-                        eg = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorGreen[px]);
-                        eb = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorBlue[px]);
-
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-
-                        rdiff = (0x5p-8f * ((color>>>24)-    (used>>>24))    );
-                        gdiff = (0x5p-8f * ((color>>>16&255)-(used>>>16&255)));
-                        bdiff = (0x5p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                        rdiff /= (0.5f + Math.abs(rdiff));
-                        gdiff /= (0.5f + Math.abs(gdiff));
-                        bdiff /= (0.5f + Math.abs(bdiff));
-
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += rdiff * w7;
-                            curErrorGreen[px+1] += gdiff * w7;
-                            curErrorBlue[px+1]  += bdiff * w7;
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += rdiff * w3;
-                                nextErrorGreen[px-1] += gdiff * w3;
-                                nextErrorBlue[px-1]  += bdiff * w3;
-                            }
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += rdiff * w1;
-                                nextErrorGreen[px+1] += gdiff * w1;
-                                nextErrorBlue[px+1]  += bdiff * w1;
-                            }
-                            nextErrorRed[px]   += rdiff * w5;
-                            nextErrorGreen[px] += gdiff * w5;
-                            nextErrorBlue[px]  += bdiff * w5;
-                        }
-                    }
-                }
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-
-    public void writeWovenDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            final float w1 = (float) (10f * Math.sqrt(ditherStrength) / (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = 100f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
-                    limit = 5f + 250f / (float)Math.sqrt(palette.colorCount+1.5f);
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
-                        eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
-                        eb = Math.min(Math.max(((((px+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
-
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
-                        gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
-                        bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += rdiff * w7;
-                            curErrorGreen[px+1] += gdiff * w7;
-                            curErrorBlue[px+1]  += bdiff * w7;
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += rdiff * w3;
-                                nextErrorGreen[px-1] += gdiff * w3;
-                                nextErrorBlue[px-1]  += bdiff * w3;
-                            }
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += rdiff * w1;
-                                nextErrorGreen[px+1] += gdiff * w1;
-                                nextErrorBlue[px+1]  += bdiff * w1;
-                            }
-                            nextErrorRed[px]   += rdiff * w5;
-                            nextErrorGreen[px] += gdiff * w5;
-                            nextErrorBlue[px]  += bdiff * w5;
-                        }
-                    }
-                }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-
-    public void writeWrenOriginalDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            final float w1 = (float) (32.0 * ditherStrength * (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = (0.2f * ditherStrength / (populationBias * populationBias * populationBias * populationBias)),
-                    limit = 5f + 125f / (float)Math.sqrt(palette.colorCount+1.5),
-                    dmul = 0x1p-8f;
-            byte[] curLine;
-            if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+1) * 0xC13FA9A902A6328FL + (y +1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorRed[px]), -limit), limit);
-                        eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+3) * 0xC13FA9A902A6328FL + (y -1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorGreen[px]), -limit), limit);
-                        eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+2) * 0xC13FA9A902A6328FL + (y -4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorBlue[px]), -limit), limit);
-
-                        int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
-                        int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
-                        int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        rdiff = (dmul * ((color>>>24)-    (used>>>24))    );
-                        gdiff = (dmul * ((color>>>16&255)-(used>>>16&255)));
-                        bdiff = (dmul * ((color>>>8&255)- (used>>>8&255)) );
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += rdiff * w7;
-                            curErrorGreen[px+1] += gdiff * w7;
-                            curErrorBlue[px+1]  += bdiff * w7;
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += rdiff * w3;
-                                nextErrorGreen[px-1] += gdiff * w3;
-                                nextErrorBlue[px-1]  += bdiff * w3;
-                            }
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += rdiff * w1;
-                                nextErrorGreen[px+1] += gdiff * w1;
-                                nextErrorBlue[px+1]  += bdiff * w1;
-                            }
-                            nextErrorRed[px]   += rdiff * w5;
-                            nextErrorGreen[px] += gdiff * w5;
-                            nextErrorBlue[px]  += bdiff * w5;
-                        }
-                    }
-                }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeWrenDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            float partialDitherStrength = (0.5f * ditherStrength / (populationBias * populationBias)),
-                    strength = (80f * ditherStrength / (populationBias * populationBias)),
-                    blueStrength = (0.3f * ditherStrength / (populationBias * populationBias)),
-                    limit = 5f + 200f / (float)Math.sqrt(palette.colorCount+1.5f),
-                    r1, g1, b1, r2, g2, b2, r4, g4, b4;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            for (int by = 0; by < h; by++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int y = flipY ? (h - by - 1) : by;
-                for (int x = 0; x < w; x++) {
-                    color = pixmap.getPixel(x, y);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[x] = 0;
-                    else {
-                        er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(x & 63) | (by & 63) << 6] + 0.5f) * blueStrength + ((((x+1) * 0xC13FA9A902A6328FL + (by+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorRed[x]);
-                        eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (by & 63) << 6] + 0.5f) * blueStrength + ((((x+3) * 0xC13FA9A902A6328FL + (by-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorGreen[x]);
-                        eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (by & 63) << 6] + 0.5f) * blueStrength + ((((x+2) * 0xC13FA9A902A6328FL + (by-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorBlue[x]);
-
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[x] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        rdiff = ((color>>>24)-    (used>>>24))     * partialDitherStrength;
-                        gdiff = ((color>>>16&255)-(used>>>16&255)) * partialDitherStrength;
-                        bdiff = ((color>>>8&255)- (used>>>8&255))  * partialDitherStrength;
-
-                        r1 = rdiff * 16f / (float)Math.sqrt(2048f + rdiff * rdiff);
-                        g1 = gdiff * 16f / (float)Math.sqrt(2048f + gdiff * gdiff);
-                        b1 = bdiff * 16f / (float)Math.sqrt(2048f + bdiff * bdiff);
-                        r2 = r1 + r1;
-                        g2 = g1 + g1;
-                        b2 = b1 + b1;
-                        r4 = r2 + r2;
-                        g4 = g2 + g2;
-                        b4 = b2 + b2;
-                        if(x < w - 1)
-                        {
-                            curErrorRed[x+1]   += r4;
-                            curErrorGreen[x+1] += g4;
-                            curErrorBlue[x+1]  += b4;
-                            if(x < w - 2)
-                            {
-
-                                curErrorRed[x+2]   += r2;
-                                curErrorGreen[x+2] += g2;
-                                curErrorBlue[x+2]  += b2;
-                            }
-                        }
-                        if(by+1 < h)
-                        {
-                            if(x > 0)
-                            {
-                                nextErrorRed[x-1]   += r2;
-                                nextErrorGreen[x-1] += g2;
-                                nextErrorBlue[x-1]  += b2;
-                                if(x > 1)
-                                {
-                                    nextErrorRed[x-2]   += r1;
-                                    nextErrorGreen[x-2] += g1;
-                                    nextErrorBlue[x-2]  += b1;
-                                }
-                            }
-                            nextErrorRed[x]   += r4;
-                            nextErrorGreen[x] += g4;
-                            nextErrorBlue[x]  += b4;
-                            if(x < w - 1)
-                            {
-                                nextErrorRed[x+1]   += r2;
-                                nextErrorGreen[x+1] += g2;
-                                nextErrorBlue[x+1]  += b2;
-                                if(x < w - 2)
-                                {
-
-                                    nextErrorRed[x+2]   += r1;
-                                    nextErrorGreen[x+2] += g1;
-                                    nextErrorBlue[x+2]  += b1;
-                                }
-                            }
-                        }
-                    }
-                }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeOverboardDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            final int flipDir = flipY ? -1 : 1;
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final float populationBias = palette.populationBias;
-            final float strength = ditherStrength * 1.5f * (populationBias * populationBias),
-                    noiseStrength = 4f / (populationBias * populationBias),
-                    limit = 110f;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            for (int by = 0, y = flipY ? h - 1 : 0; by < h; by++, y += flipDir) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                for (int x = 0; x < w; x++) {
-                    int color = pixmap.getPixel(x, y);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[x] = 0;
-                    else {
-                        float er = 0f, eg = 0f, eb = 0f;
-                        switch ((x << 1 & 2) | (y & 1)){
-                            case 0:
-                                er += ((x ^ y) % 9 - 4);
-                                er += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                eg += (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                                eg += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                eb += (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                                eb += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                                break;
-                            case 1:
-                                er += (PaletteReducer.TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                                er += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                eg += (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                                eg += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                                eb += ((x ^ y) % 11 - 5);
-                                eb += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                                break;
-                            case 2:
-                                er += (PaletteReducer.TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                                er += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                                eg += ((x ^ y) % 11 - 5);
-                                eg += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                                eb += ((x ^ y) % 9 - 4);
-                                eb += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                break;
-                            default: // case 3:
-                                er += ((x ^ y) % 11 - 5);
-                                er += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                                eg += ((x ^ y) % 9 - 4);
-                                eg += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                eb += (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                                eb += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                break;
-                        }
-                        er = er * noiseStrength + curErrorRed[x];
-                        eg = eg * noiseStrength + curErrorGreen[x];
-                        eb = eb * noiseStrength + curErrorBlue[x];
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + Math.min(Math.max(er, -limit), limit), 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + Math.min(Math.max(eg, -limit), limit), 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + Math.min(Math.max(eb, -limit), limit), 0), 1023)] & 255;
-                        byte paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                               | ((gg << 2) & 0x3E0)
-                                               | ((bb >>> 3))];
-                        curLine[x] = paletteIndex;
-                        int used = paletteArray[paletteIndex & 0xFF];
-                        float rdiff = ((color >>> 24) - (used >>> 24)) * strength;
-                        float gdiff = ((color >>> 16 & 255) - (used >>> 16 & 255)) * strength;
-                        float bdiff = ((color >>> 8 & 255) - (used >>> 8 & 255)) * strength;
-                        float r1 = rdiff * 16f / (45f + Math.abs(rdiff));
-                        float g1 = gdiff * 16f / (45f + Math.abs(gdiff));
-                        float b1 = bdiff * 16f / (45f + Math.abs(bdiff));
-                        float r2 = r1 + r1;
-                        float g2 = g1 + g1;
-                        float b2 = b1 + b1;
-                        float r4 = r2 + r2;
-                        float g4 = g2 + g2;
-                        float b4 = b2 + b2;
-                        if(x < w - 1)
-                        {
-                            curErrorRed[x+1]   += r4;
-                            curErrorGreen[x+1] += g4;
-                            curErrorBlue[x+1]  += b4;
-                            if(x < w - 2)
-                            {
-
-                                curErrorRed[x+2]   += r2;
-                                curErrorGreen[x+2] += g2;
-                                curErrorBlue[x+2]  += b2;
-                            }
-                        }
-                        if(by+1 < h)
-                        {
-                            if(x > 0)
-                            {
-                                nextErrorRed[x-1]   += r2;
-                                nextErrorGreen[x-1] += g2;
-                                nextErrorBlue[x-1]  += b2;
-                                if(x > 1)
-                                {
-                                    nextErrorRed[x-2]   += r1;
-                                    nextErrorGreen[x-2] += g1;
-                                    nextErrorBlue[x-2]  += b1;
-                                }
-                            }
-                            nextErrorRed[x]   += r4;
-                            nextErrorGreen[x] += g4;
-                            nextErrorBlue[x]  += b4;
-                            if(x < w - 1)
-                            {
-                                nextErrorRed[x+1]   += r2;
-                                nextErrorGreen[x+1] += g2;
-                                nextErrorBlue[x+1]  += b2;
-                                if(x < w - 2)
-                                {
-
-                                    nextErrorRed[x+2]   += r1;
-                                    nextErrorGreen[x+2] += g1;
-                                    nextErrorBlue[x+2]  += b1;
-                                }
-                            }
-                        }
-                    }
-                }
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeBurkesDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float r4, r2, r1, g4, g2, g1, b4, b2, b1;
-            final float populationBias = palette.populationBias;
-            final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
-                    strength = s * 0.58f / (0.3f + s);
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            byte paletteIndex;
-
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        float er = curErrorRed[px];
-                        float eg = curErrorGreen[px];
-                        float eb = curErrorBlue[px];
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        int rdiff = (color >>> 24) - (used >>> 24);
-                        int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                        int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                        r1 = rdiff * strength;
-                        g1 = gdiff * strength;
-                        b1 = bdiff * strength;
-                        r2 = r1 + r1;
-                        g2 = g1 + g1;
-                        b2 = b1 + b1;
-                        r4 = r2 + r2;
-                        g4 = g2 + g2;
-                        b4 = b2 + b2;
-                        if(px < w - 1)
-                        {
-                            curErrorRed[px+1]   += r4;
-                            curErrorGreen[px+1] += g4;
-                            curErrorBlue[px+1]  += b4;
-                            if(px < w - 2)
-                            {
-                                curErrorRed[px+2]   += r2;
-                                curErrorGreen[px+2] += g2;
-                                curErrorBlue[px+2]  += b2;
-                            }
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                nextErrorRed[px-1]   += r2;
-                                nextErrorGreen[px-1] += g2;
-                                nextErrorBlue[px-1]  += b2;
-                                if(px > 1)
-                                {
-                                    nextErrorRed[px-2]   += r1;
-                                    nextErrorGreen[px-2] += g1;
-                                    nextErrorBlue[px-2]  += b1;
-                                }
-                            }
-                            nextErrorRed[px]   += r4;
-                            nextErrorGreen[px] += g4;
-                            nextErrorBlue[px]  += b4;
-                            if(px < w - 1)
-                            {
-                                nextErrorRed[px+1]   += r2;
-                                nextErrorGreen[px+1] += g2;
-                                nextErrorBlue[px+1]  += b2;
-                                if(px < w - 2)
-                                {
-                                    nextErrorRed[px+2]   += r1;
-                                    nextErrorGreen[px+2] += g1;
-                                    nextErrorBlue[px+2]  += b1;
-                                }
-                            }
-                        }
-                    }
-                }
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeOceanicDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        final float[] noise = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float r4, r2, r1, g4, g2, g1, b4, b2, b1;
-            final float populationBias = palette.populationBias;
-            final float s = 0.175f * ditherStrength / (populationBias * populationBias * populationBias),
-                    strength = s * 0.59f / (0.4f + s);
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            byte paletteIndex;
-
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        float er = curErrorRed[px];
-                        float eg = curErrorGreen[px];
-                        float eb = curErrorBlue[px];
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        int rdiff = (color >>> 24) - (used >>> 24);
-                        int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                        int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                        r1 = rdiff * strength;
-                        g1 = gdiff * strength;
-                        b1 = bdiff * strength;
-                        r2 = r1 + r1;
-                        g2 = g1 + g1;
-                        b2 = b1 + b1;
-                        r4 = r2 + r2;
-                        g4 = g2 + g2;
-                        b4 = b2 + b2;
-                        float modifier;
-                        if(px < w - 1)
-                        {
-                            modifier = noise[(px + 1 & 63) | ((py << 6) & 0xFC0)];
-                            curErrorRed[px+1]   += r4 * modifier;
-                            curErrorGreen[px+1] += g4 * modifier;
-                            curErrorBlue[px+1]  += b4 * modifier;
-                            if(px < w - 2)
-                            {
-                                modifier = noise[(px + 2 & 63) | ((py << 6) & 0xFC0)];
-                                curErrorRed[px+2]   += r2 * modifier;
-                                curErrorGreen[px+2] += g2 * modifier;
-                                curErrorBlue[px+2]  += b2 * modifier;
-                            }
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                modifier = noise[(px - 1 & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px-1]   += r2 * modifier;
-                                nextErrorGreen[px-1] += g2 * modifier;
-                                nextErrorBlue[px-1]  += b2 * modifier;
-                                if(px > 1)
-                                {
-                                    modifier = noise[(px - 2 & 63) | ((ny << 6) & 0xFC0)];
-                                    nextErrorRed[px-2]   += r1 * modifier;
-                                    nextErrorGreen[px-2] += g1 * modifier;
-                                    nextErrorBlue[px-2]  += b1 * modifier;
-                                }
-                            }
-                            modifier = noise[(px & 63) | ((ny << 6) & 0xFC0)];
-                            nextErrorRed[px]   += r4 * modifier;
-                            nextErrorGreen[px] += g4 * modifier;
-                            nextErrorBlue[px]  += b4 * modifier;
-                            if(px < w - 1)
-                            {
-                                modifier = noise[(px + 1 & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px+1]   += r2 * modifier;
-                                nextErrorGreen[px+1] += g2 * modifier;
-                                nextErrorBlue[px+1]  += b2 * modifier;
-                                if(px < w - 2)
-                                {
-                                    modifier = noise[(px + 2 & 63) | ((ny << 6) & 0xFC0)];
-                                    nextErrorRed[px+2]   += r1 * modifier;
-                                    nextErrorGreen[px+2] += g1 * modifier;
-                                    nextErrorBlue[px+2]  += b1 * modifier;
-                                }
-                            }
-                        }
-                    }
-                }
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeSeasideDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        final float[] noiseA = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
-        final float[] noiseB = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS_B;
-        final float[] noiseC = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS_C;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            final float populationBias = palette.populationBias;
-            final float s = 0.15f * populationBias * ditherStrength,
-                    strength = s * 0.6f / (0.35f + s);
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            int color, used;
-            byte paletteIndex;
-
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            for (int y = 0; y < h; y++) {
-                System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-
-                int py = flipY ? (h - y - 1) : y,
-                        ny = y + 1;
-                for (int px = 0; px < w; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        float er = curErrorRed[px];
-                        float eg = curErrorGreen[px];
-                        float eb = curErrorBlue[px];
-                        int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                        int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                        int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                        curLine[px] = paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
-                        int rdiff = (color >>> 24) - (used >>> 24);
-                        int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                        int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                        int modifier = ((px & 63) | (py << 6 & 0xFC0));
-                        final float r1 = rdiff * strength * noiseA[modifier];
-                        final float g1 = gdiff * strength * noiseB[modifier];
-                        final float b1 = bdiff * strength * noiseC[modifier];
-                        final float r2 = r1 + r1;
-                        final float g2 = g1 + g1;
-                        final float b2 = b1 + b1;
-                        final float r4 = r2 + r2;
-                        final float g4 = g2 + g2;
-                        final float b4 = b2 + b2;
-
-                        if(px < w - 1)
-                        {
-                            modifier = ((px + 1 & 63) | (py << 6 & 0xFC0));
-                            curErrorRed[px+1]   += r4 * noiseA[modifier];
-                            curErrorGreen[px+1] += g4 * noiseB[modifier];
-                            curErrorBlue[px+1]  += b4 * noiseC[modifier];
-                            if(px < w - 2)
-                            {
-                                modifier = ((px + 2 & 63) | ((py << 6) & 0xFC0));
-                                curErrorRed[px+2]   += r2 * noiseA[modifier];
-                                curErrorGreen[px+2] += g2 * noiseB[modifier];
-                                curErrorBlue[px+2]  += b2 * noiseC[modifier];
-                            }
-                        }
-                        if(ny < h)
-                        {
-                            if(px > 0)
-                            {
-                                modifier = (px - 1 & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px-1]   += r2 * noiseA[modifier];
-                                nextErrorGreen[px-1] += g2 * noiseB[modifier];
-                                nextErrorBlue[px-1]  += b2 * noiseC[modifier];
-                                if(px > 1)
-                                {
-                                    modifier = (px - 2 & 63) | ((ny << 6) & 0xFC0);
-                                    nextErrorRed[px-2]   += r1 * noiseA[modifier];
-                                    nextErrorGreen[px-2] += g1 * noiseB[modifier];
-                                    nextErrorBlue[px-2]  += b1 * noiseC[modifier];
-                                }
-                            }
-                            modifier = (px & 63) | ((ny << 6) & 0xFC0);
-                            nextErrorRed[px]   += r4 * noiseA[modifier];
-                            nextErrorGreen[px] += g4 * noiseB[modifier];
-                            nextErrorBlue[px]  += b4 * noiseC[modifier];
-                            if(px < w - 1)
-                            {
-                                modifier = (px + 1 & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px+1]   += r2 * noiseA[modifier];
-                                nextErrorGreen[px+1] += g2 * noiseB[modifier];
-                                nextErrorBlue[px+1]  += b2 * noiseC[modifier];
-                                if(px < w - 2)
-                                {
-                                    modifier = (px + 2 & 63) | ((ny << 6) & 0xFC0);
-                                    nextErrorRed[px+2]   += r1 * noiseA[modifier];
-                                    nextErrorGreen[px+2] += g1 * noiseB[modifier];
-                                    nextErrorBlue[px+2]  += b1 * noiseC[modifier];
-                                }
-                            }
-                        }
-                    }
-                }
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeMartenDithered(OutputStream output, Pixmap pixmap) {
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(pixmap.getWidth());
-            buffer.writeInt(pixmap.getHeight());
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p>>>24);
-                buffer.write(p>>>16);
-                buffer.write(p>>>8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if(paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(IDAT);
-            deflater.reset();
-
-            final int w = pixmap.getWidth(), h = pixmap.getHeight();
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            if (curLineBytes == null) {
-                curLine = (curLineBytes = new ByteArray(w)).items;
-            } else {
-                curLine = curLineBytes.ensureCapacity(w);
-            }
-
-            final float populationBias = palette.populationBias;
-            final float str = Math.min(1100f * (ditherStrength / (float) Math.sqrt(palette.colorCount) * (1f / (populationBias * populationBias * populationBias) - 0.7f)), 127f);
-            for (int y = 0; y < h; y++) {
-                int py = flipY ? (h - y - 1) : y;
-                for (int px = 0; px < w; px++) {
-                    int color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        // We get a sub-random value from 0-1 using interleaved gradient noise.
-                        // Offsetting this value by different values and feeding into triangleWave()
-                        // gives 3 different values for r, g, and b, without much bias toward high or low values.
-                        // There is correlation between r, g, and b in certain patterns.
-                        final float theta = ((px * 142 + y * 79 & 255) * 0x1p-8f);
-                        int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
-                        int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.382f) * str)] & 255;
-                        int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.618f) * str)] & 255;
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-
-                    }
-                }
-
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, w);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    /**
-     * Writes the given Pixmaps to the requested FileHandle at 30 frames per second.
-     * If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
-     * compute a palette from all the frames given. Otherwise, this uses the colors already in {@link #palette}.
-     * Uses {@link #getDitherAlgorithm()} to determine how to dither.
-     *
-     * @param file   a FileHandle that must be writable, and will have the given Pixmap written as a PNG-8 image
-     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
-     */
-    @Override
-    public void write(FileHandle file, Array<Pixmap> frames) {
-        write(file, frames, 30, true);
-    }
-
-    /**
-     * Writes the given Pixmaps to the requested FileHandle at the requested frames per second.
-     * If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
-     * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
-     * Uses {@link #getDitherAlgorithm()} to determine how to dither.
-     *
-     * @param file   a FileHandle that must be writable, and will have the given Pixmap written as a PNG-8 image
-     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
-     * @param fps    how many frames per second the animation should run at
-     */
-    @Override
-    public void write(FileHandle file, Array<Pixmap> frames, int fps) {
-        write(file, frames, fps, true);
-    }
-
-    /**
-     * Writes the Pixmaps to the stream without closing the stream, optionally computing an 8-bit palette from the given
-     * Pixmap. If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
-     * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
-     * Optionally dithers the result if {@code dither} is true, using the dither algorithm selected with
-     * {@link #setDitherAlgorithm(DitherAlgorithm)} (or {@link DitherAlgorithm#PATTERN} if not set).
-     *
-     * @param file   a FileHandle that must be writable, and will have the given Pixmap written as a PNG-8 image
-     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
-     * @param fps    how many frames per second the animation should run at
-     * @param dither true if this should use {@link #getDitherAlgorithm()} to dither; false to not dither
-     */
-    public void write(FileHandle file, Array<Pixmap> frames, int fps, boolean dither) {
-        OutputStream output = file.write(false);
-        try {
-            write(output, frames, fps, dither);
-        } finally {
-            StreamUtils.closeQuietly(output);
-        }
-    }
-
-    /**
-     * Writes the Pixmaps to the stream without closing the stream, optionally computing an 8-bit palette from the given
-     * Pixmaps. If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
-     * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
-     * Optionally dithers the result if {@code dither} is true, using the dither algorithm selected with
-     * {@link #setDitherAlgorithm(DitherAlgorithm)} (or {@link DitherAlgorithm#PATTERN} if not set). This does not
-     * consider the ditherStrength set in the palette, if non-null, but does use the {@link #getDitherStrength()} here.
-     *
-     * @param output an OutputStream that will not be closed
-     * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
-     * @param fps    how many frames per second the animation should run at
-     * @param dither true if this should use {@link #getDitherAlgorithm()} to dither; false to not dither
-     */
-    public void write(OutputStream output, Array<Pixmap> frames, int fps, boolean dither) {
-        boolean clearPalette;
-        if(clearPalette = (palette == null))
-            palette = new PaletteReducer(frames);
-        palette.setDitherStrength(ditherStrength);
-        if (dither)
-            write(output, frames, fps);
-        else
-            writeSolid(output, frames, fps);
-        if(clearPalette) palette = null;
-    }
-
-    public void writeSolid(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-        dataOutput.write(SIGNATURE);
-
-        final int width = pixmap.getWidth();
-        final int height = pixmap.getHeight();
-
-        buffer.writeInt(IHDR);
-        buffer.writeInt(width);
-        buffer.writeInt(height);
-        buffer.writeByte(8); // 8 bits per component.
-        buffer.writeByte(COLOR_INDEXED);
-        buffer.writeByte(COMPRESSION_DEFLATE);
-        buffer.writeByte(FILTER_NONE);
-        buffer.writeByte(INTERLACE_NONE);
-        buffer.endChunk(dataOutput);
-
-        buffer.writeInt(PLTE);
-        for (int i = 0; i < paletteArray.length; i++) {
-            int p = paletteArray[i];
-            buffer.write(p >>> 24);
-            buffer.write(p >>> 16);
-            buffer.write(p >>> 8);
-        }
-        buffer.endChunk(dataOutput);
-
-        boolean hasTransparent = false;
-        if (paletteArray[0] == 0) {
-            hasTransparent = true;
-            buffer.writeInt(TRNS);
-            buffer.write(0);
-            buffer.endChunk(dataOutput);
-        }
-        buffer.writeInt(acTL);
-        buffer.writeInt(frames.size);
-        buffer.writeInt(0);
-        buffer.endChunk(dataOutput);
-
-//        byte[] lineOut, curLine, prevLine;
-        byte[] curLine;
-            int color;
-        int seq = 0;
-        for (int i = 0; i < frames.size; i++) {
-
-            buffer.writeInt(fcTL);
-            buffer.writeInt(seq++);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeInt(0);
-            buffer.writeInt(0);
-            buffer.writeShort(1);
-            buffer.writeShort(fps);
-            buffer.writeByte(0);
-            buffer.writeByte(0);
-            buffer.endChunk(dataOutput);
-
-            if (i == 0) {
-                buffer.writeInt(IDAT);
-            } else {
-                pixmap = frames.get(i);
-                buffer.writeInt(fdAT);
-                buffer.writeInt(seq++);
-            }
-            deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-
-            for (int y = 0; y < height; y++) {
-                int py = flipY ? (height - y - 1) : y;
-                for (int px = 0; px < width; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                        curLine[px] = 0;
-                    else {
-                        int rr = ((color >>> 24));
-                        int gg = ((color >>> 16) & 0xFF);
-                        int bb = ((color >>> 8) & 0xFF);
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-                    }
-                }
-
-//                lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                //Paeth
-//                for (int x = 1; x < width; x++) {
-//                    int a = curLine[x - 1] & 0xff;
-//                    int b = prevLine[x] & 0xff;
-//                    int c = prevLine[x - 1] & 0xff;
-//                    int p = a + b - c;
-//                    int pa = p - a;
-//                    if (pa < 0) pa = -pa;
-//                    int pb = p - b;
-//                    if (pb < 0) pb = -pb;
-//                    int pc = p - c;
-//                    if (pc < 0) pc = -pc;
-//                    if (pa <= pb && pa <= pc)
-//                        c = a;
-//                    else if (pb <= pc)
-//                        c = b;
-//                    lineOut[x] = (byte) (curLine[x] - c);
-//                }
-//
-//                deflaterOutput.write(FILTER_PAETH);
-//                deflaterOutput.write(lineOut, 0, width);
-
-                deflaterOutput.write(FILTER_NONE);
-                deflaterOutput.write(curLine, 0, width);
-            }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-        }
-
-        buffer.writeInt(IEND);
-        buffer.endChunk(dataOutput);
-
-        output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    @Override
-    public void write(OutputStream output, Array<Pixmap> frames, int fps) {
-        if(ditherAlgorithm == null) {
-            writeSolid(output, frames, fps);
-            return;
-        }
-        switch (ditherAlgorithm){
-            case NONE:
-                writeSolid(output, frames, fps);
-                break;
-            case GRADIENT_NOISE:
-                writeGradientDithered(output, frames, fps);
-                break;
-            case ADDITIVE:
-                writeAdditiveDithered(output, frames, fps);
-                break;
-            case ROBERTS:
-                writeRobertsDithered(output, frames, fps);
-                break;
-            case PATTERN:
-                writePatternDithered(output, frames, fps);
-                break;
-            case CHAOTIC_NOISE:
-                writeChaoticNoiseDithered(output, frames, fps);
-                break;
-            case DIFFUSION:
-                writeDiffusionDithered(output, frames, fps);
-                break;
-            case SCATTER:
-                writeScatterDithered(output, frames, fps);
-                break;
-            case BLUE_NOISE:
-                writeBlueNoiseDithered(output, frames, fps);
-                break;
-            case BLUNT:
-                writeBluntDithered(output, frames, fps);
-                break;
-            case BANTER:
-                writeBanterDithered(output, frames, fps);
-                break;
-            case WOVEN:
-                writeWovenDithered(output, frames, fps);
-                break;
-            case DODGY:
-                writeDodgyDithered(output, frames, fps);
-                break;
-            case LOAF:
-                writeLoafDithered(output, frames, fps);
-                break;
-            case NEUE:
-                writeNeueDithered(output, frames, fps);
-                break;
-            case BURKES:
-                writeBurkesDithered(output, frames, fps);
-                break;
-            case OCEANIC:
-                writeOceanicDithered(output, frames, fps);
-                break;
-            case SEASIDE:
-                writeSeasideDithered(output, frames, fps);
-                break;
-            case GOURD:
-                writeGourdDithered(output, frames, fps);
-                break;
-            case OVERBOARD:
-                writeOverboardDithered(output, frames, fps);
-                break;
-            case MARTEN:
-                writeMartenDithered(output, frames, fps);
-                break;
-            case WREN:
-            default:
-                writeWrenDithered(output, frames, fps);
-                break;
-        }
-    }
-
-    public void writeGradientDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            int color;
-
-            final float populationBias = palette.populationBias;
-            final float strength = 0.9f * (float) Math.tanh(0.16f * ditherStrength * Math.pow(populationBias, -7.00));
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + ((142 * (px + 0x5F) + 79 * (y - 0x96) & 255) - 127.5f) * strength)] & 255;
-                            int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((142 * (px + 0xFA) + 79 * (y - 0xA3) & 255) - 127.5f) * strength)] & 255;
-                            int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((142 * (px + 0xA5) + 79 * (y - 0xC9) & 255) - 127.5f) * strength)] & 255;
-                            curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeAdditiveDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-            int color;
-
-            final float populationBias = palette.populationBias;
-            final float s = 0.08f * ditherStrength / (float) Math.pow(populationBias, 8f),
-                    strength = s / (0.35f + s);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(width)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(width);
-                }
-
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + ((119 * px + 180 * y + 54 & 255) - 127.5f) * strength)] & 255;
-                            int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((119 * px + 180 * y + 81 & 255) - 127.5f) * strength)] & 255;
-                            int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((119 * px + 180 * y      & 255) - 127.5f) * strength)] & 255;
-                            curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeRobertsDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            int color;
-
-            final float populationBias = palette.populationBias;
-            final float str = Math.min(48 * ditherStrength / (populationBias * populationBias * populationBias * populationBias), 127);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            // We get a sub-random value from 0-1 using the R2 sequence.
-                            // Offsetting this value by different values and feeding into triangleWave()
-                            // gives 3 different values for r, g, and b, without much bias toward high or low values.
-                            // There is correlation between r, g, and b in certain patterns.
-                            final float theta = ((px * 0xC13FA9A9 + y * 0x91E10DA5 >>> 9) * 0x1p-23f);
-                            int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
-                            int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.209f) * str)] & 255;
-                            int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.518f) * str)] & 255;
-                            curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeLoafDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-            int color;
-
-            final float strength = Math.min(Math.max(2.5f + 5f * ditherStrength - 5.5f * palette.populationBias, 0f), 7.9f);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            int adj = (int)((((px + y & 1) << 5) - 16) * strength); // either + 16 * strength or - 16 * strength
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + adj, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + adj, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + adj, 0), 1023)] & 255;
-                            int rgb555 = ((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3));
-                            curLine[px] = paletteMapping[rgb555];
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeGourdDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-            int color;
-
-            final float strength = (float)(ditherStrength * 0.7 * Math.pow(palette.populationBias, -5.50));
-            for (int i = 0; i < 64; i++) {
-                PaletteReducer.tempThresholdMatrix[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
-            }
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(width)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(width);
-                }
-
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            float adj = PaletteReducer.tempThresholdMatrix[(px & 7) | (y & 7) << 3];
-                            int rr = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                            int gg = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                            int bb = PaletteReducer.fromLinearLUT[(int)(PaletteReducer.toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-                            curLine[px] = paletteMapping[((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3))];
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeBlueNoiseDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-
-            final float strength = 0.21875f * ditherStrength / (palette.populationBias * palette.populationBias);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-                for (int oy = 0; oy < height; oy++) {
-                    int y = flipY ? (height - oy - 1) : oy;
-                    for (int x = 0; x < width; x++) {
-                        int color = pixmap.getPixel(x, y);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[x] = 0;
-                        else {
-                            float adj = Math.min(Math.max(((TRI_BLUE_NOISE  [(x & 63) | (y & 63) << 6] + ((x + y & 1) << 8) - 127.5f) * strength), -100.5f), 101.5f);
-                            int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
-                            int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                            int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
-
-                            curLine[x] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeBluntDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            final float populationBias = palette.populationBias;
-            final float strength = Math.min(Math.max(0.35f * ditherStrength / (populationBias * populationBias * populationBias), -0.6f), 0.6f);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-                for (int oy = 0; oy < height; oy++) {
-                    int y = flipY ? (height - oy - 1) : oy;
-                    for (int x = 0; x < width; x++) {
-                        int color = pixmap.getPixel(x, y);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[x] = 0;
-                        else {
-                            float adj = (x+y<<7&128)-63.5f;
-                            int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + (TRI_BLUE_NOISE  [(x + 62 & 63) << 6 | (y + 66  & 63)] + adj) * strength)] & 255;
-                            int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + (TRI_BLUE_NOISE_B[(x + 31 & 63) << 6 | (y + 113 & 63)] + adj) * strength)] & 255;
-                            int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + (TRI_BLUE_NOISE_C[(x + 71 & 63) << 6 | (y + 41  & 63)] + adj) * strength)] & 255;
-
-                            curLine[x] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeBanterDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            float strength = Math.min(Math.max(0.17f * ditherStrength * (float) Math.pow(palette.populationBias, -10f), -0.95f), 0.95f);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(width)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(width);
-                }
-                for (int oy = 0; oy < height; oy++) {
-                    int y = flipY ? (height - oy - 1) : oy;
-                    for (int x = 0; x < width; x++) {
-                        int color = pixmap.getPixel(x, y);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[x] = 0;
-                        else {
-                            float adj = TRI_BAYER_MATRIX_128[(x & TBM_MASK) << TBM_BITS | (y & TBM_MASK)] * strength;
-                            int rr = fromLinearLUT[(int) (toLinearLUT[(color >>> 24)] + adj)] & 255;
-                            int gg = fromLinearLUT[(int) (toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
-                            int bb = fromLinearLUT[(int) (toLinearLUT[(color >>> 8) & 0xFF] + adj)] & 255;
-
-                            curLine[x] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeChaoticNoiseDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-            int color, used;
-
-            byte paletteIndex;
-            double adj, strength = ditherStrength * palette.populationBias * 1.5;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-                long s = 0xC13FA9A902A6328FL * seq;
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            int rr = ((color >>> 24)       );
-                            int gg = ((color >>> 16) & 0xFF);
-                            int bb = ((color >>> 8)  & 0xFF);
-                            paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            adj = ((PaletteReducer.TRI_BLUE_NOISE[(px & 63) | (y & 63) << 6] + 0.5f) * 0.007843138f);
-                            adj *= adj * adj;
-                            // Complicated... This starts with a checkerboard of -0.5 and 0.5, times a tiny fraction.
-                            // The next 3 lines generate 3 low-quality-random numbers based on s, which should be
-                            //   different as long as the colors encountered so far were different. The numbers can
-                            //   each be positive or negative, and are reduced to a manageable size, summed, and
-                            //   multiplied by the earlier tiny fraction. Summing 3 random values gives us a curved
-                            //   distribution, centered on about 0.0 and weighted so most results are close to 0.
-                            //   Two of the random numbers use an XLCG, and the last uses an LCG.
-                            adj += ((px + y & 1) - 0.5f) * 0x1.8p-49 * strength *
-                                    (((s ^ 0x9E3779B97F4A7C15L) * 0xC6BC279692B5CC83L >> 15) +
-                                            ((~s ^ 0xDB4F0B9175AE2165L) * 0xD1B54A32D192ED03L >> 15) +
-                                            ((s = (s ^ rr + gg + bb) * 0xD1342543DE82EF95L + 0x91E10DA5C79E7B1DL) >> 15));
-                            rr = Math.min(Math.max((int) (rr + (adj * (rr - (used >>> 24       )))), 0), 0xFF);
-                            gg = Math.min(Math.max((int) (gg + (adj * (gg - (used >>> 16 & 0xFF)))), 0), 0xFF);
-                            bb = Math.min(Math.max((int) (bb + (adj * (bb - (used >>> 8  & 0xFF)))), 0), 0xFF);
-                            curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeDiffusionDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            byte paletteIndex;
-            float w1 = ditherStrength * 32 / palette.populationBias, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int y = 0; y < h; y++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int py = flipY ? (h - y - 1) : y,
-                            ny = y + 1;
-                    for (int px = 0; px < w; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
-                            curLine[px] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            rdiff = Math.min(Math.max(0x1p-8f * ((color>>>24)-    (used>>>24))    , -1), 1);
-                            gdiff = Math.min(Math.max(0x1p-8f * ((color>>>16&255)-(used>>>16&255)), -1), 1);
-                            bdiff = Math.min(Math.max(0x1p-8f * ((color>>>8&255)- (used>>>8&255)) , -1), 1);
-                            // this alternate code used a sigmoid function to smoothly limit error.
-//                    rdiff = (0x1.8p-8f * ((color>>>24)-    (used>>>24))    );
-//                    gdiff = (0x1.8p-8f * ((color>>>16&255)-(used>>>16&255)));
-//                    bdiff = (0x1.8p-8f * ((color>>>8&255)- (used>>>8&255)) );
-//                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-//                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-//                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-                            if(px < w - 1)
-                            {
-                                curErrorRed[px+1]   += rdiff * w7;
-                                curErrorGreen[px+1] += gdiff * w7;
-                                curErrorBlue[px+1]  += bdiff * w7;
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    nextErrorRed[px-1]   += rdiff * w3;
-                                    nextErrorGreen[px-1] += gdiff * w3;
-                                    nextErrorBlue[px-1]  += bdiff * w3;
-                                }
-                                if(px < w - 1)
-                                {
-                                    nextErrorRed[px+1]   += rdiff * w1;
-                                    nextErrorGreen[px+1] += gdiff * w1;
-                                    nextErrorBlue[px+1]  += bdiff * w1;
-                                }
-                                nextErrorRed[px]   += rdiff * w5;
-                                nextErrorGreen[px] += gdiff * w5;
-                                nextErrorBlue[px]  += bdiff * w5;
-                            }
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writePatternDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-
-            int color, used;
-            int cr, cg, cb,  usedIndex;
-            final float errorMul = ditherStrength * 0.5f / palette.populationBias;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(width)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(width);
-        }
-
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            int er = 0, eg = 0, eb = 0;
-                            cr = (color >>> 24);
-                            cg = (color >>> 16 & 0xFF);
-                            cb = (color >>> 8 & 0xFF);
-                            for (int c = 0; c < 16; c++) {
-                                int rr = Math.min(Math.max((int) (cr + er * errorMul), 0), 255);
-                                int gg = Math.min(Math.max((int) (cg + eg * errorMul), 0), 255);
-                                int bb = Math.min(Math.max((int) (cb + eb * errorMul), 0), 255);
-                                usedIndex = paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))] & 0xFF;
-                                palette.candidates[c | 16] = shrink(used = paletteArray[palette.candidates[c] = usedIndex]);
-                                er += cr - (used >>> 24);
-                                eg += cg - (used >>> 16 & 0xFF);
-                                eb += cb - (used >>> 8 & 0xFF);
-                            }
-                            PaletteReducer.sort16(palette.candidates);
-                            curLine[px] = (byte)palette.candidates[PaletteReducer.thresholdMatrix16[((px & 3) | (y & 3) << 2)]];
-                        }
-                    }
-
-//            lineOut[0] = (byte)(curLine[0] - prevLine[0]);
-//
-//            //Paeth
-//            for (int x = 1; x < lineLen; x++) {
-//                int a = curLine[x - 1] & 0xff;
-//                int b = prevLine[x] & 0xff;
-//                int c = prevLine[x - 1] & 0xff;
-//                int p = a + b - c;
-//                int pa = p - a;
-//                if (pa < 0) pa = -pa;
-//                int pb = p - b;
-//                if (pb < 0) pb = -pb;
-//                int pc = p - c;
-//                if (pc < 0) pc = -pc;
-//                if (pa <= pb && pa <= pc)
-//                    c = a;
-//                else if (pb <= pc)
-//                    c = b;
-//                lineOut[x] = (byte)(curLine[x] - c);
-//            }
-//
-//            deflaterOutput.write(FILTER_PAETH);
-//            deflaterOutput.write(lineOut, 0, lineLen);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeScatterDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float w1 = Math.min(ditherStrength * 5.5f / (palette.populationBias * palette.populationBias), 16f),
-                    w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int y = 0; y < h; y++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int py = flipY ? (h - y - 1) : y,
-                            ny = y + 1;
-                    for (int px = 0; px < w; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            float tbn = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS[(px & 63) | ((y << 6) & 0xFC0)];
-                            er = curErrorRed[px] * tbn;
-                            eg = curErrorGreen[px] * tbn;
-                            eb = curErrorBlue[px] * tbn;
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            curLine[px] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            rdiff = (0x2.1p-8f * ((color>>>24)-    (used>>>24))    );
-                            gdiff = (0x2.1p-8f * ((color>>>16&255)-(used>>>16&255)));
-                            bdiff = (0x2.1p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                            rdiff /= (0.125f + Math.abs(rdiff));
-                            gdiff /= (0.125f + Math.abs(gdiff));
-                            bdiff /= (0.125f + Math.abs(bdiff));
-                            if(px < w - 1)
-                            {
-                                curErrorRed[px+1]   += rdiff * w7;
-                                curErrorGreen[px+1] += gdiff * w7;
-                                curErrorBlue[px+1]  += bdiff * w7;
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    nextErrorRed[px-1]   += rdiff * w3;
-                                    nextErrorGreen[px-1] += gdiff * w3;
-                                    nextErrorBlue[px-1]  += bdiff * w3;
-                                }
-                                if(px < w - 1)
-                                {
-                                    nextErrorRed[px+1]   += rdiff * w1;
-                                    nextErrorGreen[px+1] += gdiff * w1;
-                                    nextErrorBlue[px+1]  += bdiff * w1;
-                                }
-                                nextErrorRed[px]   += rdiff * w5;
-                                nextErrorGreen[px] += gdiff * w5;
-                                nextErrorBlue[px]  += bdiff * w5;
-                            }
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeNeueDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb, adj;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            final float w1 = ditherStrength * 8f, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = (70f * ditherStrength / (populationBias * populationBias * populationBias)),
-                    limit = Math.min(127, (float) Math.pow(80, 1.635 - populationBias));
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int y = 0; y < h; y++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int py = flipY ? (h - y - 1) : y,
-                            ny = y + 1;
-                    for (int px = 0; px < w; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            adj = ((PaletteReducer.TRI_BLUE_NOISE[(px & 63) | (py & 63) << 6] + 0.5f) * 0.005f); // plus or minus 255/400
-                            adj = Math.min(Math.max(adj * strength, -limit), limit);
-                            er = adj + (curErrorRed[px]);
-                            eg = adj + (curErrorGreen[px]);
-                            eb = adj + (curErrorBlue[px]);
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            curLine[px] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            rdiff = (0x2.Ep-8f * ((color>>>24)-    (used>>>24))    );
-                            gdiff = (0x2.Ep-8f * ((color>>>16&255)-(used>>>16&255)));
-                            bdiff = (0x2.Ep-8f * ((color>>>8&255)- (used>>>8&255)) );
-                            rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-                            gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-                            bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-
-                            if(px < w - 1)
-                            {
-                                curErrorRed[px+1]   += rdiff * w7;
-                                curErrorGreen[px+1] += gdiff * w7;
-                                curErrorBlue[px+1]  += bdiff * w7;
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    nextErrorRed[px-1]   += rdiff * w3;
-                                    nextErrorGreen[px-1] += gdiff * w3;
-                                    nextErrorBlue[px-1]  += bdiff * w3;
-                                }
-                                if(px < w - 1)
-                                {
-                                    nextErrorRed[px+1]   += rdiff * w1;
-                                    nextErrorGreen[px+1] += gdiff * w1;
-                                    nextErrorBlue[px+1]  += bdiff * w1;
-                                }
-                                nextErrorRed[px]   += rdiff * w5;
-                                nextErrorGreen[px] += gdiff * w5;
-                                nextErrorBlue[px]  += bdiff * w5;
-                            }
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeDodgyDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            float populationBias = palette.populationBias;
-            final float w1 = 8f * ditherStrength,
-                    w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = 0.35f * ditherStrength / (populationBias * populationBias * populationBias),
-                    limit = 90f;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int y = 0; y < h; y++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int py = flipY ? (h - y - 1) : y,
-                            ny = y + 1;
-                    for (int px = 0; px < w; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            er = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorRed[px]);
-                            eg = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorGreen[px]);
-                            eb = Math.min(Math.max(((PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorBlue[px]);
-
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            curLine[px] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-
-                            rdiff = (0x5p-8f * ((color>>>24)-    (used>>>24))    );
-                            gdiff = (0x5p-8f * ((color>>>16&255)-(used>>>16&255)));
-                            bdiff = (0x5p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                            rdiff /= (0.5f + Math.abs(rdiff));
-                            gdiff /= (0.5f + Math.abs(gdiff));
-                            bdiff /= (0.5f + Math.abs(bdiff));
-
-                            if(px < w - 1)
-                            {
-                                curErrorRed[px+1]   += rdiff * w7;
-                                curErrorGreen[px+1] += gdiff * w7;
-                                curErrorBlue[px+1]  += bdiff * w7;
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    nextErrorRed[px-1]   += rdiff * w3;
-                                    nextErrorGreen[px-1] += gdiff * w3;
-                                    nextErrorBlue[px-1]  += bdiff * w3;
-                                }
-                                if(px < w - 1)
-                                {
-                                    nextErrorRed[px+1]   += rdiff * w1;
-                                    nextErrorGreen[px+1] += gdiff * w1;
-                                    nextErrorBlue[px+1]  += bdiff * w1;
-                                }
-                                nextErrorRed[px]   += rdiff * w5;
-                                nextErrorGreen[px] += gdiff * w5;
-                                nextErrorBlue[px]  += bdiff * w5;
-                            }
-                        }
-                    }
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeWovenDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            final float w1 = (float) (10f * Math.sqrt(ditherStrength) / (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = 100f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
-                    limit = 5f + 250f / (float)Math.sqrt(palette.colorCount+1.5f);
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int y = 0; y < h; y++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int py = flipY ? (h - y - 1) : y,
-                            ny = y + 1;
-                    for (int px = 0; px < w; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
-                            eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
-                            eb = Math.min(Math.max(((((px+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
-
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            curLine[px] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
-                            gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
-                            bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
-                            if(px < w - 1)
-                            {
-                                curErrorRed[px+1]   += rdiff * w7;
-                                curErrorGreen[px+1] += gdiff * w7;
-                                curErrorBlue[px+1]  += bdiff * w7;
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    nextErrorRed[px-1]   += rdiff * w3;
-                                    nextErrorGreen[px-1] += gdiff * w3;
-                                    nextErrorBlue[px-1]  += bdiff * w3;
-                                }
-                                if(px < w - 1)
-                                {
-                                    nextErrorRed[px+1]   += rdiff * w1;
-                                    nextErrorGreen[px+1] += gdiff * w1;
-                                    nextErrorBlue[px+1]  += bdiff * w1;
-                                }
-                                nextErrorRed[px]   += rdiff * w5;
-                                nextErrorGreen[px] += gdiff * w5;
-                                nextErrorBlue[px]  += bdiff * w5;
-                            }
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < w; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, w);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-
-    public void writeWrenOriginalDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            final float w1 = (float) (32.0 * ditherStrength * (populationBias * populationBias)), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f,
-                    strength = (0.2f * ditherStrength / (populationBias * populationBias * populationBias * populationBias)),
-                    limit = 5f + 125f / (float)Math.sqrt(palette.colorCount+1.5),
-                    dmul = 0x1p-8f;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int y = 0; y < h; y++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int py = flipY ? (h - y - 1) : y,
-                            ny = y + 1;
-                    for (int px = 0; px < w; px++) {
-                        color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+1) * 0xC13FA9A902A6328FL + (y +1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorRed[px]), -limit), limit);
-                            eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+3) * 0xC13FA9A902A6328FL + (y -1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorGreen[px]), -limit), limit);
-                            eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+2) * 0xC13FA9A902A6328FL + (y -4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-15f - 0x1p+7f)) * strength) + (curErrorBlue[px]), -limit), limit);
-
-                            int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
-                            int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
-                            int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
-                            curLine[px] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            rdiff = (dmul * ((color>>>24)-    (used>>>24))    );
-                            gdiff = (dmul * ((color>>>16&255)-(used>>>16&255)));
-                            bdiff = (dmul * ((color>>>8&255)- (used>>>8&255)) );
-                            if(px < w - 1)
-                            {
-                                curErrorRed[px+1]   += rdiff * w7;
-                                curErrorGreen[px+1] += gdiff * w7;
-                                curErrorBlue[px+1]  += bdiff * w7;
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    nextErrorRed[px-1]   += rdiff * w3;
-                                    nextErrorGreen[px-1] += gdiff * w3;
-                                    nextErrorBlue[px-1]  += bdiff * w3;
-                                }
-                                if(px < w - 1)
-                                {
-                                    nextErrorRed[px+1]   += rdiff * w1;
-                                    nextErrorGreen[px+1] += gdiff * w1;
-                                    nextErrorBlue[px+1]  += bdiff * w1;
-                                }
-                                nextErrorRed[px]   += rdiff * w5;
-                                nextErrorGreen[px] += gdiff * w5;
-                                nextErrorBlue[px]  += bdiff * w5;
-                            }
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeWrenDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            int color, used;
-            float rdiff, gdiff, bdiff;
-            float er, eg, eb;
-            byte paletteIndex;
-            final float populationBias = palette.populationBias;
-            float partialDitherStrength = (0.5f * ditherStrength / (populationBias * populationBias)),
-                    strength = (80f * ditherStrength / (populationBias * populationBias)),
-                    blueStrength = (0.3f * ditherStrength / (populationBias * populationBias)),
-                    limit = 5f + 200f / (float)Math.sqrt(palette.colorCount+1.5f),
-                    r1, g1, b1, r2, g2, b2, r4, g4, b4;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-        if (curLineBytes == null) {
-            curLine = (curLineBytes = new ByteArray(w)).items;
-        } else {
-            curLine = curLineBytes.ensureCapacity(w);
-        }
-
-                for (int by = 0; by < h; by++) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    int y = flipY ? (h - by - 1) : by;
-                    for (int x = 0; x < w; x++) {
-                        color = pixmap.getPixel(x, y);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[x] = 0;
-                        else {
-                            er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(x & 63) | (by & 63) << 6] + 0.5f) * blueStrength + ((((x+1) * 0xC13FA9A902A6328FL + (by+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorRed[x]);
-                            eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (by & 63) << 6] + 0.5f) * blueStrength + ((((x+3) * 0xC13FA9A902A6328FL + (by-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorGreen[x]);
-                            eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (by & 63) << 6] + 0.5f) * blueStrength + ((((x+2) * 0xC13FA9A902A6328FL + (by-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorBlue[x]);
-
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            curLine[x] = paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            used = paletteArray[paletteIndex & 0xFF];
-                            rdiff = ((color>>>24)-    (used>>>24))     * partialDitherStrength;
-                            gdiff = ((color>>>16&255)-(used>>>16&255)) * partialDitherStrength;
-                            bdiff = ((color>>>8&255)- (used>>>8&255))  * partialDitherStrength;
-
-                            r1 = rdiff * 16f / (float)Math.sqrt(2048f + rdiff * rdiff);
-                            g1 = gdiff * 16f / (float)Math.sqrt(2048f + gdiff * gdiff);
-                            b1 = bdiff * 16f / (float)Math.sqrt(2048f + bdiff * bdiff);
-                            r2 = r1 + r1;
-                            g2 = g1 + g1;
-                            b2 = b1 + b1;
-                            r4 = r2 + r2;
-                            g4 = g2 + g2;
-                            b4 = b2 + b2;
-                            if(x < w - 1)
-                            {
-                                curErrorRed[x+1]   += r4;
-                                curErrorGreen[x+1] += g4;
-                                curErrorBlue[x+1]  += b4;
-                                if(x < w - 2)
-                                {
-
-                                    curErrorRed[x+2]   += r2;
-                                    curErrorGreen[x+2] += g2;
-                                    curErrorBlue[x+2]  += b2;
-                                }
-                            }
-                            if(by+1 < h)
-                            {
-                                if(x > 0)
-                                {
-                                    nextErrorRed[x-1]   += r2;
-                                    nextErrorGreen[x-1] += g2;
-                                    nextErrorBlue[x-1]  += b2;
-                                    if(x > 1)
-                                    {
-                                        nextErrorRed[x-2]   += r1;
-                                        nextErrorGreen[x-2] += g1;
-                                        nextErrorBlue[x-2]  += b1;
-                                    }
-                                }
-                                nextErrorRed[x]   += r4;
-                                nextErrorGreen[x] += g4;
-                                nextErrorBlue[x]  += b4;
-                                if(x < w - 1)
-                                {
-                                    nextErrorRed[x+1]   += r2;
-                                    nextErrorGreen[x+1] += g2;
-                                    nextErrorBlue[x+1]  += b2;
-                                    if(x < w - 2)
-                                    {
-
-                                        nextErrorRed[x+2]   += r1;
-                                        nextErrorGreen[x+2] += g1;
-                                        nextErrorBlue[x+2]  += b1;
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeOverboardDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            final int flipDir = flipY ? -1 : 1;
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            final float populationBias = palette.populationBias;
-            final float strength = ditherStrength * 1.5f * (populationBias * populationBias),
-                    noiseStrength = 4f / (populationBias * populationBias),
-                    limit = 110f;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(w)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(w);
-                }
-
-                for (int by = 0, y = flipY ? h - 1 : 0; by < h; by++, y += flipDir) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    for (int x = 0; x < w; x++) {
-                        int color = pixmap.getPixel(x, y);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[x] = 0;
-                        else {
-                            float er = 0f, eg = 0f, eb = 0f;
-                            switch ((x << 1 & 2) | (y & 1)) {
-                                case 0:
-                                    er += ((x ^ y) % 9 - 4);
-                                    er += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                    eg += (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                                    eg += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                    eb += (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                                    eb += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                                    break;
-                                case 1:
-                                    er += (PaletteReducer.TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                                    er += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                    eg += (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                                    eg += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                                    eb += ((x ^ y) % 11 - 5);
-                                    eb += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                                    break;
-                                case 2:
-                                    er += (PaletteReducer.TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                                    er += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                                    eg += ((x ^ y) % 11 - 5);
-                                    eg += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                                    eb += ((x ^ y) % 9 - 4);
-                                    eb += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                    break;
-                                default: // case 3:
-                                    er += ((x ^ y) % 11 - 5);
-                                    er += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                                    eg += ((x ^ y) % 9 - 4);
-                                    eg += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                    eb += (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                                    eb += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                                    break;
-                            }
-                            er = er * noiseStrength + curErrorRed[x];
-                            eg = eg * noiseStrength + curErrorGreen[x];
-                            eb = eb * noiseStrength + curErrorBlue[x];
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + Math.min(Math.max(er, -limit), limit), 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + Math.min(Math.max(eg, -limit), limit), 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + Math.min(Math.max(eb, -limit), limit), 0), 1023)] & 255;
-                            byte paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            curLine[x] = paletteIndex;
-                            int used = paletteArray[paletteIndex & 0xFF];
-                            float rdiff = ((color >>> 24) - (used >>> 24)) * strength;
-                            float gdiff = ((color >>> 16 & 255) - (used >>> 16 & 255)) * strength;
-                            float bdiff = ((color >>> 8 & 255) - (used >>> 8 & 255)) * strength;
-                            float r1 = rdiff * 16f / (45f + Math.abs(rdiff));
-                            float g1 = gdiff * 16f / (45f + Math.abs(gdiff));
-                            float b1 = bdiff * 16f / (45f + Math.abs(bdiff));
-                            float r2 = r1 + r1;
-                            float g2 = g1 + g1;
-                            float b2 = b1 + b1;
-                            float r4 = r2 + r2;
-                            float g4 = g2 + g2;
-                            float b4 = b2 + b2;
-                            if (x < w - 1) {
-                                curErrorRed[x + 1] += r4;
-                                curErrorGreen[x + 1] += g4;
-                                curErrorBlue[x + 1] += b4;
-                                if (x < w - 2) {
-
-                                    curErrorRed[x + 2] += r2;
-                                    curErrorGreen[x + 2] += g2;
-                                    curErrorBlue[x + 2] += b2;
-                                }
-                            }
-                            if (by + 1 < h) {
-                                if (x > 0) {
-                                    nextErrorRed[x - 1] += r2;
-                                    nextErrorGreen[x - 1] += g2;
-                                    nextErrorBlue[x - 1] += b2;
-                                    if (x > 1) {
-                                        nextErrorRed[x - 2] += r1;
-                                        nextErrorGreen[x - 2] += g1;
-                                        nextErrorBlue[x - 2] += b1;
-                                    }
-                                }
-                                nextErrorRed[x] += r4;
-                                nextErrorGreen[x] += g4;
-                                nextErrorBlue[x] += b4;
-                                if (x < w - 1) {
-                                    nextErrorRed[x + 1] += r2;
-                                    nextErrorGreen[x + 1] += g2;
-                                    nextErrorBlue[x + 1] += b2;
-                                    if (x < w - 2) {
-
-                                        nextErrorRed[x + 2] += r1;
-                                        nextErrorGreen[x + 2] += g1;
-                                        nextErrorBlue[x + 2] += b1;
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
-    }
-
-    public void writeBurkesDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            final int flipDir = flipY ? -1 : 1;
-            float r4, r2, r1, g4, g2, g1, b4, b2, b1;
-            final float populationBias = palette.populationBias;
-            final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
-                    strength = s * 0.58f / (0.3f + s);
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
-
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
-
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(w)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(w);
-                }
-
-                for (int by = 0, py = flipY ? h - 1 : 0; by < h; by++, py += flipDir) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    for (int px = 0; px < w; px++) {
-                        int color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            float er = curErrorRed[px];
-                            float eg = curErrorGreen[px];
-                            float eb = curErrorBlue[px];
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            byte paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            curLine[px] = paletteIndex;
-                            int used = paletteArray[paletteIndex & 0xFF];
-                            int rdiff = (color >>> 24) - (used >>> 24);
-                            int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                            int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                            r1 = rdiff * strength;
-                            g1 = gdiff * strength;
-                            b1 = bdiff * strength;
-                            r2 = r1 + r1;
-                            g2 = g1 + g1;
-                            b2 = b1 + b1;
-                            r4 = r2 + r2;
-                            g4 = g2 + g2;
-                            b4 = b2 + b2;
-                            if (px < w - 1) {
-                                curErrorRed[px + 1] += r4;
-                                curErrorGreen[px + 1] += g4;
-                                curErrorBlue[px + 1] += b4;
-                                if (px < w - 2) {
-
-                                    curErrorRed[px + 2] += r2;
-                                    curErrorGreen[px + 2] += g2;
-                                    curErrorBlue[px + 2] += b2;
-                                }
-                            }
-                            if (by + 1 < h) {
-                                if (px > 0) {
-                                    nextErrorRed[px - 1] += r2;
-                                    nextErrorGreen[px - 1] += g2;
-                                    nextErrorBlue[px - 1] += b2;
-                                    if (px > 1) {
-                                        nextErrorRed[px - 2] += r1;
-                                        nextErrorGreen[px - 2] += g1;
-                                        nextErrorBlue[px - 2] += b1;
-                                    }
-                                }
-                                nextErrorRed[px] += r4;
-                                nextErrorGreen[px] += g4;
-                                nextErrorBlue[px] += b4;
-                                if (px < w - 1) {
-                                    nextErrorRed[px + 1] += r2;
-                                    nextErrorGreen[px + 1] += g2;
-                                    nextErrorBlue[px + 1] += b2;
-                                    if (px < w - 2) {
-
-                                        nextErrorRed[px + 2] += r1;
-                                        nextErrorGreen[px + 2] += g1;
-                                        nextErrorBlue[px + 2] += b1;
-                                    }
-                                }
-                            }
-                        }
-                    }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
+    /**
+     * Starts writing an animated PNG-8 to the given {@code output} stream, one frame at a time. Frames are given to
+     * {@link #addFrame(Pixmap)} as they become available, so they don't all need to be held in memory at once, and
+     * the animation is completed by {@link #end()}, which does not close the stream. Because a stream can't go back
+     * to change what it already wrote, the number of frames has to be known here, and exactly that many frames
+     * should be added; use {@link #begin(FileHandle, int, int, int)} if the count isn't known ahead of time.
+     * <br>
+     * If {@link #palette} is null when the first frame is added, this computes a palette from only that first frame,
+     * and uses it for the rest of the animation. Otherwise, this uses the colors already in {@link #palette}.
+     *
+     * @param output     an OutputStream that will not be closed
+     * @param width      the width of every frame, in pixels
+     * @param height     the height of every frame, in pixels
+     * @param fps        how many frames per second the animation should run at
+     * @param frameCount how many frames will be added before {@link #end()} is called
+     * @return true if the animation could be started; false if an error occurred
+     */
+    public boolean begin(OutputStream output, int width, int height, int fps, int frameCount) {
+        closeAnimation();
+        if (output == null) return false;
+        animationOutput = new DataOutputStream(output);
+        animationWidth = width;
+        animationHeight = height;
+        animationFps = fps;
+        animationFrameCount = frameCount;
+        animationFrames = 0;
+        animationSeq = 0;
+        animationDelta = deltaFrames;
+        if (animationDelta) {
+            if (frameDelta == null)
+                frameDelta = new FrameDelta(1, deflater);
+            frameDelta.begin(width, height);
+        }
+        try {
+            animationOutput.write(SIGNATURE);
         } catch (IOException e) {
             Gdx.app.error("anim8", e.getMessage());
+            closeAnimation();
+            return false;
         }
+        return true;
     }
 
-    public void writeOceanicDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        final float[] noise = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
-
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            final int flipDir = flipY ? -1 : 1;
-            float r4, r2, r1, g4, g2, g1, b4, b2, b1;
-            final float populationBias = palette.populationBias;
-            final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
-                    strength = s * 0.58f / (0.3f + s);
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
-
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
-
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
-
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
+    /**
+     * Writes one frame of an animated PNG-8 started with {@code begin()}, using {@link #getDitherAlgorithm()} to
+     * determine how to dither. Only the area from 0,0 to the width and height given to {@code begin()} is written;
+     * the Pixmap can be disposed or changed as soon as this returns.
+     *
+     * @param frame the next frame of the animation
+     * @return true if the frame was written; false if no animation has been started or an error occurred
+     */
+    public boolean addFrame(Pixmap frame) {
+        if (frame == null || animationOutput == null) return false;
+        if (animationFrames == 0) {
+            if (palette == null) {
+                palette = createPalette(frame);
+                clearPalette = true;
             }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
-
-            byte[] curLine;
-
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
+            palette.setDitherStrength(ditherStrength);
+        }
+        return addFrame(frame, ditherAlgorithm == null ? DitherAlgorithm.NONE : ditherAlgorithm, false, 1);
+    }
 
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
+    /**
+     * Computes a palette from the first frame of an animation started with {@code begin()}, when {@link #palette} is
+     * null as that frame is added. Subclasses can override this to use a different kind of {@link PaletteReducer}.
+     *
+     * @param frame the first frame of the animation
+     * @return a new PaletteReducer fit to frame
+     */
+    protected PaletteReducer createPalette(Pixmap frame) {
+        return new PaletteReducer(frame);
+    }
 
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
+    /**
+     * Finishes an animated PNG-8 started with {@code begin()}. If it was started with
+     * {@link #begin(FileHandle, int, int, int)}, this closes the file and then stores the number of frames that were
+     * actually added; otherwise, the stream is flushed but not closed.
+     *
+     * @return true if the animation was finished successfully; false if none was started, no frames were added, or an
+     * error occurred
+     */
+    public boolean end() {
+        if (animationOutput == null) return false;
+        if (animationFrames == 0) {
+            Gdx.app.error("anim8", "No frames were added, so the animation could not be finished.");
+            closeAnimation();
+            return false;
+        }
+        boolean ok = true;
+        try {
+            buffer.writeInt(IEND);
+            buffer.endChunk(animationOutput);
+            animationOutput.flush();
+        } catch (IOException e) {
+            Gdx.app.error("anim8", e.getMessage());
+            ok = false;
+        }
+        final FileHandle file = animationFile;
+        closeAnimation();
+        if (file != null) {
+            if (ok) {
+                try {
+                    ChunkBuffer.patchFrameCount(file, acTLPosition, animationFrames);
+                } catch (IOException e) {
+                    Gdx.app.error("anim8", e.getMessage());
+                    ok = false;
                 }
-                deflater.reset();
+            }
+        } else if (ok && animationFrames != animationFrameCount) {
+            Gdx.app.error("anim8", "Expected " + animationFrameCount + " frames, but " + animationFrames + " were added.");
+            ok = false;
+        }
+        return ok;
+    }
 
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(w)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(w);
-                }
+    /**
+     * Writes all of {@code frames} as one animation, dithering each with {@code ditherAlgorithm} (or the original Wren
+     * dither, if {@code wrenOriginal} is true). This expects {@link #palette} to have already been set. When several
+     * frames in a row have exactly the same pixels, only the first of them is written, and it is shown for as long as
+     * all of them would have been.
+     */
+    private void writeFrames(OutputStream output, Array<Pixmap> frames, int fps, DitherAlgorithm ditherAlgorithm, boolean wrenOriginal) {
+        Pixmap pixmap = frames.first();
+        // delay_num is stored in 16 bits
+        IntArray runs = DuplicateFrames.findRuns(frames, 0xFFFF, null);
+        if (!begin(output, pixmap.getWidth(), pixmap.getHeight(), fps, runs.size)) return;
+        for (int i = 0, r = 0; r < runs.size; i += runs.get(r++)) {
+            if (!addFrame(frames.get(i), ditherAlgorithm, wrenOriginal, runs.get(r))) return;
+        }
+        end();
+    }
 
-                for (int by = 0, py = flipY ? h - 1 : 0; by < h; by++, py += flipDir) {
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    for (int px = 0; px < w; px++) {
-                        int color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            float er = curErrorRed[px];
-                            float eg = curErrorGreen[px];
-                            float eb = curErrorBlue[px];
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            byte paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            curLine[px] = paletteIndex;
-                            int used = paletteArray[paletteIndex & 0xFF];
-                            int rdiff = (color >>> 24) - (used >>> 24);
-                            int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                            int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                            r1 = rdiff * strength;
-                            g1 = gdiff * strength;
-                            b1 = bdiff * strength;
-                            r2 = r1 + r1;
-                            g2 = g1 + g1;
-                            b2 = b1 + b1;
-                            r4 = r2 + r2;
-                            g4 = g2 + g2;
-                            b4 = b2 + b2;
-                            float modifier;
-                            if(px < w - 1)
-                            {
-                                modifier = noise[(px + 1 & 63) | ((py << 6) & 0xFC0)];
-                                curErrorRed[px+1]   += r4 * modifier;
-                                curErrorGreen[px+1] += g4 * modifier;
-                                curErrorBlue[px+1]  += b4 * modifier;
-                                if(px < w - 2)
-                                {
-                                    modifier = noise[(px + 2 & 63) | ((py << 6) & 0xFC0)];
-                                    curErrorRed[px+2]   += r2 * modifier;
-                                    curErrorGreen[px+2] += g2 * modifier;
-                                    curErrorBlue[px+2]  += b2 * modifier;
-                                }
-                            }
-                            final int ny = by + 1;
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    modifier = noise[(px - 1 & 63) | ((ny << 6) & 0xFC0)];
-                                    nextErrorRed[px-1]   += r2 * modifier;
-                                    nextErrorGreen[px-1] += g2 * modifier;
-                                    nextErrorBlue[px-1]  += b2 * modifier;
-                                    if(px > 1)
-                                    {
-                                        modifier = noise[(px - 2 & 63) | ((ny << 6) & 0xFC0)];
-                                        nextErrorRed[px-2]   += r1 * modifier;
-                                        nextErrorGreen[px-2] += g1 * modifier;
-                                        nextErrorBlue[px-2]  += b1 * modifier;
-                                    }
-                                }
-                                modifier = noise[(px & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px]   += r4 * modifier;
-                                nextErrorGreen[px] += g4 * modifier;
-                                nextErrorBlue[px]  += b4 * modifier;
-                                if(px < w - 1)
-                                {
-                                    modifier = noise[(px + 1 & 63) | ((ny << 6) & 0xFC0)];
-                                    nextErrorRed[px+1]   += r2 * modifier;
-                                    nextErrorGreen[px+1] += g2 * modifier;
-                                    nextErrorBlue[px+1]  += b2 * modifier;
-                                    if(px < w - 2)
-                                    {
-                                        modifier = noise[(px + 2 & 63) | ((ny << 6) & 0xFC0)];
-                                        nextErrorRed[px+2]   += r1 * modifier;
-                                        nextErrorGreen[px+2] += g1 * modifier;
-                                        nextErrorBlue[px+2]  += b1 * modifier;
-                                    }
-                                }
-                            }
-                        }
+    /**
+     * Writes one frame dithered with {@code ditherAlgorithm} (or the original Wren dither, if {@code wrenOriginal} is
+     * true), shown for as long as {@code run} frames would be.
+     */
+    private boolean addFrame(Pixmap pixmap, DitherAlgorithm ditherAlgorithm, boolean wrenOriginal, int run) {
+        if (pixmap == null || animationOutput == null) return false;
+        try {
+            if (animationFrames == 0) {
+                writeAnimationHeader();
+            }
+            rowFilter.setBitDepth(animationBitDepth);
+            pixmap = frameSized(pixmap);
+            if (animationDelta) {
+                final FrameDelta delta = frameDelta;
+                // some dithers are seeded by the sequence number, which is normally past this frame's fcTL and fdAT
+                final byte[] frame = reduceToIndices(pixmap, ditherAlgorithm, wrenOriginal,
+                        animationSeq + (animationFrames == 0 ? 1 : 2));
+                delta.findChanges(frame);
+                delta.compress(frame, false, rowFilter, filter);
+                ByteArrayOutputStream chosen = delta.replaced;
+                int blend = 0;
+                if (animationTransparent && delta.canBlend(frame)) {
+                    delta.compress(frame, true, rowFilter, filter);
+                    if (delta.blended.size() < chosen.size()) {
+                        chosen = delta.blended;
+                        blend = 1;
                     }
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
                 }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
+                writeFrameControl(delta.x, delta.y, delta.width, delta.height, run, blend);
+                chosen.writeTo(imageData);
+                delta.finish(frame);
+            } else {
+                writeFrameControl(0, 0, animationWidth, animationHeight, run, 0);
+                deflater.reset();
+                rowFilter.reset();
+                writeRows(animationDeflater, reduceToIndices(pixmap, ditherAlgorithm, wrenOriginal, animationSeq),
+                        animationWidth, animationHeight);
+                animationDeflater.finish();
             }
-
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
-
-            output.flush();
+            animationSeq = imageData.end();
         } catch (IOException e) {
             Gdx.app.error("anim8", e.getMessage());
+            closeAnimation();
+            return false;
         }
+        animationFrames++;
+        return true;
     }
 
-    public void writeSeasideDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-        final float[] noiseA = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS;
-        final float[] noiseB = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS_B;
-        final float[] noiseC = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS_C;
+    /**
+     * Gets a Pixmap the size of the current animation, holding the area of {@code pixmap} from 0,0 to that size, so
+     * the whole Pixmap can be dithered at once. This is pixmap itself if it is already that size; otherwise, it is
+     * copied into {@link #resized}, and any area it doesn't cover is left transparent.
+     */
+    private Pixmap frameSized(Pixmap pixmap) {
+        if (pixmap.getWidth() == animationWidth && pixmap.getHeight() == animationHeight)
+            return pixmap;
+        if (resized == null || resized.getWidth() != animationWidth || resized.getHeight() != animationHeight) {
+            if (resized != null)
+                resized.dispose();
+            resized = new Pixmap(animationWidth, animationHeight, Pixmap.Format.RGBA8888);
+        }
+        resized.setBlending(Pixmap.Blending.None);
+        resized.setColor(0);
+        resized.fill();
+        resized.drawPixmap(pixmap, 0, 0);
+        return resized;
+    }
 
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
+    /**
+     * Writes the fcTL chunk for the next frame, then starts its IDAT or fdAT chunks in {@link #imageData}, so the
+     * compressed pixels can be written there; {@code animationSeq = imageData.end()} finishes them. Until then,
+     * animationSeq is one past the first fdAT chunk's sequence number, as it was when each frame was one chunk, since
+     * some dithers are seeded by it.
+     * @param blend 0 for APNG_BLEND_OP_SOURCE, or 1 for APNG_BLEND_OP_OVER
+     */
+    private void writeFrameControl(int x, int y, int width, int height, int run, int blend) throws IOException {
+        buffer.writeInt(fcTL);
+        buffer.writeInt(animationSeq++);
+        buffer.writeInt(width);
+        buffer.writeInt(height);
+        buffer.writeInt(x);
+        buffer.writeInt(y);
+        buffer.writeShort(run);
+        buffer.writeShort(animationFps);
+        buffer.writeByte(0);
+        buffer.writeByte(blend);
+        buffer.endChunk(animationOutput);
+
+        if (animationFrames == 0) {
+            imageData.begin(animationOutput, IDAT, animationSeq);
+        } else {
+            imageData.begin(animationOutput, fdAT, animationSeq++);
+        }
+    }
 
-            final int w = pixmap.getWidth();
-            final int h = pixmap.getHeight();
-            final int flipDir = flipY ? -1 : 1;
-            final float populationBias = palette.populationBias;
-            final float s = 0.15f * populationBias * ditherStrength,
-                    strength = s * 0.6f / (0.35f + s);
-            float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-            if (palette.curErrorRedFloats == null) {
-                curErrorRed = (palette.curErrorRedFloats = new FloatArray(w)).items;
-                nextErrorRed = (palette.nextErrorRedFloats = new FloatArray(w)).items;
-                curErrorGreen = (palette.curErrorGreenFloats = new FloatArray(w)).items;
-                nextErrorGreen = (palette.nextErrorGreenFloats = new FloatArray(w)).items;
-                curErrorBlue = (palette.curErrorBlueFloats = new FloatArray(w)).items;
-                nextErrorBlue = (palette.nextErrorBlueFloats = new FloatArray(w)).items;
-            } else {
-                curErrorRed = palette.curErrorRedFloats.ensureCapacity(w);
-                nextErrorRed = palette.nextErrorRedFloats.ensureCapacity(w);
-                curErrorGreen = palette.curErrorGreenFloats.ensureCapacity(w);
-                nextErrorGreen = palette.nextErrorGreenFloats.ensureCapacity(w);
-                curErrorBlue = palette.curErrorBlueFloats.ensureCapacity(w);
-                nextErrorBlue = palette.nextErrorBlueFloats.ensureCapacity(w);
-                Arrays.fill(nextErrorRed, 0, w, 0);
-                Arrays.fill(nextErrorGreen, 0, w, 0);
-                Arrays.fill(nextErrorBlue, 0, w, 0);
-            }
+    /**
+     * Gets the fewest bits per pixel that can store every index into a palette with {@code colorCount} colors (1, 2,
+     * 4, or 8), and has {@link #rowFilter} pack each row of indices to that many bits.
+     */
+    private int useBitDepth(int colorCount) {
+        final int bitDepth = RowFilter.bitDepthFor(colorCount);
+        rowFilter.setBitDepth(bitDepth);
+        return bitDepth;
+    }
 
-            buffer.writeInt(IHDR);
-            buffer.writeInt(w);
-            buffer.writeInt(h);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
+    /**
+     * Writes the IHDR, PLTE, tRNS (if needed), and acTL chunks. This waits until the first frame is added, so that
+     * a palette can be computed from that frame if there isn't one yet.
+     */
+    private void writeAnimationHeader() throws IOException {
+        final int[] paletteArray = palette.paletteArray;
 
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
+        buffer.writeInt(IHDR);
+        buffer.writeInt(animationWidth);
+        buffer.writeInt(animationHeight);
+        animationBitDepth = RowFilter.bitDepthFor(palette.colorCount);
+        buffer.writeByte(animationBitDepth); // 1, 2, 4, or 8 bits per palette index.
+        buffer.writeByte(COLOR_INDEXED);
+        buffer.writeByte(COMPRESSION_DEFLATE);
+        buffer.writeByte(FILTER_NONE);
+        buffer.writeByte(INTERLACE_NONE);
+        buffer.endChunk(animationOutput);
 
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
+        buffer.writeInt(PLTE);
+        for (int i = 0; i < palette.colorCount; i++) {
+            int p = paletteArray[i];
+            buffer.write(p >>> 24);
+            buffer.write(p >>> 16);
+            buffer.write(p >>> 8);
+        }
+        buffer.endChunk(animationOutput);
 
-            byte[] curLine;
+        animationTransparent = false;
+        if (paletteArray[0] == 0) {
+            animationTransparent = true;
+            buffer.writeInt(TRNS);
+            buffer.write(0);
+            buffer.endChunk(animationOutput);
+        }
+        acTLPosition = animationOutput.size();
+        buffer.writeInt(acTL);
+        buffer.writeInt(animationFrameCount);
+        buffer.writeInt(0);
+        buffer.endChunk(animationOutput);
+    }
 
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(w);
-                buffer.writeInt(h);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
+    /**
+     * Stops the current animation, if there is one, closing its stream if it was opened from a file.
+     */
+    private void closeAnimation() {
+        if (animationFile != null) StreamUtils.closeQuietly(animationOutput);
+        animationOutput = null;
+        animationFile = null;
+        if (clearPalette) palette = null;
+        clearPalette = false;
+    }
 
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
+    public void writeGradientDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.GRADIENT_NOISE, false);
+    }
 
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-                }
-                deflater.reset();
+    public void writeAdditiveDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.ADDITIVE, false);
+    }
 
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(w)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(w);
-                }
+    public void writeRobertsDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.ROBERTS, false);
+    }
 
-                for (int by = 0, py = flipY ? h - 1 : 0; by < h; by++, py += flipDir) {
-                    final int ny = by + 1;
-                    System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-                    System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-                    System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-                    Arrays.fill(nextErrorRed, (byte) 0);
-                    Arrays.fill(nextErrorGreen, (byte) 0);
-                    Arrays.fill(nextErrorBlue, (byte) 0);
-
-                    for (int px = 0; px < w; px++) {
-                        int color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            float er = curErrorRed[px];
-                            float eg = curErrorGreen[px];
-                            float eb = curErrorBlue[px];
-                            int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                            int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                            int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                            byte paletteIndex =
-                                    paletteMapping[((rr << 7) & 0x7C00)
-                                            | ((gg << 2) & 0x3E0)
-                                            | ((bb >>> 3))];
-                            curLine[px] = paletteIndex;
-                            int used = paletteArray[paletteIndex & 0xFF];
-                            int rdiff = (color >>> 24) - (used >>> 24);
-                            int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                            int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                            int modifier = ((px & 63) | (py << 6 & 0xFC0));
-                            final float r1 = rdiff * strength * noiseA[modifier];
-                            final float g1 = gdiff * strength * noiseB[modifier];
-                            final float b1 = bdiff * strength * noiseC[modifier];
-                            final float r2 = r1 + r1;
-                            final float g2 = g1 + g1;
-                            final float b2 = b1 + b1;
-                            final float r4 = r2 + r2;
-                            final float g4 = g2 + g2;
-                            final float b4 = b2 + b2;
-
-                            if(px < w - 1)
-                            {
-                                modifier = ((px + 1 & 63) | (py << 6 & 0xFC0));
-                                curErrorRed[px+1]   += r4 * noiseA[modifier];
-                                curErrorGreen[px+1] += g4 * noiseB[modifier];
-                                curErrorBlue[px+1]  += b4 * noiseC[modifier];
-                                if(px < w - 2)
-                                {
-                                    modifier = ((px + 2 & 63) | ((py << 6) & 0xFC0));
-                                    curErrorRed[px+2]   += r2 * noiseA[modifier];
-                                    curErrorGreen[px+2] += g2 * noiseB[modifier];
-                                    curErrorBlue[px+2]  += b2 * noiseC[modifier];
-                                }
-                            }
-                            if(ny < h)
-                            {
-                                if(px > 0)
-                                {
-                                    modifier = (px - 1 & 63) | ((ny << 6) & 0xFC0);
-                                    nextErrorRed[px-1]   += r2 * noiseA[modifier];
-                                    nextErrorGreen[px-1] += g2 * noiseB[modifier];
-                                    nextErrorBlue[px-1]  += b2 * noiseC[modifier];
-                                    if(px > 1)
-                                    {
-                                        modifier = (px - 2 & 63) | ((ny << 6) & 0xFC0);
-                                        nextErrorRed[px-2]   += r1 * noiseA[modifier];
-                                        nextErrorGreen[px-2] += g1 * noiseB[modifier];
-                                        nextErrorBlue[px-2]  += b1 * noiseC[modifier];
-                                    }
-                                }
-                                modifier = (px & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px]   += r4 * noiseA[modifier];
-                                nextErrorGreen[px] += g4 * noiseB[modifier];
-                                nextErrorBlue[px]  += b4 * noiseC[modifier];
-                                if(px < w - 1)
-                                {
-                                    modifier = (px + 1 & 63) | ((ny << 6) & 0xFC0);
-                                    nextErrorRed[px+1]   += r2 * noiseA[modifier];
-                                    nextErrorGreen[px+1] += g2 * noiseB[modifier];
-                                    nextErrorBlue[px+1]  += b2 * noiseC[modifier];
-                                    if(px < w - 2)
-                                    {
-                                        modifier = (px + 2 & 63) | ((ny << 6) & 0xFC0);
-                                        nextErrorRed[px+2]   += r1 * noiseA[modifier];
-                                        nextErrorGreen[px+2] += g1 * noiseB[modifier];
-                                        nextErrorBlue[px+2]  += b1 * noiseC[modifier];
-                                    }
-                                }
-                            }
-                        }
-                    }
+    public void writeLoafDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.LOAF, false);
+    }
 
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, w);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
+    public void writeGourdDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.GOURD, false);
+    }
 
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
+    public void writeBlueNoiseDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.BLUE_NOISE, false);
+    }
 
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
+    public void writeBluntDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.BLUNT, false);
     }
 
-    public void writeMartenDithered(OutputStream output, Array<Pixmap> frames, int fps) {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
+    public void writeBanterDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.BANTER, false);
+    }
 
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        try {
-            dataOutput.write(SIGNATURE);
+    public void writeChaoticNoiseDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.CHAOTIC_NOISE, false);
+    }
+
+    public void writeDiffusionDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.DIFFUSION, false);
+    }
 
-            final int width = pixmap.getWidth();
-            final int height = pixmap.getHeight();
+    public void writePatternDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.PATTERN, false);
+    }
 
-            buffer.writeInt(IHDR);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeByte(8); // 8 bits per component.
-            buffer.writeByte(COLOR_INDEXED);
-            buffer.writeByte(COMPRESSION_DEFLATE);
-            buffer.writeByte(FILTER_NONE);
-            buffer.writeByte(INTERLACE_NONE);
-            buffer.endChunk(dataOutput);
+    public void writeScatterDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.SCATTER, false);
+    }
 
-            buffer.writeInt(PLTE);
-            for (int i = 0; i < paletteArray.length; i++) {
-                int p = paletteArray[i];
-                buffer.write(p >>> 24);
-                buffer.write(p >>> 16);
-                buffer.write(p >>> 8);
-            }
-            buffer.endChunk(dataOutput);
+    public void writeNeueDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.NEUE, false);
+    }
 
-            boolean hasTransparent = false;
-            if (paletteArray[0] == 0) {
-                hasTransparent = true;
-                buffer.writeInt(TRNS);
-                buffer.write(0);
-                buffer.endChunk(dataOutput);
-            }
-            buffer.writeInt(acTL);
-            buffer.writeInt(frames.size);
-            buffer.writeInt(0);
-            buffer.endChunk(dataOutput);
+    public void writeDodgyDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.DODGY, false);
+    }
 
-//            byte[] lineOut, curLine, prevLine;
-            byte[] curLine;
+    public void writeWovenDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.WOVEN, false);
+    }
 
-            final float populationBias = palette.populationBias;
-            final float str = Math.min(1100f * (ditherStrength / (float) Math.sqrt(palette.colorCount) * (1f / (populationBias * populationBias * populationBias) - 0.7f)), 127f);
-            int seq = 0;
-            for (int i = 0; i < frames.size; i++) {
-
-                buffer.writeInt(fcTL);
-                buffer.writeInt(seq++);
-                buffer.writeInt(width);
-                buffer.writeInt(height);
-                buffer.writeInt(0);
-                buffer.writeInt(0);
-                buffer.writeShort(1);
-                buffer.writeShort(fps);
-                buffer.writeByte(0);
-                buffer.writeByte(0);
-                buffer.endChunk(dataOutput);
+    public void writeWrenOriginalDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.WREN, true);
+    }
 
-                if (i == 0) {
-                    buffer.writeInt(IDAT);
-                } else {
-                    pixmap = frames.get(i);
-                    buffer.writeInt(fdAT);
-                    buffer.writeInt(seq++);
-                }
-                deflater.reset();
+    public void writeWrenDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.WREN, false);
+    }
 
-                if (curLineBytes == null) {
-                    curLine = (curLineBytes = new ByteArray(width)).items;
-                } else {
-                    curLine = curLineBytes.ensureCapacity(width);
-                }
+    public void writeOverboardDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.OVERBOARD, false);
+    }
 
-                for (int y = 0; y < height; y++) {
-                    int py = flipY ? (height - y - 1) : y;
-                    for (int px = 0; px < width; px++) {
-                        int color = pixmap.getPixel(px, py);
-                        if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                            curLine[px] = 0;
-                        else {
-                            // We get a sub-random value from 0-1 using interleaved gradient noise.
-                            // Offsetting this value by different values and feeding into triangleWave()
-                            // gives 3 different values for r, g, and b, without much bias toward high or low values.
-                            // There is correlation between r, g, and b in certain patterns.
-                            final float theta = ((px * 142 + y * 79 & 255) * 0x1p-8f);
-                            int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
-                            int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.382f) * str)] & 255;
-                            int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.618f) * str)] & 255;
-                            curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                        }
-                    }
-//                    lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-//
-//                    //Paeth
-//                    for (int x = 1; x < width; x++) {
-//                        int a = curLine[x - 1] & 0xff;
-//                        int b = prevLine[x] & 0xff;
-//                        int c = prevLine[x - 1] & 0xff;
-//                        int p = a + b - c;
-//                        int pa = p - a;
-//                        if (pa < 0) pa = -pa;
-//                        int pb = p - b;
-//                        if (pb < 0) pb = -pb;
-//                        int pc = p - c;
-//                        if (pc < 0) pc = -pc;
-//                        if (pa <= pb && pa <= pc)
-//                            c = a;
-//                        else if (pb <= pc)
-//                            c = b;
-//                        lineOut[x] = (byte) (curLine[x] - c);
-//                    }
-//
-//                    deflaterOutput.write(FILTER_PAETH);
-//                    deflaterOutput.write(lineOut, 0, width);
-
-                    deflaterOutput.write(FILTER_NONE);
-                    deflaterOutput.write(curLine, 0, width);
-                }
-                deflaterOutput.finish();
-                buffer.endChunk(dataOutput);
-            }
+    public void writeBurkesDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.BURKES, false);
+    }
 
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
+    public void writeOceanicDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.OCEANIC, false);
+    }
 
-            output.flush();
-        } catch (IOException e) {
-            Gdx.app.error("anim8", e.getMessage());
-        }
+    public void writeSeasideDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.SEASIDE, false);
+    }
+
+    public void writeMartenDithered(OutputStream output, Array<Pixmap> frames, int fps) {
+        writeFrames(output, frames, fps, DitherAlgorithm.MARTEN, false);
     }
 
     /** Should probably be done explicitly; finalize() has been scheduled for removal from the JVM. */
     public void dispose () {
         deflater.end();
+        if (resized != null) {
+            resized.dispose();
+            resized = null;
+        }
     }
 
     /**
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+
+package com.github.tommyettinger.anim8;
+
+/**
+ * Which filter a PNG writer applies to each row of pixels before it is compressed, which can be one of the five filter
+ * types PNG files can use, or {@link #ADAPTIVE}, which picks one of them for each row separately. Filtering stores
+ * each byte as its difference from a prediction made from the bytes to its left and above it, which turns smooth
+ * gradients into runs of small numbers that compress much better.
+ * <br>
+ * Photographs and other smoothly-shaded full-color images usually get about a third smaller with {@link #ADAPTIVE}.
+ * Pixel art, sprites, and other images with large flat areas usually compress best with {@link #NONE}, and can grow
+ * by 45% to 85% with ADAPTIVE; so do palette-based images, like the ones {@link PNG8} writes, because nearby palette
+ * indices don't need to have similar colors. Every writer uses NONE unless told otherwise.
+ * This is not available on GWT, because none of the PNG writers are.
+ */
+public enum PNGFilter {
+    /**
+     * Stores each byte as it is. This is the fastest, and is usually best for palette-based images.
+     */
+    NONE,
+    /**
+     * Stores each byte as its difference from the matching byte of the pixel to its left.
+     */
+    SUB,
+    /**
+     * Stores each byte as its difference from the matching byte of the pixel above it.
+     */
+    UP,
+    /**
+     * Stores each byte as its difference from the average of the matching bytes of the pixels to its left and above.
+     */
+    AVERAGE,
+    /**
+     * Stores each byte as its difference from the matching byte of the pixel to its left, above, or above and to the
+     * left, whichever is closest to the sum of the left and above bytes minus the upper-left byte.
+     */
+    PAETH,
+    /**
+     * Tries all five other filters on each row, and uses whichever one makes the sum of absolute values of the
+     * filtered bytes smallest (treating each byte as signed). This is the heuristic the PNG specification recommends,
+     * and it often beats any one filter for photographs, though it takes longer. It can do much worse than NONE on
+     * images with large flat areas, where the unfiltered bytes already compress well.
+     */
+    ADAPTIVE;
+}
@@ -25,6 +25,9 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.utils.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Random;
@@ -975,6 +978,12 @@ public class PaletteReducer {
      */
     protected float populationBias = 0.5f;
 
+    /**
+     * Used to split some dithers into bands of rows that can be dithered at the same time. This is
+     * {@link Parallelism#SERIAL} by default, which does all the work on the calling thread.
+     */
+    protected transient Parallelism parallelism = Parallelism.SERIAL;
+
     /**
      * Given by Joel Yliluoma in <a href="https://bisqwit.iki.fi/story/howto/dither/jy/">a dithering article</a>.
      * Must not be modified.
@@ -1016,6 +1025,366 @@ public class PaletteReducer {
      */
     protected transient final int[] candidates = new int[32];
 
+    /**
+     * An IntArray used as a buffer to store the RGBA8888 pixels of a Pixmap while it is being reduced, so the reduce
+     * methods can read and write every pixel at once instead of calling {@link Pixmap#getPixel(int, int)} and
+     * {@link Pixmap#drawPixel(int, int, int)} for each one. This is only allocated when first needed, and grows to fit
+     * the largest Pixmap this has reduced.
+     * It is protected so that user code that extends PaletteReducer doesn't need to create its own buffers.
+     */
+    protected transient IntArray pixelBuffer;
+
+    /**
+     * Used to sort colors by frequency when analyzing. Array.sort() shares one Sort object between all threads, which
+     * would break if two PaletteReducers analyzed images at the same time.
+     */
+    protected transient final Sort entrySort = new Sort();
+
+    /**
+     * Copies every pixel of {@code pixmap} into {@link #pixelBuffer} as RGBA8888 ints, in row-major order starting at
+     * the top-left, and returns the buffer's backing array. If pixmap uses {@link Pixmap.Format#RGBA8888}, this reads
+     * the whole {@link Pixmap#getPixels()} ByteBuffer in one bulk operation; otherwise, this falls back to calling
+     * {@link Pixmap#getPixel(int, int)} once per pixel, which handles any conversion the format needs.
+     * @param pixmap a Pixmap that will not be modified
+     * @return the backing array of {@link #pixelBuffer}, with at least {@code width * height} items
+     */
+    protected int[] readPixels(Pixmap pixmap) {
+        return readPixels(pixmap, false);
+    }
+
+    /**
+     * Like {@link #readPixels(Pixmap)}, but if {@code flipY} is true, the rows are stored bottom-to-top, so the first
+     * row in the returned array is the last row of {@code pixmap}. This is how the file writers handle their flipY
+     * option. Rows are still read in bulk if pixmap uses {@link Pixmap.Format#RGBA8888}.
+     * @param pixmap a Pixmap that will not be modified
+     * @param flipY if true, the rows are stored in reverse order
+     * @return the backing array of {@link #pixelBuffer}, with at least {@code width * height} items
+     */
+    protected int[] readPixels(Pixmap pixmap, boolean flipY) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight(), size = w * h;
+        final int[] pixels;
+        if (pixelBuffer == null)
+            pixels = (pixelBuffer = new IntArray(size)).items;
+        else
+            pixels = pixelBuffer.ensureCapacity(size);
+        if (pixmap.getFormat() == Pixmap.Format.RGBA8888) {
+            ByteBuffer bytes = pixmap.getPixels().duplicate();
+            bytes.clear();
+            IntBuffer ints = bytes.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+            if (flipY) {
+                for (int y = 0; y < h; y++) {
+                    ints.position((h - 1 - y) * w);
+                    ints.get(pixels, y * w, w);
+                }
+            } else {
+                ints.get(pixels, 0, size);
+            }
+        } else {
+            for (int y = 0, i = 0; y < h; y++) {
+                final int py = flipY ? h - 1 - y : y;
+                for (int x = 0; x < w; x++) {
+                    pixels[i++] = pixmap.getPixel(x, py);
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Copies {@code width * height} RGBA8888 ints from {@code pixels} back into {@code pixmap}, in the same order
+     * {@link #readPixels(Pixmap)} uses. If pixmap uses {@link Pixmap.Format#RGBA8888}, this writes the whole
+     * {@link Pixmap#getPixels()} ByteBuffer in one bulk operation; otherwise, this falls back to calling
+     * {@link Pixmap#drawPixel(int, int, int)} once per pixel, without blending.
+     * @param pixmap a Pixmap that will be modified in place
+     * @param pixels RGBA8888 ints in row-major order, typically returned by {@link #readPixels(Pixmap)}
+     */
+    protected void writePixels(Pixmap pixmap, int[] pixels) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        if (pixmap.getFormat() == Pixmap.Format.RGBA8888) {
+            ByteBuffer bytes = pixmap.getPixels().duplicate();
+            bytes.clear();
+            bytes.order(ByteOrder.BIG_ENDIAN).asIntBuffer().put(pixels, 0, w * h);
+        } else {
+            Pixmap.Blending blending = pixmap.getBlending();
+            pixmap.setBlending(Pixmap.Blending.None);
+            for (int y = 0, i = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    pixmap.drawPixel(x, y, pixels[i++]);
+                }
+            }
+            pixmap.setBlending(blending);
+        }
+    }
+
+    /**
+     * A ByteArray used as a buffer to store palette indices while a Pixmap is being reduced, before they are turned back
+     * into RGBA8888 colors and written to that Pixmap. This is only allocated when first needed, and grows to fit the
+     * largest Pixmap this has reduced.
+     * It is protected so that user code that extends PaletteReducer doesn't need to create its own buffers.
+     */
+    protected transient ByteArray indexBuffer;
+
+    /**
+     * Makes sure {@link #indexBuffer} can hold at least {@code size} items, and returns its backing array.
+     * @param size how many palette indices the buffer needs to hold
+     * @return the backing array of {@link #indexBuffer}, with at least {@code size} items
+     */
+    protected byte[] ensureIndexBuffer(int size) {
+        if (indexBuffer == null)
+            return (indexBuffer = new ByteArray(size)).items;
+        return indexBuffer.ensureCapacity(size);
+    }
+
+    /**
+     * A band of rows that one thread can dither by itself; used with {@link #runBands(int, RowBand)}.
+     */
+    protected interface RowBand {
+        /**
+         * Dithers the rows from {@code startY} (inclusive) to {@code endY} (exclusive).
+         * @param startY the first row to dither, inclusive
+         * @param endY the last row to dither, exclusive
+         * @param candidates a 32-element scratch array only this band will use, to be used instead of {@link #candidates}
+         */
+        void run(int startY, int endY, int[] candidates);
+    }
+
+    /**
+     * Splits {@code h} rows into as many bands as {@link #parallelism} has threads (keeping each band at least
+     * {@link #MIN_BAND_ROWS} rows tall), and runs {@code band} on each one, possibly at the same time. When there is only
+     * one band, this runs it on the calling thread with {@link #candidates} as its scratch array.
+     * @param h how many rows the image has
+     * @param band what to do with each band of rows
+     */
+    protected void runBands(final int h, final RowBand band) {
+        final int bands = Math.min(parallelism.threads(), h / MIN_BAND_ROWS);
+        if (bands <= 1) {
+            band.run(0, h, candidates);
+            return;
+        }
+        parallelism.run(bands, new Parallelism.Task() {
+            @Override
+            public void run(int i) {
+                band.run(h * i / bands, h * (i + 1) / bands, i == 0 ? candidates : new int[32]);
+            }
+        });
+    }
+
+    /**
+     * The fewest rows {@link #runBands(int, RowBand)} will put into one band; smaller bands aren't worth a thread.
+     */
+    protected static final int MIN_BAND_ROWS = 16;
+
+    /**
+     * Holds the error buffers an error-diffusion dither uses for one row: the error for the current row, and the error
+     * it pushes down to the next row. Used by {@link #runErrorRows(int, int, ErrorRow)}.
+     */
+    protected static class ErrorRows {
+        /**
+         * Error that was diffused into the current row, per channel; a dither adds to these as it goes right.
+         */
+        public float[] curRed, curGreen, curBlue;
+        /**
+         * Error that the current row diffuses into the row below it, per channel; these start each row at 0.
+         */
+        public float[] nextRed, nextGreen, nextBlue;
+
+        /**
+         * Must be called before dithering pixel {@code x} in the current row, going left to right. When rows are
+         * dithered one at a time, this does nothing. When rows are dithered in a wavefront, this waits until the row
+         * above is far enough along that {@code cur} holds the right values at least up to {@code x + 2}.
+         * @param x the x-position of the pixel that is about to be dithered
+         */
+        public void reach(int x) {
+        }
+    }
+
+    /**
+     * One row of an error-diffusion dither; used with {@link #runErrorRows(int, int, ErrorRow)}.
+     */
+    protected interface ErrorRow {
+        /**
+         * Dithers row {@code y}, reading and writing its error only through {@code rows}.
+         * @param y the row to dither
+         * @param rows the error buffers for this row; call {@link ErrorRows#reach(int)} before each pixel
+         */
+        void run(int y, ErrorRows rows);
+    }
+
+    /**
+     * The ErrorRows used when rows are dithered one at a time; it uses {@link #curErrorRedFloats} and the other
+     * error FloatArrays as its buffers.
+     */
+    protected transient ErrorRows serialErrorRows;
+
+    /**
+     * A ring of ErrorRows used when rows are dithered in a wavefront, each with its own buffers.
+     */
+    protected transient WavefrontRows[] wavefrontRows;
+
+    /**
+     * Runs an error-diffusion dither over {@code h} rows that are each {@code w} pixels wide. Each row can only push
+     * error right along itself and down into the row below, reaching at most 2 pixels to either side. If
+     * {@link #parallelism} has only one thread, rows are dithered one at a time from top to bottom. Otherwise, rows
+     * are dithered in a wavefront: each row starts as soon as the row above it has a few pixels done, and stays a few
+     * pixels behind it, so many rows can be worked on at once. Each row still adds up its error in exactly the same
+     * order either way, so the results are identical.
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param row dithers one row
+     */
+    protected void runErrorRows(final int w, final int h, final ErrorRow row) {
+        final int threads = parallelism.threads();
+        if (threads > 1 && h >= MIN_BAND_ROWS && w >= MIN_BAND_ROWS) {
+            final int slots = threads + 1;
+            if (wavefrontRows == null || wavefrontRows.length < slots || wavefrontRows[0].curRed.length < w) {
+                wavefrontRows = new WavefrontRows[slots];
+                for (int i = 0; i < slots; i++) {
+                    wavefrontRows[i] = new WavefrontRows(w);
+                }
+            }
+            final WavefrontRows[] ring = wavefrontRows;
+            final Parallelism.Progress progress = parallelism.progress(h);
+            for (int i = 0; i < slots; i++) {
+                ring[i].prepare(w, ring[(i + slots - 1) % slots], progress);
+            }
+            parallelism.run(h, new Parallelism.Task() {
+                @Override
+                public void run(int y) {
+                    final WavefrontRows rows = ring[y % slots];
+                    rows.start(y);
+                    try {
+                        row.run(y, rows);
+                    } finally {
+                        rows.finish();
+                    }
+                }
+            });
+            return;
+        }
+        ErrorRows rows = serialErrorRows;
+        if (rows == null) rows = serialErrorRows = new ErrorRows();
+        if (curErrorRedFloats == null) {
+            rows.curRed = (curErrorRedFloats = new FloatArray(w)).items;
+            rows.nextRed = (nextErrorRedFloats = new FloatArray(w)).items;
+            rows.curGreen = (curErrorGreenFloats = new FloatArray(w)).items;
+            rows.nextGreen = (nextErrorGreenFloats = new FloatArray(w)).items;
+            rows.curBlue = (curErrorBlueFloats = new FloatArray(w)).items;
+            rows.nextBlue = (nextErrorBlueFloats = new FloatArray(w)).items;
+        } else {
+            rows.curRed = curErrorRedFloats.ensureCapacity(w);
+            rows.nextRed = nextErrorRedFloats.ensureCapacity(w);
+            rows.curGreen = curErrorGreenFloats.ensureCapacity(w);
+            rows.nextGreen = nextErrorGreenFloats.ensureCapacity(w);
+            rows.curBlue = curErrorBlueFloats.ensureCapacity(w);
+            rows.nextBlue = nextErrorBlueFloats.ensureCapacity(w);
+
+            Arrays.fill(rows.nextRed, 0, w, 0);
+            Arrays.fill(rows.nextGreen, 0, w, 0);
+            Arrays.fill(rows.nextBlue, 0, w, 0);
+        }
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(rows.nextRed, 0, rows.curRed, 0, w);
+            System.arraycopy(rows.nextGreen, 0, rows.curGreen, 0, w);
+            System.arraycopy(rows.nextBlue, 0, rows.curBlue, 0, w);
+
+            Arrays.fill(rows.nextRed, 0, w, 0);
+            Arrays.fill(rows.nextGreen, 0, w, 0);
+            Arrays.fill(rows.nextBlue, 0, w, 0);
+
+            row.run(y, rows);
+        }
+    }
+
+    /**
+     * ErrorRows for one slot in the ring {@link #runErrorRows(int, int, ErrorRow)} uses for wavefront dithering. The
+     * current row's error is copied from the row above only when {@link #reach(int)} needs it, after waiting for the
+     * row above to finish every pixel that can still add to it. How far each row has gotten is shared through a
+     * {@link Parallelism.Progress}, counting finished pixels.
+     * <br>
+     * The ring has one more slot than there are threads. Rows finish in order, because each row waits on the one
+     * above it, and at most one row per thread is being worked on, so by the time a slot is reused, both the row that
+     * used it before and the row below that one are finished.
+     */
+    protected static class WavefrontRows extends ErrorRows {
+        protected int width, y, filled, aboveDone;
+        protected WavefrontRows above;
+        protected Parallelism.Progress progress;
+
+        public WavefrontRows(int capacity) {
+            curRed = new float[capacity];
+            curGreen = new float[capacity];
+            curBlue = new float[capacity];
+            nextRed = new float[capacity];
+            nextGreen = new float[capacity];
+            nextBlue = new float[capacity];
+        }
+
+        protected void prepare(int width, WavefrontRows above, Parallelism.Progress progress) {
+            this.width = width;
+            this.above = above;
+            this.progress = progress;
+        }
+
+        protected void start(int y) {
+            this.y = y;
+            aboveDone = 0;
+            Arrays.fill(nextRed, 0, width, 0);
+            Arrays.fill(nextGreen, 0, width, 0);
+            Arrays.fill(nextBlue, 0, width, 0);
+            if (y == 0) {
+                Arrays.fill(curRed, 0, width, 0);
+                Arrays.fill(curGreen, 0, width, 0);
+                Arrays.fill(curBlue, 0, width, 0);
+                filled = width;
+            } else {
+                filled = 0;
+            }
+        }
+
+        @Override
+        public void reach(int x) {
+            if ((x & 15) == 0) progress.set(y, x);
+            // cur[x+2] is the furthest this pixel can add to, so everything up to it must hold the error from above.
+            final int need = Math.min(x + 3, width);
+            if (filled < need) {
+                // the row above adds to its next[i] from pixels up to i+2, so it must have finished pixel need+1.
+                final int want = Math.min(need + 2, width);
+                if (aboveDone < want) aboveDone = progress.await(y - 1, want);
+                final int upTo = aboveDone >= width ? width : aboveDone - 2;
+                System.arraycopy(above.nextRed, filled, curRed, filled, upTo - filled);
+                System.arraycopy(above.nextGreen, filled, curGreen, filled, upTo - filled);
+                System.arraycopy(above.nextBlue, filled, curBlue, filled, upTo - filled);
+                filled = upTo;
+            }
+        }
+
+        protected void finish() {
+            progress.set(y, width);
+        }
+    }
+
+    /**
+     * Looks up each palette index in {@code indices} in {@link #paletteArray} and writes the resulting RGBA8888 colors
+     * into {@code pixmap}, using {@link #writePixels(Pixmap, int[])}. This reuses {@link #pixelBuffer} to hold the
+     * colors, so the pixels {@link #readPixels(Pixmap)} returned earlier will be overwritten.
+     * @param pixmap a Pixmap that will be modified in place
+     * @param indices palette indices in row-major order, with at least as many items as pixmap has pixels
+     * @return {@code pixmap}, for chaining
+     */
+    protected Pixmap writeIndices(Pixmap pixmap, byte[] indices) {
+        final int size = pixmap.getWidth() * pixmap.getHeight();
+        final int[] pixels;
+        if (pixelBuffer == null)
+            pixels = (pixelBuffer = new IntArray(size)).items;
+        else
+            pixels = pixelBuffer.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            pixels[i] = paletteArray[indices[i] & 0xFF];
+        }
+        writePixels(pixmap, pixels);
+        return pixmap;
+    }
+
     /**
      * If this PaletteReducer has already calculated a palette, you can use this to save the slightly-slow-to-compute
      * palette mapping in a preload file for later runs. Once you have the file and the same int array originally used
@@ -1403,6 +1772,34 @@ public class PaletteReducer {
 //        return (rf * rf + gf * gf + bf * bf) * 0x1.4p17;
     }
 
+    /**
+     * Finds where a color is in the space that the difference methods measure distance in, if they all measure squared
+     * Euclidean distance in the same space; this lets palette mappings be built with a {@link PaletteTree} instead of
+     * checking every palette color for every RGB555 cell. The difference between two colors must never be less than
+     * the square of the difference between their positions on any one axis, times the returned scale, where the
+     * positions are subtracted as floats. PaletteReducer's difference methods use Oklab, so this stores L, A, and B
+     * from {@link #OKLAB} and returns 512.0.
+     * <br>
+     * Because a subclass can override any of the difference methods, this returns 0.0 unless this object's class is
+     * exactly PaletteReducer, and a return of 0.0 means every palette color is checked, as before. A subclass that
+     * keeps the same difference methods can override this to return {@code super.colorPosition(r, g, b, position)}
+     * without the class check.
+     *
+     * @param r red, from 0 to 255
+     * @param g green, from 0 to 255
+     * @param b blue, from 0 to 255
+     * @param position a float array with length 3 or more; will be modified
+     * @return the scale to multiply a difference on one axis by, or 0.0 if the difference methods can't use positions
+     */
+    protected double colorPosition(int r, int g, int b, float[] position) {
+        if (getClass() != PaletteReducer.class) return 0.0;
+        final int idx = ((r << 7) & 0x7C00) | ((g << 2) & 0x3E0) | ((b >>> 3));
+        position[0] = OKLAB[0][idx];
+        position[1] = OKLAB[1][idx];
+        position[2] = OKLAB[2][idx];
+        return 512.0;
+    }
+
     /**
      * Resets the palette to the 256-color (including transparent) "Snuggly" palette. PaletteReducer already
      * stores most of the calculated data needed to use this one palette. Note that this uses a more-detailed
@@ -1445,8 +1842,7 @@ public class PaletteReducer {
         final int plen = Math.min(Math.min(256, limit), rgbaPalette.length);
         colorCount = plen;
         populationBias = (float) Math.exp(-1.375/colorCount);
-        int color, c2;
-        double dist;
+        int color;
         for (int i = 0; i < plen; i++) {
             color = rgbaPalette[i];
             if ((color & 0x80) != 0) {
@@ -1454,24 +1850,12 @@ public class PaletteReducer {
                 paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
             }
         }
-        int rr, gg, bb;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = 1E100;
-                        for (int i = 1; i < plen; i++) {
-                            if (dist > (dist = Math.min(dist, differenceMatch(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
+        fillPaletteMapping(paletteMapping, paletteArray, plen, 1E100, new PaletteDistance() {
+            @Override
+            public double difference(int i, int rr, int gg, int bb) {
+                return differenceMatch(paletteArray[i], rr, gg, bb);
             }
-        }
+        });
    }
 
     /**
@@ -1537,98 +1921,563 @@ public class PaletteReducer {
         final int plen = Math.min(Math.min(256, colorPalette.length), limit);
         colorCount = plen;
         populationBias = (float) Math.exp(-1.375/colorCount);
-        int color, c2;
-        double dist;
+        int color;
 
         for (int i = 0; i < plen; i++) {
             color = Color.rgba8888(colorPalette[i]);
             paletteArray[i] = color;
             paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
         }
-        int rr, gg, bb;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = 0x7FFFFFFF;
-                        for (int i = 1; i < plen; i++) {
-                            if (dist > (dist = Math.min(dist, differenceMatch(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
+        fillPaletteMapping(paletteMapping, paletteArray, plen, 0x7FFFFFFF, new PaletteDistance() {
+            @Override
+            public double difference(int i, int rr, int gg, int bb) {
+                return differenceMatch(paletteArray[i], rr, gg, bb);
+            }
+        });
+    }
+
+    /**
+     * Gets how different the palette color at {@code index} is from the color with the given RGB channels, typically
+     * by calling one of the difference methods, such as {@link #differenceMatch(int, int, int, int)}.
+     */
+    protected interface PaletteDistance {
+        double difference(int index, int r, int g, int b);
+    }
+
+    /**
+     * A k-d tree over the colors in a palette, placed where {@link #colorPosition(int, int, int, float[])} puts them,
+     * that finds the palette color a {@link PaletteDistance} considers closest to some other color. This checks the
+     * actual difference for any palette color it can't rule out, and breaks ties in favor of the lowest index, so it
+     * always finds the same palette index that checking every color in order would find.
+     * <br>
+     * The tree itself is never modified after it is built. Searching does store some state, so each thread should
+     * search using its own copy, made with {@link #PaletteTree(PaletteTree)}.
+     */
+    protected static class PaletteTree {
+        /**
+         * Palette indices arranged so the median of any range that was split is at the middle of that range.
+         */
+        protected final int[] order;
+        /**
+         * Which axis (0, 1, or 2) the range with its median at each position in {@link #order} was split on.
+         */
+        protected final byte[] axes;
+        /**
+         * The position of each palette color, 3 floats per palette index.
+         */
+        protected final float[] positions;
+        protected final double scale, limit;
+        protected final PaletteDistance difference;
+
+        protected float[] query;
+        protected int r, g, b, bestIndex;
+        protected double best;
+        /**
+         * True if the last search found another palette index with the same difference as the one it returned.
+         */
+        public boolean tied;
+
+        /**
+         * Builds a tree over the palette indices from 1 (inclusive) to {@code count} (exclusive).
+         * @param positions 3 floats per palette index, as produced by {@link #colorPosition(int, int, int, float[])}
+         * @param count one more than the highest palette index to search
+         * @param scale the scale returned by colorPosition()
+         * @param limit a palette index is only found if its difference is less than this
+         * @param difference measures the actual difference between a palette color and a color to search for
+         */
+        public PaletteTree(float[] positions, int count, double scale, double limit, PaletteDistance difference) {
+            this(positions, allIndices(count), Math.max(count - 1, 0), scale, limit, difference);
+        }
+
+        /**
+         * Builds a tree over only the first {@code size} palette indices in {@code indices}.
+         * @param positions 3 floats per palette index, as produced by {@link #colorPosition(int, int, int, float[])}
+         * @param indices palette indices to search, each greater than 0; the first {@code size} items are copied
+         * @param size how many items of {@code indices} to use
+         * @param scale the scale returned by colorPosition()
+         * @param limit a palette index is only found if its difference is less than this
+         * @param difference measures the actual difference between a palette color and a color to search for
+         */
+        public PaletteTree(float[] positions, int[] indices, int size, double scale, double limit, PaletteDistance difference) {
+            this.positions = positions;
+            this.scale = scale;
+            this.limit = limit;
+            this.difference = difference;
+            order = Arrays.copyOf(indices, size);
+            axes = new byte[size];
+            build(0, size);
+        }
+
+        private static int[] allIndices(int count) {
+            final int[] indices = new int[Math.max(count - 1, 0)];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i + 1;
+            }
+            return indices;
+        }
+
+        /**
+         * Makes a copy that shares the (unchanging) tree with {@code other}, but can search on a different thread.
+         * @param other another PaletteTree to share
+         */
+        public PaletteTree(PaletteTree other) {
+            order = other.order;
+            axes = other.axes;
+            positions = other.positions;
+            scale = other.scale;
+            limit = other.limit;
+            difference = other.difference;
+        }
+
+        protected void build(int from, int to) {
+            if (to - from < 2) return;
+            float lo0 = Float.POSITIVE_INFINITY, lo1 = lo0, lo2 = lo0, hi0 = Float.NEGATIVE_INFINITY, hi1 = hi0, hi2 = hi0;
+            for (int i = from; i < to; i++) {
+                final int p = order[i] * 3;
+                lo0 = Math.min(lo0, positions[p]);
+                hi0 = Math.max(hi0, positions[p]);
+                lo1 = Math.min(lo1, positions[p + 1]);
+                hi1 = Math.max(hi1, positions[p + 1]);
+                lo2 = Math.min(lo2, positions[p + 2]);
+                hi2 = Math.max(hi2, positions[p + 2]);
+            }
+            final int axis = hi0 - lo0 >= hi1 - lo1
+                    ? (hi0 - lo0 >= hi2 - lo2 ? 0 : 2)
+                    : (hi1 - lo1 >= hi2 - lo2 ? 1 : 2);
+            final int mid = from + to >>> 1;
+            select(from, to - 1, mid, axis);
+            axes[mid] = (byte) axis;
+            build(from, mid);
+            build(mid + 1, to);
+        }
+
+        /**
+         * Partially sorts {@link #order} between {@code low} and {@code high} (both inclusive) along {@code axis}, so
+         * the item at {@code nth} has no greater items before it and no lesser items after it.
+         */
+        protected void select(int low, int high, final int nth, final int axis) {
+            while (low < high) {
+                final float pivot = positions[order[low + high >>> 1] * 3 + axis];
+                int i = low, j = high;
+                while (i <= j) {
+                    while (positions[order[i] * 3 + axis] < pivot) i++;
+                    while (positions[order[j] * 3 + axis] > pivot) j--;
+                    if (i <= j) {
+                        final int t = order[i];
+                        order[i++] = order[j];
+                        order[j--] = t;
                     }
                 }
+                if (nth <= j) high = j;
+                else if (nth >= i) low = i;
+                else return;
             }
         }
-    }
 
-    protected static final Comparator<IntIntMap.Entry> entryComparator = new Comparator<IntIntMap.Entry>() {
-        @Override
-        public int compare(IntIntMap.Entry o1, IntIntMap.Entry o2) {
-            return o2.value - o1.value;
+        /**
+         * Finds the lowest palette index with the least difference from the given color, if that difference is less
+         * than the limit this was built with.
+         * @param r red of the color to search for, from 0 to 255
+         * @param g green of the color to search for, from 0 to 255
+         * @param b blue of the color to search for, from 0 to 255
+         * @param query the position of r, g, b as produced by {@link #colorPosition(int, int, int, float[])}
+         * @param hint a palette index that is likely to be close, such as the result for a neighboring color, or 0;
+         *             this is always considered, even if this tree wasn't built with it
+         * @return the closest palette index, or 0 if no palette color was closer than the limit
+         */
+        public int nearest(int r, int g, int b, float[] query, int hint) {
+            this.r = r;
+            this.g = g;
+            this.b = b;
+            this.query = query;
+            best = limit;
+            bestIndex = 0;
+            tied = false;
+            if (hint > 0 && hint * 3 < positions.length) {
+                final double dist = difference.difference(hint, r, g, b);
+                if (dist < best) {
+                    best = dist;
+                    bestIndex = hint;
+                }
+            }
+            search(0, order.length);
+            return bestIndex;
         }
-    };
 
-//    private static final Comparator<IntFloatMap.Entry> intFloatEntryComparator = new Comparator<IntFloatMap.Entry>() {
-//        @Override
-//        public int compare(IntFloatMap.Entry o1, IntFloatMap.Entry o2) {
-//            return NumberUtils.floatToIntBits(o2.value - o1.value);
-//        }
-//    };
+        protected void search(int from, int to) {
+            if (from >= to) return;
+            final int mid = from + to >>> 1, index = order[mid], axis = axes[mid];
+            final double dist = difference.difference(index, r, g, b);
+            if (dist < best) {
+                best = dist;
+                bestIndex = index;
+                tied = false;
+            } else if (dist == best && bestIndex != 0 && index != bestIndex) {
+                tied = true;
+                if (index < bestIndex) bestIndex = index;
+            }
+            final double gap = (query[axis] - positions[index * 3 + axis]) * scale;
+            if (gap <= 0) {
+                search(from, mid);
+                if (gap * gap <= best) search(mid + 1, to);
+            } else {
+                search(mid + 1, to);
+                if (gap * gap <= best) search(from, mid);
+            }
+        }
+    }
 
     /**
-     * Just like Comparator, but compares primitive ints.
+     * Builds a {@link PaletteTree} over the palette indices from 1 (inclusive) to {@code count} (exclusive), or returns
+     * null if {@link #colorPosition(int, int, int, float[])} says the difference methods can't use one.
      */
-    public interface IntComparator {
-        /**
-         * Compares its two primitive-type arguments for order. Returns a negative
-         * integer, zero, or a positive integer as the first argument is less than,
-         * equal to, or greater than the second.
-         *
-         * @return a negative integer, zero, or a positive integer as the first argument
-         * is less than, equal to, or greater than the second.
-         * @see Comparator
-         */
-        int compare(int k1, int k2);
+    protected PaletteTree buildPaletteTree(int[] palette, int count, double limit, PaletteDistance difference) {
+        if (count < 2) return null;
+        final float[] positions = new float[count * 3], position = new float[3];
+        double scale = 0.0;
+        for (int i = 1; i < count; i++) {
+            final int color = palette[i];
+            if ((scale = colorPosition(color >>> 24, color >>> 16 & 255, color >>> 8 & 255, position)) <= 0.0)
+                return null;
+            System.arraycopy(position, 0, positions, i * 3, 3);
+        }
+        return new PaletteTree(positions, count, scale, limit, difference);
     }
 
     /**
-     * Compares shrunken indices (RGB555) by lightness as Oklab knows it.
+     * Fills every RGB555 cell in {@code mapping} that is still 0 with the palette index from 1 (inclusive) to
+     * {@code count} (exclusive) that {@code difference} says is closest, as long as that difference is less than
+     * {@code limit}. This uses a {@link PaletteTree} when it can, starting each search from the result of the previous
+     * cell, and otherwise checks every palette color. Each red value is handled as a separate task by
+     * {@link #getParallelism()}.
+     *
+     * @param mapping a 32768-element RGB555 mapping, such as {@link #paletteMapping}
+     * @param palette the RGBA8888 palette the indices refer to
+     * @param count one more than the highest palette index to consider
+     * @param limit a cell is only changed if the closest palette color has a difference less than this
+     * @param difference measures the difference between a palette index and an RGB color
+     */
+    protected void fillPaletteMapping(final byte[] mapping, final int[] palette, final int count, final double limit,
+                                      final PaletteDistance difference) {
+        final PaletteTree shared = buildPaletteTree(palette, count, limit, difference);
+        parallelism.run(32, new Parallelism.Task() {
+            @Override
+            public void run(int r) {
+                final int rr = (r << 3 | r >>> 2);
+                final PaletteTree tree = shared == null ? null : new PaletteTree(shared);
+                final float[] query = new float[3];
+                int gg, bb, c2, hint = 0;
+                double dist;
+                for (int g = 0; g < 32; g++) {
+                    gg = (g << 3 | g >>> 2);
+                    for (int b = 0; b < 32; b++) {
+                        c2 = r << 10 | g << 5 | b;
+                        if (mapping[c2] == 0) {
+                            bb = (b << 3 | b >>> 2);
+                            if (tree != null) {
+                                colorPosition(rr, gg, bb, query);
+                                hint = tree.nearest(rr, gg, bb, query, hint);
+                                mapping[c2] = (byte) hint;
+                                continue;
+                            }
+                            dist = limit;
+                            for (int i = 1; i < count; i++) {
+                                if (dist > (dist = Math.min(dist, difference.difference(i, rr, gg, bb))))
+                                    mapping[c2] = (byte) i;
+                            }
+                        }
+                        else hint = mapping[c2] & 255;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * A copy of {@link #paletteMapping} as of the last call to
+     * {@link #updatePaletteMapping(int, double, PaletteDistance)}, or null if that hasn't been called.
      */
-    protected static final IntComparator lightnessComparator = new IntComparator() {
+    protected transient byte[] lastMapping;
+    /**
+     * For each RGB555 cell, true if the last call to {@link #updatePaletteMapping(int, double, PaletteDistance)}
+     * found exactly one closest palette color for that cell, so the cell only needs checking against new colors.
+     */
+    protected transient boolean[] lastMappingKnown, nextMappingKnown;
+    /**
+     * A copy of {@link #paletteArray} as of the last call to {@link #updatePaletteMapping(int, double, PaletteDistance)}.
+     */
+    protected transient int[] lastPalette;
+    protected transient int lastColorCount;
+    protected transient double lastLimit;
+    /**
+     * The PaletteDistance given to the last call to {@link #updatePaletteMapping(int, double, PaletteDistance)}, or
+     * null if {@link #lastMapping} was instead filled by {@link #analyzeFast(Pixmap, double, int)}.
+     */
+    protected transient PaletteDistance lastDifference;
+
+    /**
+     * Measures with {@link #differenceAnalyzing(int, int, int, int)} against {@link #paletteArray}. Every analyze
+     * method that uses differenceAnalyzing() passes this same object to
+     * {@link #updatePaletteMapping(int, double, PaletteDistance)}, so it can tell when its last result is reusable.
+     */
+    protected transient final PaletteDistance analyzingDistance = new PaletteDistance() {
         @Override
-        public int compare(int k1, int k2) {
-            return NumberUtils.floatToIntBits(OKLAB[0][k2] - OKLAB[0][k1]);
+        public double difference(int index, int r, int g, int b) {
+            return differenceAnalyzing(paletteArray[index], r, g, b);
         }
     };
 
     /**
-     * Compares shrunken indices (RGB555) by hue as Oklab knows it.
+     * Measures with {@link #differenceHW(int, int, int, int)} against {@link #paletteArray}, for the analyzeHueWise()
+     * methods; see {@link #analyzingDistance}.
      */
-    protected static final IntComparator hueComparator = new IntComparator() {
+    protected transient final PaletteDistance hueWiseDistance = new PaletteDistance() {
         @Override
-        public int compare(int k1, int k2) {
-            return NumberUtils.floatToIntBits(OKLAB[3][k2] - OKLAB[3][k1]);
+        public double difference(int index, int r, int g, int b) {
+            return differenceHW(paletteArray[index], r, g, b);
         }
     };
 
-    // Start of code primarily based on FastUtil.
-    // See https://github.com/vigna/fastutil/blob/8.5.8/LICENSE-2.0 for
-    // the license of this block (Apache License 2.0).
-
-    private static void swap (int[] items, int first, int second) {
-        int firstValue = items[first];
-        items[first] = items[second];
-        items[second] = firstValue;
-    }
-
     /**
-     * Transforms two consecutive sorted ranges into a single sorted range. The initial ranges are
-     * {@code [first..middle)} and {@code [middle..last)}, and the resulting range is
-     * {@code [first..last)}. Elements in the first input range will precede equal elements in
+     * Like {@link #fillPaletteMapping(byte[], int[], int, double, PaletteDistance)} for {@link #paletteMapping} and
+     * {@link #paletteArray}, but reuses the result of the last call to this method where it can. A cell whose closest
+     * color last time is still in the palette, and wasn't tied with another color, only needs to be checked against
+     * colors that were added to the palette since then; other cells are searched in full. The result is the same as
+     * fillPaletteMapping() would produce. The last result is only reused if {@code difference} is the same object and
+     * {@code limit} is the same value as in the last call, so callers should pass a PaletteDistance that is kept in a
+     * field, such as {@link #analyzingDistance}, rather than making a new one each time. If the difference methods
+     * can't use a {@link PaletteTree}, this just calls fillPaletteMapping().
+     *
+     * @param count one more than the highest palette index to consider
+     * @param limit a cell is only changed if the closest palette color has a difference less than this
+     * @param difference measures the difference between a palette index and an RGB color
+     */
+    protected void updatePaletteMapping(final int count, final double limit, final PaletteDistance difference) {
+        final byte[] mapping = paletteMapping;
+        final PaletteTree shared = buildPaletteTree(paletteArray, count, limit, difference);
+        if (shared == null) {
+            lastMapping = null;
+            fillPaletteMapping(mapping, paletteArray, count, limit, difference);
+            return;
+        }
+        allocateLastMapping();
+        // moved[i] is the index that lastPalette[i] has now, or 0 if it was removed.
+        final int[] moved = new int[256], added = new int[256];
+        int addedCount = 0;
+        boolean incremental = lastColorCount > 1 && lastLimit == limit && lastDifference == difference;
+        if (incremental) {
+            final IntIntMap now = new IntIntMap(count);
+            for (int i = 1; i < count; i++) {
+                if (now.get(paletteArray[i], 0) != 0) {
+                    incremental = false;
+                    break;
+                }
+                now.put(paletteArray[i], i);
+            }
+            final IntIntMap before = new IntIntMap(lastColorCount);
+            for (int i = 1; i < lastColorCount; i++) {
+                moved[i] = now.get(lastPalette[i], 0);
+                before.put(lastPalette[i], i);
+            }
+            for (int i = 1; i < count; i++) {
+                if (!before.containsKey(paletteArray[i]))
+                    added[addedCount++] = i;
+            }
+        }
+        final PaletteTree addedShared = incremental
+                ? new PaletteTree(shared.positions, added, addedCount, shared.scale, limit, difference) : null;
+        final boolean[] known = lastMappingKnown, nextKnown = nextMappingKnown;
+        final byte[] last = lastMapping;
+        parallelism.run(32, new Parallelism.Task() {
+            @Override
+            public void run(int r) {
+                final int rr = (r << 3 | r >>> 2);
+                final PaletteTree tree = new PaletteTree(shared),
+                        addedTree = addedShared == null ? null : new PaletteTree(addedShared);
+                final float[] query = new float[3];
+                int gg, bb, c2, kept, hint = 0;
+                for (int g = 0; g < 32; g++) {
+                    gg = (g << 3 | g >>> 2);
+                    for (int b = 0; b < 32; b++) {
+                        c2 = r << 10 | g << 5 | b;
+                        if (mapping[c2] == 0) {
+                            bb = (b << 3 | b >>> 2);
+                            colorPosition(rr, gg, bb, query);
+                            if (addedTree != null && known[c2] && (kept = moved[last[c2] & 255]) != 0) {
+                                hint = addedTree.nearest(rr, gg, bb, query, kept);
+                                nextKnown[c2] = !addedTree.tied;
+                            } else {
+                                hint = tree.nearest(rr, gg, bb, query, hint);
+                                nextKnown[c2] = hint != 0 && !tree.tied;
+                            }
+                            mapping[c2] = (byte) hint;
+                        }
+                        else {
+                            hint = mapping[c2] & 255;
+                            nextKnown[c2] = false;
+                        }
+                    }
+                }
+            }
+        });
+        lastMappingKnown = nextKnown;
+        nextMappingKnown = known;
+        System.arraycopy(mapping, 0, lastMapping, 0, 0x8000);
+        System.arraycopy(paletteArray, 0, lastPalette, 0, 256);
+        lastColorCount = count;
+        lastLimit = limit;
+        lastDifference = difference;
+    }
+
+    /**
+     * Creates {@link #lastMapping} and the arrays that go with it, if they haven't been created yet.
+     */
+    protected void allocateLastMapping() {
+        if (lastMapping == null) {
+            lastMapping = new byte[0x8000];
+            lastMappingKnown = new boolean[0x8000];
+            nextMappingKnown = new boolean[0x8000];
+            lastPalette = new int[256];
+            lastColorCount = 0;
+        }
+    }
+
+    /**
+     * Used by {@link #analyzeFast(Pixmap, double, int)}, which fills {@link #paletteMapping} by spreading each palette
+     * color's cell into its empty neighbors. That fill only depends on which cells hold a palette color, so if the
+     * palette has exactly the same colors as the last fill, just in a different order, the last fill can be reused
+     * with its indices changed to match. This does that and returns true if it can, or returns false if the mapping
+     * needs to be filled again.
+     *
+     * @param count one more than the highest palette index in use
+     * @return true if {@link #paletteMapping} was filled from the last result
+     */
+    protected boolean reuseFilledMapping(final int count) {
+        if (lastMapping == null || lastDifference != null || lastColorCount != count) return false;
+        final IntIntMap before = new IntIntMap(count);
+        for (int i = 1; i < count; i++) {
+            before.put(lastPalette[i], i);
+        }
+        // moved[i] is the index that lastPalette[i] has now.
+        final int[] moved = new int[256];
+        for (int i = 1; i < count; i++) {
+            final int old = before.get(paletteArray[i], 0);
+            if (old == 0 || moved[old] != 0) return false;
+            moved[old] = i;
+        }
+        final byte[] mapping = paletteMapping, last = lastMapping;
+        for (int c = 0; c < 0x8000; c++) {
+            mapping[c] = (byte) moved[last[c] & 255];
+        }
+        System.arraycopy(paletteArray, 0, lastPalette, 0, 256);
+        System.arraycopy(mapping, 0, last, 0, 0x8000);
+        return true;
+    }
+
+    /**
+     * Exactly like {@link #fillPaletteMapping(byte[], int[], int, double, PaletteDistance)}, but for a mapping that can
+     * refer to more than 256 palette indices, such as {@link #bigPaletteMapping}.
+     */
+    protected void fillPaletteMapping(final char[] mapping, final int[] palette, final int count, final double limit,
+                                      final PaletteDistance difference) {
+        final PaletteTree shared = buildPaletteTree(palette, count, limit, difference);
+        parallelism.run(32, new Parallelism.Task() {
+            @Override
+            public void run(int r) {
+                final int rr = (r << 3 | r >>> 2);
+                final PaletteTree tree = shared == null ? null : new PaletteTree(shared);
+                final float[] query = new float[3];
+                int gg, bb, c2, hint = 0;
+                double dist;
+                for (int g = 0; g < 32; g++) {
+                    gg = (g << 3 | g >>> 2);
+                    for (int b = 0; b < 32; b++) {
+                        c2 = r << 10 | g << 5 | b;
+                        if (mapping[c2] == 0) {
+                            bb = (b << 3 | b >>> 2);
+                            if (tree != null) {
+                                colorPosition(rr, gg, bb, query);
+                                hint = tree.nearest(rr, gg, bb, query, hint);
+                                mapping[c2] = (char) hint;
+                                continue;
+                            }
+                            dist = limit;
+                            for (int i = 1; i < count; i++) {
+                                if (dist > (dist = Math.min(dist, difference.difference(i, rr, gg, bb))))
+                                    mapping[c2] = (char) i;
+                            }
+                        }
+                        else hint = mapping[c2];
+                    }
+                }
+            }
+        });
+    }
+
+    protected static final Comparator<IntIntMap.Entry> entryComparator = new Comparator<IntIntMap.Entry>() {
+        @Override
+        public int compare(IntIntMap.Entry o1, IntIntMap.Entry o2) {
+            return o2.value - o1.value;
+        }
+    };
+
+//    private static final Comparator<IntFloatMap.Entry> intFloatEntryComparator = new Comparator<IntFloatMap.Entry>() {
+//        @Override
+//        public int compare(IntFloatMap.Entry o1, IntFloatMap.Entry o2) {
+//            return NumberUtils.floatToIntBits(o2.value - o1.value);
+//        }
+//    };
+
+    /**
+     * Just like Comparator, but compares primitive ints.
+     */
+    public interface IntComparator {
+        /**
+         * Compares its two primitive-type arguments for order. Returns a negative
+         * integer, zero, or a positive integer as the first argument is less than,
+         * equal to, or greater than the second.
+         *
+         * @return a negative integer, zero, or a positive integer as the first argument
+         * is less than, equal to, or greater than the second.
+         * @see Comparator
+         */
+        int compare(int k1, int k2);
+    }
+
+    /**
+     * Compares shrunken indices (RGB555) by lightness as Oklab knows it.
+     */
+    protected static final IntComparator lightnessComparator = new IntComparator() {
+        @Override
+        public int compare(int k1, int k2) {
+            return NumberUtils.floatToIntBits(OKLAB[0][k2] - OKLAB[0][k1]);
+        }
+    };
+
+    /**
+     * Compares shrunken indices (RGB555) by hue as Oklab knows it.
+     */
+    protected static final IntComparator hueComparator = new IntComparator() {
+        @Override
+        public int compare(int k1, int k2) {
+            return NumberUtils.floatToIntBits(OKLAB[3][k2] - OKLAB[3][k1]);
+        }
+    };
+
+    // Start of code primarily based on FastUtil.
+    // See https://github.com/vigna/fastutil/blob/8.5.8/LICENSE-2.0 for
+    // the license of this block (Apache License 2.0).
+
+    private static void swap (int[] items, int first, int second) {
+        int firstValue = items[first];
+        items[first] = items[second];
+        items[second] = firstValue;
+    }
+
+    /**
+     * Transforms two consecutive sorted ranges into a single sorted range. The initial ranges are
+     * {@code [first..middle)} and {@code [middle..last)}, and the resulting range is
+     * {@code [first..last)}. Elements in the first input range will precede equal elements in
      * the second.
      */
     private static void inPlaceMerge (int[] items, final int from, int mid, final int to, final IntComparator comp) {
@@ -1889,7 +2738,7 @@ public class PaletteReducer {
             e2.value = e.value;
             es.add(e2);
         }
-        es.sort(entryComparator);
+        entrySort.sort(es, entryComparator);
         if (cs < limit) {
             int i = 1;
             for(IntIntMap.Entry e : es) {
@@ -1918,26 +2767,7 @@ public class PaletteReducer {
             populationBias = (float) Math.exp(-1.375/colorCount);
         }
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.MAX_VALUE;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceAnalyzing(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.MAX_VALUE, analyzingDistance);
     }
 
     /**
@@ -1998,7 +2828,7 @@ public class PaletteReducer {
                 e2.value = e.value;
                 es.add(e2);
             }
-            es.sort(entryComparator);
+            entrySort.sort(es, entryComparator);
             int i = 1;
             for(IntIntMap.Entry e : es) {
                 color = e.key;
@@ -2058,26 +2888,7 @@ public class PaletteReducer {
             populationBias = (float) Math.exp(-1.375/colorCount);
         }
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.MAX_VALUE;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceHW(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.MAX_VALUE, hueWiseDistance);
     }
 
     /**
@@ -2100,7 +2911,8 @@ public class PaletteReducer {
      * <br>
      * This does a faster and less accurate analysis, and is more suitable to do on each frame of a large animation when
      * time is better spent making more images than fewer images at higher quality. It should be about 5 times faster
-     * than {@link #analyze(Pixmap, double, int)} with the same parameters.
+     * than {@link #analyze(Pixmap, double, int)} with the same parameters. When this is called for each frame and the
+     * palette comes out with the same colors as last time, the last frame's mapping is reused instead of filled again.
      *
      * @param pixmap    a Pixmap to analyze, making a palette which can be used by this to {@link #reduce(Pixmap)} or by PNG8
      * @param threshold a minimum color difference as produced by {@link #differenceAnalyzing(int, int)}; usually between 50 and 200, 100 is a good default
@@ -2132,7 +2944,7 @@ public class PaletteReducer {
             e2.value = e.value;
             es.add(e2);
         }
-        es.sort(entryComparator);
+        entrySort.sort(es, entryComparator);
         if (cs < limit) {
             int i = 1;
             for(IntIntMap.Entry e : es) {
@@ -2163,6 +2975,8 @@ public class PaletteReducer {
 
         if(colorCount <= 1)
             return;
+        if(reuseFilledMapping(colorCount))
+            return;
         int c2;
         byte bt;
         int numUnassigned = 1, iterations = 0;
@@ -2236,6 +3050,11 @@ public class PaletteReducer {
             }
             System.arraycopy(buffer, 0, paletteMapping, 0, 0x8000);
         }
+        allocateLastMapping();
+        System.arraycopy(paletteMapping, 0, lastMapping, 0, 0x8000);
+        System.arraycopy(paletteArray, 0, lastPalette, 0, 256);
+        lastColorCount = colorCount;
+        lastDifference = null;
     }
 
     public void analyzeMC(Pixmap pixmap, int limit) {
@@ -2405,26 +3224,7 @@ public class PaletteReducer {
             populationBias = (float) Math.exp(-1.375/colorCount);
         }
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.POSITIVE_INFINITY;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceAnalyzing(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.POSITIVE_INFINITY, analyzingDistance);
     }
 
     protected static boolean bigPaletteLoaded = false;
@@ -2447,32 +3247,19 @@ public class PaletteReducer {
             System.arraycopy(palette, 0, BIG_PALETTE, 0, Math.min(plen, BIG_PALETTE.length));
         if(plen < BIG_PALETTE.length)
             Arrays.fill(BIG_PALETTE, plen, 1024, 0);
-        int color, c2;
-        double dist;
+        int color;
         for (int i = 0; i < plen; i++) {
             color = palette[i];
             if ((color & 0x80) != 0) {
                 bigPaletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (char) i;
             }
         }
-        int rr, gg, bb;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (bigPaletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = 1E100;
-                        for (int i = 1; i < plen; i++) {
-                            if (dist > (dist = Math.min(dist, differenceMatch(BIG_PALETTE[i], rr, gg, bb))))
-                                bigPaletteMapping[c2] = (char) i;
-                        }
-                    }
-                }
+        fillPaletteMapping(bigPaletteMapping, BIG_PALETTE, plen, 1E100, new PaletteDistance() {
+            @Override
+            public double difference(int i, int rr, int gg, int bb) {
+                return differenceMatch(BIG_PALETTE[i], rr, gg, bb);
             }
-        }
+        });
         bigPaletteLoaded = true;
     }
 
@@ -2630,7 +3417,6 @@ public class PaletteReducer {
 //        threshold /= Math.sqrt(limit + 16) * 0.5;
         final int width = pixmap.getWidth(), height = pixmap.getHeight();
         IntIntMap counts = new IntIntMap(limit);
-        int[] reds = new int[limit], greens = new int[limit], blues = new int[limit];
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
                 color = pixmap.getPixel(x, y) & 0xF8F8F880;
@@ -2649,16 +3435,13 @@ public class PaletteReducer {
             e2.value = e.value;
             es.add(e2);
         }
-        es.sort(entryComparator);
+        entrySort.sort(es, entryComparator);
         if (cs < limit) {
             int i = 1;
             for(IntIntMap.Entry e : es) {
                 color = e.key;
                 paletteArray[i] = color;
                 paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                reds[i] = color >>> 24;
-                greens[i] = color >>> 16 & 255;
-                blues[i] = color >>> 8 & 255;
                 i++;
             }
             colorCount = i;
@@ -2680,9 +3463,6 @@ public class PaletteReducer {
                     es.removeIndex(c-1);
                     paletteArray[i] = color;
                     paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                    reds[i] = color >>> 24;
-                    greens[i] = color >>> 16 & 255;
-                    blues[i] = color >>> 8 & 255;
                     if (++i >= limit) break BIG_LOOP;
                 }
                 threshold *= 0.65;
@@ -2691,26 +3471,7 @@ public class PaletteReducer {
             populationBias = (float) Math.exp(-1.375/colorCount);
         }
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.MAX_VALUE;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceAnalyzing(reds[i], greens[i], blues[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.MAX_VALUE, analyzingDistance);
     }
 
 
@@ -2818,7 +3579,6 @@ public class PaletteReducer {
         limit = Math.min(Math.max(limit, 2), 256);
         threshold /= Math.min(0.5625, Math.pow(limit + 16, 1.45) * 0.00025);
         IntIntMap counts = new IntIntMap(limit);
-        int[] reds = new int[limit], greens = new int[limit], blues = new int[limit];
         for (int i = 0; i < pixmapCount && i < pixmaps.length; i++) {
             Pixmap pixmap = pixmaps[i];
             final int width = pixmap.getWidth(), height = pixmap.getHeight();
@@ -2841,16 +3601,13 @@ public class PaletteReducer {
             e2.value = e.value;
             es.add(e2);
         }
-        es.sort(entryComparator);
+        entrySort.sort(es, entryComparator);
         if (cs < limit) {
             int i = 1;
             for(IntIntMap.Entry e : es) {
                 color = e.key;
                 paletteArray[i] = color;
                 paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                reds[i] = color >>> 24;
-                greens[i] = color >>> 16 & 255;
-                blues[i] = color >>> 8 & 255;
                 i++;
             }
             colorCount = i;
@@ -2868,35 +3625,13 @@ public class PaletteReducer {
                 }
                 paletteArray[i] = color;
                 paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                reds[i] = color >>> 24;
-                greens[i] = color >>> 16 & 255;
-                blues[i] = color >>> 8 & 255;
                 i++;
             }
             colorCount = i;
             populationBias = (float) Math.exp(-1.375/colorCount);
         }
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.MAX_VALUE;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceAnalyzing(reds[i], greens[i], blues[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.MAX_VALUE, analyzingDistance);
     }
 
     /**
@@ -2992,7 +3727,6 @@ public class PaletteReducer {
         final int w0 = pixmaps[0].getWidth(), h0 = pixmaps[0].getHeight();
         IntIntMap counts = new IntIntMap(limit);
         IntArray enc = new IntArray(w0 * h0 * pixmapCount / 10);
-        int[] reds = new int[limit], greens = new int[limit], blues = new int[limit];
         for (int i = 0; i < pixmapCount && i < pixmaps.length; i++) {
             Pixmap pixmap = pixmaps[i];
             final int width = pixmap.getWidth(), height = pixmap.getHeight();
@@ -3018,15 +3752,12 @@ public class PaletteReducer {
                 e2.value = e.value;
                 es.add(e2);
             }
-            es.sort(entryComparator);
+            entrySort.sort(es, entryComparator);
             int i = 1;
             for(IntIntMap.Entry e : es) {
                 color = e.key;
                 paletteArray[i] = color;
                 paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                reds[i] = color >>> 24;
-                greens[i] = color >>> 16 & 255;
-                blues[i] = color >>> 8 & 255;
                 i++;
             }
             colorCount = i;
@@ -3036,13 +3767,7 @@ public class PaletteReducer {
             final int[] ei = enc.items;
             sort(ei, 0, enc.size, hueComparator);
             paletteArray[1] = -1; // white
-            reds[1] = 255;
-            greens[1] = 255;
-            blues[1] = 255;
             paletteArray[2] = 255; // black
-            reds[2] = 0;
-            greens[2] = 0;
-            blues[2] = 0;
             int i = 3, encs = enc.size, segments = Math.min(encs, limit - 3) + 1 >> 1, e = 0;
             double lightPieces = Math.ceil(Math.log(limit));
             PER_BEST:
@@ -3080,9 +3805,6 @@ public class PaletteReducer {
                     }
                     paletteArray[i] = color;
                     paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                    reds[i] = color >>> 24;
-                    greens[i] = color >>> 16 & 255;
-                    blues[i] = color >>> 8 & 255;
                     i++;
                 }
             }
@@ -3090,26 +3812,7 @@ public class PaletteReducer {
         }
         populationBias = (float) Math.exp(-1.375/colorCount);
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.MAX_VALUE;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceHW(reds[i], greens[i], blues[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.MAX_VALUE, hueWiseDistance);
     }
 
     /**
@@ -3222,7 +3925,6 @@ public class PaletteReducer {
         threshold /= Math.min(0.3, Math.pow(limit + 16, 1.45) * 0.00013333);
 //        threshold /= Math.sqrt(limit + 16) * 0.5;
         IntIntMap counts = new IntIntMap(limit);
-        int[] reds = new int[limit], greens = new int[limit], blues = new int[limit];
         for (int i = 0; i < pixmapCount && i < pixmaps.length; i++) {
             Pixmap pixmap = pixmaps[i];
             final int width = pixmap.getWidth(), height = pixmap.getHeight();
@@ -3245,16 +3947,13 @@ public class PaletteReducer {
             e2.value = e.value;
             es.add(e2);
         }
-        es.sort(entryComparator);
+        entrySort.sort(es, entryComparator);
         if (cs < limit) {
             int i = 1;
             for(IntIntMap.Entry e : es) {
                 color = e.key;
                 paletteArray[i] = color;
                 paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                reds[i] = color >>> 24;
-                greens[i] = color >>> 16 & 255;
-                blues[i] = color >>> 8 & 255;
                 i++;
             }
             colorCount = i;
@@ -3276,9 +3975,6 @@ public class PaletteReducer {
                     es.removeIndex(c-1);
                     paletteArray[i] = color;
                     paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-                    reds[i] = color >>> 24;
-                    greens[i] = color >>> 16 & 255;
-                    blues[i] = color >>> 8 & 255;
                     if (++i >= limit) break BIG_LOOP;
                 }
                 threshold *= 0.65;
@@ -3287,26 +3983,7 @@ public class PaletteReducer {
             populationBias = (float) Math.exp(-1.375/colorCount);
         }
 
-        int c2;
-        int rr, gg, bb;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = Double.MAX_VALUE;
-                        for (int i = 1; i < colorCount; i++) {
-                            if (dist > (dist = Math.min(dist, differenceAnalyzing(reds[i], greens[i], blues[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
-        }
+        updatePaletteMapping(colorCount, Double.MAX_VALUE, analyzingDistance);
     }
 
     /**
@@ -3332,6 +4009,35 @@ public class PaletteReducer {
         this.ditherStrength = Math.max(0f, ditherStrength);
     }
 
+    /**
+     * Gets the {@link Parallelism} this uses to dither some images and build palettes on more than one thread at once.
+     * @return the Parallelism this uses; never null
+     */
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the {@link Parallelism} this uses to dither some images and build palettes on more than one thread at once.
+     * The ordered dithers
+     * that only depend on a pixel's position and color ({@link #reduceSolid(Pixmap)}, {@link #reduceJimenez(Pixmap)},
+     * {@link #reduceAdditive(Pixmap)}, {@link #reduceRoberts(Pixmap)}, {@link #reduceLoaf(Pixmap)},
+     * {@link #reduceGourd(Pixmap)}, {@link #reduceBlueNoise(Pixmap)}, {@link #reduceKnoll(Pixmap)},
+     * {@link #reduceMarten(Pixmap)}, and {@link #reduceKnollRoberts(Pixmap)}) split the image into bands of rows
+     * and dither each band at the same time. The error-diffusion dithers, such as {@link #reduceWren(Pixmap)} and
+     * {@link #reduceFloydSteinberg(Pixmap)}, instead dither rows in a wavefront, where each row follows a few pixels
+     * behind the row above it. Building a palette with {@link #exact(int[])} or any of the analyze methods also
+     * splits its 32768-entry color mapping by red channel and fills each part at the same time. The output is exactly
+     * the same as it would be using one thread.
+     * <br>
+     * On desktop and Android, {@code new ForkJoinParallelism()} uses every core in the common ForkJoinPool. This
+     * PaletteReducer should still only be used by one thread at a time.
+     * @param parallelism a Parallelism such as a {@link ForkJoinParallelism}; if null, this uses {@link Parallelism#SERIAL}
+     */
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism == null ? Parallelism.SERIAL : parallelism;
+    }
+
     public float getPopulationBias() {
         return populationBias;
     }
@@ -3350,6 +4056,36 @@ public class PaletteReducer {
         this.populationBias = populationBias;
     }
 
+    /**
+     * Copies the palette, palette mapping, color count, population bias, and dither strength from {@code other} into
+     * this PaletteReducer. The difference methods aren't copied, since they belong to the class, and neither is the
+     * {@link #getParallelism() Parallelism}.
+     *
+     * @param other another PaletteReducer to copy from
+     * @return this, for chaining
+     */
+    public PaletteReducer set(PaletteReducer other) {
+        System.arraycopy(other.paletteArray, 0, paletteArray, 0, 256);
+        System.arraycopy(other.paletteMapping, 0, paletteMapping, 0, 0x8000);
+        colorCount = other.colorCount;
+        populationBias = other.populationBias;
+        ditherStrength = other.ditherStrength;
+        return this;
+    }
+
+    /**
+     * Creates a new PaletteReducer with the same palette and settings as this one, using {@link #set(PaletteReducer)}.
+     * Subclasses must override this to return an instance of their own class, as {@link FastPalette} and
+     * {@link QualityPalette} do, so the copy measures color differences and dithers the same way; otherwise, they get
+     * a plain PaletteReducer. {@link AnimatedGif#addFrames(Array)} checks this, and only encodes frames in parallel
+     * when the copy is the same class as the original. The copy always uses {@link Parallelism#SERIAL}.
+     *
+     * @return a new PaletteReducer with the same palette as this
+     */
+    public PaletteReducer copy() {
+        return new PaletteReducer().set(this);
+    }
+
     /**
      * Modifies the given Pixmap so that it only uses colors present in this PaletteReducer, dithering when it can by
      * using WREN dithering (this merely delegates to {@link #reduceWren(Pixmap)}).
@@ -3422,6 +4158,137 @@ public class PaletteReducer {
         }
     }
 
+    /**
+     * Uses the given {@link Dithered.DitherAlgorithm} to decide how to dither {@code pixmap}, but instead of changing
+     * {@code pixmap}, this writes the palette index for each pixel into {@code out}, in row-major order starting at the
+     * top-left. Looking up each index in {@link #paletteArray} gets the same color that
+     * {@link #reduce(Pixmap, Dithered.DitherAlgorithm)} would have drawn; fully-transparent pixels get index 0 if the
+     * palette has transparency. Because {@code pixmap} is only read, the same Pixmap can be given to several
+     * PaletteReducers at once, though each PaletteReducer should only be used by one thread at a time.
+     * @param pixmap a Pixmap that will not be modified
+     * @param ditherAlgorithm a dithering algorithm enum value; if not recognized, defaults to {@link Dithered.DitherAlgorithm#WREN}
+     * @param out a byte array that will receive palette indices; if null or too small, a new array will be allocated
+     * @return {@code out} after modifications, or a new byte array if {@code out} was null or too small
+     */
+    public byte[] reduceToIndices(Pixmap pixmap, Dithered.DitherAlgorithm ditherAlgorithm, byte[] out) {
+        return reduceToIndices(pixmap, ditherAlgorithm, out, false, 1);
+    }
+
+    /**
+     * Like {@link #reduceToIndices(Pixmap, Dithered.DitherAlgorithm, byte[])}, but can flip the image vertically and
+     * can vary dithers that change from frame to frame. If {@code flipY} is true, the first row of indices in
+     * {@code out} is for the last row of {@code pixmap}, and the dither is applied to the flipped image. The noise used
+     * by {@link Dithered.DitherAlgorithm#BLUE_NOISE}, {@link Dithered.DitherAlgorithm#BLUNT},
+     * {@link Dithered.DitherAlgorithm#BANTER}, {@link Dithered.DitherAlgorithm#NEUE},
+     * {@link Dithered.DitherAlgorithm#DODGY}, {@link Dithered.DitherAlgorithm#WREN},
+     * {@link Dithered.DitherAlgorithm#OVERBOARD}, {@link Dithered.DitherAlgorithm#OCEANIC} and
+     * {@link Dithered.DitherAlgorithm#SEASIDE} is still looked up by each pixel's row in {@code pixmap}, though. Only
+     * {@link Dithered.DitherAlgorithm#CHAOTIC_NOISE} uses {@code frame} at the moment, to seed its white noise; a frame
+     * of 1 gives the same result as the other overload.
+     * @param pixmap a Pixmap that will not be modified
+     * @param ditherAlgorithm a dithering algorithm enum value; if not recognized, defaults to {@link Dithered.DitherAlgorithm#WREN}
+     * @param out a byte array that will receive palette indices; if null or too small, a new array will be allocated
+     * @param flipY if true, the rows of indices will be in bottom-to-top order
+     * @param frame typically the number of the frame in an animation; seeds dithers that change between frames
+     * @return {@code out} after modifications, or a new byte array if {@code out} was null or too small
+     */
+    public byte[] reduceToIndices(Pixmap pixmap, Dithered.DitherAlgorithm ditherAlgorithm, byte[] out, boolean flipY, int frame) {
+        return reduceToIndices(pixmap, ditherAlgorithm, out, flipY, flipY, frame);
+    }
+
+    /**
+     * Like {@link #reduceToIndices(Pixmap, Dithered.DitherAlgorithm, byte[], boolean, int)}, but chooses separately
+     * whether the noise-based dithers look their noise up by row in {@code pixmap} (if {@code flipNoise} is true) or by
+     * row in {@code out} (if false). This only matters when {@code flipY} is true. AnimatedGif and PNG8 use this to
+     * keep the noise where their own dithers put it.
+     * @param pixmap a Pixmap that will not be modified
+     * @param ditherAlgorithm a dithering algorithm enum value; if not recognized, defaults to {@link Dithered.DitherAlgorithm#WREN}
+     * @param out a byte array that will receive palette indices; if null or too small, a new array will be allocated
+     * @param flipY if true, the rows of indices will be in bottom-to-top order
+     * @param flipNoise if true and flipY is true, noise is looked up by row in pixmap rather than by row in out
+     * @param frame typically the number of the frame in an animation; seeds dithers that change between frames
+     * @return {@code out} after modifications, or a new byte array if {@code out} was null or too small
+     */
+    protected byte[] reduceToIndices(Pixmap pixmap, Dithered.DitherAlgorithm ditherAlgorithm, byte[] out, boolean flipY,
+                                     boolean flipNoise, int frame) {
+        flipNoise &= flipY;
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        if (out == null || out.length < w * h)
+            out = new byte[w * h];
+        final int[] pixels = readPixels(pixmap, flipY);
+        if (ditherAlgorithm == null) ditherAlgorithm = Dithered.DitherAlgorithm.WREN;
+        switch (ditherAlgorithm) {
+            case NONE:
+                reduceSolid(pixels, w, h, out);
+                break;
+            case GRADIENT_NOISE:
+                reduceJimenez(pixels, w, h, out);
+                break;
+            case ADDITIVE:
+                reduceAdditive(pixels, w, h, out);
+                break;
+            case PATTERN:
+                reduceKnoll(pixels, w, h, out);
+                break;
+            case CHAOTIC_NOISE:
+                reduceChaoticNoise(pixels, w, h, out, frame);
+                break;
+            case DIFFUSION:
+                reduceFloydSteinberg(pixels, w, h, out);
+                break;
+            case BLUE_NOISE:
+                reduceBlueNoise(pixels, w, h, out, flipNoise);
+                break;
+            case BLUNT:
+                reduceBlunt(pixels, w, h, out, flipNoise);
+                break;
+            case BANTER:
+                reduceBanter(pixels, w, h, out, flipNoise);
+                break;
+            case SCATTER:
+                reduceScatter(pixels, w, h, out);
+                break;
+            case ROBERTS:
+                reduceRoberts(pixels, w, h, out);
+                break;
+            case WOVEN:
+                reduceWoven(pixels, w, h, out);
+                break;
+            case DODGY:
+                reduceDodgy(pixels, w, h, out, flipNoise);
+                break;
+            case LOAF:
+                reduceLoaf(pixels, w, h, out);
+                break;
+            case NEUE:
+                reduceNeue(pixels, w, h, out, flipNoise);
+                break;
+            case BURKES:
+                reduceBurkes(pixels, w, h, out);
+                break;
+            case OCEANIC:
+                reduceOceanic(pixels, w, h, out, flipNoise);
+                break;
+            case SEASIDE:
+                reduceSeaside(pixels, w, h, out, flipNoise);
+                break;
+            case GOURD:
+                reduceGourd(pixels, w, h, out);
+                break;
+            case OVERBOARD:
+                reduceOverboard(pixels, w, h, out, flipNoise);
+                break;
+            case MARTEN:
+                reduceMarten(pixels, w, h, out);
+                break;
+            case WREN:
+            default:
+                reduceWren(pixels, w, h, out, flipNoise);
+                break;
+        }
+        return out;
+    }
+
     /**
      * Modifies the given Pixmap so it only uses colors present in this PaletteReducer, without dithering. This produces
      * blocky solid sections of color in most images where the palette isn't exact, instead of checkerboard-like
@@ -3433,30 +4300,59 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceSolid (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceSolid(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceSolid(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceSolid (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceSolid(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceSolid(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceSolid (int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color;
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int rr = ((color >>> 24)       );
                     int gg = ((color >>> 16) & 0xFF);
                     int bb = ((color >>> 8)  & 0xFF);
-                    pixmap.drawPixel(px, y, paletteArray[
-                            paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * lineLen + px] = paletteMapping[((rr << 7) & 0x7C00)
                                     | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))] & 0xFF]);
+                                    | ((bb >>> 3))];
                 }
             }
 
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -3474,89 +4370,93 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceSierraLite (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceSierraLite(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceSierraLite(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceSierraLite (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceSierraLite(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceSierraLite(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceSierraLite (int[] pixels, int lineLen, int h, byte[] indices, int y, ErrorRows rows) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
         int color, used;
+        byte paletteIndex;
         float rdiff, gdiff, bdiff;
         float ditherStrength = this.ditherStrength * 20, halfDitherStrength = ditherStrength * 0.5f;
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[y * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + px] = 0;
+            else {
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
+                paletteIndex = paletteMapping[((rr << 7) & 0x7C00)
+                        | ((gg << 2) & 0x3E0)
+                        | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + px] = paletteIndex;
+                rdiff = (0x2.4p-8f * ((color>>>24)-    (used>>>24))    );
+                gdiff = (0x2.4p-8f * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (0x2.4p-8f * ((color>>>8&255)- (used>>>8&255)) );
+                rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
+                gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
+                bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
+
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * ditherStrength;
+                    curErrorGreen[px+1] += gdiff * ditherStrength;
+                    curErrorBlue[px+1]  += bdiff * ditherStrength;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
+                    {
+                        nextErrorRed[px-1]   += rdiff * halfDitherStrength;
+                        nextErrorGreen[px-1] += gdiff * halfDitherStrength;
+                        nextErrorBlue[px-1]  += bdiff * halfDitherStrength;
+                    }
+                    nextErrorRed[px]   += rdiff * halfDitherStrength;
+                    nextErrorGreen[px] += gdiff * halfDitherStrength;
+                    nextErrorBlue[px]  += bdiff * halfDitherStrength;
+                }
+            }
+        }
+    }
 
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
-                else {
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
-                    used = paletteArray[paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF];
-                    pixmap.drawPixel(px, y, used);
-                    rdiff = (0x2.4p-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x2.4p-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x2.4p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-
-
-
-                    if(px < lineLen - 1)
-                    {
-                        curErrorRed[px+1]   += rdiff * ditherStrength;
-                        curErrorGreen[px+1] += gdiff * ditherStrength;
-                        curErrorBlue[px+1]  += bdiff * ditherStrength;
-                    }
-                    if(ny < h)
-                    {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * halfDitherStrength;
-                            nextErrorGreen[px-1] += gdiff * halfDitherStrength;
-                            nextErrorBlue[px-1]  += bdiff * halfDitherStrength;
-                        }
-                        nextErrorRed[px]   += rdiff * halfDitherStrength;
-                        nextErrorGreen[px] += gdiff * halfDitherStrength;
-                        nextErrorBlue[px]  += bdiff * halfDitherStrength;
-                    }
-                }
-            }
-        }
-        pixmap.setBlending(blending);
-        return pixmap;
-    }
 
     /**
      * Modifies the given Pixmap so that it only uses colors present in this PaletteReducer, dithering when it can with
@@ -3568,97 +4468,103 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceFloydSteinberg (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceFloydSteinberg(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceFloydSteinberg(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceFloydSteinberg (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceFloydSteinberg(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceFloydSteinberg(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceFloydSteinberg (int[] pixels, int lineLen, int h, byte[] indices, int y, ErrorRows rows) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
         int color, used;
+        byte paletteIndex;
         float rdiff, gdiff, bdiff;
         float w1 = ditherStrength * 32 / populationBias, w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
-                else {
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
-                    used = paletteArray[paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF];
-                    pixmap.drawPixel(px, y, used);
-                    rdiff = Math.min(Math.max(0x1p-8f * ((color>>>24)-    (used>>>24))    , -1), 1);
-                    gdiff = Math.min(Math.max(0x1p-8f * ((color>>>16&255)-(used>>>16&255)), -1), 1);
-                    bdiff = Math.min(Math.max(0x1p-8f * ((color>>>8&255)- (used>>>8&255)) , -1), 1);
-                    // this alternate code used a sigmoid function to smoothly limit error.
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[y * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + px] = 0;
+            else {
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + curErrorRed[px]  , 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + curErrorGreen[px], 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + curErrorBlue[px] , 0), 1023)] & 255;
+                paletteIndex = paletteMapping[((rr << 7) & 0x7C00)
+                        | ((gg << 2) & 0x3E0)
+                        | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + px] = paletteIndex;
+                rdiff = Math.min(Math.max(0x1p-8f * ((color>>>24)-    (used>>>24))    , -1), 1);
+                gdiff = Math.min(Math.max(0x1p-8f * ((color>>>16&255)-(used>>>16&255)), -1), 1);
+                bdiff = Math.min(Math.max(0x1p-8f * ((color>>>8&255)- (used>>>8&255)) , -1), 1);
+                // this alternate code used a sigmoid function to smoothly limit error.
 //                    rdiff = (0x1.8p-8f * ((color>>>24)-    (used>>>24))    );
 //                    gdiff = (0x1.8p-8f * ((color>>>16&255)-(used>>>16&255)));
 //                    bdiff = (0x1.8p-8f * ((color>>>8&255)- (used>>>8&255)) );
 //                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
 //                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
 //                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-                    if(px < lineLen - 1)
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * It's interleaved gradient noise, by Jorge Jimenez! It's very fast! It's an ordered dither!
      * It's pretty good with gradients, though it may introduce artifacts. It has noticeable diagonal
@@ -3672,10 +4578,42 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceJimenez(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceJimenez(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceJimenez(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceJimenez(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceJimenez(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceJimenez(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceJimenez(int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color;
 //        final float strength = 50f * ditherStrength * (float) Math.pow(populationBias, -2f);
 //        final float strength = Math.min(0.63f * ditherStrength / (populationBias * populationBias), 1f);
@@ -3684,11 +4622,11 @@ public class PaletteReducer {
 //        final float strength = Math.max(0.54f * ditherStrength / (populationBias * populationBias * populationBias * populationBias), 6f);
         final float strength = 0.9f * (float) Math.tanh(0.16f * ditherStrength * Math.pow(populationBias, -7.00));
 
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     // The original IGN for shaders:
                     // fract(fract(v_texCoords.xy * vec2(6.711056, 0.583715)) * 52.9829189)
@@ -3721,14 +4659,12 @@ public class PaletteReducer {
                     int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((142 * (px + 0xFA) + 79 * (y - 0xA3) & 255) - 127.5f) * strength)] & 255;
                     int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((142 * (px + 0xA5) + 79 * (y - 0xC9) & 255) - 127.5f) * strength)] & 255;
 
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * lineLen + px] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -3741,59 +4677,105 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceAdditive(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceAdditive(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceAdditive(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceAdditive(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceAdditive(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceAdditive(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceAdditive(int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color;
         final float s = 0.08f * ditherStrength / (float) Math.pow(populationBias, 8f),
                 strength = s / (0.35f + s);
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + ((119 * px + 180 * y + 54 & 255) - 127.5f) * strength)] & 255;
                     int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + ((119 * px + 180 * y + 81 & 255) - 127.5f) * strength)] & 255;
                     int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + ((119 * px + 180 * y      & 255) - 127.5f) * strength)] & 255;
 
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * lineLen + px] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
 
     public Pixmap reduceIgneous(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceIgneous(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceIgneous(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceIgneous(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceIgneous(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceIgneous(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceIgneous(int[] pixels, int lineLen, int h, byte[] indices, int y, ErrorRows rows) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
         int color, used;
         float rdiff, gdiff, bdiff;
         float er, eg, eb;
@@ -3802,77 +4784,65 @@ public class PaletteReducer {
                 strength = 60f * ditherStrength / (populationBias * populationBias),
                 adj;
 
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
-                else {
-                    adj = (px * 0.06711056f + y * 0.00583715f);
-                    adj -= (int) adj;
-                    adj *= 52.9829189f;
-                    adj -= (int) adj;
-                    adj -= 0.5f;
-                    adj *= strength;
-
-                    er = adj + (curErrorRed[px]);
-                    eg = adj + (curErrorGreen[px]);
-                    eb = adj + (curErrorBlue[px]);
-
-                    int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
-                    int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
-                    int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, y, used);
-                    rdiff = (0x3p-10f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x3p-10f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x3p-10f * ((color>>>8&255)- (used>>>8&255)) );
-
-                    if(px < lineLen - 1)
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[y * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + px] = 0;
+            else {
+                adj = (px * 0.06711056f + y * 0.00583715f);
+                adj -= (int) adj;
+                adj *= 52.9829189f;
+                adj -= (int) adj;
+                adj -= 0.5f;
+                adj *= strength;
+
+                er = adj + (curErrorRed[px]);
+                eg = adj + (curErrorGreen[px]);
+                eb = adj + (curErrorBlue[px]);
+
+                int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
+                int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
+                int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + px] = paletteIndex;
+                rdiff = (0x3p-10f * ((color>>>24)-    (used>>>24))    );
+                gdiff = (0x3p-10f * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (0x3p-10f * ((color>>>8&255)- (used>>>8&255)) );
+
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * An ordered dither that uses a sub-random sequence by Martin Roberts to disperse lightness adjustments across the
      * image. This is very similar to {@link #reduceJimenez(Pixmap)}, but is milder by default, and has subtly different
@@ -3882,20 +4852,52 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceRoberts (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceRoberts(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceRoberts(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceRoberts (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceRoberts(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceRoberts(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceRoberts (int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color;
 //        float str = (32f * ditherStrength / (populationBias * populationBias));
 //        float str = (float) (64 * ditherStrength / Math.log(colorCount * 0.3 + 1.5));
 //        float str = 32 * ditherStrength / (populationBias * populationBias * populationBias * populationBias);
         final float str = Math.min(48 * ditherStrength / (populationBias * populationBias * populationBias * populationBias), 127);
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     // used in 0.3.10
 //                    // Gets R2-based noise and puts it in the -0.75 to 0.75 range
@@ -3931,14 +4933,12 @@ public class PaletteReducer {
                     int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.209f) * str)] & 255;
                     int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.518f) * str)] & 255;
                     
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * lineLen + px] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
     /**
      * An intentionally low-fidelity dither, meant for pixel art.
@@ -3946,35 +4946,73 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceLoaf(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceLoaf(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceLoaf(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceLoaf(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceLoaf(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceLoaf(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceLoaf(int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color;
         final float strength = Math.min(Math.max(2.5f + 5f * ditherStrength - 5.5f * populationBias, 0f), 7.9f);
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int adj = (int)((((px + y & 1) << 5) - 16) * strength); // either + 16 * strength or - 16 * strength
                     int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + adj, 0), 1023)] & 255;
                     int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + adj, 0), 1023)] & 255;
                     int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + adj, 0), 1023)] & 255;
                     int rgb555 = ((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3));
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[rgb555] & 0xFF]);
+                    indices[y * lineLen + px] = paletteMapping[rgb555];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
      * Primarily used to avoid allocating arrays that copy {@link #thresholdMatrix64}, this has length 64.
+     * This class no longer uses it, because it is shared by every PaletteReducer; see {@link #gourdThresholds}.
+     * @deprecated Nothing in anim8 uses this anymore; it will be removed in a later version.
      */
+    @Deprecated
     public static final float[] tempThresholdMatrix = new float[64];
+    /**
+     * Holds {@link #thresholdMatrix64} scaled by the dither strength while {@link #reduceGourd(Pixmap)} runs. Each
+     * PaletteReducer has its own, so different PaletteReducers can use Gourd dithering on different threads at once.
+     */
+    protected transient final float[] gourdThresholds = new float[64];
     /**
      * A specialized lookup table that takes an index from 0-255 and outputs a float in the 127.5 to 894.5 range.
      * The output is expected to have a value between -128 and 128 added to it and that given to {@link #fromLinearLUT}.
@@ -4010,10 +5048,48 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceGourd(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceGourd(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceGourd(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceGourd(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        final float strength = (float)(ditherStrength * 0.7 * Math.pow(populationBias, -5.50));
+        for (int i = 0; i < 64; i++) {
+            gourdThresholds[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
+//            gourdThresholds[i] = Math.min(Math.max(OtherMath.probitF((PaletteReducer.thresholdMatrix64[i] + 0.5f) * 0x1p-6f) * strength, -127), 127);
+//            gourdThresholds[i] = (OtherMath.triangularRemap(PaletteReducer.thresholdMatrix64[i], 63) - 0.5f) * strength;
+        }
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceGourd(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceGourd(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceGourd(int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color;
 //        final float strength = (ditherStrength * 6.75f * (float) Math.pow(OtherMath.cbrtPositive(OtherMath.logRough(colorCount)) * 0.5649f, -8f)); // probitF
 //        final float strength = (ditherStrength * 6.75f * (float) Math.pow(populationBias, -4f)); // probitF
@@ -4025,57 +5101,65 @@ public class PaletteReducer {
 //        final float strength = (float)(Math.min(Math.max(ditherStrength * 85 * Math.pow(populationBias, -8.0), -255), 255)); // triangularRemap
 //        System.out.println("strength is " + strength + " when ditherStrength is "+ ditherStrength + " and colorCount is " + colorCount);
 //        System.out.println("triangular remap is " + (float)(ditherStrength * 85 * Math.pow(populationBias, -8.0)));
-        final float strength = (float)(ditherStrength * 0.7 * Math.pow(populationBias, -5.50));
-        for (int i = 0; i < 64; i++) {
-            tempThresholdMatrix[i] = Math.min(Math.max((PaletteReducer.thresholdMatrix64[i] - 31.5f) * strength, -127), 127);
-//            tempThresholdMatrix[i] = Math.min(Math.max(OtherMath.probitF((PaletteReducer.thresholdMatrix64[i] + 0.5f) * 0x1p-6f) * strength, -127), 127);
-//            tempThresholdMatrix[i] = (OtherMath.triangularRemap(PaletteReducer.thresholdMatrix64[i], 63) - 0.5f) * strength;
-        }
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int idx = (px & 7) ^ (y << 3 & 56);
                     
-                    int rr = (fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + tempThresholdMatrix[idx ^ 0b101110])] & 255);
-                    int gg = (fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + tempThresholdMatrix[idx ^ 0b110011])] & 255);
-                    int bb = (fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + tempThresholdMatrix[idx ^ 0b100111])] & 255);
+                    int rr = (fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + gourdThresholds[idx ^ 0b101110])] & 255);
+                    int gg = (fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + gourdThresholds[idx ^ 0b110011])] & 255);
+                    int bb = (fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + gourdThresholds[idx ^ 0b100111])] & 255);
                     int rgb555 = ((rr << 7) & 0x7C00) | ((gg << 2) & 0x3E0) | ((bb >>> 3));
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[rgb555] & 0xFF]);
+                    indices[y * lineLen + px] = paletteMapping[rgb555];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     public Pixmap reduceWoven(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceWoven(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceWoven(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceWoven(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceWoven(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceWoven(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceWoven(int[] pixels, int lineLen, int h, byte[] indices, int y, ErrorRows rows) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
         int color, used;
         float rdiff, gdiff, bdiff;
         float er, eg, eb;
@@ -4084,75 +5168,63 @@ public class PaletteReducer {
                 strength = 100f * ditherStrength / (populationBias * populationBias * populationBias * populationBias),
                 limit = 5f + 250f / (float)Math.sqrt(colorCount+1.5f);
 
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
-                else {
-                    er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
-                    eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
-                    eb = Math.min(Math.max(((((px-4) * 0xC13FA9A902A6328FL + (y+2) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[y * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + px] = 0;
+            else {
+                er = Math.min(Math.max(((((px+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorRed[px]);
+                eg = Math.min(Math.max(((((px+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorGreen[px]);
+                eb = Math.min(Math.max(((((px-4) * 0xC13FA9A902A6328FL + (y+2) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-23f - 0x1.4p-1f) * strength, -limit), limit) + (curErrorBlue[px]);
 
 //                    int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
 //                    int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
 //                    int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
 
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, y, used);
-                    rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
 
-                    if(px < lineLen - 1)
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + px] = paletteIndex;
+                rdiff = (0x5p-10f * ((color>>>24)-    (used>>>24))    );
+                gdiff = (0x5p-10f * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (0x5p-10f * ((color>>>8&255)- (used>>>8&255)) );
+
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * Just as the wren flits restlessly from eave to branch to awning, so too does Wren dither dart to and fro between
      * dithering techniques. This is an error diffusion dither modeled closely after {@link #reduceWoven(Pixmap)}, which
@@ -4165,30 +5237,46 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceWrenOriginal(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceWrenOriginal(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceWrenOriginal(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceWrenOriginal(final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceWrenOriginal(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceWrenOriginal(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceWrenOriginal(int[] pixels, int lineLen, int h, byte[] indices, int y, ErrorRows rows) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
         int color, used;
         float rdiff, gdiff, bdiff;
         float er, eg, eb;
@@ -4198,95 +5286,103 @@ public class PaletteReducer {
                 limit = 5f + 125f / (float)Math.sqrt(colorCount+1.5),
                 dmul = 0x1p-8f;
 
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
-                else {
-                    er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+1) * 0xC13FA9A902A6328FL + (y +1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-16f - 0x1p+6f)) * strength) + (curErrorRed[px]), -limit), limit);
-                    eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+3) * 0xC13FA9A902A6328FL + (y -1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-16f - 0x1p+6f)) * strength) + (curErrorGreen[px]), -limit), limit);
-                    eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+2) * 0xC13FA9A902A6328FL + (y -4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-16f - 0x1p+6f)) * strength) + (curErrorBlue[px]), -limit), limit);
-
-                    int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
-                    int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
-                    int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, y, used);
-                    rdiff = (dmul * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (dmul * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (dmul * ((color>>>8&255)- (used>>>8&255)) );
-
-                    if(px < lineLen - 1)
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[y * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + px] = 0;
+            else {
+                er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+1) * 0xC13FA9A902A6328FL + (y +1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-16f - 0x1p+6f)) * strength) + (curErrorRed[px]), -limit), limit);
+                eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+3) * 0xC13FA9A902A6328FL + (y -1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-16f - 0x1p+6f)) * strength) + (curErrorGreen[px]), -limit), limit);
+                eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(px & 63) | (y & 63) << 6] + 0.5f) + ((((px+2) * 0xC13FA9A902A6328FL + (y -4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1p-16f - 0x1p+6f)) * strength) + (curErrorBlue[px]), -limit), limit);
+
+                int rr = Math.min(Math.max((int)(((color >>> 24)       ) + er + 0.5f), 0), 0xFF);
+                int gg = Math.min(Math.max((int)(((color >>> 16) & 0xFF) + eg + 0.5f), 0), 0xFF);
+                int bb = Math.min(Math.max((int)(((color >>> 8)  & 0xFF) + eb + 0.5f), 0), 0xFF);
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + px] = paletteIndex;
+                rdiff = (dmul * ((color>>>24)-    (used>>>24))    );
+                gdiff = (dmul * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (dmul * ((color>>>8&255)- (used>>>8&255)) );
+
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     public Pixmap reduceWren(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceWren(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceWren(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceWren(final int[] pixels, final int lineLen, final int h, final byte[] indices, final boolean flipNoise) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceWren(pixels, lineLen, h, indices, flipNoise, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceWren(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceWren(int[] pixels, int lineLen, int h, byte[] indices, boolean flipNoise, int y, ErrorRows rows) {
+        final int sy = flipNoise ? h - 1 - y : y;
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
         int color, used;
         float rdiff, gdiff, bdiff;
         float er, eg, eb;
@@ -4297,98 +5393,87 @@ public class PaletteReducer {
                 limit = 5f + 200f / (float)Math.sqrt(colorCount+1.5f),
                 r1, g1, b1, r2, g2, b2, r4, g4, b4;
 
-        for (int y = 0; y < h; y++) {
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int x = 0; x < lineLen; x++) {
-                color = pixmap.getPixel(x, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(x, y, 0);
-                else {
-                    er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(x & 63) | (y & 63) << 6] + 0.5f) * blueStrength + ((((x+1) * 0xC13FA9A902A6328FL + (y+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorRed[x]);
-                    eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * blueStrength + ((((x+3) * 0xC13FA9A902A6328FL + (y-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorGreen[x]);
-                    eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * blueStrength + ((((x+2) * 0xC13FA9A902A6328FL + (y-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorBlue[x]);
-
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(x, y, used);
-                    rdiff = ((color>>>24)-    (used>>>24))     * partialDitherStrength;
-                    gdiff = ((color>>>16&255)-(used>>>16&255)) * partialDitherStrength;
-                    bdiff = ((color>>>8&255)- (used>>>8&255))  * partialDitherStrength;
-
-                    r1 = rdiff * 16f / (float)Math.sqrt(2048f + rdiff * rdiff);
-                    g1 = gdiff * 16f / (float)Math.sqrt(2048f + gdiff * gdiff);
-                    b1 = bdiff * 16f / (float)Math.sqrt(2048f + bdiff * bdiff);
-                    r2 = r1 + r1;
-                    g2 = g1 + g1;
-                    b2 = b1 + b1;
-                    r4 = r2 + r2;
-                    g4 = g2 + g2;
-                    b4 = b2 + b2;
-                    if(x < lineLen - 1)
+        for (int x = 0; x < lineLen; x++) {
+            rows.reach(x);
+            color = pixels[y * lineLen + x];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + x] = 0;
+            else {
+                er = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE  [(x & 63) | (sy & 63) << 6] + 0.5f) * blueStrength + ((((x+1) * 0xC13FA9A902A6328FL + (sy+1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorRed[x]);
+                eg = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_B[(x & 63) | (sy & 63) << 6] + 0.5f) * blueStrength + ((((x+3) * 0xC13FA9A902A6328FL + (sy-1) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorGreen[x]);
+                eb = Math.min(Math.max(( ( (PaletteReducer.TRI_BLUE_NOISE_C[(x & 63) | (sy & 63) << 6] + 0.5f) * blueStrength + ((((x+2) * 0xC13FA9A902A6328FL + (sy-4) * 0x91E10DA5C79E7B1DL) >>> 41) * 0x1.4p-24f - 0x1.4p-2f) * strength)), -limit), limit) + (curErrorBlue[x]);
+
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + x] = paletteIndex;
+                rdiff = ((color>>>24)-    (used>>>24))     * partialDitherStrength;
+                gdiff = ((color>>>16&255)-(used>>>16&255)) * partialDitherStrength;
+                bdiff = ((color>>>8&255)- (used>>>8&255))  * partialDitherStrength;
+
+                r1 = rdiff * 16f / (float)Math.sqrt(2048f + rdiff * rdiff);
+                g1 = gdiff * 16f / (float)Math.sqrt(2048f + gdiff * gdiff);
+                b1 = bdiff * 16f / (float)Math.sqrt(2048f + bdiff * bdiff);
+                r2 = r1 + r1;
+                g2 = g1 + g1;
+                b2 = b1 + b1;
+                r4 = r2 + r2;
+                g4 = g2 + g2;
+                b4 = b2 + b2;
+                if(x < lineLen - 1)
+                {
+                    curErrorRed[x+1]   += r4;
+                    curErrorGreen[x+1] += g4;
+                    curErrorBlue[x+1]  += b4;
+                    if(x < lineLen - 2)
                     {
-                        curErrorRed[x+1]   += r4;
-                        curErrorGreen[x+1] += g4;
-                        curErrorBlue[x+1]  += b4;
-                        if(x < lineLen - 2)
-                        {
 
-                            curErrorRed[x+2]   += r2;
-                            curErrorGreen[x+2] += g2;
-                            curErrorBlue[x+2]  += b2;
-                        }
+                        curErrorRed[x+2]   += r2;
+                        curErrorGreen[x+2] += g2;
+                        curErrorBlue[x+2]  += b2;
                     }
-                    if(y+1 < h)
+                }
+                if(y+1 < h)
+                {
+                    if(x > 0)
                     {
-                        if(x > 0)
+                        nextErrorRed[x-1]   += r2;
+                        nextErrorGreen[x-1] += g2;
+                        nextErrorBlue[x-1]  += b2;
+                        if(x > 1)
                         {
-                            nextErrorRed[x-1]   += r2;
-                            nextErrorGreen[x-1] += g2;
-                            nextErrorBlue[x-1]  += b2;
-                            if(x > 1)
-                            {
-                                nextErrorRed[x-2]   += r1;
-                                nextErrorGreen[x-2] += g1;
-                                nextErrorBlue[x-2]  += b1;
-                            }
+                            nextErrorRed[x-2]   += r1;
+                            nextErrorGreen[x-2] += g1;
+                            nextErrorBlue[x-2]  += b1;
                         }
-                        nextErrorRed[x]   += r4;
-                        nextErrorGreen[x] += g4;
-                        nextErrorBlue[x]  += b4;
-                        if(x < lineLen - 1)
+                    }
+                    nextErrorRed[x]   += r4;
+                    nextErrorGreen[x] += g4;
+                    nextErrorBlue[x]  += b4;
+                    if(x < lineLen - 1)
+                    {
+                        nextErrorRed[x+1]   += r2;
+                        nextErrorGreen[x+1] += g2;
+                        nextErrorBlue[x+1]  += b2;
+                        if(x < lineLen - 2)
                         {
-                            nextErrorRed[x+1]   += r2;
-                            nextErrorGreen[x+1] += g2;
-                            nextErrorBlue[x+1]  += b2;
-                            if(x < lineLen - 2)
-                            {
-
-                                nextErrorRed[x+2]   += r1;
-                                nextErrorGreen[x+2] += g1;
-                                nextErrorBlue[x+2]  += b1;
-                            }
+
+                            nextErrorRed[x+2]   += r1;
+                            nextErrorGreen[x+2] += g1;
+                            nextErrorBlue[x+2]  += b1;
                         }
                     }
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * A blue-noise-based dither; does not diffuse error, and uses a tiling blue noise pattern (which can be accessed
      * with {@link #TRI_BLUE_NOISE}, but shouldn't usually be modified) as well as a checkerboard pattern of light and
@@ -4400,30 +5485,65 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceBlueNoise (Pixmap pixmap) {
-        boolean hasTransparent = (paletteArray[0] == 0);
         final int w = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceBlueNoise(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceBlueNoise(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code w * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceBlueNoise (final int[] pixels, final int w, final int h, final byte[] indices, final boolean flipNoise) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceBlueNoise(pixels, w, h, indices, flipNoise, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceBlueNoise(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceBlueNoise (int[] pixels, int w, int h, byte[] indices, boolean flipNoise, int startY, int endY) {
+        boolean hasTransparent = (paletteArray[0] == 0);
         final float strength = 0.21875f * ditherStrength / (populationBias * populationBias);
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
+            final int sy = flipNoise ? h - 1 - y : y;
             for (int x = 0; x < w; x++) {
-                int color = pixmap.getPixel(x, y);
+                int color = pixels[y * w + x];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(x, y, 0);
+                    indices[y * w + x] = 0;
                 else {
-                    float adj = Math.min(Math.max(((TRI_BLUE_NOISE  [(x & 63) | (y & 63) << 6] + ((x + y & 1) << 8) - 127.5f) * strength), -100.5f), 101.5f);
+                    float adj = Math.min(Math.max(((TRI_BLUE_NOISE  [(x & 63) | (sy & 63) << 6] + ((x + sy & 1) << 8) - 127.5f) * strength), -100.5f), 101.5f);
                     int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
                     int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
                     int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
 
-                    pixmap.drawPixel(x, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * w + x] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -4442,30 +5562,44 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceBlunt (Pixmap pixmap) {
-        boolean hasTransparent = (paletteArray[0] == 0);
         final int w = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceBlunt(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceBlunt(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code w * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceBlunt (int[] pixels, int w, int h, byte[] indices, boolean flipNoise) {
+        boolean hasTransparent = (paletteArray[0] == 0);
         final float strength = Math.min(Math.max(0.35f * ditherStrength / (populationBias * populationBias * populationBias), -0.6f), 0.6f);
         for (int y = 0; y < h; y++) {
+            final int sy = flipNoise ? h - 1 - y : y;
             for (int x = 0; x < w; x++) {
-                int color = pixmap.getPixel(x, y);
+                int color = pixels[y * w + x];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(x, y, 0);
+                    indices[y * w + x] = 0;
                 else {
-                    float adj = (x+y<<7&128)-63.5f;
-                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + (TRI_BLUE_NOISE  [(x + 62 & 63) << 6 | (y + 66  & 63)] + adj) * strength)] & 255;
-                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + (TRI_BLUE_NOISE_B[(x + 31 & 63) << 6 | (y + 113 & 63)] + adj) * strength)] & 255;
-                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + (TRI_BLUE_NOISE_C[(x + 71 & 63) << 6 | (y + 41  & 63)] + adj) * strength)] & 255;
+                    float adj = (x+sy<<7&128)-63.5f;
+                    int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + (TRI_BLUE_NOISE  [(x + 62 & 63) << 6 | (sy + 66  & 63)] + adj) * strength)] & 255;
+                    int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + (TRI_BLUE_NOISE_B[(x + 31 & 63) << 6 | (sy + 113 & 63)] + adj) * strength)] & 255;
+                    int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + (TRI_BLUE_NOISE_C[(x + 71 & 63) << 6 | (sy + 41  & 63)] + adj) * strength)] & 255;
 
-                    pixmap.drawPixel(x, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * w + x] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -4486,30 +5620,44 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceBanter (Pixmap pixmap) {
-        boolean hasTransparent = (paletteArray[0] == 0);
         final int w = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceBanter(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceBanter(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code w * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceBanter (int[] pixels, int w, int h, byte[] indices, boolean flipNoise) {
+        boolean hasTransparent = (paletteArray[0] == 0);
         float strength = Math.min(Math.max(0.17f * ditherStrength * (float) Math.pow(populationBias, -10f), -0.95f), 0.95f);
         for (int y = 0; y < h; y++) {
+            final int sy = flipNoise ? h - 1 - y : y;
             for (int x = 0; x < w; x++) {
-                int color = pixmap.getPixel(x, y);
+                int color = pixels[y * w + x];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(x, y, 0);
+                    indices[y * w + x] = 0;
                 else {
-                    float adj = TRI_BAYER_MATRIX_128[(x & TBM_MASK) << TBM_BITS | (y & TBM_MASK)] * strength;
+                    float adj = TRI_BAYER_MATRIX_128[(x & TBM_MASK) << TBM_BITS | (sy & TBM_MASK)] * strength;
                     int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + adj)] & 255;
                     int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + adj)] & 255;
                     int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + adj)] & 255;
 
-                    pixmap.drawPixel(x, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * w + x] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -4521,18 +5669,32 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceChaoticNoise (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceChaoticNoise(pixels, w, h, indices, 1);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceChaoticNoise(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     * @param frame seeds the white noise, so each frame of an animation can get different noise; 1 is used for stills
+     */
+    protected void reduceChaoticNoise (int[] pixels, int lineLen, int h, byte[] indices, int frame) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color, used;
         double adj, strength = ditherStrength * populationBias * 1.5;
-        long s = 0xC13FA9A902A6328FL;
+        long s = 0xC13FA9A902A6328FL * frame;
         for (int y = 0; y < h; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int rr = ((color >>> 24)       );
                     int gg = ((color >>> 16) & 0xFF);
@@ -4556,14 +5718,12 @@ public class PaletteReducer {
                     rr = Math.min(Math.max((int) (rr + (adj * ((rr - (used >>> 24))))), 0), 0xFF);
                     gg = Math.min(Math.max((int) (gg + (adj * ((gg - (used >>> 16 & 0xFF))))), 0), 0xFF);
                     bb = Math.min(Math.max((int) (bb + (adj * ((bb - (used >>> 8 & 0xFF))))), 0), 0xFF);
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * lineLen + px] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -4576,101 +5736,105 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceScatter (Pixmap pixmap) {
-        boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
-        int color, used;
-        float rdiff, gdiff, bdiff;
-        float er, eg, eb;
-        byte paletteIndex;
-        final float w1 = Math.min(ditherStrength * 5.5f / (populationBias * populationBias), 16f), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceScatter(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
 
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
-                else {
-                    float tbn = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS[(px & 63) | ((y << 6) & 0xFC0)];
-                    er = curErrorRed[px] * tbn;
-                    eg = curErrorGreen[px] * tbn;
-                    eb = curErrorBlue[px] * tbn;
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, y, used);
-                    rdiff = (0x2.1p-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x2.1p-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x2.1p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff /= (0.125f + Math.abs(rdiff));
-                    gdiff /= (0.125f + Math.abs(gdiff));
-                    bdiff /= (0.125f + Math.abs(bdiff));
-                    if(px < lineLen - 1)
+    /**
+     * The index-only part of {@link #reduceScatter(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceScatter (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceScatter(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceScatter(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceScatter (int[] pixels, int lineLen, int h, byte[] indices, int y, ErrorRows rows) {
+        boolean hasTransparent = (paletteArray[0] == 0);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
+        int color, used;
+        float rdiff, gdiff, bdiff;
+        float er, eg, eb;
+        byte paletteIndex;
+        final float w1 = Math.min(ditherStrength * 5.5f / (populationBias * populationBias), 16f), w3 = w1 * 3f, w5 = w1 * 5f, w7 = w1 * 7f;
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[y * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + px] = 0;
+            else {
+                float tbn = PaletteReducer.TRI_BLUE_NOISE_MULTIPLIERS[(px & 63) | ((y << 6) & 0xFC0)];
+                er = curErrorRed[px] * tbn;
+                eg = curErrorGreen[px] * tbn;
+                eb = curErrorBlue[px] * tbn;
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + px] = paletteIndex;
+                rdiff = (0x2.1p-8f * ((color>>>24)-    (used>>>24))    );
+                gdiff = (0x2.1p-8f * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (0x2.1p-8f * ((color>>>8&255)- (used>>>8&255)) );
+                rdiff /= (0.125f + Math.abs(rdiff));
+                gdiff /= (0.125f + Math.abs(gdiff));
+                bdiff /= (0.125f + Math.abs(bdiff));
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * An error-diffusion dither based on {@link #reduceFloydSteinberg(Pixmap)}, but adding in triangular-mapped blue
      * noise before diffusing, like {@link #reduceBlueNoise(Pixmap)}. This looks like {@link #reduceScatter(Pixmap)} in
@@ -4685,30 +5849,51 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceNeue(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceNeue(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceNeue(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceNeue(final int[] pixels, final int lineLen, final int h, final byte[] indices, final boolean flipNoise) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceNeue(pixels, lineLen, h, indices, flipNoise, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceNeue(int[], int, int, byte[])} for only the row {@code py}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code py}
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param py the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceNeue(int[] pixels, int lineLen, int h, byte[] indices, boolean flipNoise, int py, ErrorRows rows) {
+        final int sy = flipNoise ? h - 1 - py : py;
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = py + 1;
         int color, used;
         float rdiff, gdiff, bdiff;
         float er, eg, eb, adj;
@@ -4717,73 +5902,61 @@ public class PaletteReducer {
                 strength = (70f * ditherStrength / (populationBias * populationBias * populationBias)),
                 limit = Math.min(127, (float) Math.pow(80, 1.635 - populationBias));
 
-        for (int py = 0; py < h; py++) {
-            int ny = py + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, py, 0);
-                else {
-                    adj = ((TRI_BLUE_NOISE[(px & 63) | (py & 63) << 6] + 0.5f) * 0.005f); // plus or minus 255/400
-                    adj = Math.min(Math.max(adj * strength, -limit), limit);
-                    er = adj + (curErrorRed[px]);
-                    eg = adj + (curErrorGreen[px]);
-                    eb = adj + (curErrorBlue[px]);
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, py, used);
-                    rdiff = (0x2.Ep-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x2.Ep-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x2.Ep-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
-                    gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
-                    bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
-                    if(px < lineLen - 1)
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[py * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[py * lineLen + px] = 0;
+            else {
+                adj = ((TRI_BLUE_NOISE[(px & 63) | (sy & 63) << 6] + 0.5f) * 0.005f); // plus or minus 255/400
+                adj = Math.min(Math.max(adj * strength, -limit), limit);
+                er = adj + (curErrorRed[px]);
+                eg = adj + (curErrorGreen[px]);
+                eb = adj + (curErrorBlue[px]);
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[py * lineLen + px] = paletteIndex;
+                rdiff = (0x2.Ep-8f * ((color>>>24)-    (used>>>24))    );
+                gdiff = (0x2.Ep-8f * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (0x2.Ep-8f * ((color>>>8&255)- (used>>>8&255)) );
+                rdiff *= 1.25f / (0.25f + Math.abs(rdiff));
+                gdiff *= 1.25f / (0.25f + Math.abs(gdiff));
+                bdiff *= 1.25f / (0.25f + Math.abs(bdiff));
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * An error-diffusion dither that adds in error based on blue noise, much like {@link #reduceNeue(Pixmap)}, but
      * unlike Neue it adds different blue noise values in for each RGB channel. This tends to improve color accuracy
@@ -4797,30 +5970,51 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceDodgy(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceDodgy(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceDodgy(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceDodgy(final int[] pixels, final int lineLen, final int h, final byte[] indices, final boolean flipNoise) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceDodgy(pixels, lineLen, h, indices, flipNoise, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceDodgy(int[], int, int, byte[])} for only the row {@code py}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code py}
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param py the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceDodgy(int[] pixels, int lineLen, int h, byte[] indices, boolean flipNoise, int py, ErrorRows rows) {
+        final int sy = flipNoise ? h - 1 - py : py;
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = py + 1;
         int color, used;
         float rdiff, gdiff, bdiff;
         float er, eg, eb;
@@ -4830,73 +6024,61 @@ public class PaletteReducer {
                 strength = 0.35f * ditherStrength / (populationBias * populationBias * populationBias),
                 limit = 90f;
 
-        for (int py = 0; py < h; py++) {
-            int ny = py + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, py, 0);
-                else {
-                    er = Math.min(Math.max(((TRI_BLUE_NOISE  [(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorRed[px]);
-                    eg = Math.min(Math.max(((TRI_BLUE_NOISE_B[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorGreen[px]);
-                    eb = Math.min(Math.max(((TRI_BLUE_NOISE_C[(px & 63) | (py & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorBlue[px]);
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, py, used);
-
-                    rdiff = (0x5p-8f * ((color>>>24)-    (used>>>24))    );
-                    gdiff = (0x5p-8f * ((color>>>16&255)-(used>>>16&255)));
-                    bdiff = (0x5p-8f * ((color>>>8&255)- (used>>>8&255)) );
-                    rdiff /= (0.5f + Math.abs(rdiff));
-                    gdiff /= (0.5f + Math.abs(gdiff));
-                    bdiff /= (0.5f + Math.abs(bdiff));
-
-                    if(px < lineLen - 1)
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            color = pixels[py * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[py * lineLen + px] = 0;
+            else {
+                er = Math.min(Math.max(((TRI_BLUE_NOISE  [(px & 63) | (sy & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorRed[px]);
+                eg = Math.min(Math.max(((TRI_BLUE_NOISE_B[(px & 63) | (sy & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorGreen[px]);
+                eb = Math.min(Math.max(((TRI_BLUE_NOISE_C[(px & 63) | (sy & 63) << 6] + 0.5f) * strength), -limit), limit) + (curErrorBlue[px]);
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[py * lineLen + px] = paletteIndex;
+
+                rdiff = (0x5p-8f * ((color>>>24)-    (used>>>24))    );
+                gdiff = (0x5p-8f * ((color>>>16&255)-(used>>>16&255)));
+                bdiff = (0x5p-8f * ((color>>>8&255)- (used>>>8&255)) );
+                rdiff /= (0.5f + Math.abs(rdiff));
+                gdiff /= (0.5f + Math.abs(gdiff));
+                bdiff /= (0.5f + Math.abs(bdiff));
+
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += rdiff * w7;
+                    curErrorGreen[px+1] += gdiff * w7;
+                    curErrorBlue[px+1]  += bdiff * w7;
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        curErrorRed[px+1]   += rdiff * w7;
-                        curErrorGreen[px+1] += gdiff * w7;
-                        curErrorBlue[px+1]  += bdiff * w7;
+                        nextErrorRed[px-1]   += rdiff * w3;
+                        nextErrorGreen[px-1] += gdiff * w3;
+                        nextErrorBlue[px-1]  += bdiff * w3;
                     }
-                    if(ny < h)
+                    if(px < lineLen - 1)
                     {
-                        if(px > 0)
-                        {
-                            nextErrorRed[px-1]   += rdiff * w3;
-                            nextErrorGreen[px-1] += gdiff * w3;
-                            nextErrorBlue[px-1]  += bdiff * w3;
-                        }
-                        if(px < lineLen - 1)
-                        {
-                            nextErrorRed[px+1]   += rdiff * w1;
-                            nextErrorGreen[px+1] += gdiff * w1;
-                            nextErrorBlue[px+1]  += bdiff * w1;
-                        }
-                        nextErrorRed[px]   += rdiff * w5;
-                        nextErrorGreen[px] += gdiff * w5;
-                        nextErrorBlue[px]  += bdiff * w5;
+                        nextErrorRed[px+1]   += rdiff * w1;
+                        nextErrorGreen[px+1] += gdiff * w1;
+                        nextErrorBlue[px+1]  += bdiff * w1;
                     }
+                    nextErrorRed[px]   += rdiff * w5;
+                    nextErrorGreen[px] += gdiff * w5;
+                    nextErrorBlue[px]  += bdiff * w5;
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * Burkes error diffusion dither with some extra error added in, selecting different types of error pattern in an
      * ordered way. This incorporates two types of extra error to each channel of each pixel, selecting based on a grid
@@ -4922,163 +6104,172 @@ public class PaletteReducer {
      * @return pixmap, after modifications
      */
     public Pixmap reduceOverboard(Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceOverboard(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceOverboard(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceOverboard(final int[] pixels, final int lineLen, final int h, final byte[] indices, final boolean flipNoise) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceOverboard(pixels, lineLen, h, indices, flipNoise, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceOverboard(int[], int, int, byte[])} for only the row {@code y}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code y}
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param y the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceOverboard(int[] pixels, int lineLen, int h, byte[] indices, boolean flipNoise, int y, ErrorRows rows) {
+        final int sy = flipNoise ? h - 1 - y : y;
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = y + 1;
         final float strength = ditherStrength * 1.5f * (populationBias * populationBias),
                 noiseStrength = 4f / (populationBias * populationBias),
                 limit = 110f;
 
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
-        for (int y = 0; y < h; y++) {
-            int ny = y + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int x = 0; x < lineLen; x++) {
-                int color = pixmap.getPixel(x, y);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(x, y, 0);
-                else {
-                    float er = 0f, eg = 0f, eb = 0f;
-                    switch ((x << 1 & 2) | (y & 1)){
-                        case 0:
-                            er += ((x ^ y) % 9 - 4);
-                            er += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eg += (TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                            eg += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eb += (TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                            eb += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                            break;
-                        case 1:
-                            er += (TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                            er += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eg += (TRI_BLUE_NOISE_B[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                            eg += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                            eb += ((x ^ y) % 11 - 5);
-                            eb += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                            break;
-                        case 2:
-                            er += (TRI_BLUE_NOISE[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-6f;
-                            er += ((y * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
-                            eg += ((x ^ y) % 11 - 5);
-                            eg += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                            eb += ((x ^ y) % 9 - 4);
-                            eb += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            break;
-                        default: // case 3:
-                            er += ((x ^ y) % 11 - 5);
-                            er += ((y * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
-                            eg += ((x ^ y) % 9 - 4);
-                            eg += ((x * 0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            eb += (TRI_BLUE_NOISE_C[(x & 63) | (y & 63) << 6] + 0.5f) * 0x1p-5f;
-                            eb += ((x * -0xC13FA9A902A6328FL + y * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
-                            break;
-                    }
-                    er = er * noiseStrength + curErrorRed[x];
-                    eg = eg * noiseStrength + curErrorGreen[x];
-                    eb = eb * noiseStrength + curErrorBlue[x];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + Math.min(Math.max(er, -limit), limit), 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + Math.min(Math.max(eg, -limit), limit), 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + Math.min(Math.max(eb, -limit), limit), 0), 1023)] & 255;
-                    byte paletteIndex = paletteMapping[((rr << 7) & 0x7C00)
-                                                       | ((gg << 2) & 0x3E0)
-                                                       | ((bb >>> 3))];
-                    int used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(x, y, used);
-                    float rdiff = ((color >>> 24) - (used >>> 24)) * strength;
-                    float gdiff = ((color >>> 16 & 255) - (used >>> 16 & 255)) * strength;
-                    float bdiff = ((color >>> 8 & 255) - (used >>> 8 & 255)) * strength;
-                    float r1 = rdiff * 16f / (45f + Math.abs(rdiff));
-                    float g1 = gdiff * 16f / (45f + Math.abs(gdiff));
-                    float b1 = bdiff * 16f / (45f + Math.abs(bdiff));
+        for (int x = 0; x < lineLen; x++) {
+            rows.reach(x);
+            int color = pixels[y * lineLen + x];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[y * lineLen + x] = 0;
+            else {
+                float er = 0f, eg = 0f, eb = 0f;
+                switch ((x << 1 & 2) | (sy & 1)){
+                    case 0:
+                        er += ((x ^ sy) % 9 - 4);
+                        er += ((x * 0xC13FA9A902A6328FL + sy * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
+                        eg += (TRI_BLUE_NOISE_B[(x & 63) | (sy & 63) << 6] + 0.5f) * 0x1p-5f;
+                        eg += ((x * -0xC13FA9A902A6328FL + sy * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
+                        eb += (TRI_BLUE_NOISE_C[(x & 63) | (sy & 63) << 6] + 0.5f) * 0x1p-6f;
+                        eb += ((sy * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
+                        break;
+                    case 1:
+                        er += (TRI_BLUE_NOISE[(x & 63) | (sy & 63) << 6] + 0.5f) * 0x1p-5f;
+                        er += ((x * -0xC13FA9A902A6328FL + sy * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
+                        eg += (TRI_BLUE_NOISE_B[(x & 63) | (sy & 63) << 6] + 0.5f) * 0x1p-6f;
+                        eg += ((sy * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
+                        eb += ((x ^ sy) % 11 - 5);
+                        eb += ((sy * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
+                        break;
+                    case 2:
+                        er += (TRI_BLUE_NOISE[(x & 63) | (sy & 63) << 6] + 0.5f) * 0x1p-6f;
+                        er += ((sy * 0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-20f;
+                        eg += ((x ^ sy) % 11 - 5);
+                        eg += ((sy * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
+                        eb += ((x ^ sy) % 9 - 4);
+                        eb += ((x * 0xC13FA9A902A6328FL + sy * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
+                        break;
+                    default: // case 3:
+                        er += ((x ^ sy) % 11 - 5);
+                        er += ((sy * -0xC13FA9A902A6328FL + x * -0x91E10DA5C79E7B1DL) >> 41) * 0x1.8p-21f;
+                        eg += ((x ^ sy) % 9 - 4);
+                        eg += ((x * 0xC13FA9A902A6328FL + sy * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
+                        eb += (TRI_BLUE_NOISE_C[(x & 63) | (sy & 63) << 6] + 0.5f) * 0x1p-5f;
+                        eb += ((x * -0xC13FA9A902A6328FL + sy * 0x91E10DA5C79E7B1DL) >> 41) * 0x1p-20f;
+                        break;
+                }
+                er = er * noiseStrength + curErrorRed[x];
+                eg = eg * noiseStrength + curErrorGreen[x];
+                eb = eb * noiseStrength + curErrorBlue[x];
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + Math.min(Math.max(er, -limit), limit), 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + Math.min(Math.max(eg, -limit), limit), 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + Math.min(Math.max(eb, -limit), limit), 0), 1023)] & 255;
+                byte paletteIndex = paletteMapping[((rr << 7) & 0x7C00)
+                                                   | ((gg << 2) & 0x3E0)
+                                                   | ((bb >>> 3))];
+                int used = paletteArray[paletteIndex & 0xFF];
+                indices[y * lineLen + x] = paletteIndex;
+                float rdiff = ((color >>> 24) - (used >>> 24)) * strength;
+                float gdiff = ((color >>> 16 & 255) - (used >>> 16 & 255)) * strength;
+                float bdiff = ((color >>> 8 & 255) - (used >>> 8 & 255)) * strength;
+                float r1 = rdiff * 16f / (45f + Math.abs(rdiff));
+                float g1 = gdiff * 16f / (45f + Math.abs(gdiff));
+                float b1 = bdiff * 16f / (45f + Math.abs(bdiff));
 //                    float r1 = rdiff * 16f / (float)Math.sqrt(2048f + rdiff * rdiff);
 //                    float g1 = gdiff * 16f / (float)Math.sqrt(2048f + gdiff * gdiff);
 //                    float b1 = bdiff * 16f / (float)Math.sqrt(2048f + bdiff * bdiff);
-                    float r2 = r1 + r1;
-                    float g2 = g1 + g1;
-                    float b2 = b1 + b1;
-                    float r4 = r2 + r2;
-                    float g4 = g2 + g2;
-                    float b4 = b2 + b2;
-                    if(x < lineLen - 1)
+                float r2 = r1 + r1;
+                float g2 = g1 + g1;
+                float b2 = b1 + b1;
+                float r4 = r2 + r2;
+                float g4 = g2 + g2;
+                float b4 = b2 + b2;
+                if(x < lineLen - 1)
+                {
+                    curErrorRed[x+1]   += r4;
+                    curErrorGreen[x+1] += g4;
+                    curErrorBlue[x+1]  += b4;
+                    if(x < lineLen - 2)
                     {
-                        curErrorRed[x+1]   += r4;
-                        curErrorGreen[x+1] += g4;
-                        curErrorBlue[x+1]  += b4;
-                        if(x < lineLen - 2)
-                        {
 
-                            curErrorRed[x+2]   += r2;
-                            curErrorGreen[x+2] += g2;
-                            curErrorBlue[x+2]  += b2;
-                        }
+                        curErrorRed[x+2]   += r2;
+                        curErrorGreen[x+2] += g2;
+                        curErrorBlue[x+2]  += b2;
                     }
-                    if(ny < h)
+                }
+                if(ny < h)
+                {
+                    if(x > 0)
                     {
-                        if(x > 0)
+                        nextErrorRed[x-1]   += r2;
+                        nextErrorGreen[x-1] += g2;
+                        nextErrorBlue[x-1]  += b2;
+                        if(x > 1)
                         {
-                            nextErrorRed[x-1]   += r2;
-                            nextErrorGreen[x-1] += g2;
-                            nextErrorBlue[x-1]  += b2;
-                            if(x > 1)
-                            {
-                                nextErrorRed[x-2]   += r1;
-                                nextErrorGreen[x-2] += g1;
-                                nextErrorBlue[x-2]  += b1;
-                            }
+                            nextErrorRed[x-2]   += r1;
+                            nextErrorGreen[x-2] += g1;
+                            nextErrorBlue[x-2]  += b1;
                         }
-                        nextErrorRed[x]   += r4;
-                        nextErrorGreen[x] += g4;
-                        nextErrorBlue[x]  += b4;
-                        if(x < lineLen - 1)
+                    }
+                    nextErrorRed[x]   += r4;
+                    nextErrorGreen[x] += g4;
+                    nextErrorBlue[x]  += b4;
+                    if(x < lineLen - 1)
+                    {
+                        nextErrorRed[x+1]   += r2;
+                        nextErrorGreen[x+1] += g2;
+                        nextErrorBlue[x+1]  += b2;
+                        if(x < lineLen - 2)
                         {
-                            nextErrorRed[x+1]   += r2;
-                            nextErrorGreen[x+1] += g2;
-                            nextErrorBlue[x+1]  += b2;
-                            if(x < lineLen - 2)
-                            {
-
-                                nextErrorRed[x+2]   += r1;
-                                nextErrorGreen[x+2] += g1;
-                                nextErrorBlue[x+2]  += b1;
-                            }
+
+                            nextErrorRed[x+2]   += r1;
+                            nextErrorGreen[x+2] += g1;
+                            nextErrorBlue[x+2]  += b1;
                         }
                     }
                 }
             }
-
         }
-        pixmap.setBlending(blending);
-        return pixmap;
+
     }
 
+
     /**
      * Modifies the given Pixmap so that it only uses colors present in this PaletteReducer, dithering when it can
      * with Burkes dithering, a type of error-diffusion dither. This method looks, surprisingly, quite a lot better
@@ -5087,121 +6278,125 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceBurkes (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceBurkes(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceBurkes(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceBurkes (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runErrorRows(lineLen, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceBurkes(pixels, lineLen, h, indices, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceBurkes(int[], int, int, byte[])} for only the row {@code py}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code py}
+     * @param py the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceBurkes (int[] pixels, int lineLen, int h, byte[] indices, int py, ErrorRows rows) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = py + 1;
         float r4, r2, r1, g4, g2, g1, b4, b2, b1;
         final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
                 strength = s * 0.58f / (0.3f + s);
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(lineLen)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(lineLen)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(lineLen)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(lineLen)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(lineLen)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(lineLen)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(lineLen);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(lineLen);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(lineLen);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(lineLen);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(lineLen);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
-        for (int py = 0; py < h; py++) {
-            int ny = py + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, lineLen);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, lineLen);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, lineLen);
-
-            Arrays.fill(nextErrorRed, 0, lineLen, 0);
-            Arrays.fill(nextErrorGreen, 0, lineLen, 0);
-            Arrays.fill(nextErrorBlue, 0, lineLen, 0);
-
-            for (int px = 0; px < lineLen; px++) {
-                int color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, py, 0);
-                else {
-                    float er = curErrorRed[px];
-                    float eg = curErrorGreen[px];
-                    float eb = curErrorBlue[px];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-                    byte paletteIndex = paletteMapping[((rr << 7) & 0x7C00)
-                            | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))];
-                    int used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, py, used);
-                    int rdiff = (color >>> 24) - (used >>> 24);
-                    int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
-                    int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
-                    r1 = rdiff * strength;
-                    g1 = gdiff * strength;
-                    b1 = bdiff * strength;
-                    r2 = r1 + r1;
-                    g2 = g1 + g1;
-                    b2 = b1 + b1;
-                    r4 = r2 + r2;
-                    g4 = g2 + g2;
-                    b4 = b2 + b2;
-                    if(px < lineLen - 1)
+        for (int px = 0; px < lineLen; px++) {
+            rows.reach(px);
+            int color = pixels[py * lineLen + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[py * lineLen + px] = 0;
+            else {
+                float er = curErrorRed[px];
+                float eg = curErrorGreen[px];
+                float eb = curErrorBlue[px];
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+                byte paletteIndex = paletteMapping[((rr << 7) & 0x7C00)
+                        | ((gg << 2) & 0x3E0)
+                        | ((bb >>> 3))];
+                int used = paletteArray[paletteIndex & 0xFF];
+                indices[py * lineLen + px] = paletteIndex;
+                int rdiff = (color >>> 24) - (used >>> 24);
+                int gdiff = (color >>> 16 & 255) - (used >>> 16 & 255);
+                int bdiff = (color >>> 8 & 255) - (used >>> 8 & 255);
+                r1 = rdiff * strength;
+                g1 = gdiff * strength;
+                b1 = bdiff * strength;
+                r2 = r1 + r1;
+                g2 = g1 + g1;
+                b2 = b1 + b1;
+                r4 = r2 + r2;
+                g4 = g2 + g2;
+                b4 = b2 + b2;
+                if(px < lineLen - 1)
+                {
+                    curErrorRed[px+1]   += r4;
+                    curErrorGreen[px+1] += g4;
+                    curErrorBlue[px+1]  += b4;
+                    if(px < lineLen - 2)
                     {
-                        curErrorRed[px+1]   += r4;
-                        curErrorGreen[px+1] += g4;
-                        curErrorBlue[px+1]  += b4;
-                        if(px < lineLen - 2)
-                        {
-                            curErrorRed[px+2]   += r2;
-                            curErrorGreen[px+2] += g2;
-                            curErrorBlue[px+2]  += b2;
-                        }
+                        curErrorRed[px+2]   += r2;
+                        curErrorGreen[px+2] += g2;
+                        curErrorBlue[px+2]  += b2;
                     }
-                    if(ny < h)
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        if(px > 0)
+                        nextErrorRed[px-1]   += r2;
+                        nextErrorGreen[px-1] += g2;
+                        nextErrorBlue[px-1]  += b2;
+                        if(px > 1)
                         {
-                            nextErrorRed[px-1]   += r2;
-                            nextErrorGreen[px-1] += g2;
-                            nextErrorBlue[px-1]  += b2;
-                            if(px > 1)
-                            {
-                                nextErrorRed[px-2]   += r1;
-                                nextErrorGreen[px-2] += g1;
-                                nextErrorBlue[px-2]  += b1;
-                            }
+                            nextErrorRed[px-2]   += r1;
+                            nextErrorGreen[px-2] += g1;
+                            nextErrorBlue[px-2]  += b1;
                         }
-                        nextErrorRed[px]   += r4;
-                        nextErrorGreen[px] += g4;
-                        nextErrorBlue[px]  += b4;
-                        if(px < lineLen - 1)
+                    }
+                    nextErrorRed[px]   += r4;
+                    nextErrorGreen[px] += g4;
+                    nextErrorBlue[px]  += b4;
+                    if(px < lineLen - 1)
+                    {
+                        nextErrorRed[px+1]   += r2;
+                        nextErrorGreen[px+1] += g2;
+                        nextErrorBlue[px+1]  += b2;
+                        if(px < lineLen - 2)
                         {
-                            nextErrorRed[px+1]   += r2;
-                            nextErrorGreen[px+1] += g2;
-                            nextErrorBlue[px+1]  += b2;
-                            if(px < lineLen - 2)
-                            {
-                                nextErrorRed[px+2]   += r1;
-                                nextErrorGreen[px+2] += g1;
-                                nextErrorBlue[px+2]  += b1;
-                            }
+                            nextErrorRed[px+2]   += r1;
+                            nextErrorGreen[px+2] += g1;
+                            nextErrorBlue[px+2]  += b1;
                         }
                     }
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * A variant on {@link #reduceBurkes(Pixmap)} that multiplies the diffused error per-pixel using
      * {@link #TRI_BLUE_NOISE_MULTIPLIERS}. This does a good job of breaking up artifacts in sections
@@ -5210,136 +6405,145 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceOceanic (Pixmap pixmap) {
-        boolean hasTransparent = (paletteArray[0] == 0);
         final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceOceanic(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceOceanic(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code w * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceOceanic (final int[] pixels, final int w, final int h, final byte[] indices, final boolean flipNoise) {
+        runErrorRows(w, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceOceanic(pixels, w, h, indices, flipNoise, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceOceanic(int[], int, int, byte[])} for only the row {@code py}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code py}
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param py the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceOceanic (int[] pixels, int w, int h, byte[] indices, boolean flipNoise, int py, ErrorRows rows) {
+        final int sy = flipNoise ? h - 1 - py : py;
+        boolean hasTransparent = (paletteArray[0] == 0);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = py + 1;
         final float[] noise = TRI_BLUE_NOISE_MULTIPLIERS;
         float r4, r2, r1, g4, g2, g1, b4, b2, b1;
         final float s = (0.13f * ditherStrength / (populationBias * populationBias)),
                 strength = s * 0.58f / (0.3f + s);
 
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color, used, rdiff, gdiff, bdiff;
         float er, eg, eb;
         byte paletteIndex;
-        for (int py = 0; py < h; py++) {
-            int ny = py + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-
-            for (int px = 0; px < w; px++) {
-                color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, py, 0);
-                else {
-                    er = curErrorRed[px];
-                    eg = curErrorGreen[px];
-                    eb = curErrorBlue[px];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, py, used);
-                    rdiff = (color>>>24)-    (used>>>24);
-                    gdiff = (color>>>16&255)-(used>>>16&255);
-                    bdiff = (color>>>8&255)- (used>>>8&255);
-                    r1 = rdiff * strength;
-                    g1 = gdiff * strength;
-                    b1 = bdiff * strength;
-                    r2 = r1 + r1;
-                    g2 = g1 + g1;
-                    b2 = b1 + b1;
-                    r4 = r2 + r2;
-                    g4 = g2 + g2;
-                    b4 = b2 + b2;
-                    float modifier;
-                    if(px < w - 1)
+        for (int px = 0; px < w; px++) {
+            rows.reach(px);
+            color = pixels[py * w + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[py * w + px] = 0;
+            else {
+                er = curErrorRed[px];
+                eg = curErrorGreen[px];
+                eb = curErrorBlue[px];
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[py * w + px] = paletteIndex;
+                rdiff = (color>>>24)-    (used>>>24);
+                gdiff = (color>>>16&255)-(used>>>16&255);
+                bdiff = (color>>>8&255)- (used>>>8&255);
+                r1 = rdiff * strength;
+                g1 = gdiff * strength;
+                b1 = bdiff * strength;
+                r2 = r1 + r1;
+                g2 = g1 + g1;
+                b2 = b1 + b1;
+                r4 = r2 + r2;
+                g4 = g2 + g2;
+                b4 = b2 + b2;
+                float modifier;
+                if(px < w - 1)
+                {
+                    modifier = noise[(px + 1 & 63) | ((sy << 6) & 0xFC0)];
+                    curErrorRed[px+1]   += r4 * modifier;
+                    curErrorGreen[px+1] += g4 * modifier;
+                    curErrorBlue[px+1]  += b4 * modifier;
+                    if(px < w - 2)
                     {
-                        modifier = noise[(px + 1 & 63) | ((py << 6) & 0xFC0)];
-                        curErrorRed[px+1]   += r4 * modifier;
-                        curErrorGreen[px+1] += g4 * modifier;
-                        curErrorBlue[px+1]  += b4 * modifier;
-                        if(px < w - 2)
-                        {
-                            modifier = noise[(px + 2 & 63) | ((py << 6) & 0xFC0)];
-                            curErrorRed[px+2]   += r2 * modifier;
-                            curErrorGreen[px+2] += g2 * modifier;
-                            curErrorBlue[px+2]  += b2 * modifier;
-                        }
+                        modifier = noise[(px + 2 & 63) | ((sy << 6) & 0xFC0)];
+                        curErrorRed[px+2]   += r2 * modifier;
+                        curErrorGreen[px+2] += g2 * modifier;
+                        curErrorBlue[px+2]  += b2 * modifier;
                     }
-                    if(ny < h)
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        if(px > 0)
+                        modifier = noise[(px - 1 & 63) | ((ny << 6) & 0xFC0)];
+                        nextErrorRed[px-1]   += r2 * modifier;
+                        nextErrorGreen[px-1] += g2 * modifier;
+                        nextErrorBlue[px-1]  += b2 * modifier;
+                        if(px > 1)
                         {
-                            modifier = noise[(px - 1 & 63) | ((ny << 6) & 0xFC0)];
-                            nextErrorRed[px-1]   += r2 * modifier;
-                            nextErrorGreen[px-1] += g2 * modifier;
-                            nextErrorBlue[px-1]  += b2 * modifier;
-                            if(px > 1)
-                            {
-                                modifier = noise[(px - 2 & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px-2]   += r1 * modifier;
-                                nextErrorGreen[px-2] += g1 * modifier;
-                                nextErrorBlue[px-2]  += b1 * modifier;
-                            }
+                            modifier = noise[(px - 2 & 63) | ((ny << 6) & 0xFC0)];
+                            nextErrorRed[px-2]   += r1 * modifier;
+                            nextErrorGreen[px-2] += g1 * modifier;
+                            nextErrorBlue[px-2]  += b1 * modifier;
                         }
-                        modifier = noise[(px & 63) | ((ny << 6) & 0xFC0)];
-                        nextErrorRed[px]   += r4 * modifier;
-                        nextErrorGreen[px] += g4 * modifier;
-                        nextErrorBlue[px]  += b4 * modifier;
-                        if(px < w - 1)
+                    }
+                    modifier = noise[(px & 63) | ((ny << 6) & 0xFC0)];
+                    nextErrorRed[px]   += r4 * modifier;
+                    nextErrorGreen[px] += g4 * modifier;
+                    nextErrorBlue[px]  += b4 * modifier;
+                    if(px < w - 1)
+                    {
+                        modifier = noise[(px + 1 & 63) | ((ny << 6) & 0xFC0)];
+                        nextErrorRed[px+1]   += r2 * modifier;
+                        nextErrorGreen[px+1] += g2 * modifier;
+                        nextErrorBlue[px+1]  += b2 * modifier;
+                        if(px < w - 2)
                         {
-                            modifier = noise[(px + 1 & 63) | ((ny << 6) & 0xFC0)];
-                            nextErrorRed[px+1]   += r2 * modifier;
-                            nextErrorGreen[px+1] += g2 * modifier;
-                            nextErrorBlue[px+1]  += b2 * modifier;
-                            if(px < w - 2)
-                            {
-                                modifier = noise[(px + 2 & 63) | ((ny << 6) & 0xFC0)];
-                                nextErrorRed[px+2]   += r1 * modifier;
-                                nextErrorGreen[px+2] += g1 * modifier;
-                                nextErrorBlue[px+2]  += b1 * modifier;
-                            }
+                            modifier = noise[(px + 2 & 63) | ((ny << 6) & 0xFC0)];
+                            nextErrorRed[px+2]   += r1 * modifier;
+                            nextErrorGreen[px+2] += g1 * modifier;
+                            nextErrorBlue[px+2]  += b1 * modifier;
                         }
                     }
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * A variant on {@link #reduceOceanic(Pixmap)} (and thus on {@link #reduceBurkes(Pixmap)}) that uses
      * different blue noise effects per-channel, which can improve color quality at a minor speed cost.
@@ -5350,137 +6554,146 @@ public class PaletteReducer {
      * @return the given Pixmap, for chaining
      */
     public Pixmap reduceSeaside (Pixmap pixmap) {
-        boolean hasTransparent = (paletteArray[0] == 0);
         final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceSeaside(pixels, w, h, indices, false);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceSeaside(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code w * h} palette indices in row-major order
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     */
+    protected void reduceSeaside (final int[] pixels, final int w, final int h, final byte[] indices, final boolean flipNoise) {
+        runErrorRows(w, h, new ErrorRow() {
+            @Override
+            public void run(int y, ErrorRows rows) {
+                reduceSeaside(pixels, w, h, indices, flipNoise, y, rows);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceSeaside(int[], int, int, byte[])} for only the row {@code py}, using the error
+     * buffers in {@code rows}, so that rows can be dithered in a wavefront by {@link #runErrorRows(int, int, ErrorRow)}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param w the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for row {@code py}
+     * @param flipNoise if true, {@code pixels} holds a vertically flipped image, and noise is looked up by each row's
+     *                  place in the unflipped image, so the pattern stays in the same place on the image
+     * @param py the row to dither
+     * @param rows holds the error for this row and the next one; its {@link ErrorRows#reach(int)} must be called before each pixel
+     */
+    protected void reduceSeaside (int[] pixels, int w, int h, byte[] indices, boolean flipNoise, int py, ErrorRows rows) {
+        final int sy = flipNoise ? h - 1 - py : py;
+        boolean hasTransparent = (paletteArray[0] == 0);
+        final float[] curErrorRed = rows.curRed, nextErrorRed = rows.nextRed,
+                curErrorGreen = rows.curGreen, nextErrorGreen = rows.nextGreen,
+                curErrorBlue = rows.curBlue, nextErrorBlue = rows.nextBlue;
+        final int ny = py + 1;
         final float[] noiseA = TRI_BLUE_NOISE_MULTIPLIERS;
         final float[] noiseB = TRI_BLUE_NOISE_MULTIPLIERS_B;
         final float[] noiseC = TRI_BLUE_NOISE_MULTIPLIERS_C;
         final float s = 0.15f * populationBias * ditherStrength,
                 strength = s * 0.6f / (0.35f + s);
-        float[] curErrorRed, nextErrorRed, curErrorGreen, nextErrorGreen, curErrorBlue, nextErrorBlue;
-        if (curErrorRedFloats == null) {
-            curErrorRed = (curErrorRedFloats = new FloatArray(w)).items;
-            nextErrorRed = (nextErrorRedFloats = new FloatArray(w)).items;
-            curErrorGreen = (curErrorGreenFloats = new FloatArray(w)).items;
-            nextErrorGreen = (nextErrorGreenFloats = new FloatArray(w)).items;
-            curErrorBlue = (curErrorBlueFloats = new FloatArray(w)).items;
-            nextErrorBlue = (nextErrorBlueFloats = new FloatArray(w)).items;
-        } else {
-            curErrorRed = curErrorRedFloats.ensureCapacity(w);
-            nextErrorRed = nextErrorRedFloats.ensureCapacity(w);
-            curErrorGreen = curErrorGreenFloats.ensureCapacity(w);
-            nextErrorGreen = nextErrorGreenFloats.ensureCapacity(w);
-            curErrorBlue = curErrorBlueFloats.ensureCapacity(w);
-            nextErrorBlue = nextErrorBlueFloats.ensureCapacity(w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-        }
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color, used, rdiff, gdiff, bdiff;
         float er, eg, eb;
         byte paletteIndex;
-        for (int py = 0; py < h; py++) {
-            int ny = py + 1;
-
-            System.arraycopy(nextErrorRed, 0, curErrorRed, 0, w);
-            System.arraycopy(nextErrorGreen, 0, curErrorGreen, 0, w);
-            System.arraycopy(nextErrorBlue, 0, curErrorBlue, 0, w);
-
-            Arrays.fill(nextErrorRed, 0, w, 0);
-            Arrays.fill(nextErrorGreen, 0, w, 0);
-            Arrays.fill(nextErrorBlue, 0, w, 0);
-
-            for (int px = 0; px < w; px++) {
-                color = pixmap.getPixel(px, py);
-                if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, py, 0);
-                else {
-                    er = curErrorRed[px];
-                    eg = curErrorGreen[px];
-                    eb = curErrorBlue[px];
-                    int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
-                    int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
-                    int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
-
-                    paletteIndex =
-                            paletteMapping[((rr << 7) & 0x7C00)
-                                    | ((gg << 2) & 0x3E0)
-                                    | ((bb >>> 3))];
-                    used = paletteArray[paletteIndex & 0xFF];
-                    pixmap.drawPixel(px, py, used);
-                    rdiff = (color>>>24)-    (used>>>24);
-                    gdiff = (color>>>16&255)-(used>>>16&255);
-                    bdiff = (color>>>8&255)- (used>>>8&255);
-                    int modifier = ((px & 63) | (py << 6 & 0xFC0));
-                    final float r1 = rdiff * strength * noiseA[modifier];
-                    final float g1 = gdiff * strength * noiseB[modifier];
-                    final float b1 = bdiff * strength * noiseC[modifier];
-                    final float r2 = r1 + r1;
-                    final float g2 = g1 + g1;
-                    final float b2 = b1 + b1;
-                    final float r4 = r2 + r2;
-                    final float g4 = g2 + g2;
-                    final float b4 = b2 + b2;
-
-                    if(px < w - 1)
+        for (int px = 0; px < w; px++) {
+            rows.reach(px);
+            color = pixels[py * w + px];
+            if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
+                indices[py * w + px] = 0;
+            else {
+                er = curErrorRed[px];
+                eg = curErrorGreen[px];
+                eb = curErrorBlue[px];
+                int rr = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 24)       ] + er, 0), 1023)] & 255;
+                int gg = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 16) & 0xFF] + eg, 0), 1023)] & 255;
+                int bb = fromLinearLUT[(int)Math.min(Math.max(toLinearLUT[(color >>> 8)  & 0xFF] + eb, 0), 1023)] & 255;
+
+                paletteIndex =
+                        paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                used = paletteArray[paletteIndex & 0xFF];
+                indices[py * w + px] = paletteIndex;
+                rdiff = (color>>>24)-    (used>>>24);
+                gdiff = (color>>>16&255)-(used>>>16&255);
+                bdiff = (color>>>8&255)- (used>>>8&255);
+                int modifier = ((px & 63) | (sy << 6 & 0xFC0));
+                final float r1 = rdiff * strength * noiseA[modifier];
+                final float g1 = gdiff * strength * noiseB[modifier];
+                final float b1 = bdiff * strength * noiseC[modifier];
+                final float r2 = r1 + r1;
+                final float g2 = g1 + g1;
+                final float b2 = b1 + b1;
+                final float r4 = r2 + r2;
+                final float g4 = g2 + g2;
+                final float b4 = b2 + b2;
+
+                if(px < w - 1)
+                {
+                    modifier = ((px + 1 & 63) | (sy << 6 & 0xFC0));
+                    curErrorRed[px+1]   += r4 * noiseA[modifier];
+                    curErrorGreen[px+1] += g4 * noiseB[modifier];
+                    curErrorBlue[px+1]  += b4 * noiseC[modifier];
+                    if(px < w - 2)
                     {
-                        modifier = ((px + 1 & 63) | (py << 6 & 0xFC0));
-                        curErrorRed[px+1]   += r4 * noiseA[modifier];
-                        curErrorGreen[px+1] += g4 * noiseB[modifier];
-                        curErrorBlue[px+1]  += b4 * noiseC[modifier];
-                        if(px < w - 2)
-                        {
-                            modifier = ((px + 2 & 63) | ((py << 6) & 0xFC0));
-                            curErrorRed[px+2]   += r2 * noiseA[modifier];
-                            curErrorGreen[px+2] += g2 * noiseB[modifier];
-                            curErrorBlue[px+2]  += b2 * noiseC[modifier];
-                        }
+                        modifier = ((px + 2 & 63) | ((sy << 6) & 0xFC0));
+                        curErrorRed[px+2]   += r2 * noiseA[modifier];
+                        curErrorGreen[px+2] += g2 * noiseB[modifier];
+                        curErrorBlue[px+2]  += b2 * noiseC[modifier];
                     }
-                    if(ny < h)
+                }
+                if(ny < h)
+                {
+                    if(px > 0)
                     {
-                        if(px > 0)
+                        modifier = (px - 1 & 63) | ((ny << 6) & 0xFC0);
+                        nextErrorRed[px-1]   += r2 * noiseA[modifier];
+                        nextErrorGreen[px-1] += g2 * noiseB[modifier];
+                        nextErrorBlue[px-1]  += b2 * noiseC[modifier];
+                        if(px > 1)
                         {
-                            modifier = (px - 1 & 63) | ((ny << 6) & 0xFC0);
-                            nextErrorRed[px-1]   += r2 * noiseA[modifier];
-                            nextErrorGreen[px-1] += g2 * noiseB[modifier];
-                            nextErrorBlue[px-1]  += b2 * noiseC[modifier];
-                            if(px > 1)
-                            {
-                                modifier = (px - 2 & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px-2]   += r1 * noiseA[modifier];
-                                nextErrorGreen[px-2] += g1 * noiseB[modifier];
-                                nextErrorBlue[px-2]  += b1 * noiseC[modifier];
-                            }
+                            modifier = (px - 2 & 63) | ((ny << 6) & 0xFC0);
+                            nextErrorRed[px-2]   += r1 * noiseA[modifier];
+                            nextErrorGreen[px-2] += g1 * noiseB[modifier];
+                            nextErrorBlue[px-2]  += b1 * noiseC[modifier];
                         }
-                        modifier = (px & 63) | ((ny << 6) & 0xFC0);
-                        nextErrorRed[px]   += r4 * noiseA[modifier];
-                        nextErrorGreen[px] += g4 * noiseB[modifier];
-                        nextErrorBlue[px]  += b4 * noiseC[modifier];
-                        if(px < w - 1)
+                    }
+                    modifier = (px & 63) | ((ny << 6) & 0xFC0);
+                    nextErrorRed[px]   += r4 * noiseA[modifier];
+                    nextErrorGreen[px] += g4 * noiseB[modifier];
+                    nextErrorBlue[px]  += b4 * noiseC[modifier];
+                    if(px < w - 1)
+                    {
+                        modifier = (px + 1 & 63) | ((ny << 6) & 0xFC0);
+                        nextErrorRed[px+1]   += r2 * noiseA[modifier];
+                        nextErrorGreen[px+1] += g2 * noiseB[modifier];
+                        nextErrorBlue[px+1]  += b2 * noiseC[modifier];
+                        if(px < w - 2)
                         {
-                            modifier = (px + 1 & 63) | ((ny << 6) & 0xFC0);
-                            nextErrorRed[px+1]   += r2 * noiseA[modifier];
-                            nextErrorGreen[px+1] += g2 * noiseB[modifier];
-                            nextErrorBlue[px+1]  += b2 * noiseC[modifier];
-                            if(px < w - 2)
-                            {
-                                modifier = (px + 2 & 63) | ((ny << 6) & 0xFC0);
-                                nextErrorRed[px+2]   += r1 * noiseA[modifier];
-                                nextErrorGreen[px+2] += g1 * noiseB[modifier];
-                                nextErrorBlue[px+2]  += b1 * noiseC[modifier];
-                            }
+                            modifier = (px + 2 & 63) | ((ny << 6) & 0xFC0);
+                            nextErrorRed[px+2]   += r1 * noiseA[modifier];
+                            nextErrorGreen[px+2] += g1 * noiseB[modifier];
+                            nextErrorBlue[px+2]  += b1 * noiseC[modifier];
                         }
                     }
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
+
     /**
      * Compares items in ints by their luma, looking up items by the indices a and b, and swaps the two given indices if
      * the item at a has higher luma than the item at b. This requires items to be present as two ints per item: the
@@ -5619,17 +6832,50 @@ public class PaletteReducer {
      * @return {@code pixmap}, after modifications
      */
     public Pixmap reduceKnoll (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceKnoll(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceKnoll(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceKnoll (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceKnoll(pixels, lineLen, h, indices, startY, endY, candidates);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceKnoll(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     * @param candidates a 32-element scratch array that must not be shared with other bands running at the same time
+     */
+    protected void reduceKnoll (int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY, int[] candidates) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color, used, cr, cg, cb, usedIndex;
         final float errorMul = (ditherStrength * 0.5f / populationBias);
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int er = 0, eg = 0, eb = 0;
                     cr = (color >>> 24);
@@ -5642,18 +6888,16 @@ public class PaletteReducer {
                         usedIndex = paletteMapping[((rr << 7) & 0x7C00)
                                 | ((gg << 2) & 0x3E0)
                                 | ((bb >>> 3))] & 0xFF;
-                        candidates[i | 16] = shrink(candidates[i] = used = paletteArray[usedIndex]);
+                        candidates[i | 16] = shrink(used = paletteArray[candidates[i] = usedIndex]);
                         er += cr - (used >>> 24);
                         eg += cg - (used >>> 16 & 0xFF);
                         eb += cb - (used >>> 8 & 0xFF);
                     }
                     sort16(candidates);
-                    pixmap.drawPixel(px, y, candidates[thresholdMatrix16[((px & 3) | (y & 3) << 2)]]);
+                    indices[y * lineLen + px] = (byte) candidates[thresholdMatrix16[((px & 3) | (y & 3) << 2)]];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -5663,16 +6907,48 @@ public class PaletteReducer {
      * @return {@code pixmap}, after modifications
      */
     public Pixmap reduceMarten (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceMarten(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceMarten(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceMarten (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceMarten(pixels, lineLen, h, indices, startY, endY);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceMarten(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     */
+    protected void reduceMarten (int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         final float str = Math.min(1100f * (ditherStrength / (float) Math.sqrt(colorCount) * (1f / (populationBias * populationBias * populationBias) - 0.7f)), 127f);
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                int color = pixmap.getPixel(px, y);
+                int color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     // We get a sub-random value from 0-1 using interleaved gradient noise.
                     // Offsetting this value by different values and feeding into triangleWave()
@@ -5682,14 +6958,12 @@ public class PaletteReducer {
                     int rr = fromLinearLUT[(int)(toLinearLUT[(color >>> 24)       ] + OtherMath.triangleWave(theta         ) * str)] & 255;
                     int gg = fromLinearLUT[(int)(toLinearLUT[(color >>> 16) & 0xFF] + OtherMath.triangleWave(theta + 0.382f) * str)] & 255;
                     int bb = fromLinearLUT[(int)(toLinearLUT[(color >>> 8)  & 0xFF] + OtherMath.triangleWave(theta + 0.618f) * str)] & 255;
-                    pixmap.drawPixel(px, y, paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                    indices[y * lineLen + px] = paletteMapping[((rr << 7) & 0x7C00)
                             | ((gg << 2) & 0x3E0)
-                            | ((bb >>> 3))] & 0xFF]);
+                            | ((bb >>> 3))];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
     /**
@@ -5712,17 +6986,50 @@ public class PaletteReducer {
      * @return {@code pixmap}, after modifications
      */
     public Pixmap reduceKnollRoberts (Pixmap pixmap) {
+        final int w = pixmap.getWidth(), h = pixmap.getHeight();
+        final int[] pixels = readPixels(pixmap);
+        final byte[] indices = ensureIndexBuffer(w * h);
+        reduceKnollRoberts(pixels, w, h, indices);
+        return writeIndices(pixmap, indices);
+    }
+
+    /**
+     * The index-only part of {@link #reduceKnollRoberts(Pixmap)}, which reads RGBA8888 colors from {@code pixels} and writes
+     * the palette index it chose for each one into {@code indices}.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive {@code lineLen * h} palette indices in row-major order
+     */
+    protected void reduceKnollRoberts (final int[] pixels, final int lineLen, final int h, final byte[] indices) {
+        runBands(h, new RowBand() {
+            @Override
+            public void run(int startY, int endY, int[] candidates) {
+                reduceKnollRoberts(pixels, lineLen, h, indices, startY, endY, candidates);
+            }
+        });
+    }
+
+    /**
+     * Does the work of {@link #reduceKnollRoberts(int[], int, int, byte[])} for only the rows from {@code startY} (inclusive)
+     * to {@code endY} (exclusive), so separate bands of rows can be dithered at the same time.
+     * @param pixels RGBA8888 colors in row-major order; will not be modified
+     * @param lineLen the width of the image in pixels
+     * @param h the height of the image in pixels
+     * @param indices will receive palette indices in row-major order, only for the rows in this band
+     * @param startY the first row to dither, inclusive
+     * @param endY the last row to dither, exclusive
+     * @param candidates a 32-element scratch array that must not be shared with other bands running at the same time
+     */
+    protected void reduceKnollRoberts (int[] pixels, int lineLen, int h, byte[] indices, int startY, int endY, int[] candidates) {
         boolean hasTransparent = (paletteArray[0] == 0);
-        final int lineLen = pixmap.getWidth(), h = pixmap.getHeight();
-        Pixmap.Blending blending = pixmap.getBlending();
-        pixmap.setBlending(Pixmap.Blending.None);
         int color, used, cr, cg, cb, usedIndex;
         final float errorMul = ditherStrength * populationBias * 1.25f;
-        for (int y = 0; y < h; y++) {
+        for (int y = startY; y < endY; y++) {
             for (int px = 0; px < lineLen; px++) {
-                color = pixmap.getPixel(px, y);
+                color = pixels[y * lineLen + px];
                 if (hasTransparent && (color & 0x80) == 0) /* if this pixel is less than 50% opaque, draw a pure transparent pixel. */
-                    pixmap.drawPixel(px, y, 0);
+                    indices[y * lineLen + px] = 0;
                 else {
                     int er = 0, eg = 0, eb = 0;
                     cr = (color >>> 24);
@@ -5735,21 +7042,19 @@ public class PaletteReducer {
                         usedIndex = paletteMapping[((rr << 7) & 0x7C00)
                                 | ((gg << 2) & 0x3E0)
                                 | ((bb >>> 3))] & 0xFF;
-                        candidates[c | 16] = shrink(candidates[c] = used = paletteArray[usedIndex]);
+                        candidates[c | 16] = shrink(used = paletteArray[candidates[c] = usedIndex]);
                         er += cr - (used >>> 24);
                         eg += cg - (used >>> 16 & 0xFF);
                         eb += cb - (used >>> 8 & 0xFF);
                     }
                     sort8(candidates);
-                    pixmap.drawPixel(px, y, candidates[thresholdMatrix8[
+                    indices[y * lineLen + px] = (byte) candidates[thresholdMatrix8[
                             ((int) (px * 0x1.C13FA9A902A6328Fp3 + y * 0x1.9E3779B97F4A7C15p-2) & 3) ^
                                     ((px & 3) | (y & 1) << 2)
-                            ]]);
+                            ]];
                 }
             }
         }
-        pixmap.setBlending(blending);
-        return pixmap;
     }
 
 
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+import com.badlogic.gdx.graphics.Pixmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Filters and compresses the rows of a full-color (RGBA8888) PNG image on several threads at once, the way pigz does,
+ * and writes them as one zlib stream. The image is split into blocks of whole rows. Each block is filtered, then
+ * compressed by its own raw {@link Deflater} using the last 32 KiB of the block before it as a preset dictionary, so
+ * matches can still reach back across the edge of a block. Every block but the last ends with a sync flush, so the
+ * compressed blocks can simply be put one after another, and the Adler-32 checksums of the blocks are combined into the
+ * one the zlib stream needs. The result is a little larger than compressing on one thread, and is not byte-for-byte the
+ * same, but any PNG decoder reads it the same way.
+ * <br>
+ * All filtered rows of an image are held at once, and each block keeps its Deflater and compressed bytes to be reused
+ * by the next image, so this uses more memory than compressing on one thread. This is used by {@link FastPNG} and
+ * {@link AnimatedPNG} when they are given a {@link Parallelism} with more than one thread.
+ */
+final class ParallelDeflater {
+    /**
+     * No block is made smaller than this many bytes of filtered rows, the same as pigz's default block size; smaller
+     * images are compressed on one thread.
+     */
+    static final int MIN_BLOCK = 1 << 17;
+
+    /**
+     * How far back a DEFLATE match can reach, and so how much of the previous block is used as a dictionary.
+     */
+    private static final int WINDOW = 1 << 15;
+
+    private static final int ADLER_BASE = 65521;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private byte[] raw = new byte[0];
+    private Block[] blocks = new Block[0];
+
+    /**
+     * The state each block of rows needs while it is filtered and compressed; only one thread uses a Block at a time.
+     */
+    private static final class Block {
+        final RowFilter rowFilter;
+        Deflater deflater;
+        int deflaterLevel;
+        final Adler32 adler = new Adler32();
+        byte[] line = new byte[0];
+        byte[] compressed = new byte[0];
+        int compressedSize;
+
+        Block() {
+            rowFilter = new RowFilter(4);
+        }
+    }
+
+    /**
+     * Sets the compression level used from the next image on, as with {@link Deflater#setLevel(int)}.
+     * @param level from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Gets how many blocks an image of the given size would be split into, or 1 if it is too small to be worth
+     * splitting or {@code parallelism} only has one thread.
+     * @param parallelism the Parallelism that would be given to {@link #write(OutputStream, Pixmap, int, int, boolean, PNGFilter, Parallelism)}
+     * @param width the width of the image, in pixels
+     * @param height the height of the image, in pixels
+     * @return how many blocks the image would be split into; 1 means it should be compressed on one thread
+     */
+    static int blockCount(Parallelism parallelism, int width, int height) {
+        if (parallelism.threads() <= 1) return 1;
+        final long total = (long) height * (width * 4L + 1L);
+        return (int) Math.max(1, Math.min(Math.min(parallelism.threads() * 2L, height), total / MIN_BLOCK));
+    }
+
+    /**
+     * Gets the unfiltered bytes of each row of an image, for
+     * {@link #write(OutputStream, int, int, PNGFilter, Parallelism, Rows)}. This may be called from several threads at
+     * once, for different rows.
+     */
+    interface Rows {
+        /**
+         * Fills {@code line} with the unfiltered bytes of the given row, 4 bytes per pixel.
+         * @param y the row to get, where 0 is the first row written
+         * @param line will be filled with the row; may be longer than the row
+         */
+        void read(int y, byte[] line);
+    }
+
+    /**
+     * Filters and compresses the area from 0,0 to {@code width,height} of {@code pixmap}, and writes the complete zlib
+     * stream (header, compressed blocks, and Adler-32 checksum) to {@code out}, which should be the IDAT or fdAT chunk
+     * being written. The image should be split into more than one block by
+     * {@link #blockCount(Parallelism, int, int)}; otherwise, this works but only uses one thread.
+     * @param out where to write the zlib stream, usually an {@link ImageDataOutputStream}
+     * @param pixmap the image to write; it is only read
+     * @param width how many pixels of each row to write
+     * @param height how many rows to write
+     * @param flipY if true, the last row of pixmap is written first
+     * @param filter which {@link PNGFilter} to use on each row
+     * @param parallelism runs the blocks, possibly on several threads at once
+     * @throws IOException if out throws one
+     */
+    void write(OutputStream out, final Pixmap pixmap, final int width, final int height, final boolean flipY,
+               PNGFilter filter, Parallelism parallelism) throws IOException {
+        final IntBuffer ints;
+        if (pixmap.getFormat() == Pixmap.Format.RGBA8888) {
+            ByteBuffer bytes = pixmap.getPixels().duplicate();
+            bytes.clear();
+            ints = bytes.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        } else {
+            ints = null;
+        }
+        write(out, width, height, filter, parallelism, new Rows() {
+            @Override
+            public void read(int y, byte[] line) {
+                readRow(pixmap, ints, width, flipY ? height - y - 1 : y, line);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #write(OutputStream, Pixmap, int, int, boolean, PNGFilter, Parallelism)}, but gets each row from
+     * {@code rows} instead of from a Pixmap.
+     * @param out where to write the zlib stream, usually an {@link ImageDataOutputStream}
+     * @param width how many pixels are in each row
+     * @param height how many rows to write
+     * @param filter which {@link PNGFilter} to use on each row
+     * @param parallelism runs the blocks, possibly on several threads at once
+     * @param rows gets the unfiltered bytes of each row; may be called from several threads at once
+     * @throws IOException if out throws one
+     */
+    void write(OutputStream out, final int width, final int height, final PNGFilter filter, Parallelism parallelism,
+               final Rows rows) throws IOException {
+        final int count = blockCount(parallelism, width, height);
+        final int lineLen = width * 4, rowLen = lineLen + 1;
+        if (raw.length < height * rowLen)
+            raw = new byte[height * rowLen];
+        if (blocks.length < count) {
+            Block[] next = new Block[count];
+            System.arraycopy(blocks, 0, next, 0, blocks.length);
+            for (int i = blocks.length; i < count; i++) {
+                next[i] = new Block();
+            }
+            blocks = next;
+        }
+        final byte[] raw = this.raw;
+        final Block[] blocks = this.blocks;
+
+        // every block must be filtered before any can use the end of the one before it as a dictionary
+        parallelism.run(count, new Parallelism.Task() {
+            @Override
+            public void run(int i) {
+                final Block block = blocks[i];
+                if (block.line.length < lineLen)
+                    block.line = new byte[lineLen];
+                final byte[] line = block.line;
+                final int start = height * i / count, end = height * (i + 1) / count;
+                if (start == 0) {
+                    block.rowFilter.reset();
+                } else {
+                    rows.read(start - 1, line);
+                    block.rowFilter.reset(line, lineLen);
+                }
+                for (int y = start; y < end; y++) {
+                    rows.read(y, line);
+                    System.arraycopy(block.rowFilter.filter(line, lineLen, filter), 0, raw, y * rowLen, rowLen);
+                }
+            }
+        });
+        final int level = this.level;
+        parallelism.run(count, new Parallelism.Task() {
+            @Override
+            public void run(int i) {
+                final int start = height * i / count * rowLen, end = height * (i + 1) / count * rowLen;
+                compress(blocks[i], raw, start, end - start, i == count - 1, level);
+            }
+        });
+
+        final int flevel = level == 0 || level == 1 ? 0 : level >= 2 && level <= 5 ? 1 : level == 6 || level < 0 ? 2 : 3;
+        int header = 0x7800 | flevel << 6;
+        header += 31 - header % 31;
+        out.write(header >>> 8);
+        out.write(header);
+        int adler = 1;
+        for (int i = 0; i < count; i++) {
+            final Block block = blocks[i];
+            out.write(block.compressed, 0, block.compressedSize);
+            final int start = height * i / count * rowLen, end = height * (i + 1) / count * rowLen;
+            adler = combineAdler(adler, (int) block.adler.getValue(), end - start);
+        }
+        out.write(adler >>> 24);
+        out.write(adler >>> 16);
+        out.write(adler >>> 8);
+        out.write(adler);
+    }
+
+    /**
+     * Gets the RGBA bytes of one row of pixmap, in the order PNG stores them. If {@code ints} isn't null, it holds the
+     * pixels of pixmap as big-endian RGBA8888 ints, and the row is read from it instead of one pixel at a time from
+     * pixmap; only absolute gets are used, so several threads can share it.
+     */
+    private static void readRow(Pixmap pixmap, IntBuffer ints, int width, int py, byte[] line) {
+        if (ints != null) {
+            final int start = py * pixmap.getWidth();
+            for (int px = 0, x = 0; px < width; px++) {
+                int pixel = ints.get(start + px);
+                line[x++] = (byte) (pixel >>> 24);
+                line[x++] = (byte) (pixel >>> 16);
+                line[x++] = (byte) (pixel >>> 8);
+                line[x++] = (byte) pixel;
+            }
+        } else {
+            for (int px = 0, x = 0; px < width; px++) {
+                int pixel = pixmap.getPixel(px, py);
+                line[x++] = (byte) ((pixel >>> 24) & 0xff);
+                line[x++] = (byte) ((pixel >>> 16) & 0xff);
+                line[x++] = (byte) ((pixel >>> 8) & 0xff);
+                line[x++] = (byte) (pixel & 0xff);
+            }
+        }
+    }
+
+    /**
+     * Compresses {@code length} bytes of raw starting at {@code start} into the block's buffer, as raw DEFLATE data
+     * that ends on a byte boundary (or ends the stream, if this is the last block).
+     */
+    private static void compress(Block block, byte[] raw, int start, int length, boolean last, int level) {
+        // the level is only set on a new Deflater, so changing it can't make zlib flush a block early
+        if (block.deflater == null || block.deflaterLevel != level) {
+            if (block.deflater != null)
+                block.deflater.end();
+            block.deflater = new Deflater(level, true);
+            block.deflaterLevel = level;
+        }
+        final Deflater deflater = block.deflater;
+        deflater.reset();
+        if (start > 0) {
+            final int dictionary = Math.min(WINDOW, start);
+            deflater.setDictionary(raw, start - dictionary, dictionary);
+        }
+        block.adler.reset();
+        block.adler.update(raw, start, length);
+        deflater.setInput(raw, start, length);
+        if (last)
+            deflater.finish();
+        if (block.compressed.length < (length >>> 1) + 64)
+            block.compressed = new byte[(length >>> 1) + 64];
+        int size = 0;
+        while (true) {
+            if (block.compressed.length - size < 64) {
+                byte[] bigger = new byte[block.compressed.length << 1];
+                System.arraycopy(block.compressed, 0, bigger, 0, size);
+                block.compressed = bigger;
+            }
+            final int space = block.compressed.length - size;
+            // a return value less than the space given means a sync flush has completely finished
+            final int n = deflater.deflate(block.compressed, size, space, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            size += n;
+            if (last ? deflater.finished() : n < space)
+                break;
+        }
+        block.compressedSize = size;
+    }
+
+    /**
+     * Gets the Adler-32 checksum of two sequences of bytes one after the other, given the checksum of each and the
+     * length of the second, the same way zlib's {@code adler32_combine()} does.
+     * @param adler1 the checksum of the first sequence
+     * @param adler2 the checksum of the second sequence
+     * @param length2 how many bytes are in the second sequence
+     * @return the checksum of both sequences together
+     */
+    static int combineAdler(int adler1, int adler2, int length2) {
+        final long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = rem * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += (adler1 >>> 16) + (adler2 >>> 16) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= ADLER_BASE << 1) sum2 -= ADLER_BASE << 1;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return (int) (sum2 << 16 | sum1);
+    }
+
+    /**
+     * Releases the native memory held by each block's Deflater, and drops the buffers of filtered and compressed rows.
+     * This can still be used afterward, but it will need to make new Deflaters and buffers.
+     */
+    void dispose() {
+        for (Block block : blocks) {
+            if (block.deflater != null) {
+                block.deflater.end();
+                block.deflater = null;
+            }
+            block.line = new byte[0];
+            block.compressed = new byte[0];
+            block.compressedSize = 0;
+        }
+        raw = new byte[0];
+    }
+}
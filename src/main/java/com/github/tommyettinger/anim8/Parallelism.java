@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+package com.github.tommyettinger.anim8;
+
+/**
+ * A way to run several independent pieces of work, possibly on more than one thread at once. This interface doesn't
+ * use any threading classes itself, so it can be referenced from code that also runs on GWT, where only
+ * {@link #SERIAL} makes sense. On other platforms, {@link ForkJoinParallelism} runs work on a
+ * {@link java.util.concurrent.ForkJoinPool} or any other {@link java.util.concurrent.Executor}.
+ * <br>
+ * You can give a Parallelism to {@link PaletteReducer#setParallelism(Parallelism)} so that some of its dithers
+ * split each image into bands of rows and work on each band at the same time.
+ */
+public interface Parallelism {
+    /**
+     * One piece of work, identified only by its index.
+     */
+    interface Task {
+        /**
+         * Does the work for the piece with the given index.
+         * @param index an index from 0 (inclusive) to the count given to {@link #run(int, Task)} (exclusive)
+         */
+        void run(int index);
+    }
+
+    /**
+     * Tracks how far along each of several pieces of work is, so a piece can wait until an earlier piece has gone far
+     * enough. Each amount only ever increases.
+     */
+    interface Progress {
+        /**
+         * Records that the piece with the given index has reached {@code amount}, making everything that piece wrote
+         * before this call visible to any thread that sees this amount in {@link #await(int, int)}.
+         * @param index which piece of work has progressed
+         * @param amount how far that piece has gotten; should never be less than a previous amount for that index
+         */
+        void set(int index, int amount);
+
+        /**
+         * Waits until the piece with the given index has reached at least {@code amount}, then returns how far it has
+         * actually gotten (which may be further).
+         * @param index which piece of work to wait for
+         * @param amount how far that piece must get before this returns
+         * @return how far that piece has gotten, which is at least {@code amount}
+         */
+        int await(int index, int amount);
+    }
+
+    /**
+     * Gets how many threads this can use at once; this is used to decide how many pieces to split work into.
+     * @return how many threads this can use at once; always at least 1
+     */
+    int threads();
+
+    /**
+     * Calls {@code task.run(i)} once for each i from 0 (inclusive) to {@code count} (exclusive), possibly on different
+     * threads, and only returns once every call has finished. Calls may finish in any order, but a call never starts
+     * before every call with a lower index has started, and no more than {@link #threads()} calls run at once; this
+     * lets a call safely wait on a {@link Progress} for a lower index. If any call throws an exception, this rethrows it
+     * once all calls have finished.
+     * @param count how many pieces of work there are
+     * @param task the work to run for each index
+     */
+    void run(int count, Task task);
+
+    /**
+     * Creates a {@link Progress} that can track {@code count} pieces of work, all starting at 0, and that can be shared
+     * by the threads this uses.
+     * @param count how many pieces of work to track
+     * @return a new Progress
+     */
+    Progress progress(int count);
+
+    /**
+     * A Parallelism that simply runs every piece of work in order on the calling thread.
+     */
+    Parallelism SERIAL = new Parallelism() {
+        @Override
+        public int threads() {
+            return 1;
+        }
+
+        @Override
+        public void run(int count, Task task) {
+            for (int i = 0; i < count; i++) {
+                task.run(i);
+            }
+        }
+
+        @Override
+        public Progress progress(int count) {
+            final int[] amounts = new int[count];
+            return new Progress() {
+                @Override
+                public void set(int index, int amount) {
+                    amounts[index] = amount;
+                }
+
+                /**
+                 * Because SERIAL finishes each piece before starting the next, a lower index is always as far along as
+                 * it will ever get, so this never needs to wait.
+                 */
+                @Override
+                public int await(int index, int amount) {
+                    return amounts[index];
+                }
+            };
+        }
+    };
+}
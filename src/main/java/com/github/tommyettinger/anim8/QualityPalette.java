@@ -319,6 +319,48 @@ public class QualityPalette extends PaletteReducer {
         return difference(r1, g1, b1, r2, g2, b2);
     }
 
+    /**
+     * Creates a new QualityPalette with the same palette and settings as this one, using {@link #set(PaletteReducer)}.
+     *
+     * @return a new QualityPalette with the same palette as this
+     */
+    @Override
+    public QualityPalette copy() {
+        QualityPalette next = new QualityPalette();
+        next.set(this);
+        return next;
+    }
+
+    /**
+     * Finds where a color is in the space that the difference methods measure distance in, so that palette mappings
+     * can be built with a {@link PaletteTree}. QualityPalette's difference methods use Oklab, calculated the same way
+     * as in {@link #difference(int, int, int, int, int, int)}, so this stores L, A, and B and returns 512.0. This returns
+     * 0.0 unless this object's class is exactly QualityPalette, because a subclass could override any of the
+     * difference methods.
+     *
+     * @param r red, from 0 to 255
+     * @param g green, from 0 to 255
+     * @param b blue, from 0 to 255
+     * @param position a float array with length 3 or more; will be modified
+     * @return the scale to multiply a difference on one axis by, or 0.0 if the difference methods can't use positions
+     */
+    @Override
+    protected double colorPosition(int r, int g, int b, float[] position) {
+        if (getClass() != QualityPalette.class) return 0.0;
+        float rf = r * 0.00392156862745098f; rf *= rf;
+        float gf = g * 0.00392156862745098f; gf *= gf;
+        float bf = b * 0.00392156862745098f; bf *= bf;
+
+        float l = OtherMath.cbrtPositive(0.4121656120f * rf + 0.5362752080f * gf + 0.0514575653f * bf);
+        float m = OtherMath.cbrtPositive(0.2118591070f * rf + 0.6807189584f * gf + 0.1074065790f * bf);
+        float s = OtherMath.cbrtPositive(0.0883097947f * rf + 0.2818474174f * gf + 0.6302613616f * bf);
+
+        position[0] = forwardLight(0.2104542553f * l + 0.7936177850f * m - 0.0040720468f * s);
+        position[1] = 1.9779984951f * l - 2.4285922050f * m + 0.4505937099f * s;
+        position[2] = 0.0259040371f * l + 0.7827717662f * m - 0.8086757660f * s;
+        return 512.0;
+    }
+
     /**
      * Changes the curve of a requested L value so that it matches the internally-used curve. This takes a curve with a
      * very-dark area similar to sRGB (a very small one), and makes it significantly larger. This is typically used on
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2022  Tommy Ettinger
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+
+
+package com.github.tommyettinger.anim8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Applies a {@link PNGFilter} to rows of a PNG image and writes them, each after its filter type byte. The previous
+ * row is kept here, so rows must be written in order, and {@link #reset()} must be called before the first row of each
+ * image. All buffers are reused, and only grow when a longer row is written.
+ */
+final class RowFilter {
+    private final int bytesPerPixel;
+    private int bitDepth = 8;
+    private byte[] packed = new byte[0];
+    private byte[] prev = new byte[0];
+    // each holds the filter type at index 0, followed by the filtered row
+    private byte[] none = new byte[1], sub = new byte[1], up = new byte[1], average = new byte[1], paeth = new byte[1];
+    private boolean first = true;
+
+    /**
+     * @param bytesPerPixel how many bytes each pixel takes, or 1 if pixels are smaller than a byte
+     */
+    RowFilter(int bytesPerPixel) {
+        this.bytesPerPixel = bytesPerPixel;
+        none[0] = 0;
+        sub[0] = 1;
+        up[0] = 2;
+        average[0] = 3;
+        paeth[0] = 4;
+    }
+
+    /**
+     * Makes the next row written be treated as the first row of a new image, with only zeros above it.
+     */
+    void reset() {
+        first = true;
+    }
+
+    /**
+     * Makes the next row written be treated as if {@code above} was the row just before it, so an image can be split
+     * into bands of rows and each band filtered by its own RowFilter.
+     * @param above the unfiltered bytes of the row above the next one; will not be modified
+     * @param length how many bytes of above are in the row
+     */
+    void reset(byte[] above, int length) {
+        if (prev.length < length) prev = new byte[length];
+        System.arraycopy(above, 0, prev, 0, length);
+        first = false;
+    }
+
+    /**
+     * Sets how many bits each palette index takes in the rows this writes, which can be 1, 2, or 4 to pack 8, 4, or 2
+     * indices into each byte, or 8 (the default) to write each index as one byte. This should only be changed for a
+     * RowFilter with 1 byte per pixel, before {@link #reset()} is called for an image.
+     * @param bitDepth 1, 2, 4, or 8
+     */
+    void setBitDepth(int bitDepth) {
+        this.bitDepth = bitDepth;
+    }
+
+    /**
+     * Gets the fewest bits per pixel that a PNG can use to store every index into a palette with {@code colorCount}
+     * colors.
+     * @param colorCount how many colors are in the palette, up to 256
+     * @return 1, 2, 4, or 8
+     */
+    static int bitDepthFor(int colorCount) {
+        return colorCount <= 2 ? 1 : colorCount <= 4 ? 2 : colorCount <= 16 ? 4 : 8;
+    }
+
+    private static byte[] grow(byte[] row, int length) {
+        if (row.length >= length) return row;
+        byte type = row[0];
+        row = new byte[length];
+        row[0] = type;
+        return row;
+    }
+
+    /**
+     * Filters the first {@code length} bytes of {@code line} and writes them to {@code out}, after their filter type.
+     * If {@link #setBitDepth(int)} was given less than 8, line holds one palette index in each byte, and those indices
+     * are packed together, leftmost pixel in the highest bits, before they are filtered.
+     * @param out usually a DeflaterOutputStream
+     * @param line the unfiltered bytes of one row; will not be modified
+     * @param length how many bytes of line are in the row
+     * @param filter which filter to use
+     * @throws IOException if out throws one
+     */
+    void write(OutputStream out, byte[] line, int length, PNGFilter filter) throws IOException {
+        if (bitDepth < 8) {
+            length = pack(line, length);
+            line = packed;
+        }
+        out.write(filter(line, length, filter), 0, length + 1);
+    }
+
+    /**
+     * Packs {@code width} indices from line into {@link #packed}, with {@link #bitDepth} bits for each, and any bits
+     * left over in the last byte set to 0.
+     * @return how many bytes of packed hold the row
+     */
+    private int pack(byte[] line, int width) {
+        final int depth = bitDepth, perByte = 8 / depth, length = (width + perByte - 1) / perByte;
+        if (packed.length < length) packed = new byte[length];
+        final byte[] packed = this.packed;
+        final int mask = (1 << depth) - 1;
+        for (int i = 0, x = 0; i < length; i++) {
+            int b = 0;
+            for (int shift = 8 - depth; shift >= 0; shift -= depth) {
+                if (x < width) b |= (line[x++] & mask) << shift;
+            }
+            packed[i] = (byte) b;
+        }
+        return length;
+    }
+
+    /**
+     * Filters the first {@code length} bytes of {@code line}, and returns a buffer holding the filter type followed by
+     * the filtered row. The buffer belongs to this RowFilter, and is overwritten by a later call.
+     * @param line the unfiltered bytes of one row; will not be modified
+     * @param length how many bytes of line are in the row
+     * @param filter which filter to use
+     * @return a buffer with {@code length + 1} bytes of the filtered row, starting with its filter type
+     */
+    byte[] filter(byte[] line, int length, PNGFilter filter) {
+        if (prev.length < length) prev = new byte[length];
+        final byte[] prev = this.prev;
+        if (first) {
+            Arrays.fill(prev, 0, length, (byte) 0);
+            first = false;
+        }
+        final int bpp = bytesPerPixel;
+        byte[] chosen;
+        switch (filter) {
+            case SUB:
+                chosen = filterSub(line, length, bpp);
+                break;
+            case UP:
+                chosen = filterUp(line, prev, length);
+                break;
+            case AVERAGE:
+                chosen = filterAverage(line, prev, length, bpp);
+                break;
+            case PAETH:
+                chosen = filterPaeth(line, prev, length, bpp);
+                break;
+            case ADAPTIVE:
+                chosen = filterNone(line, length);
+                long best = sumAbs(chosen, length), sum;
+                byte[] row = filterSub(line, length, bpp);
+                if ((sum = sumAbs(row, length)) < best) {
+                    best = sum;
+                    chosen = row;
+                }
+                row = filterUp(line, prev, length);
+                if ((sum = sumAbs(row, length)) < best) {
+                    best = sum;
+                    chosen = row;
+                }
+                row = filterAverage(line, prev, length, bpp);
+                if ((sum = sumAbs(row, length)) < best) {
+                    best = sum;
+                    chosen = row;
+                }
+                row = filterPaeth(line, prev, length, bpp);
+                if (sumAbs(row, length) < best) {
+                    chosen = row;
+                }
+                break;
+            case NONE:
+            default:
+                chosen = filterNone(line, length);
+        }
+        System.arraycopy(line, 0, prev, 0, length);
+        return chosen;
+    }
+
+    /**
+     * Sums the absolute values of the filtered bytes in {@code row}, treating them as signed.
+     */
+    private static long sumAbs(byte[] row, int length) {
+        long sum = 0;
+        for (int x = 1; x <= length; x++) {
+            sum += Math.abs(row[x]);
+        }
+        return sum;
+    }
+
+    private byte[] filterNone(byte[] line, int length) {
+        final byte[] out = none = grow(none, length + 1);
+        System.arraycopy(line, 0, out, 1, length);
+        return out;
+    }
+
+    private byte[] filterSub(byte[] line, int length, int bpp) {
+        final byte[] out = sub = grow(sub, length + 1);
+        for (int x = 0; x < bpp && x < length; x++) {
+            out[x + 1] = line[x];
+        }
+        for (int x = bpp; x < length; x++) {
+            out[x + 1] = (byte) (line[x] - line[x - bpp]);
+        }
+        return out;
+    }
+
+    private byte[] filterUp(byte[] line, byte[] prev, int length) {
+        final byte[] out = up = grow(up, length + 1);
+        for (int x = 0; x < length; x++) {
+            out[x + 1] = (byte) (line[x] - prev[x]);
+        }
+        return out;
+    }
+
+    private byte[] filterAverage(byte[] line, byte[] prev, int length, int bpp) {
+        final byte[] out = average = grow(average, length + 1);
+        for (int x = 0; x < bpp && x < length; x++) {
+            out[x + 1] = (byte) (line[x] - ((prev[x] & 255) >>> 1));
+        }
+        for (int x = bpp; x < length; x++) {
+            out[x + 1] = (byte) (line[x] - ((line[x - bpp] & 255) + (prev[x] & 255) >>> 1));
+        }
+        return out;
+    }
+
+    private byte[] filterPaeth(byte[] line, byte[] prev, int length, int bpp) {
+        final byte[] out = paeth = grow(paeth, length + 1);
+        for (int x = 0; x < bpp && x < length; x++) {
+            // with nothing to the left, the Paeth predictor is always the byte above
+            out[x + 1] = (byte) (line[x] - prev[x]);
+        }
+        for (int x = bpp; x < length; x++) {
+            int a = line[x - bpp] & 255;
+            int b = prev[x] & 255;
+            int c = prev[x - bpp] & 255;
+            int p = a + b - c;
+            int pa = Math.abs(p - a);
+            int pb = Math.abs(p - b);
+            int pc = Math.abs(p - c);
+            if (pa <= pb && pa <= pc)
+                c = a;
+            else if (pb <= pc)
+                c = b;
+            out[x + 1] = (byte) (line[x] - c);
+        }
+        return out;
+    }
+}